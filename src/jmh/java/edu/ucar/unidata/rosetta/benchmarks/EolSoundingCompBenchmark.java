@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.converters.known.EolSoundingComp;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Conversion of EOL Sounding Composite (ESC) files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EolSoundingCompBenchmark {
+
+  @Param({"5000", "50000"})
+  public int rows;
+
+  private Path workDir;
+  private Path escFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = SyntheticData.createWorkDir();
+    escFile = SyntheticData.writeEscFile(workDir, rows);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SyntheticData.deleteWorkDir(workDir);
+  }
+
+  @Benchmark
+  public List<String> convert() {
+    return new EolSoundingComp().convert(escFile.toString());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.converters.utils.LineTokenizer;
+import edu.ucar.unidata.rosetta.converters.utils.NumberParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Splitting lines of wide delimited files of which only a few columns are used, comparing
+ * {@link String#split} with the {@link LineTokenizer} used by the StreamingColumnParser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LineTokenizerBenchmark {
+
+  private static final int ROWS = 10000;
+
+  @Param({"8", "64"})
+  public int columns;
+
+  private List<String> lines;
+  private int[] columnsToRead;
+
+  @Setup
+  public void setUp() throws IOException {
+    Path workDir = SyntheticData.createWorkDir();
+    try {
+      Path dataFile = SyntheticData.writeTrajectoryFile(workDir, ROWS, columns);
+      lines = Files.readAllLines(dataFile, StandardCharsets.UTF_8);
+      lines.remove(0);
+    } finally {
+      SyntheticData.deleteWorkDir(workDir);
+    }
+    // longitude, latitude and the first data column
+    columnsToRead = new int[] {1, 2, 3};
+  }
+
+  @Benchmark
+  public double split() {
+    double sum = 0;
+    for (String line : lines) {
+      String[] fields = line.split(",");
+      for (int column : columnsToRead) {
+        sum += (float) Double.parseDouble(fields[column]);
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double tokenize() {
+    LineTokenizer tokenizer = LineTokenizer.forDelimiter(",");
+    int[] starts = new int[4];
+    int[] ends = new int[4];
+    double sum = 0;
+    for (String line : lines) {
+      tokenizer.tokenize(line, starts.length, starts, ends);
+      for (int column : columnsToRead) {
+        sum += (float) NumberParser.parseDouble(line, starts[column], ends[column]);
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.domain.ParsedFile;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Parsing of a delimited data file into columns, the first step of every custom file conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParsedFileBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rows;
+
+  @Param({"4", "32"})
+  public int columns;
+
+  private Path workDir;
+  private Path dataFile;
+  private Template template;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = SyntheticData.createWorkDir();
+    dataFile = SyntheticData.writeTrajectoryFile(workDir, rows, columns);
+    template = SyntheticData.trajectoryTemplate(columns);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SyntheticData.deleteWorkDir(workDir);
+  }
+
+  @Benchmark
+  public ParsedFile parse() throws IOException, RosettaDataException {
+    return new ParsedFile(dataFile, template, ",");
+  }
+}
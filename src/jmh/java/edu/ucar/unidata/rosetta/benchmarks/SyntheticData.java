@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.domain.RosettaAttribute;
+import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.domain.VariableInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+import jxl.Workbook;
+import jxl.write.Label;
+import jxl.write.Number;
+import jxl.write.WritableSheet;
+import jxl.write.WritableWorkbook;
+import jxl.write.WriteException;
+
+/**
+ * Generators of synthetic data files, scaled by number of rows and columns, for the benchmarks.
+ * The values are random but reproducible, as each generator uses a fixed seed.
+ */
+public class SyntheticData {
+
+  private static final long SEED = 42L;
+  private static final LocalDateTime START = LocalDateTime.of(2016, 9, 3, 0, 0, 0);
+  private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  /** Date/time format of the time column of the trajectory files. */
+  public static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+  private SyntheticData() {}
+
+  /**
+   * Creates a temporary directory for the generated files.
+   *
+   * @return The directory.
+   * @throws IOException If unable to create the directory.
+   */
+  public static Path createWorkDir() throws IOException {
+    return Files.createTempDirectory("rosetta-jmh");
+  }
+
+  /**
+   * Deletes a directory created by {@link #createWorkDir()} and everything within it.
+   *
+   * @param dir The directory.
+   * @throws IOException If unable to delete the directory.
+   */
+  public static void deleteWorkDir(Path dir) throws IOException {
+    if (dir == null || !Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      List<Path> toDelete = new ArrayList<>();
+      paths.forEach(toDelete::add);
+      Collections.reverse(toDelete);
+      for (Path path : toDelete) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Returns date/time strings one second apart, as logged by a data logger.
+   *
+   * @param rows The number of values.
+   * @return The date/time strings, in the format {@value #DATE_TIME_FORMAT}.
+   */
+  public static List<String> dateTimes(int rows) {
+    List<String> dateTimes = new ArrayList<>(rows);
+    for (int row = 0; row < rows; row++) {
+      dateTimes.add(DATE_TIME.format(START.plusSeconds(row)));
+    }
+    return dateTimes;
+  }
+
+  /**
+   * Makes the template of a comma separated trajectory file written by
+   * {@link #writeTrajectoryFile(Path, int, int)}: a header line, then a full date/time column,
+   * longitude and latitude columns, and dataColumns float data columns.
+   *
+   * @param dataColumns The number of data columns.
+   * @return The template.
+   */
+  public static Template trajectoryTemplate(int dataColumns) {
+    List<VariableInfo> variableInfoList = new ArrayList<>();
+    variableInfoList.add(coordinateVariable(0, "time", "fullDateTime", "Text", DATE_TIME_FORMAT));
+    variableInfoList.add(coordinateVariable(1, "lon", "longitude", "Float", "degrees_east"));
+    variableInfoList.add(coordinateVariable(2, "lat", "latitude", "Float", "degrees_north"));
+    for (int column = 0; column < dataColumns; column++) {
+      VariableInfo variableInfo = new VariableInfo();
+      variableInfo.setColumnId(column + 3);
+      variableInfo.setName("var" + column);
+      variableInfo.setRosettaControlMetadata(new ArrayList<>(Arrays.asList(
+          new RosettaAttribute("coordinateVariable", "false", "BOOLEAN"),
+          new RosettaAttribute("type", "Float", "STRING"))));
+      variableInfo.setVariableMetadata(new ArrayList<>(Arrays.asList(new RosettaAttribute("units", "1", "STRING"),
+          new RosettaAttribute("long_name", "synthetic variable " + column, "STRING"))));
+      variableInfoList.add(variableInfo);
+    }
+
+    Template template = new Template();
+    template.setCfType("Trajectory");
+    template.setFormat("custom");
+    template.setDelimiter("Comma");
+    template.setHeaderLineNumbers(new ArrayList<>(Collections.singletonList(0)));
+    template.setGlobalMetadata(new ArrayList<>(Arrays.asList(
+        new RosettaGlobalAttribute("title", "Synthetic trajectory", "STRING", "root"),
+        new RosettaGlobalAttribute("institution", "Unidata", "STRING", "root"))));
+    template.setVariableInfoList(variableInfoList);
+    return template;
+  }
+
+  private static VariableInfo coordinateVariable(int columnId, String name, String coordinateVariableType,
+      String type, String units) {
+    VariableInfo variableInfo = new VariableInfo();
+    variableInfo.setColumnId(columnId);
+    variableInfo.setName(name);
+    variableInfo.setRosettaControlMetadata(new ArrayList<>(Arrays.asList(
+        new RosettaAttribute("coordinateVariable", "true", "BOOLEAN"),
+        new RosettaAttribute("coordinateVariableType", coordinateVariableType, "STRING"),
+        new RosettaAttribute("type", type, "STRING"))));
+    variableInfo.setVariableMetadata(new ArrayList<>(Arrays.asList(new RosettaAttribute("units", units, "STRING"),
+        new RosettaAttribute("long_name", name, "STRING"))));
+    return variableInfo;
+  }
+
+  /**
+   * Writes a comma separated trajectory file matching {@link #trajectoryTemplate(int)}.
+   *
+   * @param dir The directory in which to write the file.
+   * @param rows The number of data rows.
+   * @param dataColumns The number of data columns.
+   * @return The path to the file.
+   * @throws IOException If unable to write the file.
+   */
+  public static Path writeTrajectoryFile(Path dir, int rows, int dataColumns) throws IOException {
+    Path file = dir.resolve("trajectory_" + rows + "x" + dataColumns + ".csv");
+    Random random = new Random(SEED);
+    double lon = -125.0;
+    double lat = 10.0;
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      StringBuilder line = new StringBuilder("time,lon,lat");
+      for (int column = 0; column < dataColumns; column++) {
+        line.append(",var").append(column);
+      }
+      writer.write(line.toString());
+      writer.newLine();
+
+      LocalDateTime time = START;
+      for (int row = 0; row < rows; row++) {
+        lon += random.nextDouble() * 0.001;
+        lat += random.nextDouble() * 0.001;
+        line.setLength(0);
+        line.append(DATE_TIME.format(time)).append(',');
+        line.append(String.format(Locale.ROOT, "%.5f,%.5f", lon, lat));
+        for (int column = 0; column < dataColumns; column++) {
+          line.append(',').append(String.format(Locale.ROOT, "%.3f", random.nextGaussian() * 10 + 20));
+        }
+        writer.write(line.toString());
+        writer.newLine();
+        time = time.plusSeconds(1);
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Writes an eTUFF file with a position every day and rows observations of depth, temperature,
+   * light and internal temperature, one minute apart.
+   *
+   * @param dir The directory in which to write the file.
+   * @param rows The number of observation times.
+   * @return The path to the file.
+   * @throws IOException If unable to write the file.
+   */
+  public static Path writeEtuffFile(Path dir, int rows) throws IOException {
+    Path file = dir.resolve("etuff_" + rows + ".txt");
+    Random random = new Random(SEED);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+      for (String headerLine : Arrays.asList("// global attributes:", "  :institution = \"Unidata\"",
+          "// etag device attributes:", "  :manufacturer = \"Synthetic\"", "  :serial_number = \"42\"",
+          "// etag deployment attributes:", "  :time_coverage_start = \"2016-09-03\"",
+          "  :geospatial_lon_start = \"-125.0\"", "  :geospatial_lat_start = \"10.0\"", "// data:",
+          "// DateTime,VariableID,VariableValue,VariableName,VariableUnits")) {
+        writer.write(headerLine);
+        writer.newLine();
+      }
+
+      double lon = -125.0;
+      double lat = 10.0;
+      for (int row = 0; row < rows; row++) {
+        LocalDateTime time = START.plusMinutes(row);
+        String dateTime = "\"" + DATE_TIME.format(time) + "\"";
+        if (row % 1440 == 0) {
+          lon += random.nextDouble() * 0.1;
+          lat += random.nextDouble() * 0.1;
+          writer.write(String.format(Locale.ROOT, "%s,2,%.2f,\"longitude\",\"degree\"", dateTime, lon));
+          writer.newLine();
+          writer.write(String.format(Locale.ROOT, "%s,3,%.2f,\"latitude\",\"degree\"", dateTime, lat));
+          writer.newLine();
+        }
+        writer.write(String.format(Locale.ROOT, "%s,5,%.2f,\"depth\",\"meter\"", dateTime, random.nextDouble() * 200));
+        writer.newLine();
+        writer.write(String.format(Locale.ROOT, "%s,6,%.2f,\"temperature\",\"Celsius\"", dateTime,
+            15 + random.nextDouble() * 10));
+        writer.newLine();
+        writer.write(String.format(Locale.ROOT, "%s,7,%.2f,\"internal temperature\",\"Celsius\"", dateTime,
+            20 + random.nextDouble()));
+        writer.newLine();
+        writer.write(String.format(Locale.ROOT, "%s,8,%.2f,\"light\",\"units\"", dateTime, random.nextDouble() * 200));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Writes an EOL Sounding Composite (ESC) file holding a single sounding of rows levels, one
+   * second apart.
+   *
+   * @param dir The directory in which to write the file.
+   * @param rows The number of levels.
+   * @return The path to the file.
+   * @throws IOException If unable to write the file.
+   */
+  public static Path writeEscFile(Path dir, int rows) throws IOException {
+    Path file = dir.resolve("sounding_" + rows + ".cls");
+    Random random = new Random(SEED);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (String headerLine : Arrays.asList("Data Type:                         Synthetic/Ascending",
+          "Project ID:                        BENCHMARK",
+          "Release Site Type/Site ID:         Synthetic, KS/SYNTH",
+          "Release Location (lon,lat,alt):    099 33.90'W, 38 56.40'N, -99.565, 38.940, 646.0",
+          "UTC Release Time (y,m,d,h,m,s):    2015, 06, 10, 00:00:07", "/", "/", "/",
+          "Nominal Release Time (y,m,d,h,m,s):2015, 06, 10, 00:00:07",
+          " Time  Press  Temp  Dewpt  RH    Ucmp   Vcmp   spd   dir   Wcmp     Lon     Lat   Ele   MixR   Alt    Qp"
+              + "   Qt   Qrh  Qu   Qv   QdZ",
+          "  sec    mb     C     C     %     m/s    m/s   m/s   deg   m/s      deg     deg   deg   g/kg    m    code"
+              + " code code code code code",
+          "------ ------ ----- ----- ----- ------ ------ ----- ----- ----- -------- ------- ----- ----- ------- ----"
+              + " ---- ---- ---- ---- ----")) {
+        writer.write(headerLine);
+        writer.newLine();
+      }
+
+      double press = 933.3;
+      double alt = 646.0;
+      for (int row = 0; row < rows; row++) {
+        press = Math.max(1.0, press - random.nextDouble());
+        alt += random.nextDouble() * 10;
+        writer.write(String.format(Locale.ROOT,
+            "%6.1f %6.1f %5.1f %5.1f %5.1f %6.1f %6.1f %5.1f %5.1f %5.1f %8.3f %7.3f %5.1f %5.1f %7.1f"
+                + " %4.1f %4.1f %4.1f %4.1f %4.1f %4.1f",
+            (double) row, press, 34.2 - row * 0.01, 10.5, 24.0, random.nextDouble() * 5, random.nextDouble() * 5,
+            random.nextDouble() * 7, random.nextDouble() * 360, random.nextDouble() * 7, -99.565, 38.940, 999.0, 8.5,
+            alt, 1.0, 1.0, 1.0, 1.0, 1.0, 9.0));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Writes an Excel (.xls) file with a header row and rows rows of columns numeric cells. Excel
+   * 97-2003 sheets hold at most 65536 rows, so rows are spread over as many sheets as needed.
+   *
+   * @param dir The directory in which to write the file.
+   * @param rows The number of data rows.
+   * @param columns The number of columns.
+   * @return The path to the file.
+   * @throws IOException If unable to write the file.
+   */
+  public static Path writeXlsFile(Path dir, int rows, int columns) throws IOException {
+    Path file = dir.resolve("sheet_" + rows + "x" + columns + ".xls");
+    int rowsPerSheet = 65535;
+    Random random = new Random(SEED);
+    WritableWorkbook workbook = Workbook.createWorkbook(file.toFile());
+    try {
+      for (int sheetIndex = 0; sheetIndex * rowsPerSheet < rows; sheetIndex++) {
+        WritableSheet sheet = workbook.createSheet("data" + sheetIndex, sheetIndex);
+        for (int column = 0; column < columns; column++) {
+          sheet.addCell(new Label(column, 0, "var" + column));
+        }
+        int sheetRows = Math.min(rowsPerSheet, rows - sheetIndex * rowsPerSheet);
+        for (int row = 0; row < sheetRows; row++) {
+          for (int column = 0; column < columns; column++) {
+            sheet.addCell(new Number(column, row + 1, random.nextGaussian() * 10 + 20));
+          }
+        }
+      }
+      workbook.write();
+      workbook.close();
+    } catch (WriteException e) {
+      throw new IOException("Unable to write " + file, e);
+    }
+    return file;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.converters.known.etuff.TagUniversalFileFormat;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ucar.ma2.InvalidRangeException;
+
+/**
+ * Parsing and conversion of eTUFF (electronic Tagging of Pelagics Universal File Format) files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TagUniversalFileFormatBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rows;
+
+  private Path workDir;
+  private Path etuffFile;
+  private Path netcdfFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = SyntheticData.createWorkDir();
+    etuffFile = SyntheticData.writeEtuffFile(workDir, rows);
+    netcdfFile = workDir.resolve("etuff_" + rows + ".nc");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SyntheticData.deleteWorkDir(workDir);
+  }
+
+  @Benchmark
+  public TagUniversalFileFormat parse() {
+    TagUniversalFileFormat etuff = new TagUniversalFileFormat();
+    etuff.parse(etuffFile.toString());
+    return etuff;
+  }
+
+  @Benchmark
+  public String parseAndConvert() throws InvalidRangeException, IOException {
+    TagUniversalFileFormat etuff = new TagUniversalFileFormat();
+    etuff.parse(etuffFile.toString());
+    return etuff.convert(netcdfFile.toString());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.util.JsonCodec;
+import edu.ucar.unidata.rosetta.util.TemplateUtils;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Copying of templates, done for every file of a batch conversion. jsonRoundTrip is the copy by
+ * serialization to JSON and back, as was done before the structural copy of templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateCopyBenchmark {
+
+  @Param({"4", "32", "256"})
+  public int columns;
+
+  private Template template;
+
+  @Setup
+  public void setUp() {
+    template = SyntheticData.trajectoryTemplate(columns);
+  }
+
+  @Benchmark
+  public Template copy() {
+    return TemplateUtils.copy(template);
+  }
+
+  @Benchmark
+  public Template overlay() {
+    return template.overlay();
+  }
+
+  @Benchmark
+  public Template jsonRoundTrip() throws IOException {
+    return JsonCodec.readTemplate(JsonCodec.writeTemplateAsBytes(template));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.util.JsonCodec;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Reading and writing of JSON templates, done for every file of a batch conversion. The
+ * perCallMapper benchmarks create an ObjectMapper for each template, as was done before the shared
+ * {@link JsonCodec} readers and writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateJsonBenchmark {
+
+  @Param({"4", "32", "256"})
+  public int columns;
+
+  private Path workDir;
+  private Path templateFile;
+  private Template template;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = SyntheticData.createWorkDir();
+    template = SyntheticData.trajectoryTemplate(columns);
+    templateFile = workDir.resolve("rosetta.template");
+    JsonCodec.writeTemplate(template, templateFile);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SyntheticData.deleteWorkDir(workDir);
+  }
+
+  @Benchmark
+  public Template readPerCallMapper() throws IOException {
+    ObjectMapper templateMapper = new ObjectMapper();
+    try (FileReader templateFileReader = new FileReader(templateFile.toFile())) {
+      return templateMapper.readValue(templateFileReader, Template.class);
+    }
+  }
+
+  @Benchmark
+  public Template readShared() throws IOException {
+    return JsonCodec.readTemplate(templateFile);
+  }
+
+  @Benchmark
+  public byte[] writePerCallMapper() throws IOException {
+    return new ObjectMapper().writeValueAsBytes(template);
+  }
+
+  @Benchmark
+  public byte[] writeShared() throws IOException {
+    return JsonCodec.writeTemplateAsBytes(template);
+  }
+}
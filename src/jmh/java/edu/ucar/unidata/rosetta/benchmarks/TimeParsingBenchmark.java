@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.converters.utils.DateTimeParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ucar.nc2.time.CalendarDateFormatter;
+
+/**
+ * Creation of the time variable data from date/time columns, comparing the per-row
+ * CalendarDateFormatter parsing with the {@link DateTimeParser} used by the NetcdfFileManager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimeParsingBenchmark {
+
+  private static final String DATE_FORMAT = "yyyy-MM-dd";
+  private static final String TIME_FORMAT = "HH:mm:ss";
+
+  @Param({"10000", "1000000"})
+  public int rows;
+
+  private List<String> dateTimes;
+  private List<String> dates;
+  private List<String> times;
+
+  @Setup
+  public void setUp() {
+    dateTimes = SyntheticData.dateTimes(rows);
+    dates = new ArrayList<>(rows);
+    times = new ArrayList<>(rows);
+    for (String dateTime : dateTimes) {
+      dates.add(dateTime.substring(0, 10));
+      times.add(dateTime.substring(11));
+    }
+  }
+
+  @Benchmark
+  public long[] fullDateTimeWithCalendarDateFormatter() {
+    CalendarDateFormatter formatter = new CalendarDateFormatter(SyntheticData.DATE_TIME_FORMAT);
+    long[] seconds = new long[rows];
+    for (int row = 0; row < rows; row++) {
+      seconds[row] = formatter.parse(dateTimes.get(row)).getMillis() / 1000L;
+    }
+    return seconds;
+  }
+
+  @Benchmark
+  public long[] fullDateTimeWithDateTimeParser() {
+    return DateTimeParser.forFormat(SyntheticData.DATE_TIME_FORMAT).parseSeconds(dateTimes, null);
+  }
+
+  @Benchmark
+  public long[] dateAndTimeWithCalendarDateFormatter() {
+    CalendarDateFormatter formatter = new CalendarDateFormatter(DATE_FORMAT + TIME_FORMAT);
+    long[] seconds = new long[rows];
+    for (int row = 0; row < rows; row++) {
+      seconds[row] = formatter.parse(dates.get(row) + times.get(row)).getMillis() / 1000L;
+    }
+    return seconds;
+  }
+
+  @Benchmark
+  public long[] dateAndTimeWithDateTimeParser() {
+    return DateTimeParser.forFormat(DATE_FORMAT, TIME_FORMAT).parseSeconds(dates, times);
+  }
+}
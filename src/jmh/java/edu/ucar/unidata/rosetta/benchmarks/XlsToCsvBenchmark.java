@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.benchmarks;
+
+import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
+import edu.ucar.unidata.rosetta.util.XlsToCsvUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Conversion of uploaded Excel (.xls) files to csv files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XlsToCsvBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rows;
+
+  @Param({"4", "32"})
+  public int columns;
+
+  private Path workDir;
+  private Path xlsFile;
+  private Path csvFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = SyntheticData.createWorkDir();
+    xlsFile = SyntheticData.writeXlsFile(workDir, rows, columns);
+    csvFile = workDir.resolve("sheet.csv");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SyntheticData.deleteWorkDir(workDir);
+  }
+
+  @Benchmark
+  public boolean convert() throws RosettaFileException {
+    return XlsToCsvUtil.convert(xlsFile.toString(), csvFile.toString());
+  }
+}
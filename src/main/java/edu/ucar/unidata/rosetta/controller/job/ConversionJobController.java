@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.controller.job;
+
+import edu.ucar.unidata.rosetta.domain.batch.BatchProcessZip;
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import edu.ucar.unidata.rosetta.service.job.ConversionJobManager;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import java.io.File;
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Controller for conversion jobs run in the background: submission of batch jobs, status and
+ * progress polling, and download of the converted files.
+ */
+@Controller
+public class ConversionJobController {
+
+  @javax.annotation.Resource(name = "conversionJobManager")
+  private ConversionJobManager conversionJobManager;
+
+  /**
+   * Accepts a POST request for an uploaded zip file to be batch processed in the background.
+   *
+   * @param batchZipFile The batchZipFile form backing object containing the file.
+   * @param request The HttpServletRequest with which to glean the client IP address.
+   * @return The submitted conversion job.
+   * @throws IOException If unable to save the uploaded zip file.
+   */
+  @RequestMapping(value = "/jobs/batchProcess", method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<ConversionJob> submitBatchProcess(BatchProcessZip batchZipFile, HttpServletRequest request)
+      throws IOException {
+    batchZipFile.setId(PropertyUtils.createUniqueDataId(request));
+    ConversionJob conversionJob = conversionJobManager.submitBatchConversion(batchZipFile);
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(conversionJob);
+  }
+
+  /**
+   * Accepts a GET request for the status and progress of a conversion job.
+   *
+   * @param id The ID of the conversion job.
+   * @return The conversion job, or a 404 response if there is no such job.
+   */
+  @RequestMapping(value = "/jobs/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<ConversionJob> getConversionJob(@PathVariable("id") String id) {
+    try {
+      return ResponseEntity.ok(conversionJobManager.lookupConversionJob(id));
+    } catch (DataRetrievalFailureException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  /**
+   * Accepts a GET request for the file created by a conversion job: the netCDF file for a wizard
+   * conversion, or the zip file of converted files for a batch conversion.
+   *
+   * @param id The ID of the conversion job.
+   * @return The converted file, a 404 response if there is no such job, or a 409 response if the
+   *         job has not completed.
+   */
+  @RequestMapping(value = "/jobs/{id}/download", method = RequestMethod.GET)
+  @ResponseBody
+  public ResponseEntity<Resource> downloadConversionJobResult(@PathVariable("id") String id) {
+    ConversionJob conversionJob;
+    try {
+      conversionJob = conversionJobManager.lookupConversionJob(id);
+    } catch (DataRetrievalFailureException e) {
+      return ResponseEntity.notFound().build();
+    }
+    if (conversionJob.getStatus() != ConversionJob.Status.COMPLETE) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    File resultFile = new File(conversionJob.getResultFile());
+    if (!resultFile.exists()) {
+      return ResponseEntity.notFound().build();
+    }
+    String contentType =
+        conversionJob.getJobType() == ConversionJob.JobType.BATCH ? "application/zip" : "application/x-netcdf";
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(contentType))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + resultFile.getName())
+        .contentLength(resultFile.length()).body(new FileSystemResource(resultFile));
+  }
+}
@@ -5,8 +5,8 @@
 
 package edu.ucar.unidata.rosetta.controller.wizard;
 
-import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
-import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import edu.ucar.unidata.rosetta.service.job.ConversionJobManager;
 import edu.ucar.unidata.rosetta.util.CookieUtils;
 import edu.ucar.unidata.rosetta.util.PropertyUtils;
 import javax.annotation.Resource;
@@ -29,23 +29,25 @@ import org.springframework.web.util.WebUtils;
 @Controller
 public class ConvertAndDownloadController {
 
+  @Resource(name = "conversionJobManager")
+  private ConversionJobManager conversionJobManager;
+
   @Resource(name = "wizardManager")
   private WizardManager wizardManager;
 
   /**
    * Accepts a GET request for access to convert and download step of the wizard.
-   * Displays the converted data file and rosetta template for download.
+   * Submits the conversion of the uploaded file to run in the background, and displays the page
+   * from which the converted data file and rosetta template are downloaded once it completes.
    *
    * @param model The Model object to be populated.
    * @param redirectAttrs A specialization of the model to pass along message if redirected back to starting step.
    * @param request The HttpServletRequest used to retrieve the cookie.
    * @return View and the Model for the wizard to process.
-   * @throws RosettaFileException If unable to create the template file.
-   * @throws RosettaDataException If unable to parse data file with delimiter.
    */
   @RequestMapping(value = "/convertAndDownload", method = RequestMethod.GET)
   public ModelAndView displayConvertedFileDownloadPage(Model model, RedirectAttributes redirectAttrs,
-      HttpServletRequest request) throws RosettaFileException, RosettaDataException {
+      HttpServletRequest request) {
 
     // Have we visited this page before during this session?
     Cookie rosettaCookie = WebUtils.getCookie(request, "rosetta");
@@ -56,13 +58,13 @@ public class ConvertAndDownloadController {
       return new ModelAndView(new RedirectView("/cfType", true));
     }
 
-    // Convert the uploaded file to netCDF & create a template for future conversions.
-    String netcdfFile = wizardManager.convertToNetcdf(rosettaCookie.getValue());
+    // Convert the uploaded file to netCDF & create a template for future conversions in the background.
+    ConversionJob conversionJob = conversionJobManager.submitWizardConversion(rosettaCookie.getValue());
     String template = wizardManager.getTemplateFile(rosettaCookie.getValue());
     // Add data object to Model.
     String userFilesDir = PropertyUtils.getUserFilesDir();
 
-    model.addAttribute("netCDF", netcdfFile.replace(userFilesDir, ""));
+    model.addAttribute("jobId", conversionJob.getId());
     model.addAttribute("template", template.replace(userFilesDir, ""));
 
     // Add current step to the Model.
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.custom.dsg;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import java.nio.file.Path;
+
+/**
+ * A feature (e.g. a station) of a DSG collection file, and the data file holding its data.
+ *
+ * The template of a feature is the template of the collection, updated with the metadata specific
+ * to the feature (e.g. its latitude and longitude, held in global attributes). It is not modified
+ * when the collection is created.
+ */
+public class CollectionFeature {
+
+  private final String id;
+  private final Path dataFile;
+  private final Template template;
+
+  /**
+   * Create a feature of a collection.
+   *
+   * @param id The id of the feature, written to the variable with the cf_role attribute.
+   * @param dataFile The data file holding the data of the feature.
+   * @param template The template associated with the data file.
+   */
+  public CollectionFeature(String id, Path dataFile, Template template) {
+    this.id = id;
+    this.dataFile = dataFile;
+    this.template = template;
+  }
+
+  /**
+   * Returns the id of the feature.
+   *
+   * @return The feature id.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the data file holding the data of the feature.
+   *
+   * @return The data file.
+   */
+  public Path getDataFile() {
+    return dataFile;
+  }
+
+  /**
+   * Returns the template associated with the data file.
+   *
+   * @return The template.
+   */
+  public Template getTemplate() {
+    return template;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.custom.dsg;
+
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
+import edu.ucar.unidata.rosetta.converters.utils.MaxMinAccumulator;
+import edu.ucar.unidata.rosetta.domain.VariableInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import ucar.ma2.Array;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Holds the state of a single conversion of a data file to a netCDF file.
+ *
+ * A new context is created for each call to {@link NetcdfFileManager#createNetcdfFile}, which
+ * keeps the converters themselves free of per-conversion state, so that a single converter can
+ * be shared by concurrent conversions.
+ */
+class ConversionContext {
+
+  List<VariableInfo> nonElementCoordVarInfo = new ArrayList<>();
+  List<VariableInfo> dataVarInfo = new ArrayList<>();
+  Map<String, List<VariableInfo>> elementCoordVarInfo = new HashMap<String, List<VariableInfo>>();
+
+  List<String> coordVarNames = new ArrayList<>();
+
+  List<String> timeVarTypes = new ArrayList<>();
+  Map<Integer, Array> arrayData;
+  Map<Integer, List<String>> stringData;
+  // statistics accumulated while the arrays of the current chunk were decoded, keyed by array identity
+  Map<Array, ColumnStatistics> arrayStatistics = new IdentityHashMap<>();
+  String featureId;
+
+  NetcdfFileWriter ncf;
+
+  Array timeCoordVarArr;
+  String timeCoordVarName;
+  Array verticalCoordVarArr;
+  String verticalCoordVarName;
+  Array timeCoordVarDetailArr; // potentially for profile datasets
+  String timeCoordVarDetailName; // potentially for profile datasets
+
+  Dimension elementDimension;
+  // dimension of the features of a collection (e.g. stations), null when converting a single data file
+  Dimension featureDimension;
+  // ids of the features of a collection
+  List<String> featureIds;
+
+  List<String> coordAttrValues = new ArrayList<>();
+  List<String> coordVarTypes = new ArrayList<>();
+
+  boolean useNetcdf4 = false;
+  // true if the element dimension is unlimited, so that rows can be appended to the netCDF file later
+  boolean appendable = false;
+  // true when rows are appended to an existing netCDF file, whose other variables are already written
+  boolean appending = false;
+  // fingerprint of the template, recorded in appendable netCDF files
+  String templateFingerprint;
+  String timeUnits = "seconds since 1970-01-01T00:00:00";
+
+  // maximum number of data rows parsed and written at a time
+  final int chunkSize;
+  // progress of the conversion, as reported to the caller
+  final ConversionProgress progress;
+  // true if the data file does not fit in a single chunk
+  boolean chunked = false;
+  int numElements;
+  Map<Integer, Integer> maxStringLengths;
+  Map<String, ValueRange> valueRanges = new LinkedHashMap<>();
+  // sources of the data of the variables defined from columns or global attributes
+  WritePlan writePlan = new WritePlan();
+  // false if the write plan is reused from a previous conversion with the same template
+  boolean recordWritePlan = true;
+  // variables of the write plan, found once the netCDF file is created
+  Map<String, Variable> planVariables;
+
+  String elementTimeVarType;
+  List<VariableInfo> elementTimeVarInfo;
+  VariableInfo verticalCoordVarInfo;
+
+  ConversionContext(int chunkSize, ConversionProgress progress) {
+    this.chunkSize = chunkSize;
+    this.progress = progress;
+  }
+
+  /**
+   * The source of the data of a variable, and the max/min values of the data seen so far
+   */
+  static class ValueRange {
+
+    final Supplier<Array> source;
+    final MaxMinAccumulator accumulator;
+
+    ValueRange(Supplier<Array> source, MaxMinAccumulator accumulator) {
+      this.source = source;
+      this.accumulator = accumulator;
+    }
+  }
+}
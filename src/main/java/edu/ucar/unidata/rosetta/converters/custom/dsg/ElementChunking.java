@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.custom.dsg;
+
+import ucar.nc2.Variable;
+import ucar.nc2.write.Nc4ChunkingStrategy;
+
+/**
+ * Chunking of the variables of a netCDF-4 DSG file. Variables are chunked along their first
+ * dimension (the element dimension for the variables holding the data of the columns), so that a
+ * chunk holds up to {@value #TARGET_CHUNK_BYTES} bytes of consecutive rows, also when the element
+ * dimension is unlimited. Scalar variables are not chunked.
+ */
+class ElementChunking extends Nc4ChunkingStrategy {
+
+  // small enough for a chunk of each variable to fit in the default HDF5 chunk cache
+  static final int TARGET_CHUNK_BYTES = 1 << 18;
+
+  /**
+   * Create the chunking of the variables of a netCDF-4 file.
+   *
+   * @param deflateLevel deflate level of the chunked variables
+   * @param shuffle true to apply the shuffle filter to the chunked variables
+   */
+  ElementChunking(int deflateLevel, boolean shuffle) {
+    super(deflateLevel, shuffle);
+  }
+
+  @Override
+  public boolean isChunked(Variable v) {
+    return v.getRank() > 0;
+  }
+
+  @Override
+  public long[] computeChunking(Variable v) {
+    int[] shape = v.getShape();
+    long[] chunk = new long[shape.length];
+    // size of a row (e.g. one string for char variables)
+    long rowBytes = Math.max(v.getDataType().getSize(), 1);
+    for (int i = 1; i < shape.length; i++) {
+      chunk[i] = Math.max(shape[i], 1);
+      rowBytes *= chunk[i];
+    }
+    // the length of an unlimited dimension is not known when the file is defined
+    long rows = v.isUnlimited() ? TARGET_CHUNK_BYTES / rowBytes : Math.min(shape[0], TARGET_CHUNK_BYTES / rowBytes);
+    chunk[0] = Math.max(1, rows);
+    return chunk;
+  }
+}
@@ -9,6 +9,12 @@ import static edu.ucar.unidata.rosetta.converters.utils.VariableAttributeUtils.g
 import static java.lang.Math.toIntExact;
 import static ucar.nc2.time.CalendarDate.parseISOformat;
 import static ucar.nc2.time.CalendarDate.parseUdunits;
+import edu.ucar.unidata.rosetta.converters.custom.dsg.ConversionContext.ValueRange;
+import edu.ucar.unidata.rosetta.converters.utils.ChunkedColumnParser;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
+import edu.ucar.unidata.rosetta.converters.utils.DateTimeParser;
+import edu.ucar.unidata.rosetta.converters.utils.MaxMinAccumulator;
 import edu.ucar.unidata.rosetta.domain.ParsedFile;
 import edu.ucar.unidata.rosetta.domain.RosettaAttribute;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
@@ -20,69 +26,98 @@ import edu.ucar.unidata.rosetta.util.RosettaGlobalAttributeUtils;
 import edu.ucar.unidata.rosetta.util.TemplateUtils;
 import edu.ucar.unidata.rosetta.util.VariableInfoUtils;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayDouble;
 import ucar.ma2.ArrayFloat;
 import ucar.ma2.ArrayInt;
+import ucar.ma2.ArrayLong;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
 import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.Variable;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.time.CalendarDateUnit;
 
 public abstract class NetcdfFileManager {
 
   private static final Logger logger = LogManager.getLogger();
 
-  private List<VariableInfo> nonElementCoordVarInfo = new ArrayList<>();
-  private List<VariableInfo> dataVarInfo = new ArrayList<>();
-  private Map<String, List<VariableInfo>> elementCoordVarInfo = new HashMap<String, List<VariableInfo>>();
-
-  private List<String> coordVarNames = new ArrayList<>();
-
-  private List<String> timeVarTypes = new ArrayList<>();
-  private Map<Integer, Array> arrayData;
-  Map<Integer, List<String>> stringData;
-  String featureId;
   final String myDsgType;
   final String featureVarName;
 
-  NetcdfFileWriter ncf;
+  private static String colIdAttrName = "Rosetta_columnId";
 
-  private Array timeCoordVarArr;
-  private String timeCoordVarName;
-  private Array verticalCoordVarArr;
-  private String verticalCoordVarName;
-  private Array timeCoordVarDetailArr; // potentially for profile datasets
-  private String timeCoordVarDetailName; // potentially for profile datasets
+  // default maximum number of data rows parsed and written at a time
+  public static final int DEFAULT_CHUNK_SIZE = 100000;
 
-  Dimension elementDimension;
+  // global attribute holding the fingerprint of the template of an appendable netCDF file
+  static final String TEMPLATE_FINGERPRINT_ATTR_NAME = "rosetta_template_fingerprint";
 
-  List<String> coordAttrValues = new ArrayList<>();
-  List<String> coordVarTypes = new ArrayList<>();
+  // room left in the header of appendable netCDF-3 files, so that updating the time coverage
+  // attributes does not move the data
+  private static final int APPENDABLE_EXTRA_HEADER_SPACE = 1024;
 
-  private boolean useNetcdf4 = false;
-  private String timeUnits = "seconds since 1970-01-01T00:00:00";
-  private static String colIdAttrName = "Rosetta_columnId";
+  // fixed width format of the time coverage attributes of appendable netCDF files, so that the
+  // updated attributes take up as much room in the header as the ones they replace
+  private static final CalendarDateFormatter timeCoverageFormatter =
+      new CalendarDateFormatter("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
 
-  abstract void makeNonElementCoordVars(VariableInfo variableInfo);
+  // maximum number of write plans kept for reuse
+  private static final int MAX_WRITE_PLANS = 16;
 
-  abstract void createNonElementCoordVars(Template template);
+  // write plans of the templates converted most recently, keyed by the fingerprint of the template
+  // as it was passed to createNetcdfFile, so that the files of a batch sharing a template reuse the
+  // same plan
+  private final Map<String, WritePlan> writePlans =
+      Collections.synchronizedMap(new LinkedHashMap<String, WritePlan>(MAX_WRITE_PLANS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WritePlan> eldest) {
+          return size() > MAX_WRITE_PLANS;
+        }
+      });
+
+  // number of conversions which reused a write plan, for testing
+  private final AtomicLong writePlanHits = new AtomicLong();
 
-  abstract void makeOtherVariables();
+  // converters hold no per-conversion state, so a single instance of each is shared
+  private static final List<NetcdfFileManager> CONVERTERS = Collections.unmodifiableList(
+      Arrays.asList(new SingleTrajectory(), new SingleProfile(), new SingleTimeSeries()));
+
+  /**
+   * Returns the number of conversions which reused the write plan of an earlier conversion.
+   *
+   * @return the number of write plan reuses
+   */
+  long getWritePlanHits() {
+    return writePlanHits.get();
+  }
+
+  abstract void makeNonElementCoordVars(ConversionContext ctx, VariableInfo variableInfo);
+
+  abstract void createNonElementCoordVars(ConversionContext ctx, Template template);
+
+  abstract void makeOtherVariables(ConversionContext ctx);
 
   public NetcdfFileManager(String myDsgType) {
     this.myDsgType = myDsgType;
@@ -110,69 +145,30 @@ public abstract class NetcdfFileManager {
   }
 
   /**
-   * Get a list of converters
-   */
-  public static List<NetcdfFileManager> getConverters() {
-    List<NetcdfFileManager> dsgWriters = new ArrayList<>();
-
-    dsgWriters.add(new SingleTrajectory());
-    dsgWriters.add(new SingleProfile());
-    dsgWriters.add(new SingleTimeSeries());
-
-    return dsgWriters;
-  }
-
-  /**
-   * Convert list of date/time string to a list of longs with values representative of seconds
-   * since 1970-01-01T00:00:00UTC
+   * Check if the data files of many features can be merged by this converter into a single DSG
+   * collection file, see {@link #createNetcdfCollection}
    *
-   * @param data List of date/time strings
-   * @param format formart of the date/time strings
-   * @return list of values in seconds since 1970-01-01
+   * @return true if collections are supported
    */
-  private Array createLongTimeDataFromFullDateTime(List<String> data, String format) {
-    // todo - support subsecond date/time strings
-    // todo - allow unit to be ISO, parse accordingly
-    CalendarDateFormatter fmt = new CalendarDateFormatter(format);
-    int numVals = data.size();
-    long[] newTimeVals = new long[numVals];
-
-    for (int i = 0; i < numVals; i++) {
-
-      CalendarDate dateTime = fmt.parse(data.get(i));
-      newTimeVals[i] = dateTime.getMillis() / 1000L;
-    }
-    return Array.makeFromJavaArray(newTimeVals);
+  boolean supportsCollections() {
+    return false;
   }
 
   /**
-   * Convert list of date/time string to a list of ints with values representative of seconds
-   * since 1970-01-01T00:00:00UTC
-   *
-   * @param data List of date/time strings
-   * @param format formart of the date/time strings
-   * @return list of values in seconds since 1970-01-01
+   * Get a list of converters
    */
-  private Array createIntTimeDataFromFullDateTime(List<String> data, String format) {
-    CalendarDateFormatter fmt = new CalendarDateFormatter(format);
-    int numVals = data.size();
-    int[] newTimeVals = new int[numVals];
-
-    for (int i = 0; i < numVals; i++) {
-
-      CalendarDate dateTime = fmt.parse(data.get(i));
-      newTimeVals[i] = toIntExact(dateTime.getMillis() / 1000L);
-    }
-    return Array.makeFromJavaArray(newTimeVals);
+  public static List<NetcdfFileManager> getConverters() {
+    return CONVERTERS;
   }
 
   /**
    * Sort out three kinds of variable types: - Time related coordinate variables - Non-time
    * related coordinate variables - data variables
    *
+   * @param ctx context of the conversion
    * @param template template containing VariableInfo objects
    */
-  private void identifyVariables(Template template) {
+  private void identifyVariables(ConversionContext ctx, Template template) {
     // identify coordinate variables and separate out time related coordinate variables
     List<VariableInfo> variableInfoList = template.getVariableInfoList();
     if (variableInfoList != null) {
@@ -180,25 +176,25 @@ public abstract class NetcdfFileManager {
         if (VariableInfoUtils.isVarUsed(varInfo)) {
           if (!VariableInfoUtils.isCoordinateVariable(varInfo)) {
             // not a coordinate variable
-            dataVarInfo.add(varInfo);
+            ctx.dataVarInfo.add(varInfo);
           } else {
             // some kind of coordinate variable
             String coordvarType = VariableInfoUtils.getCoordVarType(varInfo);
             // time and vertical coordinates could be an element coordinate variable, so
             // handle special
             if (VariableInfoUtils.isTimeCoordVar(varInfo)) {
-              elementCoordVarInfo.computeIfAbsent("time", k -> new ArrayList<>()).add(varInfo);
-              timeVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
+              ctx.elementCoordVarInfo.computeIfAbsent("time", k -> new ArrayList<>()).add(varInfo);
+              ctx.timeVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
             } else if (VariableInfoUtils.getCoordVarType(varInfo).equalsIgnoreCase(VariableInfoUtils.vertical)) {
               if (myDsgType.equalsIgnoreCase("profile")) {
-                elementCoordVarInfo.computeIfAbsent("z", k -> new ArrayList<>()).add(varInfo);
+                ctx.elementCoordVarInfo.computeIfAbsent("z", k -> new ArrayList<>()).add(varInfo);
               } else {
-                nonElementCoordVarInfo.add(varInfo);
-                coordVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
+                ctx.nonElementCoordVarInfo.add(varInfo);
+                ctx.coordVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
               }
             } else {
-              nonElementCoordVarInfo.add(varInfo);
-              coordVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
+              ctx.nonElementCoordVarInfo.add(varInfo);
+              ctx.coordVarTypes.add(VariableInfoUtils.getCoordVarType(varInfo));
             }
           }
         }
@@ -206,7 +202,7 @@ public abstract class NetcdfFileManager {
     }
   }
 
-  private void createTimeVarInfoFromGlobalAttr(Template template) {
+  private void createTimeVarInfoFromGlobalAttr(ConversionContext ctx, Template template) {
     List<RosettaGlobalAttribute> rosettaGlobalAttributes = template.getGlobalMetadata();
     Attribute timeCoverageStart = null;
     for (RosettaGlobalAttribute rga : rosettaGlobalAttributes) {
@@ -235,55 +231,73 @@ public abstract class NetcdfFileManager {
 
       template.getVariableInfoList().add(tvi);
 
-      makeTimeVarFromFullDateTime(template, tvi);
+      makeTimeVarFromFullDateTime(ctx, template, tvi);
     }
 
   }
 
+  /**
+   * Add the element dimension (time for trajectory and timeSeries DSGs), unlimited if rows may be
+   * appended to the netCDF file later
+   *
+   * @param ctx context of the conversion
+   * @param dimName name of the dimension
+   * @param length number of rows of the data file
+   * @return the element dimension
+   */
+  private static Dimension addElementDimension(ConversionContext ctx, String dimName, int length) {
+    if (ctx.appendable) {
+      return ctx.ncf.addUnlimitedDimension(dimName);
+    }
+    return ctx.ncf.addDimension(dimName, length);
+  }
+
   /**
    * Helper method to get the basic time coordinate attributes
    *
+   * @param ctx context of the conversion
    * @return A list of time related attributes
    */
-  private List<Attribute> getBaseTimeVarAttrs() {
+  private List<Attribute> getBaseTimeVarAttrs(ConversionContext ctx) {
     List<Attribute> baseTimeVarAttrs = new ArrayList<>();
     baseTimeVarAttrs.add(new Attribute("axis", "T"));
     baseTimeVarAttrs.add(new Attribute("long_name", "time"));
     baseTimeVarAttrs.add(new Attribute("standard_name", "time"));
-    baseTimeVarAttrs.add(new Attribute("units", timeUnits));
+    baseTimeVarAttrs.add(new Attribute("units", ctx.timeUnits));
     return baseTimeVarAttrs;
   }
 
   /**
    * Create the time variable based on a relative time coordinate variable
    *
+   * @param ctx context of the conversion
    * @param relativeTimeVi The relative time coordinate variable
    * @return <code>true</code> if successfully created, otherwise false
    */
-  private boolean makeTimeVarFromRelativeTime(VariableInfo relativeTimeVi) {
+  private boolean makeTimeVarFromRelativeTime(ConversionContext ctx, VariableInfo relativeTimeVi) {
     boolean success;
     Group group = null;
     String timeDimName = "time";
     try {
-      timeCoordVarArr = arrayData.get(relativeTimeVi.getColumnId());
-      int numTimeObs = toIntExact(timeCoordVarArr.getSize());
+      ctx.timeCoordVarArr = ctx.arrayData.get(relativeTimeVi.getColumnId());
+      int numTimeObs = ctx.numElements;
       // only create element dimension if time is the element dimension
       if (myDsgType.equalsIgnoreCase("trajectory") | myDsgType.equalsIgnoreCase("timeseries")) {
-        elementDimension = ncf.addDimension(timeDimName, toIntExact(numTimeObs));
+        ctx.elementDimension = addElementDimension(ctx, timeDimName, toIntExact(numTimeObs));
       }
-      timeCoordVarName = relativeTimeVi.getName();
+      ctx.timeCoordVarName = relativeTimeVi.getName();
       DataType dataType = VariableInfoUtils.getDataType(relativeTimeVi);
       RosettaAttribute timeUnitAttr = VariableInfoUtils.findAttributeByName("units", relativeTimeVi);
-      timeUnits = timeUnitAttr.getValue();
+      ctx.timeUnits = timeUnitAttr.getValue();
 
       Variable timeVar =
-          ncf.addVariable(group, timeCoordVarName, dataType, Collections.singletonList(elementDimension));
-      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs();
-      timeVarAttrs.addAll(getMaxMinAttrs(timeCoordVarArr));
+          ctx.ncf.addVariable(group, ctx.timeCoordVarName, dataType, Collections.singletonList(ctx.elementDimension));
+      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs(ctx);
+      timeVarAttrs.addAll(getValueRangeAttrs(ctx, ctx.timeCoordVarName, () -> ctx.timeCoordVarArr, Optional.empty()));
       timeVar.addAll(timeVarAttrs);
       // not to be used as part of coordinate attribute for profile data
       if (myDsgType != "profile") {
-        coordAttrValues.add(timeCoordVarName);
+        ctx.coordAttrValues.add(ctx.timeCoordVarName);
       }
       success = true;
     } catch (ArithmeticException ae) {
@@ -298,44 +312,33 @@ public abstract class NetcdfFileManager {
   /**
    * Create the time variable based on a full date/time time coordinate variable
    *
+   * @param ctx context of the conversion
    * @param fullDateTimeVi The full date/time coordinate variable
    * @return <code>true</code> if successfully created, otherwise false
    */
-  private boolean makeTimeVarFromFullDateTime(Template template, VariableInfo fullDateTimeVi) {
+  private boolean makeTimeVarFromFullDateTime(ConversionContext ctx, Template template, VariableInfo fullDateTimeVi) {
     boolean success;
     Group group = null;
     String dimName = TemplateUtils.findUniqueName("time", template);
 
     try {
-      List<String> fullDateTime = new ArrayList<>();
-      DataType dataType = DataType.LONG;
+      // if not netCDF4, use INT instead of LONG
+      DataType dataType = ctx.useNetcdf4 ? DataType.LONG : DataType.INT;
       if (fullDateTimeVi.getColumnId() > 0) {
-        fullDateTime = stringData.get(fullDateTimeVi.getColumnId());
-        int numTimeObs = toIntExact(fullDateTime.size());
-        String dateTimeFormat = VariableInfoUtils.getUnit(fullDateTimeVi);
-
-        if (useNetcdf4) {
-          timeCoordVarArr = createLongTimeDataFromFullDateTime(fullDateTime, dateTimeFormat);
-        } else {
-          timeCoordVarArr = createIntTimeDataFromFullDateTime(fullDateTime, dateTimeFormat);
-        }
+        int numTimeObs = ctx.numElements;
+        ctx.timeCoordVarArr = makeFullDateTimeData(ctx, fullDateTimeVi);
 
         // only create element dimension if time is the element dimension
         if (myDsgType.equalsIgnoreCase("trajectory") | myDsgType.equalsIgnoreCase("timeseries")) {
-          elementDimension = ncf.addDimension(dimName, toIntExact(numTimeObs));
+          ctx.elementDimension = addElementDimension(ctx, dimName, toIntExact(numTimeObs));
         }
 
         // in this case, we are creating a totally new variable, so we need to check
         // if the variable "time" already exists in data and coordinate variables
-        timeCoordVarName = dimName;
+        ctx.timeCoordVarName = dimName;
       } else {
         // extract scalar value out of global attribute
         for (RosettaAttribute ra : fullDateTimeVi.getRosettaControlMetadata()) {
-          // if not netCDF4, use INT instead of LONG
-          if (!useNetcdf4) {
-            dataType = DataType.INT;
-          }
-
           String name = ra.getName();
           String attrDate = "";
           if (name.equalsIgnoreCase("globalattributename")) {
@@ -350,30 +353,31 @@ public abstract class NetcdfFileManager {
                 }
               }
             }
-            Array scalar = null;
-            scalar = new ArrayInt.D0(false);
+            Array scalar = ctx.useNetcdf4 ? new ArrayLong.D0(false) : new ArrayInt.D0(false);
             CalendarDate cd = parseISOformat(null, attrDate);
-            scalar.setFloat(0, cd.getMillis() / 1000L);
-            timeCoordVarArr = scalar;
-            timeCoordVarName = dimName;
+            scalar.setLong(0, cd.getMillis() / 1000L);
+            ctx.timeCoordVarArr = scalar;
+            ctx.timeCoordVarName = dimName;
           }
         }
       }
 
       Variable timeVar = null;
+      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs(ctx);
       if (fullDateTimeVi.getColumnId() > 0) {
-        timeVar = ncf.addVariable(group, timeCoordVarName, dataType, Collections.singletonList(elementDimension));
+        timeVar =
+            ctx.ncf.addVariable(group, ctx.timeCoordVarName, dataType, Collections.singletonList(ctx.elementDimension));
+        timeVarAttrs.addAll(getValueRangeAttrs(ctx, ctx.timeCoordVarName, () -> ctx.timeCoordVarArr, Optional.empty()));
       } else {
         // created from globalAttr - scalar
-        timeVar = ncf.addVariable(group, timeCoordVarName, dataType, "");
+        timeVar = ctx.ncf.addVariable(group, ctx.timeCoordVarName, dataType, "");
+        timeVarAttrs.addAll(getMaxMinAttrs(ctx.timeCoordVarArr));
       }
-      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs();
-      timeVarAttrs.addAll(getMaxMinAttrs(timeCoordVarArr));
       timeVar.addAll(timeVarAttrs);
       // generally not to be used as part of coordinate attribute for profile data
       // if profile, then check if this is created from global attribute
       if ((myDsgType != "profile") | (fullDateTimeVi.getColumnId() == -2)) {
-        coordAttrValues.add(timeCoordVarName);
+        ctx.coordAttrValues.add(ctx.timeCoordVarName);
       }
       success = true;
     } catch (ArithmeticException ae) {
@@ -389,74 +393,55 @@ public abstract class NetcdfFileManager {
    * Create the time variable based on a date and time coordinate variables, stored as different
    * VariableInfo objects
    *
+   * @param ctx context of the conversion
    * @param template The template object
    * @param dateOnly The VariableInfo object containing only the date information
    * @param timeOnly The VariableInfo object containing only the time information
    * @return <code>true</code> if successfully created, otherwise false
    */
-  private boolean makeTimeVarFromDateTimeOnly(Template template, VariableInfo dateOnly, VariableInfo timeOnly) {
+  private boolean makeTimeVarFromDateTimeOnly(ConversionContext ctx, Template template, VariableInfo dateOnly,
+      VariableInfo timeOnly) {
     boolean success;
     Group group = null;
     String dimName = TemplateUtils.findUniqueName("time", template);
 
-    List<String> dateTimeVals = stringData.get(dateOnly.getColumnId());
-    int numTimeObs = toIntExact(dateTimeVals.size());
-    String dateFormat = VariableInfoUtils.getUnit(dateOnly);
+    int numTimeObs = ctx.numElements;
 
     DataType dataType = DataType.INT;
-    if (useNetcdf4) {
+    if (ctx.useNetcdf4) {
       dataType = DataType.LONG;
     }
 
-    // if timeOnly is not null, then we need to combine that info with the dateOnly info
-    // (format and data values) to convert those into a new time variable
-    if (timeOnly != null) {
-      List<String> timeVals = stringData.get(timeOnly.getColumnId());
-      String timeFormat = VariableInfoUtils.getUnit(timeOnly);
-      for (int i = 0; i < dateTimeVals.size(); i++) {
-        dateTimeVals.set(i, dateTimeVals.get(i) + timeVals.get(i));
-      }
-      dateFormat = dateFormat + timeFormat;
-    }
-
     if (myDsgType != "profile") {
-      if (useNetcdf4) {
-        timeCoordVarArr = createLongTimeDataFromFullDateTime(dateTimeVals, dateFormat);
-      } else {
-        timeCoordVarArr = createIntTimeDataFromFullDateTime(dateTimeVals, dateFormat);
-      }
+      ctx.timeCoordVarArr = makeDateTimeOnlyData(ctx, dateOnly, timeOnly);
     } else {
-      if (useNetcdf4) {
-        timeCoordVarDetailArr = createLongTimeDataFromFullDateTime(dateTimeVals, dateFormat);
-      } else {
-        timeCoordVarDetailArr = createIntTimeDataFromFullDateTime(dateTimeVals, dateFormat);
-      }
+      ctx.timeCoordVarDetailArr = makeDateTimeOnlyData(ctx, dateOnly, timeOnly);
     }
 
     try {
       String timeCoordVarNameLocal = "";
       // only create element dimension if time is the element dimension
       if (myDsgType.equalsIgnoreCase("trajectory") | myDsgType.equalsIgnoreCase("timeseries")) {
-        elementDimension = ncf.addDimension(dimName, toIntExact(numTimeObs));
+        ctx.elementDimension = addElementDimension(ctx, dimName, toIntExact(numTimeObs));
         // in this case, we are creating a totally new variabled, so we need to check
         // if the variable "time" already exists in data and coordinate variables
         timeCoordVarNameLocal = dimName;
-        timeCoordVarName = dimName;
+        ctx.timeCoordVarName = dimName;
       } else {
-        timeCoordVarNameLocal = timeCoordVarName + "_detail";
-        timeCoordVarDetailName = timeCoordVarNameLocal;
+        timeCoordVarNameLocal = ctx.timeCoordVarName + "_detail";
+        ctx.timeCoordVarDetailName = timeCoordVarNameLocal;
       }
 
 
       Variable timeVar =
-          ncf.addVariable(group, timeCoordVarNameLocal, dataType, Collections.singletonList(elementDimension));
-      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs();
-      timeVarAttrs.addAll(getMaxMinAttrs(timeCoordVarArr));
+          ctx.ncf.addVariable(group, timeCoordVarNameLocal, dataType, Collections.singletonList(ctx.elementDimension));
+      List<Attribute> timeVarAttrs = getBaseTimeVarAttrs(ctx);
+      timeVarAttrs.addAll(getValueRangeAttrs(ctx, timeCoordVarNameLocal, () -> ctx.timeCoordVarArr, Optional.empty()));
       timeVar.addAll(timeVarAttrs);
 
       // not to be used as part of coordinate attribute for profile data
       if (myDsgType != "profile") {
-        coordAttrValues.add(timeCoordVarName);
+        ctx.coordAttrValues.add(ctx.timeCoordVarName);
       }
 
       success = true;
@@ -467,40 +452,141 @@ public abstract class NetcdfFileManager {
     return success;
   }
 
+  /**
+   * Compute the time values of a full date/time coordinate variable from the current data
+   *
+   * @param ctx context of the conversion
+   * @param fullDateTimeVi The full date/time coordinate variable
+   * @return The time values
+   */
+  private Array makeFullDateTimeData(ConversionContext ctx, VariableInfo fullDateTimeVi) {
+    List<String> fullDateTime = ctx.stringData.get(fullDateTimeVi.getColumnId());
+    String dateTimeFormat = VariableInfoUtils.getUnit(fullDateTimeVi);
+    return makeTimeData(ctx, DateTimeParser.forFormat(dateTimeFormat), fullDateTime, null);
+  }
+
+  /**
+   * Compute the time values of date and time coordinate variables from the current data
+   *
+   * @param ctx context of the conversion
+   * @param dateOnly The VariableInfo object containing only the date information
+   * @param timeOnly The VariableInfo object containing only the time information (may be null)
+   * @return The time values
+   */
+  private Array makeDateTimeOnlyData(ConversionContext ctx, VariableInfo dateOnly, VariableInfo timeOnly) {
+    List<String> dateVals = ctx.stringData.get(dateOnly.getColumnId());
+    String dateFormat = VariableInfoUtils.getUnit(dateOnly);
+
+    // if timeOnly is not null, then we need to combine that info with the dateOnly info
+    // (format and data values) to convert those into a new time variable
+    if (timeOnly != null) {
+      List<String> timeVals = ctx.stringData.get(timeOnly.getColumnId());
+      String timeFormat = VariableInfoUtils.getUnit(timeOnly);
+      return makeTimeData(ctx, DateTimeParser.forFormat(dateFormat, timeFormat), dateVals, timeVals);
+    }
+    return makeTimeData(ctx, DateTimeParser.forFormat(dateFormat), dateVals, null);
+  }
+
+  /**
+   * Convert date/time strings to values representative of seconds since 1970-01-01T00:00:00UTC,
+   * stored as longs for netCDF-4 and as ints otherwise
+   *
+   * @param ctx context of the conversion
+   * @param parser parser for the format of the date/time strings
+   * @param dateVals date/time strings, or date strings if timeVals is not null
+   * @param timeVals time strings (may be null)
+   * @return The time values
+   */
+  private Array makeTimeData(ConversionContext ctx, DateTimeParser parser, List<String> dateVals,
+      List<String> timeVals) {
+    // todo - support subsecond date/time strings
+    // todo - allow unit to be ISO, parse accordingly
+    ColumnStatistics statistics = new ColumnStatistics();
+    Array timeData;
+    if (ctx.useNetcdf4) {
+      timeData = Array.makeFromJavaArray(parser.parseSeconds(dateVals, timeVals, statistics));
+    } else {
+      timeData = Array.makeFromJavaArray(parser.parseIntSeconds(dateVals, timeVals, statistics));
+    }
+    ctx.arrayStatistics.put(timeData, statistics);
+    return timeData;
+  }
+
+  /**
+   * Update the data of the element coordinate variables (time and vertical) after a new chunk of
+   * the data file has been parsed
+   *
+   * @param ctx context of the conversion
+   */
+  private void updateElementCoordVarData(ConversionContext ctx) {
+    if (ctx.elementTimeVarType != null) {
+      VariableInfo timeVarInfo = ctx.elementTimeVarInfo.get(0);
+      if (ctx.elementTimeVarType.equals(VariableInfoUtils.relativeTime)) {
+        ctx.timeCoordVarArr = ctx.arrayData.get(timeVarInfo.getColumnId());
+      } else if (ctx.elementTimeVarType.equals(VariableInfoUtils.fullDateTime)) {
+        ctx.timeCoordVarArr = makeFullDateTimeData(ctx, timeVarInfo);
+      } else {
+        VariableInfo timeOnly = ctx.elementTimeVarInfo.size() > 1 ? ctx.elementTimeVarInfo.get(1) : null;
+        if (myDsgType != "profile") {
+          ctx.timeCoordVarArr = makeDateTimeOnlyData(ctx, timeVarInfo, timeOnly);
+        } else {
+          ctx.timeCoordVarDetailArr = makeDateTimeOnlyData(ctx, timeVarInfo, timeOnly);
+        }
+      }
+    }
+
+    if (ctx.verticalCoordVarInfo != null) {
+      ctx.verticalCoordVarArr = ctx.arrayData.get(ctx.verticalCoordVarInfo.getColumnId());
+    }
+  }
+
   /**
    * Create the potential element coordinate variable for time
    *
+   * @param ctx context of the conversion
    * @param template - rosetta template object
    * @return timeVarHandled - variable creation successful
    */
-  private boolean createElementCoordVarTime(Template template) {
-    List<VariableInfo> timeCoordVarInfo = elementCoordVarInfo.get("time");
+  private boolean createElementCoordVarTime(ConversionContext ctx, Template template) {
+    List<VariableInfo> timeCoordVarInfo = ctx.elementCoordVarInfo.get("time");
     boolean timeVarHandled = false;
     if (timeCoordVarInfo.size() == 1) {
-      if (timeVarTypes.contains(VariableInfoUtils.relativeTime)) {
-        timeVarHandled = makeTimeVarFromRelativeTime(timeCoordVarInfo.get(0));
-      } else if (timeVarTypes.contains(VariableInfoUtils.fullDateTime)) {
-        timeVarHandled = makeTimeVarFromFullDateTime(template, timeCoordVarInfo.get(0));
-      } else if (timeVarTypes.contains(VariableInfoUtils.dateOnly)) {
-        timeVarHandled = makeTimeVarFromDateTimeOnly(template, timeCoordVarInfo.get(0), null);
+      if (ctx.timeVarTypes.contains(VariableInfoUtils.relativeTime)) {
+        timeVarHandled = makeTimeVarFromRelativeTime(ctx, timeCoordVarInfo.get(0));
+        ctx.elementTimeVarType = VariableInfoUtils.relativeTime;
+      } else if (ctx.timeVarTypes.contains(VariableInfoUtils.fullDateTime)) {
+        timeVarHandled = makeTimeVarFromFullDateTime(ctx, template, timeCoordVarInfo.get(0));
+        ctx.elementTimeVarType = VariableInfoUtils.fullDateTime;
+      } else if (ctx.timeVarTypes.contains(VariableInfoUtils.dateOnly)) {
+        timeVarHandled = makeTimeVarFromDateTimeOnly(ctx, template, timeCoordVarInfo.get(0), null);
+        ctx.elementTimeVarType = VariableInfoUtils.dateOnly;
       } else {
         String msg = "Do not understand how to handle a single time of type \"\""
             + VariableInfoUtils.getCoordVarType(timeCoordVarInfo.get(0));
         logger.error(msg);
       }
     } else if (timeCoordVarInfo.size() == 2) {
-      if ((timeVarTypes.contains(VariableInfoUtils.dateOnly)) && (timeVarTypes.contains(VariableInfoUtils.timeOnly))) {
+      if ((ctx.timeVarTypes.contains(VariableInfoUtils.dateOnly))
+          && (ctx.timeVarTypes.contains(VariableInfoUtils.timeOnly))) {
         // newTimeVarData = makeRelativeTime(elementCoordVarInfo.get(dateOnly), elementCoordVarInfo.get(timeOnly));
         String coordVarType = VariableInfoUtils.getCoordVarType(timeCoordVarInfo.get(0));
         if (coordVarType.equalsIgnoreCase(VariableInfoUtils.dateOnly)) {
-          timeVarHandled = makeTimeVarFromDateTimeOnly(template, timeCoordVarInfo.get(0), timeCoordVarInfo.get(1));
+          timeVarHandled = makeTimeVarFromDateTimeOnly(ctx, template, timeCoordVarInfo.get(0), timeCoordVarInfo.get(1));
+          ctx.elementTimeVarType = VariableInfoUtils.dateOnly;
         }
       } else {
         logger.error("Two time vars founds, but not dateOnly and timeOnly.");
       }
     } else {
       logger
-          .error("there should only be two time related variables defined - this found " + elementCoordVarInfo.size());
+          .error("there should only be two time related variables defined - this found "
+              + ctx.elementCoordVarInfo.size());
+    }
+
+    if (timeVarHandled) {
+      ctx.elementTimeVarInfo = timeCoordVarInfo;
+    } else {
+      ctx.elementTimeVarType = null;
     }
 
     return timeVarHandled;
@@ -509,39 +595,43 @@ public abstract class NetcdfFileManager {
   /**
    * Create the potential element coordinate variable for the vertical dimension
    *
+   * @param ctx context of the conversion
    * @return timeVarHandled - variable creation successful
    */
-  private boolean createElementCoordVarVertical() {
+  private boolean createElementCoordVarVertical(ConversionContext ctx) {
     boolean vertVarHandled = false;
     Group group = null;
     String verticalDimName = "z";
-    List<VariableInfo> vertCoordVarInfo = elementCoordVarInfo.get("z");
+    List<VariableInfo> vertCoordVarInfo = ctx.elementCoordVarInfo.get("z");
     try {
       if (!vertCoordVarInfo.isEmpty() && (vertCoordVarInfo.size() == 1)) {
         // should only be one vertical coordinate variable
         VariableInfo vertVarInfoSingle = vertCoordVarInfo.get(0);
 
-        verticalCoordVarArr = arrayData.get(vertVarInfoSingle.getColumnId());
-        int numVertObs = toIntExact(verticalCoordVarArr.getSize());
-        elementDimension = ncf.addDimension(verticalDimName, toIntExact(numVertObs));
-        verticalCoordVarName = vertVarInfoSingle.getName();
+        ctx.verticalCoordVarArr = ctx.arrayData.get(vertVarInfoSingle.getColumnId());
+        ctx.verticalCoordVarInfo = vertVarInfoSingle;
+        int numVertObs = ctx.numElements;
+        ctx.elementDimension = ctx.ncf.addDimension(verticalDimName, toIntExact(numVertObs));
+        ctx.verticalCoordVarName = vertVarInfoSingle.getName();
         DataType dataType = VariableInfoUtils.getDataType(vertVarInfoSingle);
 
         Variable verticalVar =
-            ncf.addVariable(group, verticalCoordVarName, dataType, Collections.singletonList(elementDimension));
+            ctx.ncf.addVariable(group, ctx.verticalCoordVarName, dataType,
+                Collections.singletonList(ctx.elementDimension));
 
         // add all attributes from the variableInfo object
         List<Attribute> verticalVarAttrs = VariableInfoUtils.getAllVariableAttributes(vertVarInfoSingle);
 
         // add max/min
-        verticalVarAttrs.addAll(getMaxMinAttrs(verticalCoordVarArr));
+        verticalVarAttrs
+            .addAll(getValueRangeAttrs(ctx, ctx.verticalCoordVarName, () -> ctx.verticalCoordVarArr, Optional.empty()));
 
         verticalVar.addAll(verticalVarAttrs);
 
         // add axis attribute
         verticalVar.addAttribute(new Attribute("axis", "Z"));
 
-        coordAttrValues.add(verticalCoordVarName);
+        ctx.coordAttrValues.add(ctx.verticalCoordVarName);
         vertVarHandled = true;
       }
     } catch (ArithmeticException ae) {
@@ -551,13 +641,34 @@ public abstract class NetcdfFileManager {
     return vertVarHandled;
   }
 
+  /**
+   * Get the valid_min, valid_max attributes of a variable. The data of the variable is obtained
+   * from source, which is asked again for the data of each new chunk when the data file is
+   * converted in chunks, so that the attributes can be updated once all of the data are written.
+   *
+   * @param ctx context of the conversion
+   * @param varName name of the netCDF variable
+   * @param source provides the data of the variable held in memory
+   * @param missingValue missing value of the variable, skipped when computing max/min
+   * @return A list containing the valid_max and valid_min attributes
+   */
+  private List<Attribute> getValueRangeAttrs(ConversionContext ctx, String varName, Supplier<Array> source,
+      Optional<Double> missingValue) {
+    MaxMinAccumulator accumulator = new MaxMinAccumulator(missingValue);
+    Array data = source.get();
+    accumulator.add(data, ctx.arrayStatistics.get(data));
+    ctx.valueRanges.put(varName, new ValueRange(source, accumulator));
+    return accumulator.getMaxMinAttrs();
+  }
+
   /**
    * Get the auto-computed attributes for a given coordinate VariableInfo object
    *
+   * @param ctx context of the conversion
    * @param variableInfo The coordinate variable for which attributes should be computed
    * @return A list of computed attributes
    */
-  List<Attribute> calculateCoordVarAttrs(VariableInfo variableInfo) {
+  List<Attribute> calculateCoordVarAttrs(ConversionContext ctx, VariableInfo variableInfo) {
     List<Attribute> calculatedCoordVarAttrs = new ArrayList<>();
 
     // CoordinateVariable axis
@@ -581,13 +692,25 @@ public abstract class NetcdfFileManager {
 
     int colId = variableInfo.getColumnId();
     calculatedCoordVarAttrs.add(new Attribute(colIdAttrName, variableInfo.getColumnId()));
+    if (ctx.recordWritePlan) {
+      if (colId > 0) {
+        ctx.writePlan.addColumnWrite(variableInfo.getName(), colId);
+      } else {
+        // variables extracted from global metadata
+        for (RosettaAttribute ra : variableInfo.getRosettaControlMetadata()) {
+          if (ra.getName().equalsIgnoreCase("globalattributename")) {
+            ctx.writePlan.addGlobalAttributeWrite(variableInfo.getName(), ra.getValue());
+          }
+        }
+      }
+    }
 
     // only for coordinate variables defined in columnar data block (i.e. non-attribute based)
     if (colId > 0) {
       // CoordinateVariable valid_min, valid_max*
-      Array data = arrayData.get(variableInfo.getColumnId());
       Optional<Double> missingValue = VariableInfoUtils.findMissingValue(variableInfo);
-      calculatedCoordVarAttrs.addAll(getMaxMinAttrs(data, missingValue));
+      calculatedCoordVarAttrs
+          .addAll(getValueRangeAttrs(ctx, variableInfo.getName(), () -> ctx.arrayData.get(colId), missingValue));
     }
 
     return calculatedCoordVarAttrs;
@@ -596,29 +719,34 @@ public abstract class NetcdfFileManager {
   /**
    * Get the auto-computed attributes for a given data VariableInfo object
    *
+   * @param ctx context of the conversion
    * @param variableInfo The data variable for which attributes should be computed
    * @return A list of computed attributes
    */
-  List<Attribute> calculateDataVarAttrs(VariableInfo variableInfo) {
+  List<Attribute> calculateDataVarAttrs(ConversionContext ctx, VariableInfo variableInfo) {
     List<Attribute> calculatedDataVarAttrs = new ArrayList<>();
     // DataVariable _FillValue
     // DataVariable coordinates
-    String coords = String.join(" ", coordAttrValues);
+    String coords = String.join(" ", ctx.coordAttrValues);
     calculatedDataVarAttrs.add(new Attribute("coordinates", coords));
     // DataVariable coverage_content_type
     // no good way to guess this - will need to come from the template
 
-    Array data = arrayData.get(variableInfo.getColumnId());
+    int colId = variableInfo.getColumnId();
+    Array data = ctx.arrayData.get(colId);
 
     if (data.getDataType() != DataType.CHAR && data.getDataType() != DataType.STRING) {
       Optional<Double> missingValue = VariableInfoUtils.findMissingValue(variableInfo);
-      calculatedDataVarAttrs.addAll(getMaxMinAttrs(data, missingValue));
+      calculatedDataVarAttrs
+          .addAll(getValueRangeAttrs(ctx, variableInfo.getName(), () -> ctx.arrayData.get(colId), missingValue));
     }
 
     // add columnId if it was initilized in attribute
-    int colId = variableInfo.getColumnId();
     if (colId > 0) {
       calculatedDataVarAttrs.add(new Attribute(colIdAttrName, variableInfo.getColumnId()));
+      if (ctx.recordWritePlan) {
+        ctx.writePlan.addColumnWrite(variableInfo.getName(), colId);
+      }
     }
     return calculatedDataVarAttrs;
   }
@@ -626,32 +754,33 @@ public abstract class NetcdfFileManager {
   /**
    * If the file to be converted follows the eTuff standard, auto-compute the needed attributes
    *
+   * @param ctx context of the conversion
    * @return A list of computed eTuff attributes
    */
-  private void addTuffGlobalAttrs() {
-    int end = elementDimension.getLength();
-    for (VariableInfo coordVar : nonElementCoordVarInfo) {
+  private void addTuffGlobalAttrs(ConversionContext ctx) {
+    int end = ctx.elementDimension.getLength();
+    for (VariableInfo coordVar : ctx.nonElementCoordVarInfo) {
       // CoordinateVariable axis
       String type = VariableInfoUtils.getCoordVarType(coordVar);
-      Array data = arrayData.get(coordVar.getColumnId());
+      Array data = ctx.arrayData.get(coordVar.getColumnId());
 
       if (type.equalsIgnoreCase(VariableInfoUtils.longitude)) {
-        ncf.addGlobalAttribute(new Attribute("geospatial_lon_start", data.getDouble(0)));
-        ncf.addGlobalAttribute(new Attribute("geospatial_lon_end", data.getDouble(end)));
+        ctx.ncf.addGlobalAttribute(new Attribute("geospatial_lon_start", data.getDouble(0)));
+        ctx.ncf.addGlobalAttribute(new Attribute("geospatial_lon_end", data.getDouble(end)));
       } else if (type.equalsIgnoreCase(VariableInfoUtils.latitude)) {
-        ncf.addGlobalAttribute(new Attribute("geospatial_lat_start", data.getDouble(0)));
-        ncf.addGlobalAttribute(new Attribute("geospatial_lat_end", data.getDouble(end)));
+        ctx.ncf.addGlobalAttribute(new Attribute("geospatial_lat_start", data.getDouble(0)));
+        ctx.ncf.addGlobalAttribute(new Attribute("geospatial_lat_end", data.getDouble(end)));
       }
     }
 
-    String startUdUnit = String.join(" ", String.valueOf(timeCoordVarArr.getLong(0)), timeUnits);
-    String stopUdUnit = String.join(" ", String.valueOf(timeCoordVarArr.getLong(end)), timeUnits);
+    String startUdUnit = String.join(" ", String.valueOf(ctx.timeCoordVarArr.getLong(0)), ctx.timeUnits);
+    String stopUdUnit = String.join(" ", String.valueOf(ctx.timeCoordVarArr.getLong(end)), ctx.timeUnits);
 
     CalendarDate start = parseUdunits(null, startUdUnit);
     CalendarDate stop = parseUdunits(null, stopUdUnit);
 
-    ncf.addGlobalAttribute(new Attribute("time_coverage_start", CalendarDateFormatter.toDateTimeStringISO(start)));
-    ncf.addGlobalAttribute(new Attribute("time_coverage_end", CalendarDateFormatter.toDateTimeStringISO(stop)));
+    ctx.ncf.addGlobalAttribute(new Attribute("time_coverage_start", CalendarDateFormatter.toDateTimeStringISO(start)));
+    ctx.ncf.addGlobalAttribute(new Attribute("time_coverage_end", CalendarDateFormatter.toDateTimeStringISO(stop)));
   }
 
   /**
@@ -670,20 +799,72 @@ public abstract class NetcdfFileManager {
 
   }
 
+  /**
+   * Add the global metadata of the template, and the feature specific global attributes, to the
+   * netCDF file. For a collection, the global attributes holding the values of the variables
+   * extracted from global metadata differ from station to station, so they are only written to
+   * those variables.
+   *
+   * @param ctx context of the conversion
+   * @param template template associated with the conversion
+   */
+  private void addGlobalAttributes(ConversionContext ctx, Template template) {
+    // first, get from template
+    Map<String, ArrayList<Attribute>> globalAttrs = TemplateUtils.getGlobalAttrsMap(template);
+
+    // update global attribute lists obtained from template with new feature specific global attributes
+    List<RosettaGlobalAttribute> featureSpecificGlobalAttrs = getFeatureSpecificGlobalAttrs(template);
+    for (RosettaGlobalAttribute attr : featureSpecificGlobalAttrs) {
+      String groupName = attr.getGroup();
+      if (globalAttrs.containsKey(groupName)) {
+        ArrayList<Attribute> globalAttr = globalAttrs.get(groupName);
+        globalAttr.add(RosettaGlobalAttributeUtils.getAttributeFromGlobalAttr(attr));
+        globalAttrs.put(groupName, globalAttr);
+      } else {
+        ArrayList<Attribute> globalAttr = new ArrayList<>();
+        globalAttr.add(RosettaGlobalAttributeUtils.getAttributeFromGlobalAttr(attr));
+        globalAttrs.put(groupName, globalAttr);
+      }
+
+    }
+
+    List<String> stationAttrNames = new ArrayList<>();
+    if (ctx.featureDimension != null) {
+      ctx.writePlan.getGlobalAttributeWrites().forEach(write -> stationAttrNames.add(write.globalAttributeName));
+    }
+
+    // add globalAttributes to ncf
+    for (String groupName : globalAttrs.keySet()) {
+      // todo - add check for netCDF4, and use metadata groups if it is enabled
+      for (Attribute globalAttr : globalAttrs.get(groupName)) {
+        if (!stationAttrNames.contains(globalAttr.getFullName())) {
+          ctx.ncf.addGlobalAttribute(globalAttr);
+        }
+      }
+    }
+  }
+
   /**
    * Add new dimension for character data
    *
+   * @param ctx context of the conversion
    * @param variableInfo variable's variableInfo object created from template
    * @param dimensionList list of dimensions to augment
    * @return new dimension list with new char length dimension
    */
-  List<Dimension> augmentCharDimension(VariableInfo variableInfo, List<Dimension> dimensionList) {
+  List<Dimension> augmentCharDimension(ConversionContext ctx, VariableInfo variableInfo,
+      List<Dimension> dimensionList) {
     int maxLen = 1;
-    for (String sd : stringData.get(variableInfo.getColumnId())) {
-      int len = sd.length();
-      maxLen = len > maxLen ? len : maxLen;
+    if (ctx.chunked) {
+      // only the first chunk is in memory, so use the max length found when scanning the data file
+      maxLen = ctx.maxStringLengths.getOrDefault(variableInfo.getColumnId(), maxLen);
+    } else {
+      for (String sd : ctx.stringData.get(variableInfo.getColumnId())) {
+        int len = sd.length();
+        maxLen = len > maxLen ? len : maxLen;
+      }
     }
-    Dimension strDim = ncf.addDimension(variableInfo.getName() + "_len", maxLen);
+    Dimension strDim = ctx.ncf.addDimension(variableInfo.getName() + "_len", maxLen);
     List<Dimension> newDimensionList = new ArrayList<Dimension>();
     newDimensionList.addAll(dimensionList);
     newDimensionList.add(strDim);
@@ -694,11 +875,12 @@ public abstract class NetcdfFileManager {
   /**
    * Create a data variable
    *
+   * @param ctx context of the conversion
    * @param variableInfo Variable to create
    */
-  void makeDataVars(VariableInfo variableInfo) {
+  void makeDataVars(ConversionContext ctx, VariableInfo variableInfo) {
 
-    List<Dimension> coordVarDimensions = Collections.singletonList(elementDimension);
+    List<Dimension> coordVarDimensions = Collections.singletonList(ctx.elementDimension);
 
     Group group = null;
 
@@ -708,25 +890,447 @@ public abstract class NetcdfFileManager {
     Variable var;
     if (dataType == DataType.CHAR || dataType == DataType.STRING) {
       // make sure to add extra dimension for the max length of characters
-      coordVarDimensions = augmentCharDimension(variableInfo, coordVarDimensions);
-      var = ncf.addVariable(group, dataVarName, DataType.CHAR, coordVarDimensions);
+      coordVarDimensions = augmentCharDimension(ctx, variableInfo, coordVarDimensions);
+      var = ctx.ncf.addVariable(group, dataVarName, DataType.CHAR, coordVarDimensions);
     } else {
-      var = ncf.addVariable(group, dataVarName, dataType, coordVarDimensions);
+      var = ctx.ncf.addVariable(group, dataVarName, dataType, coordVarDimensions);
     }
 
     // add all attributes from the variableInfo object
     List<Attribute> allVarAttrs = VariableInfoUtils.getAllVariableAttributes(variableInfo);
 
-    List<Attribute> computedAttrs = calculateDataVarAttrs(variableInfo);
+    List<Attribute> computedAttrs = calculateDataVarAttrs(ctx, variableInfo);
     // add new computedAttrs too the allVarAttrs list
     allVarAttrs.addAll(computedAttrs);
 
     var.addAll(allVarAttrs);
   }
 
+  /**
+   * Parse the next chunk of the data file
+   *
+   * @param ctx context of the conversion
+   * @param parser parser reading the data file
+   * @return the number of data rows in the chunk
+   */
+  private int parseChunk(ConversionContext ctx, ChunkedColumnParser parser) throws IOException, RosettaDataException {
+    ParsedFile parsedFile = parser.next();
+    ctx.arrayData = parsedFile.getArrayData();
+    ctx.stringData = parsedFile.getStringData();
+    ctx.arrayStatistics.clear();
+    for (Map.Entry<Integer, ColumnStatistics> statistics : parsedFile.getStatistics().entrySet()) {
+      ctx.arrayStatistics.put(ctx.arrayData.get(statistics.getKey()), statistics.getValue());
+    }
+    ctx.progress.addRowsParsed(parsedFile.getNumRows());
+    return parsedFile.getNumRows();
+  }
+
+  /**
+   * Scan a data file which does not fit in a single chunk to find the number of data rows and, if
+   * there are character data variables, the maximum length of their values. Both are needed to
+   * define the netCDF file before the data are written. The maximum lengths are merged into those
+   * found in the data files scanned before, if any (e.g. the other data files of a collection).
+   *
+   * @param ctx context of the conversion
+   * @param dataFile file containing observed data
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param parser the parser of the data file already in use, if any, which may know the number of
+   *        data rows without reading the data file again
+   * @return the number of data rows
+   */
+  private long scanDataFile(ConversionContext ctx, Path dataFile, Template template, String delimiter,
+      ChunkedColumnParser parser) throws IOException, RosettaDataException {
+    boolean hasCharDataVars = false;
+    for (VariableInfo varInfo : ctx.dataVarInfo) {
+      DataType dataType = VariableInfoUtils.getDataType(varInfo);
+      if (dataType == DataType.CHAR || dataType == DataType.STRING) {
+        hasCharDataVars = true;
+      }
+    }
+
+    long numRows;
+    if (ctx.maxStringLengths == null) {
+      ctx.maxStringLengths = new HashMap<>();
+    }
+    if (hasCharDataVars) {
+      try (ChunkedColumnParser scanner = new ChunkedColumnParser(dataFile, template, delimiter, ctx.chunkSize)) {
+        ParsedFile parsedFile;
+        while ((parsedFile = scanner.next()).getNumRows() > 0) {
+          for (Map.Entry<Integer, List<String>> textColumn : parsedFile.getStringData().entrySet()) {
+            int maxLen = ctx.maxStringLengths.getOrDefault(textColumn.getKey(), 1);
+            for (String value : textColumn.getValue()) {
+              maxLen = Math.max(maxLen, value.length());
+            }
+            ctx.maxStringLengths.put(textColumn.getKey(), maxLen);
+          }
+        }
+        numRows = scanner.getRowsParsed();
+      }
+    } else if (parser != null) {
+      // only the number of rows is needed, so no need to parse the data
+      numRows = parser.countDataRows();
+    } else {
+      try (ChunkedColumnParser counter = new ChunkedColumnParser(dataFile, template, delimiter, ctx.chunkSize)) {
+        numRows = counter.countDataRows();
+      }
+    }
+    return numRows;
+  }
+
+  /**
+   * Set the size of the element dimension
+   *
+   * @param ctx context of the conversion
+   * @param numRows total number of data rows
+   */
+  private static void setNumElements(ConversionContext ctx, long numRows) throws RosettaDataException {
+    try {
+      ctx.numElements = toIntExact(numRows);
+    } catch (ArithmeticException ae) {
+      throw new RosettaDataException("Size of the dimension could not fit in an integer value");
+    }
+  }
+
+  /**
+   * Get the origin at which the data of a chunk are written to a variable
+   *
+   * @param var variable whose first dimension is the element dimension
+   * @param rowOffset index along the element dimension of the first row of the chunk
+   * @return the origin
+   */
+  private static int[] getOrigin(Variable var, int rowOffset) {
+    int[] origin = new int[var.getRank()];
+    origin[0] = rowOffset;
+    return origin;
+  }
+
+  /**
+   * Write the data of a variable which may or may not use the element dimension. Scalar (or
+   * otherwise non-element) variables are only written with the first chunk.
+   *
+   * @param ctx context of the conversion
+   * @param varName name of the variable
+   * @param data data to write
+   * @param rowOffset index along the element dimension of the first row of the chunk
+   */
+  private void writeElementCoordVarData(ConversionContext ctx, String varName, Array data, int rowOffset)
+      throws IOException, InvalidRangeException {
+    Variable var = ctx.ncf.findVariable(varName);
+    if (var.getRank() > 0 && var.getDimension(0).getShortName().equals(ctx.elementDimension.getShortName())) {
+      ctx.ncf.write(var, getOrigin(var, rowOffset), data);
+    } else if (rowOffset == 0) {
+      ctx.ncf.write(var, data);
+    }
+  }
+
+  /**
+   * Write the data of the chunk of the data file currently in memory to the netCDF file
+   *
+   * @param ctx context of the conversion
+   * @param rowOffset index along the element dimension of the first row of the chunk
+   * @param numRows number of rows in the chunk
+   */
+  private void writeChunk(ConversionContext ctx, int rowOffset, int numRows)
+      throws IOException, InvalidRangeException {
+    // variables along the element dimension are complete once the last chunk is written
+    boolean lastChunk = rowOffset + numRows >= ctx.numElements;
+    int elementVarsWritten = 0;
+    int otherVarsWritten = 0;
+
+    // write time variable data
+    writeElementCoordVarData(ctx, ctx.timeCoordVarName, ctx.timeCoordVarArr, rowOffset);
+    elementVarsWritten++;
+
+    // if profile, detailed time might exist
+    if (myDsgType == "profile") {
+      // if profile, detailed time might exist
+      if (ctx.timeCoordVarDetailName != null) {
+        writeElementCoordVarData(ctx, ctx.timeCoordVarDetailName, ctx.timeCoordVarDetailArr, rowOffset);
+        elementVarsWritten++;
+      }
+      // write data for vertical coord variable
+      writeElementCoordVarData(ctx, ctx.verticalCoordVarName, ctx.verticalCoordVarArr, rowOffset);
+      elementVarsWritten++;
+    }
+
+    // variables which do not use the element dimension are written with the first chunk only, or
+    // station by station for a collection, and are already written when appending
+    boolean writeOtherVars = rowOffset == 0 && ctx.featureDimension == null && !ctx.appending;
+
+    // write data to featureId variable
+    if (writeOtherVars) {
+      ctx.ncf.write(featureVarName, Array.makeFromJavaArray(ctx.featureId.toCharArray()));
+      otherVarsWritten++;
+    }
+
+    // write data to the variables defined from the columnar data block
+    for (WritePlan.ColumnWrite write : ctx.writePlan.getColumnWrites()) {
+      Variable var = ctx.planVariables.get(write.varName);
+      Array thisData = ctx.arrayData.get(write.columnId);
+      // strings are stored in CHAR variables, also in netCDF-4 files
+      if ((thisData.getDataType() == DataType.CHAR) || (thisData.getDataType() == DataType.STRING
+          && (!ctx.useNetcdf4 || var.getDataType() == DataType.CHAR))) {
+        // CHAR arrays are backed by a list of strings in the ParsedData object
+        // so need to handle special when writing
+        Array stringArray = Array.makeArray(DataType.STRING, ctx.stringData.get(write.columnId));
+        ctx.ncf.writeStringData(var, getOrigin(var, rowOffset), stringArray);
+      } else {
+        ctx.ncf.write(var, getOrigin(var, rowOffset), thisData);
+      }
+      elementVarsWritten++;
+    }
+
+    // write data to variables extracted from global metadata
+    if (writeOtherVars) {
+      for (WritePlan.GlobalAttributeWrite write : ctx.writePlan.getGlobalAttributeWrites()) {
+        Variable var = ctx.planVariables.get(write.varName);
+        Array scalar = makeScalar(ctx.ncf.findGlobalAttribute(write.globalAttributeName));
+
+        if (scalar != null) {
+          ctx.ncf.write(var, scalar);
+          otherVarsWritten++;
+        } else {
+          logger.error("failed to write scalar value to var " + var.getFullNameEscaped());
+        }
+      }
+    }
+    ctx.progress.addVariablesWritten(lastChunk ? elementVarsWritten + otherVarsWritten : otherVarsWritten);
+  }
+
+  /**
+   * Get the numeric value of a global attribute, to be written to a variable extracted from global
+   * metadata
+   *
+   * @param ga the global attribute
+   * @return the value as a scalar array, or null if the attribute does not hold a number
+   */
+  private static Array makeScalar(Attribute ga) {
+    DataType dt = ga.getDataType();
+    Number val = ga.getNumericValue();
+    Array scalar = null;
+
+    if (dt == DataType.FLOAT) {
+      scalar = new ArrayFloat.D0();
+      scalar.setFloat(0, val.floatValue());
+    } else if (dt == DataType.DOUBLE) {
+      scalar = new ArrayDouble.D0();
+      scalar.setDouble(0, val.doubleValue());
+    } else if ((val != null) && (dt == DataType.STRING)) {
+      // ok, we were able to get a non-null Number out of the attribute, but
+      // the datatype on the attribute is string - let's store it as a double
+      scalar = new ArrayDouble.D0();
+      scalar.setDouble(0, val.doubleValue());
+    }
+    return scalar;
+  }
+
+  /**
+   * Find the variables of the write plan in the netCDF file, once it is created
+   *
+   * @param ctx context of the conversion
+   */
+  private void findPlanVariables(ConversionContext ctx) {
+    Map<String, Variable> variablesByName = new HashMap<>();
+    for (Variable var : ctx.ncf.getNetcdfFile().getVariables()) {
+      variablesByName.put(var.getFullNameEscaped(), var);
+    }
+    ctx.planVariables = new HashMap<>();
+    List<String> varNames = new ArrayList<>();
+    ctx.writePlan.getColumnWrites().forEach(write -> varNames.add(write.varName));
+    ctx.writePlan.getGlobalAttributeWrites().forEach(write -> varNames.add(write.varName));
+    for (String varName : varNames) {
+      Variable var = variablesByName.get(varName);
+      if (var == null) {
+        // the name of the variable was escaped
+        var = ctx.ncf.findVariable(varName);
+      }
+      ctx.planVariables.put(varName, var);
+    }
+  }
+
+  /**
+   * Add the data of the chunk of the data file currently in memory to the max/min values
+   * accumulated over the chunks
+   *
+   * @param ctx context of the conversion
+   */
+  private static void accumulateValueRanges(ConversionContext ctx) {
+    for (ValueRange valueRange : ctx.valueRanges.values()) {
+      Array data = valueRange.source.get();
+      valueRange.accumulator.add(data, ctx.arrayStatistics.get(data));
+    }
+  }
+
+  /**
+   * Create the writer of the netCDF file, in define mode
+   *
+   * @param ctx context of the conversion
+   * @param netcdfFilePath location of the netCDF file to create
+   * @param options netCDF version, deflate level and shuffle setting of the netCDF file
+   */
+  private static void createWriter(ConversionContext ctx, String netcdfFilePath, NetcdfOutputOptions options)
+      throws IOException {
+    if (ctx.useNetcdf4) {
+      ctx.ncf = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, netcdfFilePath,
+          new ElementChunking(options.getDeflateLevel(), options.isShuffle()));
+      ctx.ncf.setFill(false);
+    } else {
+      ctx.ncf = NetcdfFileWriter.createNew(netcdfFilePath, false);
+      if (ctx.appendable) {
+        ctx.ncf.setExtraHeaderSpace(APPENDABLE_EXTRA_HEADER_SPACE);
+      }
+    }
+  }
+
+  /**
+   * Discard a netCDF file which could not be fully written: close its writer, if still open, and
+   * delete the file, so that a truncated file is neither returned to the user nor cached.
+   *
+   * @param ctx context of the conversion
+   * @param netcdfFile location of the netCDF file
+   */
+  private static void discardNetcdfFile(ConversionContext ctx, Path netcdfFile) {
+    if (ctx.ncf != null) {
+      try {
+        ctx.ncf.close();
+      } catch (IOException e) {
+        logger.warn("Unable to close the partial netCDF file " + netcdfFile + ": " + e.getMessage());
+      }
+    }
+    try {
+      Files.deleteIfExists(netcdfFile);
+    } catch (IOException e) {
+      logger.error("Unable to delete the partial netCDF file " + netcdfFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Find the value of a global attribute in the global metadata of a template
+   *
+   * @param template the template
+   * @param name name of the global attribute
+   * @return the global attribute, or null if not found
+   */
+  private static Attribute findGlobalAttribute(Template template, String name) {
+    for (List<Attribute> attrs : TemplateUtils.getGlobalAttrsMap(template).values()) {
+      for (Attribute attr : attrs) {
+        if (attr.getFullName().equals(name)) {
+          return attr;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Write the data of a feature of a collection: its id and the values of its variables extracted
+   * from global metadata, then the rows of its data file, one chunk at a time starting with the
+   * chunk currently in memory, and finally its number of rows.
+   *
+   * @param ctx context of the conversion
+   * @param featureIndex index of the feature along the feature dimension
+   * @param feature the feature
+   * @param parser parser reading the data file of the feature
+   * @param numRows number of rows in the chunk currently in memory
+   * @param rowOffset index along the element dimension of the first row of the feature
+   * @param rowSizeVar variable holding the number of rows of each feature
+   * @return index along the element dimension following the last row of the feature
+   */
+  private int writeFeature(ConversionContext ctx, int featureIndex, CollectionFeature feature,
+      ChunkedColumnParser parser, int numRows, int rowOffset, Variable rowSizeVar)
+      throws IOException, InvalidRangeException, RosettaDataException {
+    int[] featureOrigin = {featureIndex};
+
+    Variable featureVar = ctx.ncf.findVariable(featureVarName);
+    ctx.ncf.writeStringData(featureVar, new int[] {featureIndex, 0},
+        Array.makeArray(DataType.STRING, Collections.singletonList(feature.getId())));
+
+    for (WritePlan.GlobalAttributeWrite write : ctx.writePlan.getGlobalAttributeWrites()) {
+      Variable var = ctx.planVariables.get(write.varName);
+      Attribute ga = findGlobalAttribute(feature.getTemplate(), write.globalAttributeName);
+      Array scalar = ga != null ? makeScalar(ga) : null;
+      if (scalar != null) {
+        ctx.ncf.write(var, featureOrigin, scalar.reshape(new int[] {1}));
+      } else {
+        logger.error("failed to write value of " + feature.getId() + " to var " + var.getFullNameEscaped());
+      }
+    }
+
+    int featureRows = 0;
+    while (numRows > 0) {
+      writeChunk(ctx, rowOffset + featureRows, numRows);
+      featureRows += numRows;
+      numRows = parseChunk(ctx, parser);
+      if (numRows > 0) {
+        updateElementCoordVarData(ctx);
+        accumulateValueRanges(ctx);
+      }
+    }
+
+    Array rowSize = Array.factory(DataType.INT, new int[] {1});
+    rowSize.setInt(0, featureRows);
+    ctx.ncf.write(rowSizeVar, featureOrigin, rowSize);
+    return rowOffset + featureRows;
+  }
+
+  /**
+   * Update the valid_min, valid_max attributes in the header of the netCDF file with the max/min
+   * values accumulated over all of the chunks
+   *
+   * @param ctx context of the conversion
+   */
+  private void updateValueRangeAttrs(ConversionContext ctx) throws IOException {
+    ctx.ncf.setRedefineMode(true);
+    for (Map.Entry<String, ValueRange> valueRange : ctx.valueRanges.entrySet()) {
+      Variable var = ctx.ncf.findVariable(valueRange.getKey());
+      for (Attribute attr : valueRange.getValue().accumulator.getMaxMinAttrs()) {
+        ctx.ncf.addVariableAttribute(var, attr);
+      }
+    }
+    if (ctx.appendable || ctx.appending) {
+      updateTimeCoverageAttrs(ctx);
+    }
+    // valid_min, valid_max (doubles) were written when the variables were created, and the fixed
+    // width time coverage attributes of appendable files when the file was created, so the header
+    // keeps its size and is rewritten in place. Should it grow anyway (e.g. a file written without
+    // the time coverage attributes), a netCDF-3 file is rewritten as a whole unless the header still
+    // fits in the room reserved by APPENDABLE_EXTRA_HEADER_SPACE.
+    if (ctx.ncf.setRedefineMode(false)) {
+      logger.warn("The header of " + ctx.ncf.getNetcdfFile().getLocation()
+          + " outgrew the room reserved for updates; the whole file has been rewritten");
+    }
+  }
+
+  /**
+   * Set the time_coverage_start, time_coverage_end global attributes of an appendable netCDF file
+   * from the max/min values of the time variable, accumulated over all of the rows of the file
+   *
+   * @param ctx context of the conversion
+   */
+  private static void updateTimeCoverageAttrs(ConversionContext ctx) {
+    ValueRange timeRange = ctx.valueRanges.get(ctx.timeCoordVarName);
+    if (timeRange == null) {
+      return;
+    }
+    MAMath.MinMax minMax = timeRange.accumulator.getMinMax();
+    if (minMax.min > minMax.max) {
+      // no time values yet
+      return;
+    }
+    String units = ctx.ncf.findVariable(ctx.timeCoordVarName).findAttribute("units").getStringValue();
+    CalendarDateUnit dateUnit = CalendarDateUnit.of(null, units);
+    ctx.ncf.addGlobalAttribute(new Attribute("time_coverage_start",
+        timeCoverageFormatter.toString(dateUnit.makeCalendarDate(minMax.min))));
+    ctx.ncf.addGlobalAttribute(new Attribute("time_coverage_end",
+        timeCoverageFormatter.toString(dateUnit.makeCalendarDate(minMax.max))));
+  }
+
   /**
    * Create a netCDF file, following CF DSGs, based on the data contained within a data file and
-   * the metadata contained within a template
+   * the metadata contained within a template.
+   *
+   * The data file is parsed in chunks of at most {@value #DEFAULT_CHUNK_SIZE} rows.
    *
    * @param dataFile file containing observed data
    * @param template template associated with dataFile
@@ -735,176 +1339,523 @@ public abstract class NetcdfFileManager {
    */
   public String createNetcdfFile(Path dataFile, Template template, String delimiter)
       throws IOException, RosettaDataException {
+    return createNetcdfFile(dataFile, template, delimiter, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Create a netCDF file, following CF DSGs, based on the data contained within a data file and
+   * the metadata contained within a template.
+   *
+   * The data file is parsed in chunks of at most chunkSize rows. If the whole file fits in the
+   * first chunk, the netCDF file is written all at once. Otherwise, the element dimension is sized
+   * by scanning the data file, and the chunks are parsed and written one at a time at increasing
+   * offsets along the element dimension, with valid_min and valid_max updated at the end.
+   *
+   * All of the state of the conversion is held in a new {@link ConversionContext}, so this method
+   * can be called concurrently on the same converter.
+   *
+   * @param dataFile file containing observed data
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @return location of the created netCDF file
+   */
+  public String createNetcdfFile(Path dataFile, Template template, String delimiter, int chunkSize)
+      throws IOException, RosettaDataException {
+    return createNetcdfFile(dataFile, template, delimiter, chunkSize, new ConversionProgress());
+  }
+
+  /**
+   * Create a netCDF file, following CF DSGs, based on the data contained within a data file and
+   * the metadata contained within a template, reporting the number of rows parsed and variables
+   * written as the conversion goes.
+   *
+   * @param dataFile file containing observed data
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @param progress updated with the progress of the conversion
+   * @return location of the created netCDF file
+   */
+  public String createNetcdfFile(Path dataFile, Template template, String delimiter, int chunkSize,
+      ConversionProgress progress) throws IOException, RosettaDataException {
+    return createNetcdfFile(dataFile, PathUtils.replaceExtension(dataFile, ".nc"), template, delimiter, chunkSize,
+        progress);
+  }
+
+  /**
+   * Create a netCDF file, following CF DSGs, at the given location. The data file is only read
+   * through {@link java.nio.file.Files}, so it may be a path within a zip file system.
+   *
+   * @param dataFile file containing observed data
+   * @param netcdfFile location of the netCDF file to create
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @param progress updated with the progress of the conversion
+   * @return location of the created netCDF file
+   */
+  public String createNetcdfFile(Path dataFile, Path netcdfFile, Template template, String delimiter, int chunkSize,
+      ConversionProgress progress) throws IOException, RosettaDataException {
+    return createNetcdfFile(dataFile, netcdfFile, template, delimiter, chunkSize, progress,
+        NetcdfOutputOptions.fromTemplate(template));
+  }
+
+  /**
+   * Create a netCDF file, following CF DSGs, at the given location, with the given output options
+   * (instead of those of the template). If netCDF-4 is requested but the netCDF C library is not
+   * loaded, a netCDF-3 file is written instead.
+   *
+   * @param dataFile file containing observed data
+   * @param netcdfFile location of the netCDF file to create
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @param progress updated with the progress of the conversion
+   * @param options netCDF version, deflate level and shuffle setting of the netCDF file
+   * @return location of the created netCDF file
+   */
+  public String createNetcdfFile(Path dataFile, Path netcdfFile, Template template, String delimiter, int chunkSize,
+      ConversionProgress progress, NetcdfOutputOptions options) throws IOException, RosettaDataException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    ConversionContext ctx = new ConversionContext(chunkSize, progress);
+    ctx.useNetcdf4 = options.useNetcdf4();
+    ctx.appendable = options.isAppendable();
+
+    // the template is modified by the conversion, so its fingerprint, which keys its write plan and
+    // is recorded in appendable files, is computed beforehand
+    String fingerprint = TemplateUtils.fingerprint(template);
+    if (ctx.appendable) {
+      ctx.templateFingerprint = fingerprint;
+    }
+    WritePlan writePlan = writePlans.get(fingerprint);
+    if (writePlan != null) {
+      ctx.writePlan = writePlan;
+      ctx.recordWritePlan = false;
+      writePlanHits.incrementAndGet();
+    }
 
-    Path netcdfFile = PathUtils.replaceExtension(dataFile, ".nc");
     String netcdfFilePath = netcdfFile.toString();
 
-    ParsedFile parsedFile = new ParsedFile(dataFile, template, delimiter);
-    arrayData = parsedFile.getArrayData();
-    stringData = parsedFile.getStringData();
-    // TODO: add check to see if netCDF-4 is enabled
-
-    // before we do anything, we need to modify the template to add variables that are constructed
-    // from global attributes. This way, they will be picked up as if they were defined in the
-    // data block of the csv file
-    createNonElementCoordVars(template);
-
-    ncf = NetcdfFileWriter.createNew(netcdfFilePath, false);
-
-    identifyVariables(template);
-
-    // create Element Coordinate Variable
-    boolean elementDimCreated = false;
-
-    if (myDsgType.equalsIgnoreCase("trajectory") | myDsgType.equalsIgnoreCase("timeseries")) {
-      elementDimCreated = createElementCoordVarTime(template);
-    } else if (myDsgType.equalsIgnoreCase("profile")) {
-      // create vertical coordinate coord var
-      elementDimCreated = createElementCoordVarVertical();
-      // create time coordvar from global attr
-      createTimeVarInfoFromGlobalAttr(template);
-      // create time variable (non coord var). Although it is not the element coordinate in this case, we
-      // will use the same functions as if it were. Inside these functions, the element dimension will
-      // not be created, as we will use the element dimension created during the createElementCoordVarVertical()
-      // call
-      boolean timeVarCreated = createElementCoordVarTime(template);
-      // for profile, create time coord var from global attribute
-      if (!timeVarCreated) {
+    boolean written = false;
+    try (ChunkedColumnParser parser = new ChunkedColumnParser(dataFile, template, delimiter, chunkSize)) {
+      int numRows = parseChunk(ctx, parser);
+      ctx.chunked = !parser.isDone();
+
+      // before we do anything, we need to modify the template to add variables that are constructed
+      // from global attributes. This way, they will be picked up as if they were defined in the
+      // data block of the csv file
+      createNonElementCoordVars(ctx, template);
+
+      createWriter(ctx, netcdfFilePath, options);
+
+      identifyVariables(ctx, template);
+
+      if (ctx.chunked) {
+        setNumElements(ctx, scanDataFile(ctx, dataFile, template, delimiter, parser));
+      } else {
+        ctx.numElements = numRows;
+      }
+      ctx.progress.addTotalRows(ctx.numElements);
+
+      // create Element Coordinate Variable
+      boolean elementDimCreated = false;
+
+      if (myDsgType.equalsIgnoreCase("trajectory") | myDsgType.equalsIgnoreCase("timeseries")) {
+        elementDimCreated = createElementCoordVarTime(ctx, template);
+      } else if (myDsgType.equalsIgnoreCase("profile")) {
+        // create vertical coordinate coord var
+        elementDimCreated = createElementCoordVarVertical(ctx);
+        // create time coordvar from global attr
+        createTimeVarInfoFromGlobalAttr(ctx, template);
+        // create time variable (non coord var). Although it is not the element coordinate in this case, we
+        // will use the same functions as if it were. Inside these functions, the element dimension will
+        // not be created, as we will use the element dimension created during the createElementCoordVarVertical(ctx)
+        // call
+        boolean timeVarCreated = createElementCoordVarTime(ctx, template);
+        // for profile, create time coord var from global attribute
+        if (!timeVarCreated) {
+          // stop conversion as a time variable was not created - indicate to use that they
+          // need to check the log file
+          logger.error("time coordinate variable not created. Stopping");
+        }
+      }
+
+      if (!elementDimCreated) {
         // stop conversion as a time variable was not created - indicate to use that they
         // need to check the log file
-        logger.error("time coordinate variable not created. Stopping");
+        logger.error("element dimension not created. Stopping");
+      }
+
+      // add coordinate variable info
+      for (VariableInfo coordVarInfo : ctx.nonElementCoordVarInfo) {
+        makeNonElementCoordVars(ctx, coordVarInfo);
+      }
+
+      // add data variable info
+      for (VariableInfo dataVarInfo : ctx.dataVarInfo) {
+        makeDataVars(ctx, dataVarInfo);
+      }
+
+      // add global metadata
+      addGlobalAttributes(ctx, template);
+      if (ctx.templateFingerprint != null) {
+        ctx.ncf.addGlobalAttribute(new Attribute(TEMPLATE_FINGERPRINT_ATTR_NAME, ctx.templateFingerprint));
+      }
+      if (ctx.appendable) {
+        // written now, from the first chunk, so that updating them later does not grow the header
+        updateTimeCoverageAttrs(ctx);
+      }
+
+      makeOtherVariables(ctx);
+
+      // write all metadata and get ready for writing data values
+      ctx.ncf.create();
+      findPlanVariables(ctx);
+      if (ctx.recordWritePlan) {
+        writePlans.put(fingerprint, ctx.writePlan);
+      }
+
+      int rowOffset = 0;
+      try {
+        // write variable data to netCDF File, one chunk at a time
+        writeChunk(ctx, rowOffset, numRows);
+        rowOffset += numRows;
+
+        while (ctx.chunked && (numRows = parseChunk(ctx, parser)) > 0) {
+          updateElementCoordVarData(ctx);
+          accumulateValueRanges(ctx);
+          writeChunk(ctx, rowOffset, numRows);
+          rowOffset += numRows;
+        }
+      } catch (InvalidRangeException e) {
+        throw new RosettaDataException("Unable to write the data of " + dataFile + " to " + netcdfFile + ": " + e, e);
+      }
+
+      if (ctx.chunked || ctx.appendable) {
+        updateValueRangeAttrs(ctx);
+      }
+
+      ctx.ncf.close();
+
+      if (rowOffset != ctx.numElements) {
+        throw new RosettaDataException(
+            "Expected " + ctx.numElements + " rows of data in " + dataFile + ", but found " + rowOffset);
+      }
+      written = true;
+    } finally {
+      if (!written) {
+        discardNetcdfFile(ctx, netcdfFile);
       }
     }
 
-    if (!elementDimCreated) {
-      // stop conversion as a time variable was not created - indicate to use that they
-      // need to check the log file
-      logger.error("element dimension not created. Stopping");
+    return netcdfFilePath;
+  }
+
+  /**
+   * Find the variables of an existing netCDF file to which rows are appended: the time variable
+   * along the element (unlimited) dimension, and the variables defined from the columns of the data
+   * file, recognized by their Rosetta_columnId attribute. The valid_min, valid_max attributes
+   * of the variables are the starting point of the max/min values accumulated over the new rows.
+   *
+   * @param ctx context of the conversion
+   * @param template template associated with the data file
+   */
+  private void findAppendVariables(ConversionContext ctx, Template template) throws RosettaDataException {
+    List<VariableInfo> timeCoordVarInfo = ctx.elementCoordVarInfo.get("time");
+    if (timeCoordVarInfo == null) {
+      throw new RosettaDataException("No time coordinate variable found in the template");
     }
+    if (ctx.timeVarTypes.contains(VariableInfoUtils.relativeTime)) {
+      ctx.elementTimeVarType = VariableInfoUtils.relativeTime;
+    } else if (ctx.timeVarTypes.contains(VariableInfoUtils.fullDateTime)) {
+      ctx.elementTimeVarType = VariableInfoUtils.fullDateTime;
+    } else if (ctx.timeVarTypes.contains(VariableInfoUtils.dateOnly)) {
+      ctx.elementTimeVarType = VariableInfoUtils.dateOnly;
+    } else {
+      throw new RosettaDataException("Do not understand how to handle time of types " + ctx.timeVarTypes);
+    }
+    ctx.elementTimeVarInfo = timeCoordVarInfo;
 
-    // add coordinate variable info
-    for (VariableInfo coordVarInfo : nonElementCoordVarInfo) {
-      makeNonElementCoordVars(coordVarInfo);
+    for (Variable var : ctx.ncf.getNetcdfFile().getVariables()) {
+      if (var.getRank() == 0
+          || !var.getDimension(0).getShortName().equals(ctx.elementDimension.getShortName())) {
+        continue;
+      }
+      String varName = var.getFullNameEscaped();
+      Attribute colIdAttr = var.findAttribute(colIdAttrName);
+      if (colIdAttr != null && colIdAttr.getNumericValue().intValue() > 0) {
+        int colId = colIdAttr.getNumericValue().intValue();
+        ctx.writePlan.addColumnWrite(varName, colId);
+        Optional<Double> missingValue = Optional.empty();
+        for (VariableInfo variableInfo : template.getVariableInfoList()) {
+          if (variableInfo.getColumnId() == colId) {
+            missingValue = VariableInfoUtils.findMissingValue(variableInfo);
+          }
+        }
+        addAppendValueRange(ctx, var, () -> ctx.arrayData.get(colId), missingValue);
+      } else if (var.findAttribute("axis") != null && var.findAttribute("axis").getStringValue().equals("T")) {
+        ctx.timeCoordVarName = varName;
+        addAppendValueRange(ctx, var, () -> ctx.timeCoordVarArr, Optional.empty());
+      }
+    }
+    if (ctx.timeCoordVarName == null) {
+      throw new RosettaDataException("No time variable found along the unlimited dimension");
     }
+  }
 
-    // add data variable info
-    for (VariableInfo dataVarInfo : dataVarInfo) {
-      makeDataVars(dataVarInfo);
+  /**
+   * Start accumulating the max/min values of a variable of a netCDF file to which rows are
+   * appended, from its valid_min, valid_max attributes (if any)
+   *
+   * @param ctx context of the conversion
+   * @param var the variable
+   * @param source provides the data of the variable held in memory
+   * @param missingValue missing value of the variable, skipped when computing max/min
+   */
+  private static void addAppendValueRange(ConversionContext ctx, Variable var, Supplier<Array> source,
+      Optional<Double> missingValue) {
+    Attribute validMin = var.findAttribute("valid_min");
+    Attribute validMax = var.findAttribute("valid_max");
+    if (validMin == null || validMax == null) {
+      return;
     }
+    MaxMinAccumulator accumulator = new MaxMinAccumulator(missingValue);
+    accumulator.add(
+        new MAMath.MinMax(validMin.getNumericValue().doubleValue(), validMax.getNumericValue().doubleValue()));
+    ctx.valueRanges.put(var.getFullNameEscaped(), new ValueRange(source, accumulator));
+  }
 
-    // add global metadata
-    // first, get from template
+  /**
+   * Append the rows of a data file to a netCDF file created by {@link #createNetcdfFile} with
+   * {@link NetcdfOutputOptions#setAppendable appendable} output options, i.e. with an unlimited
+   * element dimension, for trajectory and timeSeries DSGs. The rows are written at the end of the
+   * element dimension, and the valid_min, valid_max and time_coverage_start, time_coverage_end
+   * attributes are updated, so only the new data file is parsed. The rows are appended to a copy of
+   * the netCDF file, which replaces it only once the append is complete, so that a failed append
+   * leaves the netCDF file as it was.
+   *
+   * The template must be the same as the one the netCDF file was created with, which is checked
+   * against the fingerprint recorded in the file. Character data longer than the values of the
+   * first data file are truncated. If the netCDF file does not exist, it is created as an
+   * appendable file, with the output options of the template.
+   *
+   * @param dataFile file containing the new observed data
+   * @param netcdfFile location of the netCDF file
+   * @param template template associated with dataFile
+   * @param delimiter the delimiter used to parse the file.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @param progress updated with the progress of the conversion
+   * @return location of the netCDF file
+   */
+  public String appendToNetcdfFile(Path dataFile, Path netcdfFile, Template template, String delimiter,
+      int chunkSize, ConversionProgress progress) throws IOException, RosettaDataException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    if (!Files.exists(netcdfFile)) {
+      NetcdfOutputOptions options = NetcdfOutputOptions.fromTemplate(template);
+      options.setAppendable(true);
+      return createNetcdfFile(dataFile, netcdfFile, template, delimiter, chunkSize, progress, options);
+    }
 
-    Map<String, ArrayList<Attribute>> globalAttrs = TemplateUtils.getGlobalAttrsMap(template);
+    // the netCDF file is checked before it is copied, and left untouched if it cannot be appended to
+    String fingerprint = TemplateUtils.fingerprint(template);
+    try (NetcdfFile ncfile = NetcdfFile.open(netcdfFile.toString())) {
+      Attribute fingerprintAttr = ncfile.findGlobalAttribute(TEMPLATE_FINGERPRINT_ATTR_NAME);
+      if (fingerprintAttr == null || !fingerprint.equals(fingerprintAttr.getStringValue())) {
+        throw new RosettaDataException(netcdfFile + " was not created with the template of " + dataFile);
+      }
+      if (ncfile.getUnlimitedDimension() == null) {
+        throw new RosettaDataException(netcdfFile + " does not have an unlimited dimension to append to");
+      }
+    }
 
-    // update global attribute lists obtained from template with new feature specific global attributes
-    List<RosettaGlobalAttribute> featureSpecificGlobalAttrs = getFeatureSpecificGlobalAttrs(template);
-    for (RosettaGlobalAttribute attr : featureSpecificGlobalAttrs) {
-      String groupName = attr.getGroup();
-      if (globalAttrs.containsKey(groupName)) {
-        ArrayList<Attribute> globalAttr = globalAttrs.get(groupName);
-        globalAttr.add(RosettaGlobalAttributeUtils.getAttributeFromGlobalAttr(attr));
-        globalAttrs.put(groupName, globalAttr);
-      } else {
-        ArrayList<Attribute> globalAttr = new ArrayList<>();
-        globalAttr.add(RosettaGlobalAttributeUtils.getAttributeFromGlobalAttr(attr));
-        globalAttrs.put(groupName, globalAttr);
+    ConversionContext ctx = new ConversionContext(chunkSize, progress);
+    ctx.appending = true;
+    Path appendedFile = Files.createTempFile(netcdfFile.toAbsolutePath().getParent(),
+        netcdfFile.getFileName().toString(), ".tmp");
+    boolean appended = false;
+    try {
+      Files.copy(netcdfFile, appendedFile, StandardCopyOption.REPLACE_EXISTING);
+      ctx.ncf = NetcdfFileWriter.openExisting(appendedFile.toString());
+      try (ChunkedColumnParser parser = new ChunkedColumnParser(dataFile, template, delimiter, chunkSize)) {
+        ctx.elementDimension = ctx.ncf.getNetcdfFile().getUnlimitedDimension();
+        ctx.useNetcdf4 = ctx.ncf.getVersion().isNetdf4format();
+
+        identifyVariables(ctx, template);
+        findAppendVariables(ctx, template);
+        findPlanVariables(ctx);
+
+        int rowOffset = ctx.elementDimension.getLength();
+        int numRows = parseChunk(ctx, parser);
+        long newRows = parser.countDataRows();
+        setNumElements(ctx, rowOffset + newRows);
+        ctx.progress.addTotalRows(newRows);
+
+        try {
+          // write the new rows at the end of the element dimension, one chunk at a time
+          while (numRows > 0) {
+            updateElementCoordVarData(ctx);
+            accumulateValueRanges(ctx);
+            writeChunk(ctx, rowOffset, numRows);
+            rowOffset += numRows;
+            numRows = parseChunk(ctx, parser);
+          }
+        } catch (InvalidRangeException e) {
+          throw new RosettaDataException("Unable to append the data of " + dataFile + " to " + netcdfFile + ": " + e,
+              e);
+        }
+
+        if (rowOffset != ctx.numElements) {
+          throw new RosettaDataException(
+              "Expected " + ctx.numElements + " rows of data in " + netcdfFile + ", but found " + rowOffset);
+        }
+
+        updateValueRangeAttrs(ctx);
+      }
+      ctx.ncf.close();
+      Files.move(appendedFile, netcdfFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      appended = true;
+    } finally {
+      if (!appended) {
+        discardNetcdfFile(ctx, appendedFile);
       }
+    }
 
+    return netcdfFile.toString();
+  }
+
+  /**
+   * Create a single netCDF file holding a collection of features (e.g. the stations of a batch of
+   * data files converted with the same template), following the CF DSG contiguous ragged array
+   * representation. The rows of the features are written one feature after the other along the
+   * element dimension, and the number of rows of each feature is written to a row_size variable
+   * (with a sample_dimension attribute) along the feature dimension. The variables extracted from
+   * global metadata (e.g. the latitude and longitude of a station) have one value per feature, taken
+   * from the template of each feature.
+   *
+   * The variables are defined from the template of the first feature, so the data files of all of
+   * the features must have the same columns. The data files are scanned to size the dimensions,
+   * then parsed and written one chunk at a time, so only a single chunk is held in memory.
+   *
+   * @param features the features of the collection, in the order in which they are written
+   * @param netcdfFile location of the netCDF file to create
+   * @param delimiter the delimiter used to parse the data files.
+   * @param chunkSize the maximum number of data rows parsed and written at a time
+   * @param progress updated with the progress of the conversion
+   * @param options netCDF version, deflate level and shuffle setting of the netCDF file
+   * @return location of the created netCDF file
+   */
+  public String createNetcdfCollection(List<CollectionFeature> features, Path netcdfFile, String delimiter,
+      int chunkSize, ConversionProgress progress, NetcdfOutputOptions options)
+      throws IOException, RosettaDataException {
+    if (!supportsCollections()) {
+      throw new RosettaDataException("Collections of " + myDsgType + " features are not supported");
+    }
+    if (features.isEmpty()) {
+      throw new IllegalArgumentException("A collection needs at least one feature");
+    }
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    ConversionContext ctx = new ConversionContext(chunkSize, progress);
+    ctx.useNetcdf4 = options.useNetcdf4();
+    // the data files are always parsed and written one chunk at a time, one after the other
+    ctx.chunked = true;
+    ctx.featureIds = new ArrayList<>();
+    for (CollectionFeature feature : features) {
+      ctx.featureIds.add(feature.getId());
     }
 
-    // add globalAttributes to ncf
-    for (String groupName : globalAttrs.keySet()) {
-      // todo - add check for netCDF4, and use metadata groups if it is enabled
-      for (Attribute globalAttr : globalAttrs.get(groupName)) {
-        ncf.addGlobalAttribute(globalAttr);
+    // the template is modified by the conversion, so the variables are defined from a copy of the
+    // template of the first feature
+    CollectionFeature firstFeature = features.get(0);
+    Template template = TemplateUtils.copy(firstFeature.getTemplate());
+    String netcdfFilePath = netcdfFile.toString();
+
+    boolean written = false;
+    try (ChunkedColumnParser parser =
+        new ChunkedColumnParser(firstFeature.getDataFile(), template, delimiter, chunkSize)) {
+      int numRows = parseChunk(ctx, parser);
+
+      createNonElementCoordVars(ctx, template);
+
+      createWriter(ctx, netcdfFilePath, options);
+
+      identifyVariables(ctx, template);
+
+      long totalRows = 0;
+      for (CollectionFeature feature : features) {
+        totalRows += scanDataFile(ctx, feature.getDataFile(), feature.getTemplate(), delimiter,
+            feature == firstFeature ? parser : null);
       }
-    }
+      setNumElements(ctx, totalRows);
+      ctx.progress.addTotalRows(ctx.numElements);
 
-    makeOtherVariables();
+      ctx.featureDimension =
+          ctx.ncf.addDimension(TemplateUtils.findUniqueName("station", template), features.size());
 
-    // write all metadata and get ready for writing data values
-    ncf.create();
+      if (!createElementCoordVarTime(ctx, template)) {
+        throw new RosettaDataException("element dimension not created for the collection");
+      }
 
-    try {
-      // write variable data to netCDF File
+      for (VariableInfo coordVarInfo : ctx.nonElementCoordVarInfo) {
+        makeNonElementCoordVars(ctx, coordVarInfo);
+      }
 
-      // write time variable data
-      ncf.write(timeCoordVarName, timeCoordVarArr);
+      for (VariableInfo dataVarInfo : ctx.dataVarInfo) {
+        makeDataVars(ctx, dataVarInfo);
+      }
 
-      // if profile, detailed time might exist
-      if (myDsgType == "profile") {
-        // if profile, detailed time might exist
-        if (timeCoordVarDetailName != null) {
-          ncf.write(timeCoordVarDetailName, timeCoordVarDetailArr);
-        }
-        // write data for vertical coord variable
-        ncf.write(verticalCoordVarName, verticalCoordVarArr);
-      }
-
-      // write data to featureId variable
-      ncf.write(featureVarName, Array.makeFromJavaArray(featureId.toCharArray()));
-
-      // write data to all netCDF variables with an attribute containing the column id
-      for (Variable var : ncf.getNetcdfFile().getVariables()) {
-        Attribute colIdAttr = var.findAttribute(colIdAttrName);
-        if (colIdAttr != null) {
-          Number colIdNum = colIdAttr.getNumericValue();
-          int colId = colIdNum.intValue();
-          // defined in columnar data block
-          if (colId > 0) {
-            Array thisData = arrayData.get(colId);
-            if ((thisData.getDataType() == DataType.CHAR)
-                || (thisData.getDataType() == DataType.STRING && !useNetcdf4)) {
-              // CHAR arrays are backed by a list of strings in the ParsedData object
-              // so need to handle special when writing
-              ncf.writeStringData(var, Array.makeArray(DataType.STRING, stringData.get(colId)));
-            } else {
-              ncf.write(var, thisData);
-            }
-          } else {
-            // write data to variables extracted from global metadata
-            for (VariableInfo vi : nonElementCoordVarInfo) {
-              if (var.getFullNameEscaped().contains(vi.getName())) {
-                for (RosettaAttribute ra : vi.getRosettaControlMetadata()) {
-                  String name = ra.getName();
-                  if (name.equalsIgnoreCase("globalattributename")) {
-                    Attribute ga = ncf.findGlobalAttribute(ra.getValue());
-                    DataType dt = ga.getDataType();
-                    Number val = ga.getNumericValue();
-                    Array scalar = null;
-
-                    if (dt == DataType.FLOAT) {
-                      scalar = new ArrayFloat.D0();
-                      scalar.setFloat(0, val.floatValue());
-                    } else if (dt == DataType.DOUBLE) {
-                      scalar = new ArrayDouble.D0();
-                      scalar.setDouble(0, val.doubleValue());
-                    } else if ((val != null) && (dt == DataType.STRING)) {
-                      // ok, we were able to get a non-null Number out of the attribute, but
-                      // the datatype on the attribute is string - let's store it as a double
-                      scalar = new ArrayDouble.D0();
-                      scalar.setDouble(0, val.doubleValue());
-                    }
-
-                    if (scalar != null) {
-                      ncf.write(var, scalar);
-                    } else {
-                      logger.error("failed to write scalar value to var " + var.getFullNameEscaped());
-                    }
-                  }
-                }
-              }
+      addGlobalAttributes(ctx, template);
+
+      makeOtherVariables(ctx);
+
+      Variable rowSizeVar = ctx.ncf.addVariable(null, TemplateUtils.findUniqueName("row_size", template),
+          DataType.INT, Collections.singletonList(ctx.featureDimension));
+      rowSizeVar.addAttribute(new Attribute("long_name", "number of observations for this station"));
+      rowSizeVar.addAttribute(new Attribute("sample_dimension", ctx.elementDimension.getShortName()));
+
+      // write all metadata and get ready for writing data values
+      ctx.ncf.create();
+      findPlanVariables(ctx);
+
+      int rowOffset = 0;
+      try {
+        rowOffset = writeFeature(ctx, 0, firstFeature, parser, numRows, rowOffset, rowSizeVar);
+        for (int featureIndex = 1; featureIndex < features.size(); featureIndex++) {
+          CollectionFeature feature = features.get(featureIndex);
+          try (ChunkedColumnParser featureParser =
+              new ChunkedColumnParser(feature.getDataFile(), feature.getTemplate(), delimiter, chunkSize)) {
+            numRows = parseChunk(ctx, featureParser);
+            if (numRows > 0) {
+              updateElementCoordVarData(ctx);
+              accumulateValueRanges(ctx);
             }
+            rowOffset = writeFeature(ctx, featureIndex, feature, featureParser, numRows, rowOffset, rowSizeVar);
           }
         }
+      } catch (InvalidRangeException e) {
+        throw new RosettaDataException("Unable to write the data of the collection to " + netcdfFile + ": " + e, e);
       }
-    } catch (InvalidRangeException e) {
-      logger.error(e.getMessage());
-      logger.error(e.getStackTrace());
-    }
 
-    ncf.close();
+      updateValueRangeAttrs(ctx);
+
+      ctx.ncf.close();
+
+      if (rowOffset != ctx.numElements) {
+        throw new RosettaDataException(
+            "Expected " + ctx.numElements + " rows of data in the collection, but found " + rowOffset);
+      }
+      written = true;
+    } finally {
+      if (!written) {
+        discardNetcdfFile(ctx, netcdfFile);
+      }
+    }
 
     return netcdfFilePath;
   }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.custom.dsg;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ucar.nc2.jni.netcdf.Nc4Iosp;
+
+/**
+ * Options of the netCDF files created by the custom DSG converters: netCDF-3 (the default), or
+ * netCDF-4 with chunked variables compressed using the deflate and shuffle filters.
+ */
+public class NetcdfOutputOptions {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  public static final String NETCDF3 = "netcdf3";
+  public static final String NETCDF4 = "netcdf4";
+
+  // deflate level used when none is given, a good tradeoff between compression and speed
+  public static final int DEFAULT_DEFLATE_LEVEL = 5;
+
+  private boolean netcdf4 = false;
+  private int deflateLevel = DEFAULT_DEFLATE_LEVEL;
+  private boolean shuffle = true;
+  private boolean appendable = false;
+
+  /**
+   * Get the options set in a template, using the default options for those which are not set.
+   *
+   * @param template The template.
+   * @return The options.
+   */
+  public static NetcdfOutputOptions fromTemplate(Template template) {
+    NetcdfOutputOptions options = new NetcdfOutputOptions();
+    String netcdfVersion = template.getNetcdfVersion();
+    if (netcdfVersion != null) {
+      if (netcdfVersion.equalsIgnoreCase(NETCDF4)) {
+        options.setNetcdf4(true);
+      } else if (!netcdfVersion.equalsIgnoreCase(NETCDF3)) {
+        throw new IllegalArgumentException("Unknown netCDF version: " + netcdfVersion);
+      }
+    }
+    if (template.getDeflateLevel() != null) {
+      options.setDeflateLevel(template.getDeflateLevel());
+    }
+    if (template.getShuffle() != null) {
+      options.setShuffle(template.getShuffle());
+    }
+    return options;
+  }
+
+  /**
+   * Returns true if netCDF-4 files are requested.
+   *
+   * @return true for netCDF-4 files, false for netCDF-3 files.
+   */
+  public boolean isNetcdf4() {
+    return netcdf4;
+  }
+
+  /**
+   * Returns the deflate level of the variables of netCDF-4 files.
+   *
+   * @return The deflate level, from 0 (no compression) to 9.
+   */
+  public int getDeflateLevel() {
+    return deflateLevel;
+  }
+
+  /**
+   * Returns true if the shuffle filter is applied to the variables of netCDF-4 files.
+   *
+   * @return The shuffle setting.
+   */
+  public boolean isShuffle() {
+    return shuffle;
+  }
+
+  /**
+   * Returns true if rows can be appended to the netCDF files later, see
+   * {@link NetcdfFileManager#appendToNetcdfFile}.
+   *
+   * @return true if the element dimension of the netCDF files is unlimited.
+   */
+  public boolean isAppendable() {
+    return appendable;
+  }
+
+  /**
+   * Sets whether netCDF-4 files are requested.
+   *
+   * @param netcdf4 true for netCDF-4 files, false for netCDF-3 files.
+   */
+  public void setNetcdf4(boolean netcdf4) {
+    this.netcdf4 = netcdf4;
+  }
+
+  /**
+   * Sets the deflate level of the variables of netCDF-4 files.
+   *
+   * @param deflateLevel The deflate level, from 0 (no compression) to 9.
+   */
+  public void setDeflateLevel(int deflateLevel) {
+    if (deflateLevel < 0 || deflateLevel > 9) {
+      throw new IllegalArgumentException("Deflate level must be between 0 and 9: " + deflateLevel);
+    }
+    this.deflateLevel = deflateLevel;
+  }
+
+  /**
+   * Sets whether the shuffle filter is applied to the variables of netCDF-4 files.
+   *
+   * @param shuffle The shuffle setting.
+   */
+  public void setShuffle(boolean shuffle) {
+    this.shuffle = shuffle;
+  }
+
+  /**
+   * Sets whether rows can be appended to the netCDF files later. The element dimension of the
+   * trajectory and timeSeries files is then unlimited.
+   *
+   * @param appendable true to make the element dimension unlimited.
+   */
+  public void setAppendable(boolean appendable) {
+    this.appendable = appendable;
+  }
+
+  /**
+   * Check if netCDF-4 files can be written as requested. netCDF-4 files are written by the netCDF C
+   * library, so netCDF-3 files are written instead if it is not loaded.
+   *
+   * @return true if netCDF-4 files are requested and the netCDF C library is loaded.
+   */
+  boolean useNetcdf4() {
+    if (netcdf4 && !Nc4Iosp.isClibraryPresent()) {
+      logger.warn("Cannot enable netCDF-4 writing - c library is not loaded. Writing netCDF-3 instead.");
+      return false;
+    }
+    return netcdf4;
+  }
+}
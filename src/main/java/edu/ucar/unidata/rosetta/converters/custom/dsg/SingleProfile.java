@@ -33,61 +33,62 @@ public class SingleProfile extends NetcdfFileManager {
    * make variables specific to profile DSGs
    */
   @Override
-  void makeOtherVariables() {
+  void makeOtherVariables(ConversionContext ctx) {
     // try to ge trajectory name
 
     int idLen;
-    if (featureId != null) {
-      idLen = featureId.length();
+    if (ctx.featureId != null) {
+      idLen = ctx.featureId.length();
     } else {
-      featureId = "profile1";
-      idLen = featureId.length();
+      ctx.featureId = "profile1";
+      idLen = ctx.featureId.length();
     }
 
-    Dimension trajDim = ncf.addDimension("profile_char", idLen);
-    Variable featureId = ncf.addVariable(null, "profile", DataType.CHAR, Collections.singletonList(trajDim));
-    featureId.addAttribute(new Attribute("cf_role", "profile_id"));
+    Dimension trajDim = ctx.ncf.addDimension("profile_char", idLen);
+    Variable featureVar = ctx.ncf.addVariable(null, "profile", DataType.CHAR, Collections.singletonList(trajDim));
+    featureVar.addAttribute(new Attribute("cf_role", "profile_id"));
   }
 
   /**
    * Create a coordinate variable for a non-time related coordinate variable
    * 
+   * @param ctx context of the conversion
    * @param variableInfo non-time related coordinate variable
    */
-  void makeNonElementCoordVars(VariableInfo variableInfo) {
+  void makeNonElementCoordVars(ConversionContext ctx, VariableInfo variableInfo) {
     // for a profile, all coordinate variables will have a vertical dimension
-    List<Dimension> coordVarDimensions = Collections.singletonList(elementDimension);
+    List<Dimension> coordVarDimensions = Collections.singletonList(ctx.elementDimension);
 
     Group group = null;
 
     String varName = variableInfo.getName();
 
     // only add if not already added (i.e. time variable almost certainly added)
-    if (ncf.findVariable(varName) == null) {
+    if (ctx.ncf.findVariable(varName) == null) {
       DataType dataType = VariableInfoUtils.getDataType(variableInfo);
       // if colId not -2, then use coordVarDimension; otherwise, will be scalar as the value
       // comes from a global attribute
       Variable var;
       if (variableInfo.getColumnId() == -2) {
-        var = ncf.addVariable(group, varName, dataType, "");
+        var = ctx.ncf.addVariable(group, varName, dataType, "");
       } else {
-        var = ncf.addVariable(group, varName, dataType, coordVarDimensions);
+        var = ctx.ncf.addVariable(group, varName, dataType, coordVarDimensions);
       }
 
       // add all attributes from the variableInfo object
       List<Attribute> allVarAttrs = VariableInfoUtils.getAllVariableAttributes(variableInfo);
 
       // compute and add new computedAttrs too the allVarAttrs list
-      List<Attribute> computedAttrs = calculateCoordVarAttrs(variableInfo);
+      List<Attribute> computedAttrs = calculateCoordVarAttrs(ctx, variableInfo);
       allVarAttrs.addAll(computedAttrs);
 
       var.addAll(allVarAttrs);
-      coordAttrValues.add(varName);
+      ctx.coordAttrValues.add(varName);
     }
   }
 
   @Override
-  void createNonElementCoordVars(Template template) {
+  void createNonElementCoordVars(ConversionContext ctx, Template template) {
     // use geospatial_lat_start, geospatial_lon_start attributes to create lat/lon, assuming
     // latitude and longitude not part of the columnar data
     Map<String, ArrayList<Attribute>> globalAttrs = TemplateUtils.getGlobalAttrsMap(template);
@@ -95,7 +96,7 @@ public class SingleProfile extends NetcdfFileManager {
     String latName = TemplateUtils.findUniqueName("latitude", template);
     String lonName = TemplateUtils.findUniqueName("longitude", template);
 
-    if (!coordVarTypes.contains(VariableInfoUtils.latitude)) {
+    if (!ctx.coordVarTypes.contains(VariableInfoUtils.latitude)) {
       for (Attribute attr : globalAttrsRoot) {
         if (attr.getFullName().equalsIgnoreCase("geospatial_lat_start")) {
           VariableInfo latVi = new VariableInfo();
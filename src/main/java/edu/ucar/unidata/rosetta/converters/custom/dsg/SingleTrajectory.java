@@ -26,52 +26,53 @@ public class SingleTrajectory extends NetcdfFileManager {
    * make variables specific to trajectory DSGs
    */
   @Override
-  void makeOtherVariables() {
+  void makeOtherVariables(ConversionContext ctx) {
     // try to ge trajectory name
 
     int idLen;
-    if (featureId != null) {
-      idLen = featureId.length();
+    if (ctx.featureId != null) {
+      idLen = ctx.featureId.length();
     } else {
-      featureId = "feature1";
-      idLen = featureId.length();
+      ctx.featureId = "feature1";
+      idLen = ctx.featureId.length();
     }
 
-    Dimension trajDim = ncf.addDimension("trajectory_char", idLen);
-    Variable featureId = ncf.addVariable(null, "trajectory", DataType.CHAR, Collections.singletonList(trajDim));
-    featureId.addAttribute(new Attribute("cf_role", "trajectory_id"));
+    Dimension trajDim = ctx.ncf.addDimension("trajectory_char", idLen);
+    Variable featureVar = ctx.ncf.addVariable(null, "trajectory", DataType.CHAR, Collections.singletonList(trajDim));
+    featureVar.addAttribute(new Attribute("cf_role", "trajectory_id"));
   }
 
 
   /**
    * Create a coordnate variable for a non-time related coordinate variable
    * 
+   * @param ctx context of the conversion
    * @param variableInfo non-time related coordinate variable
    */
-  void makeNonElementCoordVars(VariableInfo variableInfo) {
+  void makeNonElementCoordVars(ConversionContext ctx, VariableInfo variableInfo) {
     // for a trajectory, all coordinate variables will have a dimension of time
-    List<Dimension> coordVarDimensions = Collections.singletonList(elementDimension);
+    List<Dimension> coordVarDimensions = Collections.singletonList(ctx.elementDimension);
 
     Group group = null;
 
     String varName = variableInfo.getName();
 
     DataType dataType = VariableInfoUtils.getDataType(variableInfo);
-    Variable var = ncf.addVariable(group, varName, dataType, coordVarDimensions);
+    Variable var = ctx.ncf.addVariable(group, varName, dataType, coordVarDimensions);
 
     // add all attributes from the variableInfo object
     List<Attribute> allVarAttrs = VariableInfoUtils.getAllVariableAttributes(variableInfo);
 
-    List<Attribute> computedAttrs = calculateCoordVarAttrs(variableInfo);
+    List<Attribute> computedAttrs = calculateCoordVarAttrs(ctx, variableInfo);
     // add new computedAttrs too the allVarAttrs list
     allVarAttrs.addAll(computedAttrs);
 
     var.addAll(allVarAttrs);
-    coordAttrValues.add(varName);
+    ctx.coordAttrValues.add(varName);
   }
 
   @Override
-  void createNonElementCoordVars(Template template) {
+  void createNonElementCoordVars(ConversionContext ctx, Template template) {
     // no-op - all coordinate data should be defined in the time series data
   }
 }
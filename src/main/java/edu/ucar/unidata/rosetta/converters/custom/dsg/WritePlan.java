@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.custom.dsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sources of the data of the variables defined from the columns of a data file or from global
+ * attributes, recorded while the variables are defined. Each chunk of data is written by going
+ * through the plan, instead of looking up the source of the data of every variable of the netCDF
+ * file.
+ *
+ * A plan only refers to variables by name and does not depend on the data, so it is reused for
+ * all of the files converted with the same template (e.g. the files of a batch).
+ */
+class WritePlan {
+
+  private final List<ColumnWrite> columnWrites = new ArrayList<>();
+  private final List<GlobalAttributeWrite> globalAttributeWrites = new ArrayList<>();
+
+  /**
+   * Write the data of a column of the data file to a variable along the element dimension
+   */
+  static class ColumnWrite {
+
+    final String varName;
+    final int columnId;
+
+    ColumnWrite(String varName, int columnId) {
+      this.varName = varName;
+      this.columnId = columnId;
+    }
+  }
+
+  /**
+   * Write the value of a global attribute to a scalar variable
+   */
+  static class GlobalAttributeWrite {
+
+    final String varName;
+    final String globalAttributeName;
+
+    GlobalAttributeWrite(String varName, String globalAttributeName) {
+      this.varName = varName;
+      this.globalAttributeName = globalAttributeName;
+    }
+  }
+
+  /**
+   * Add the write of the data of a column
+   *
+   * @param varName name of the variable
+   * @param columnId id of the column holding the data of the variable
+   */
+  void addColumnWrite(String varName, int columnId) {
+    columnWrites.add(new ColumnWrite(varName, columnId));
+  }
+
+  /**
+   * Add the write of the value of a global attribute
+   *
+   * @param varName name of the variable
+   * @param globalAttributeName name of the global attribute holding the value of the variable
+   */
+  void addGlobalAttributeWrite(String varName, String globalAttributeName) {
+    globalAttributeWrites.add(new GlobalAttributeWrite(varName, globalAttributeName));
+  }
+
+  /**
+   * @return the writes of the data of columns, written with every chunk
+   */
+  List<ColumnWrite> getColumnWrites() {
+    return Collections.unmodifiableList(columnWrites);
+  }
+
+  /**
+   * @return the writes of the values of global attributes, written with the first chunk only
+   */
+  List<GlobalAttributeWrite> getGlobalAttributeWrites() {
+    return Collections.unmodifiableList(globalAttributeWrites);
+  }
+}
@@ -5,10 +5,12 @@
 
 package edu.ucar.unidata.rosetta.converters.known;
 
+import edu.ucar.unidata.rosetta.converters.utils.DataFileInput;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -313,7 +315,8 @@ public class EolSoundingComp {
     String line;
 
     Path escPath = Paths.get(escFile);
-    try (BufferedReader br = Files.newBufferedReader(escPath)) {
+    try (BufferedReader br = new BufferedReader(
+        new InputStreamReader(DataFileInput.open(escPath), StandardCharsets.UTF_8.newDecoder()))) {
       // read first line in file - should start off with the
       // launch header.
       line = br.readLine();
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.known.etuff;
+
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import java.util.Arrays;
+
+/**
+ * The obs of an eTUFF variable, stored as parallel primitive arrays of times and values.
+ *
+ * Obs are appended as they are read, and sorted by time (and obs sharing a time removed) the
+ * first time the series is read. The statistics of the values are accumulated as the obs are
+ * appended, so that computing the max/min attributes of the variable does not need another pass.
+ */
+class ObSeries {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  // seconds since 1970-01-01
+  private long[] times;
+  private float[] values;
+  private int size;
+  private boolean sorted;
+  private final String unit;
+  private final TagUniversalFileFormat.DuplicateTimes duplicateTimes;
+  private ColumnStatistics statistics = new ColumnStatistics();
+
+  /**
+   * Create an empty series.
+   *
+   * @param unit unit of the obs
+   * @param duplicateTimes which ob to keep when several obs share a time
+   */
+  ObSeries(String unit, TagUniversalFileFormat.DuplicateTimes duplicateTimes) {
+    this.times = new long[INITIAL_CAPACITY];
+    this.values = new float[INITIAL_CAPACITY];
+    this.sorted = true;
+    this.unit = unit.intern();
+    this.duplicateTimes = duplicateTimes;
+  }
+
+  /**
+   * Create a series from obs already sorted by time, with no duplicate times.
+   *
+   * @param times times of the obs
+   * @param values values of the obs
+   * @param unit unit of the obs
+   */
+  ObSeries(long[] times, float[] values, String unit) {
+    this.times = times;
+    this.values = values;
+    this.size = times.length;
+    this.sorted = true;
+    this.unit = unit;
+    this.duplicateTimes = TagUniversalFileFormat.DuplicateTimes.KEEP_LAST;
+    for (float value : values) {
+      statistics.add(value);
+    }
+  }
+
+  /**
+   * Append an ob.
+   *
+   * @param time time of the ob, in seconds since 1970-01-01
+   * @param value value of the ob
+   */
+  void add(long time, float value) {
+    if (size == times.length) {
+      int capacity = times.length + (times.length >> 1) + 1;
+      times = Arrays.copyOf(times, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    if (size > 0 && time <= times[size - 1]) {
+      sorted = false;
+    }
+    times[size] = time;
+    values[size] = value;
+    size++;
+    statistics.add(value);
+  }
+
+  /**
+   * @return times of the obs, in ascending order
+   */
+  long[] getTimes() {
+    sort();
+    return times;
+  }
+
+  /**
+   * @return values of the obs, in time order
+   */
+  float[] getValues() {
+    sort();
+    return values;
+  }
+
+  /**
+   * @return statistics of the values of the obs, not counting obs sharing a time with another ob
+   */
+  ColumnStatistics getStatistics() {
+    sort();
+    return statistics;
+  }
+
+  String getUnit() {
+    return unit;
+  }
+
+  /**
+   * @return number of obs, not counting obs sharing a time with another ob
+   */
+  int size() {
+    sort();
+    return size;
+  }
+
+  /**
+   * Sort the obs by time, remove obs sharing a time, and trim the arrays to the number of obs.
+   */
+  private void sort() {
+    if (!sorted) {
+      mergeSort();
+      removeDuplicateTimes();
+      sorted = true;
+    }
+    if (times.length != size) {
+      times = Arrays.copyOf(times, size);
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  /**
+   * Bottom-up merge sort of the obs by time. The sort is stable, so obs sharing a time stay in
+   * the order they were read.
+   */
+  private void mergeSort() {
+    long[] tmpTimes = new long[size];
+    float[] tmpValues = new float[size];
+    for (int width = 1; width < size; width *= 2) {
+      for (int lo = 0; lo < size - width; lo += 2 * width) {
+        int mid = lo + width;
+        int hi = Math.min(lo + 2 * width, size);
+        if (times[mid - 1] <= times[mid]) {
+          // already in order
+          continue;
+        }
+        System.arraycopy(times, lo, tmpTimes, lo, hi - lo);
+        System.arraycopy(values, lo, tmpValues, lo, hi - lo);
+        int left = lo;
+        int right = mid;
+        for (int i = lo; i < hi; i++) {
+          int from = (left < mid && (right >= hi || tmpTimes[left] <= tmpTimes[right])) ? left++ : right++;
+          times[i] = tmpTimes[from];
+          values[i] = tmpValues[from];
+        }
+      }
+    }
+  }
+
+  private void removeDuplicateTimes() {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (kept > 0 && times[kept - 1] == times[i]) {
+        if (duplicateTimes == TagUniversalFileFormat.DuplicateTimes.KEEP_LAST) {
+          values[kept - 1] = values[i];
+        }
+      } else {
+        times[kept] = times[i];
+        values[kept] = values[i];
+        kept++;
+      }
+    }
+    if (kept < size) {
+      // the values of the removed obs were counted when they were appended
+      statistics = new ColumnStatistics();
+      for (int i = 0; i < kept; i++) {
+        statistics.add(values[i]);
+      }
+    }
+    size = kept;
+  }
+}
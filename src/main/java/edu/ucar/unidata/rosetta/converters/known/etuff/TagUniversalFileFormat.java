@@ -6,20 +6,17 @@
 package edu.ucar.unidata.rosetta.converters.known.etuff;
 
 import static edu.ucar.unidata.rosetta.converters.utils.VariableAttributeUtils.getMaxMinAttrs;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import edu.ucar.unidata.rosetta.converters.utils.DataFileInput;
 import edu.ucar.unidata.rosetta.domain.MetadataProfile;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.repository.wizard.XmlMetadataProfileDao;
-import edu.ucar.unidata.rosetta.util.PathUtils;
 import edu.ucar.unidata.rosetta.util.RosettaGlobalAttributeUtils;
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -27,24 +24,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayChar;
-import ucar.ma2.ArrayFloat;
-import ucar.ma2.ArrayInt;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
-import ucar.nc2.FileWriter2;
 import ucar.nc2.Group;
-import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.Variable;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
@@ -64,12 +55,22 @@ public class TagUniversalFileFormat {
 
   private List<RosettaGlobalAttribute> rosettaGlobalAttributes = new ArrayList<>();
 
-  private HashMap<String, TreeMap<Long, Ob>> data = new HashMap<>();
+  private HashMap<String, ObSeries> data = new HashMap<>();
   private HashMap<String, TreeMap<Integer, HistBin>> binInfoMin = new HashMap<>();
   private HashMap<String, TreeMap<Integer, HistBin>> binInfoMax = new HashMap<>();
 
   // match one loc to many obs by default
   private boolean matchupOneLocOneOb = false;
+  private long matchupTolerance = Long.MAX_VALUE;
+  private boolean parallelMatchup = false;
+  private DuplicateTimes duplicateTimes = DuplicateTimes.KEEP_LAST;
+
+  /**
+   * Which ob of a variable to keep when several obs of that variable share a time
+   */
+  public enum DuplicateTimes {
+    KEEP_FIRST, KEEP_LAST
+  }
 
   private static String timeDimName = "time";
   private static String latDimName = "latitude";
@@ -113,6 +114,32 @@ public class TagUniversalFileFormat {
     this.matchupOneLocOneOb = matchupOneLocOneOb;
   }
 
+  /**
+   * set the maximum time difference, in seconds, between a trajectory time and a matched ob
+   *
+   * trajectory times without an ob within this tolerance are written as NaN. By default, there
+   * is no limit.
+   */
+  public void setMatchupTolerance(long matchupTolerance) {
+    this.matchupTolerance = matchupTolerance;
+  }
+
+  /**
+   * set whether the obs of the trajectory variables are matched up in parallel
+   */
+  public void setParallelMatchup(boolean parallelMatchup) {
+    this.parallelMatchup = parallelMatchup;
+  }
+
+  /**
+   * set which ob of a variable is kept when several obs of that variable share a time
+   *
+   * by default, the last ob read is kept.
+   */
+  public void setDuplicateTimes(DuplicateTimes duplicateTimes) {
+    this.duplicateTimes = duplicateTimes;
+  }
+
   public void setUseNetcdf4(boolean useNetcdf4) {
     if ((useNetcdf4) && (Nc4Iosp.isClibraryPresent())) {
       this.useNetcdf4 = useNetcdf4;
@@ -169,20 +196,11 @@ public class TagUniversalFileFormat {
     binInfo.put(name, tmpBinList);
   }
 
-  private void addData(String name, long time, Ob newOb) {
+  private void addData(String name, long time, float value, String unit) {
     // time is seconds since 1970-01-01 from java.util.Date.getTime()
-    TreeMap<Long, Ob> tmpObList;
-
     name = cleanVarName(name);
-
-    if (data.containsKey(name)) {
-      tmpObList = data.get(name);
-    } else {
-      tmpObList = new TreeMap<>();
-    }
-
-    tmpObList.put(time, newOb);
-    data.put(name, tmpObList);
+    // the unit of a variable is kept only once, from its first ob
+    data.computeIfAbsent(name, varName -> new ObSeries(unit, duplicateTimes)).add(time, value);
   }
 
   private void processHeaderLine(String line) {
@@ -295,11 +313,17 @@ public class TagUniversalFileFormat {
         if (!line.endsWith(",")) {
           unit = cleanUnitString(dataEntry[4].replaceAll("\"", ""));
         }
-        Ob thisOb = new Ob(value, unit);
+        float floatValue;
+        try {
+          floatValue = Float.parseFloat(value);
+        } catch (NumberFormatException nfe) {
+          // not a numeric ob - only numeric variables are written out
+          floatValue = Float.NaN;
+        }
         CalendarDate calendarDate = CalendarDate.parseISOformat("gregorian", datetime);
         long msecSinceEpoch = calendarDate.toDate().getTime();
         long secSinceEpoch = msecSinceEpoch / 1000;
-        addData(name, secSinceEpoch, thisOb);
+        addData(name, secSinceEpoch, floatValue, unit);
       } else {
         // cannot identify data line
         logger.error("No idea what this is: " + line);
@@ -314,14 +338,8 @@ public class TagUniversalFileFormat {
     Path tbFilePath = Paths.get(etuffFile);
     BufferedReader br;
     try {
-      if (etuffFile.endsWith(".gz")) {
-        InputStream fileStream = new FileInputStream(tbFilePath.toString());
-        InputStream gzipStream = new GZIPInputStream(fileStream);
-        Reader decoder = new InputStreamReader(gzipStream, StandardCharsets.ISO_8859_1);
-        br = new BufferedReader(decoder);
-      } else {
-        br = Files.newBufferedReader(tbFilePath, StandardCharsets.ISO_8859_1);
-      }
+      // compressed files are decompressed on a separate thread while being parsed
+      br = new BufferedReader(new InputStreamReader(DataFileInput.open(tbFilePath), StandardCharsets.ISO_8859_1));
 
       logger.debug("opened the etuff file!");
       line = br.readLine();
@@ -419,13 +437,12 @@ public class TagUniversalFileFormat {
 
 
 
-  private void makeCoordinateVariables(Object name, List<String> strData) {
+  private void makeCoordinateVariables(Object name, ObSeries obs) {
     // compute max/min attrs
-    List<Attribute> maxMinAttrs = getMaxMinAttrs(Array.makeArray(DataType.FLOAT, strData));
-    String strName = name.toString();
+    List<Attribute> maxMinAttrs = getMaxMinAttrs(obs.getStatistics());
 
     Variable theNewVar = ncfw.addVariable(rootGroup, name.toString(), DataType.FLOAT, timeDimName);
-    String unit = data.get(strName).firstEntry().getValue().getUnit();
+    String unit = obs.getUnit();
     if (!unit.isEmpty()) {
       theNewVar.addAttribute(new Attribute("units", unit));
     }
@@ -454,9 +471,6 @@ public class TagUniversalFileFormat {
   }
 
   public String convert(String ncfileFinal, Template template) throws InvalidRangeException, IOException {
-    Path ncPath = PathUtils.replaceExtension(Paths.get(ncfileFinal), "temp");
-    String ncfile = ncPath.toString();
-
     // if a template is passed in, pull out the global metadata from it and update the
     // metadata extracted from the eTuff file
     if (template != null) {
@@ -472,10 +486,10 @@ public class TagUniversalFileFormat {
     rootGroup = null;
 
     if (useNetcdf4) {
-      ncfw = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, ncfile);
+      ncfw = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, ncfileFinal);
       rootGroup = ncfw.addGroup(null, null);
     } else {
-      ncfw = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, ncfile);
+      ncfw = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, ncfileFinal);
     }
 
     // create time dimension
@@ -504,21 +518,22 @@ public class TagUniversalFileFormat {
     trajId.addAttribute(new Attribute("cf_role", "trajectory_id"));
 
     // create time coordinate variable (special since it's not part of the data object
-    Variable theNewVar = ncfw.addVariable(rootGroup, timeDimName, DataType.INT, timeDimName);
-    theNewVar.addAttribute(new Attribute("standard_name", timeDimName));
-    theNewVar.addAttribute(new Attribute("long_name", timeDimName));
-    theNewVar.addAttribute(new Attribute("axis", "T"));
+    Variable timeVar = ncfw.addVariable(rootGroup, timeDimName, DataType.INT, timeDimName);
+    timeVar.addAttribute(new Attribute("standard_name", timeDimName));
+    timeVar.addAttribute(new Attribute("long_name", timeDimName));
+    timeVar.addAttribute(new Attribute("axis", "T"));
     String timeUnit = "seconds since 1970-01-01T00:00:00 UTC";
-    theNewVar.addAttribute(new Attribute("units", timeUnit));
+    timeVar.addAttribute(new Attribute("units", timeUnit));
 
+    Variable freshnessVar = null;
     if (!matchupOneLocOneOb) {
       // create freshness time coordinate variable
       // because we are matching one location with more than one ob, it's important to know
       // how "fresh" the location data are compared to the individual data point
-      theNewVar = ncfw.addVariable(rootGroup, freshnessVarName, DataType.FLOAT, timeDimName);
-      theNewVar.addAttribute(new Attribute("long_name", freshnessVarName));
-      theNewVar.addAttribute(new Attribute("units", "seconds"));
-      theNewVar.addAttribute(
+      freshnessVar = ncfw.addVariable(rootGroup, freshnessVarName, DataType.FLOAT, timeDimName);
+      freshnessVar.addAttribute(new Attribute("long_name", freshnessVarName));
+      freshnessVar.addAttribute(new Attribute("units", "seconds"));
+      freshnessVar.addAttribute(
           new Attribute("description", "time since last latitude and longitude observation were obtained."));
     }
 
@@ -531,8 +546,7 @@ public class TagUniversalFileFormat {
       String strName = name.toString();
       // todo: grab obs to find max/min, add to attributes
       if (trajCoordVarNames.contains(name.toString())) {
-        List<String> strData = data.get(strName).values().stream().map(Ob::getValue).collect(Collectors.toList());
-        makeCoordinateVariables(name, strData);
+        makeCoordinateVariables(name, data.get(strName));
       } else {
         int numVarRecords = data.get(strName).size();
         // only add variables which have time series available (i.e. not histogram)
@@ -544,13 +558,12 @@ public class TagUniversalFileFormat {
 
         if (isVar) {
           if (!name.equals("datetime")) {
-            List<String> strData = data.get(strName).values().stream().map(Ob::getValue).collect(Collectors.toList());
             // compute max/min
-            List<Attribute> maxMinAttrs = getMaxMinAttrs(Array.makeArray(DataType.FLOAT, strData));
+            List<Attribute> maxMinAttrs = getMaxMinAttrs(data.get(strName).getStatistics());
 
-            theNewVar = ncfw.addVariable(rootGroup, name.toString(), DataType.FLOAT, timeDimName);
+            Variable theNewVar = ncfw.addVariable(rootGroup, name.toString(), DataType.FLOAT, timeDimName);
             trajVarNames.add(name.toString());
-            String unit = data.get(strName).firstEntry().getValue().getUnit();
+            String unit = data.get(strName).getUnit();
             if (!unit.isEmpty()) {
               theNewVar.addAttribute(new Attribute("units", unit));
             }
@@ -567,138 +580,67 @@ public class TagUniversalFileFormat {
     trajVarNames.add(lonDimName);
     trajVarNames.add(depthDimName);
 
-    // create the file - writes medata and basic structure
-    ncfw.create();
-
-    // write the data, yo!
-
     // since this is a trajectory file, only write out data when we have lat, lon, and depth obs
     // for a given date
 
-    // get latitude variable
-
-    TreeMap<Long, Ob> dateTimeVar = data.get(maxTimeVar);
-    TreeMap<Long, Ob> latVar = data.get("latitude");
-
-    // because we use a TreeMap, the iterator of the Set returned by keySet() are sorted
-    // in ascending order.
-    Set<Long> times = matchupOneLocOneOb ? latVar.keySet() : dateTimeVar.keySet();
-
-    List<String> varValues;
-    List<String> freshnessValues = new ArrayList<>();
-
-    // find the matching obs closest to a trajectory time and write it out to
-    // the netCDF file
-    for (Object name : trajVarNames) {
-      String strName = name.toString();
-      varValues = new ArrayList<>();
-      // find a matching ob for the given trajectory time
-      if (matchupOneLocOneOb) {
-        // we are matching one location to a single ob
-        for (Long time : times) {
-          TreeMap<Long, Ob> varTM = data.get(strName);
-          // ob time closest to before the trajectory time
-          Long before = varTM.floorKey(time);
-          // ob time closest to after the trajectory time
-          Long after = varTM.ceilingKey(time);
-          Ob value = null;
-
-          // find which is actually closest
-          if ((before != null) && (after != null)) {
-            if ((time - before) < (after - time)) {
-              value = varTM.get(before);
-            } else {
-              value = varTM.get(after);
-            }
-          } else if (before != null) {
-            value = varTM.get(before);
-          } else if (after != null) {
-            value = varTM.get(after);
-          } else {
-            logger.error("no time match found!");
-          }
-          varValues.add(value.getValue());
-        }
-      } else {
-        // we are matching one location to many obs
-        for (Long time : times) {
-          TreeMap<Long, Ob> varTM = data.get(strName);
-
-          // ob time closest to before the datetime time
-          Long before = varTM.floorKey(time);
+    // the times of an ObSeries are sorted in ascending order.
+    long[] times = matchupOneLocOneOb ? data.get(latDimName).getTimes() : data.get(maxTimeVar).getTimes();
+
+    // the time and location freshness values are only known once the obs have been matched up
+    // to the trajectory times, so match up all of the variables before the file is created in order
+    // to add these max/min attributes while still in define mode. This way the file is written only
+    // once.
+    Array timeData = Array.factory(DataType.INT, new int[] {times.length});
+    ColumnStatistics timeStatistics = new ColumnStatistics();
+    for (int i = 0; i < times.length; i++) {
+      timeData.setInt(i, Math.toIntExact(times[i]));
+      timeStatistics.add(times[i]);
+    }
+    timeVar.addAll(getMaxMinAttrs(timeStatistics));
+
+    // match one location to a single ob using the closest ob, or one location to many obs using
+    // the latest location at or before the ob
+    TimeMatchup timeMatchup = new TimeMatchup(times,
+        matchupOneLocOneOb ? TimeMatchup.Method.NEAREST : TimeMatchup.Method.FLOOR, matchupTolerance);
+    // when matching one location to many obs, also compute how long before each ob the location
+    // was obtained, in the same pass as the latitude values
+    float[] freshnessValues = matchupOneLocOneOb ? null : new float[times.length];
+    ColumnStatistics freshnessStatistics = matchupOneLocOneOb ? null : new ColumnStatistics();
+    Map<String, float[]> matchedData = timeMatchup.matchupAll(trajVarNames, data, parallelMatchup,
+        latDimName, freshnessValues, freshnessStatistics);
+    if (!matchupOneLocOneOb) {
+      freshnessVar.addAll(getMaxMinAttrs(freshnessStatistics));
+    }
 
-          Ob value = null;
+    // create the file - writes medata and basic structure
+    ncfw.create();
 
-          // find which is actually closest
-          if (before != null) {
-            value = varTM.get(before);
-          } else {
-            logger.error("no time match found!");
-          }
-          varValues.add(value.getValue());
-          if (name.equals(latDimName)) {
-            freshnessValues.add(String.valueOf(time - before));
-          }
-        }
-      }
+    // write the data, yo!
 
-      Array thisData = ArrayFloat.makeArray(DataType.FLOAT, varValues);
-      Variable thisVar = ncfw.findVariable(name.toString());
-      ncfw.write(thisVar, thisData);
+    // write out the matching obs closest to a trajectory time to the netCDF file
+    for (String name : trajVarNames) {
+      Array thisData = makeFloatArray(matchedData.get(name));
+      ncfw.write(ncfw.findVariable(name), thisData);
     }
 
     // write out the values for the time variable
-    varValues = new ArrayList<>();
-    for (Long time : times) {
-      varValues.add(time.toString());
-    }
+    ncfw.write(timeVar, timeData);
 
-    Array thisData = ArrayInt.makeArray(DataType.INT, varValues);
-    Variable thisVar = ncfw.findVariable(timeDimName);
-    ncfw.write(thisVar, thisData);
-
-    thisData = ArrayChar.makeFromString(trajectoryId, trajectoryId.length());
-    thisVar = ncfw.findVariable(trajId.getFullName());
-    ncfw.write(thisVar, thisData);
+    Array thisData = ArrayChar.makeFromString(trajectoryId, trajectoryId.length());
+    ncfw.write(trajId, thisData);
 
     if (!matchupOneLocOneOb) {
       // write out "freshness" of the location data
-      thisData = Array.makeArray(DataType.FLOAT, freshnessValues);
-      thisVar = ncfw.findVariable(freshnessVarName);
-      ncfw.write(thisVar, thisData);
+      ncfw.write(freshnessVar, makeFloatArray(freshnessValues));
     }
 
     // close up
     ncfw.close();
 
-    // we don't know all of the data values for all variables at the time we are writing
-    // metadata, so we must re-write the file with the max/min metadata here.
-    NetcdfFile ncf = NetcdfFile.open(ncfile);
-    Variable theVar = ncf.findVariable(timeDimName);
-    List<Attribute> theAttrs = getMaxMinAttrs(theVar.read());
-    theVar.addAll(theAttrs);
-
-    if (!matchupOneLocOneOb) {
-      theVar = ncf.findVariable(freshnessVarName);
-      theAttrs = getMaxMinAttrs(theVar.read());
-      theVar.addAll(theAttrs);
-    }
-
-    if (useNetcdf4) {
-      FileWriter2 fw2 = new FileWriter2(ncf, ncfileFinal, NetcdfFileWriter.Version.netcdf4, null);
-      NetcdfFile ncfw2 = fw2.write();
-      ncfw2.close();
-    } else {
-      FileWriter2 fw2 = new FileWriter2(ncf, ncfileFinal, NetcdfFileWriter.Version.netcdf3, null);
-      NetcdfFile ncfw2 = fw2.write();
-      ncfw2.close();
-    }
-
-
-    ncf.close();
-
-    Files.delete(ncPath);
-
     return ncfileFinal;
   }
+
+  private static Array makeFloatArray(float[] values) {
+    return Array.factory(DataType.FLOAT, new int[] {values.length}, values);
+  }
 }
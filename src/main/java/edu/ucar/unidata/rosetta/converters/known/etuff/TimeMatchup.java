@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.known.etuff;
+
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Matches up the obs of eTUFF variables to the times of a trajectory.
+ *
+ * Both the trajectory times and the ob times are sorted, so each variable is matched up with a
+ * single linear merge of the two, rather than a tree lookup per trajectory time.
+ */
+class TimeMatchup {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  /**
+   * How an ob is picked for a trajectory time.
+   */
+  enum Method {
+    /** the ob closest in time, preferring the later ob on ties */
+    NEAREST,
+    /** the latest ob at or before the trajectory time */
+    FLOOR
+  }
+
+  private final long[] times;
+  private final Method method;
+  private final long tolerance;
+
+  /**
+   * @param times trajectory times, in ascending order
+   * @param method how an ob is picked for a trajectory time
+   * @param tolerance maximum time difference, in seconds, between a trajectory time and its matched
+   *        ob. Trajectory times without an ob within the tolerance get a NaN value.
+   */
+  TimeMatchup(long[] times, Method method, long tolerance) {
+    this.times = times;
+    this.method = method;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Match up the obs of a variable to the trajectory times.
+   *
+   * @param name name of the variable, for logging
+   * @param obs obs of the variable
+   * @param freshness if not null, filled with the time difference between each trajectory time and
+   *        its matched ob
+   * @return the matched values, one per trajectory time
+   */
+  float[] matchup(String name, ObSeries obs, float[] freshness) {
+    return matchup(name, obs, freshness, null);
+  }
+
+  /**
+   * Match up the obs of a variable to the trajectory times.
+   *
+   * @param name name of the variable, for logging
+   * @param obs obs of the variable
+   * @param freshness if not null, filled with the time difference between each trajectory time and
+   *        its matched ob
+   * @param freshnessStatistics if not null, the statistics to which the freshness values are added
+   * @return the matched values, one per trajectory time
+   */
+  float[] matchup(String name, ObSeries obs, float[] freshness, ColumnStatistics freshnessStatistics) {
+    long[] obTimes = obs.getTimes();
+    float[] obValues = obs.getValues();
+    int numObs = obTimes.length;
+    float[] matched = new float[times.length];
+    int unmatched = 0;
+
+    // index of the latest ob at or before the current trajectory time
+    int before = -1;
+    for (int i = 0; i < times.length; i++) {
+      long time = times[i];
+      while (before + 1 < numObs && obTimes[before + 1] <= time) {
+        before++;
+      }
+
+      int match = before;
+      if (method == Method.NEAREST) {
+        int after = before >= 0 && obTimes[before] == time ? before : before + 1;
+        if (before < 0 || (after < numObs && (time - obTimes[before]) >= (obTimes[after] - time))) {
+          match = after < numObs ? after : -1;
+        }
+      }
+
+      if (match >= 0 && Math.abs(time - obTimes[match]) <= tolerance) {
+        matched[i] = obValues[match];
+        if (freshness != null) {
+          freshness[i] = time - obTimes[match];
+          if (freshnessStatistics != null) {
+            freshnessStatistics.add(freshness[i]);
+          }
+        }
+      } else {
+        matched[i] = Float.NaN;
+        if (freshness != null) {
+          freshness[i] = Float.NaN;
+          if (freshnessStatistics != null) {
+            freshnessStatistics.add(Float.NaN);
+          }
+        }
+        unmatched++;
+      }
+    }
+
+    if (unmatched > 0) {
+      logger.error("no time match found for " + unmatched + " of " + times.length + " times of " + name);
+    }
+    return matched;
+  }
+
+  /**
+   * Match up the obs of several variables to the trajectory times.
+   *
+   * @param names names of the variables to match up
+   * @param data obs of the variables, by name
+   * @param parallel if true, match up the variables in parallel
+   * @return the matched values, by variable name
+   */
+  Map<String, float[]> matchupAll(List<String> names, Map<String, ObSeries> data, boolean parallel) {
+    return matchupAll(names, data, parallel, null, null, null);
+  }
+
+  /**
+   * Match up the obs of several variables to the trajectory times, also computing the freshness of
+   * one of them in the same pass over its obs.
+   *
+   * @param names names of the variables to match up
+   * @param data obs of the variables, by name
+   * @param parallel if true, match up the variables in parallel
+   * @param freshnessName name of the variable of which the freshness is computed, or null for none
+   * @param freshness if not null, filled with the time difference between each trajectory time and
+   *        the matched ob of the freshnessName variable
+   * @param freshnessStatistics if not null, the statistics to which the freshness values are added
+   * @return the matched values, by variable name
+   */
+  Map<String, float[]> matchupAll(List<String> names, Map<String, ObSeries> data, boolean parallel,
+      String freshnessName, float[] freshness, ColumnStatistics freshnessStatistics) {
+    Map<String, float[]> matched = new ConcurrentHashMap<>();
+    (parallel ? names.parallelStream() : names.stream()).forEach(name -> matched.put(name,
+        name.equals(freshnessName) ? matchup(name, data.get(name), freshness, freshnessStatistics)
+            : matchup(name, data.get(name), null)));
+    return matched;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import edu.ucar.unidata.rosetta.domain.ParsedFile;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a data file in chunks of at most a given number of data rows.
+ *
+ * Large uncompressed data files are split into ranges of whole records holding at most a chunk of
+ * data rows (see {@link ParallelColumnParser}), counting the data rows along the way. The ranges
+ * are parsed on the threads of a pool, a few ranges ahead of the chunk being consumed, so that at
+ * most a few chunks are held in memory at any time. Other data files are read by a single
+ * {@link StreamingColumnParser}.
+ */
+public class ChunkedColumnParser implements Closeable {
+
+  private final Path dataFile;
+  private final Template template;
+  private final String delimiter;
+  private final int chunkSize;
+
+  // parser of the whole data file, when not parsed in parallel
+  private final StreamingColumnParser parser;
+
+  // data file and ranges, when parsed in parallel
+  private final FileChannel channel;
+  private final List<Long> rangeStarts;
+  private final ForkJoinPool pool;
+  private final int maxPendingRanges;
+  private final Deque<ForkJoinTask<ParsedFile>> pendingRanges = new ArrayDeque<>();
+  private int nextRange = 0;
+
+  private long rowsParsed = 0;
+  // number of data rows of the data file, -1 until counted
+  private long dataRows = -1;
+
+  /**
+   * Create a parser for a data file, parsing it in parallel on the threads of
+   * {@link ParallelColumnParser#getPool()} if it is large and uncompressed.
+   *
+   * @param dataFile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @param chunkSize The maximum number of data rows of a chunk.
+   * @throws IOException If the data file cannot be opened.
+   * @throws RosettaDataException If a quoted field of the data is not terminated or is too long.
+   */
+  public ChunkedColumnParser(Path dataFile, Template template, String delimiter, int chunkSize)
+      throws IOException, RosettaDataException {
+    this(dataFile, template, delimiter, chunkSize,
+        selectPool(dataFile, ParallelColumnParser.getPool(), ParallelColumnParser.MIN_PARALLEL_FILE_SIZE));
+  }
+
+  /**
+   * Select the pool of threads parsing a data file.
+   *
+   * @param dataFile The data file.
+   * @param pool The pool of threads parsing large data files.
+   * @param minFileSize The size, in bytes, of the smallest data files parsed in parallel.
+   * @return The pool, or null if the data file is not worth parsing in parallel (or cannot be, e.g.
+   *         if it is read from a zip file).
+   * @throws IOException If unable to read the data file.
+   */
+  static ForkJoinPool selectPool(Path dataFile, ForkJoinPool pool, long minFileSize) throws IOException {
+    return ParallelColumnParser.isWorthParallelizing(dataFile, pool, minFileSize) ? pool : null;
+  }
+
+  /**
+   * Create a parser for a data file.
+   *
+   * @param dataFile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @param chunkSize The maximum number of data rows of a chunk.
+   * @param pool The pool of threads parsing the ranges of the data file, or null to read the data
+   *        file with a single parser.
+   * @throws IOException If the data file cannot be opened.
+   * @throws RosettaDataException If a quoted field of the data is not terminated or is too long.
+   */
+  ChunkedColumnParser(Path dataFile, Template template, String delimiter, int chunkSize, ForkJoinPool pool)
+      throws IOException, RosettaDataException {
+    this.dataFile = dataFile;
+    this.template = template;
+    this.delimiter = delimiter;
+    this.chunkSize = chunkSize;
+    this.pool = pool;
+    if (pool == null) {
+      parser = new StreamingColumnParser(dataFile, template, delimiter);
+      channel = null;
+      rangeStarts = null;
+      maxPendingRanges = 0;
+    } else {
+      parser = null;
+      channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+      try {
+        long rangeSize = ParallelColumnParser.getRangeSize(dataFile, pool);
+        ParallelColumnParser.Ranges ranges =
+            ParallelColumnParser.splitIntoRanges(channel, template, delimiter, rangeSize, chunkSize);
+        rangeStarts = ranges.starts;
+        dataRows = ranges.getTotalDataRows();
+      } catch (IOException | RosettaDataException e) {
+        channel.close();
+        throw e;
+      }
+      // keep every thread busy while a chunk is consumed. The ranges are submitted by next(), so
+      // that a parser created only to count the data rows does not parse them.
+      maxPendingRanges = pool.getParallelism() + 1;
+    }
+  }
+
+  /**
+   * Submit the parsing of the next ranges, up to the maximum number of pending ranges.
+   */
+  private void submitRanges() throws IOException {
+    while (pendingRanges.size() < maxPendingRanges && nextRange < rangeStarts.size()) {
+      submitRange();
+    }
+  }
+
+  private void submitRange() throws IOException {
+    long start = rangeStarts.get(nextRange);
+    long end = nextRange + 1 < rangeStarts.size() ? rangeStarts.get(nextRange + 1) : channel.size();
+    boolean fromStart = nextRange == 0;
+    MappedByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    pendingRanges.add(pool.submit(() -> {
+      try (StreamingColumnParser rangeParser = new StreamingColumnParser(
+          new ParallelColumnParser.ByteBufferInputStream(range), template, delimiter, fromStart)) {
+        return new ParsedFile(rangeParser);
+      }
+    }));
+    nextRange++;
+  }
+
+  /**
+   * Parse the next chunk of data rows.
+   *
+   * @return The next chunk, with no rows once the end of the data has been reached.
+   * @throws IOException If unable to read from the data file.
+   * @throws RosettaDataException If unable to parse the data with the provided delimiter.
+   */
+  public ParsedFile next() throws IOException, RosettaDataException {
+    ParsedFile chunk;
+    if (parser != null) {
+      chunk = new ParsedFile(parser, chunkSize);
+    } else {
+      // submits the first ranges on the first call
+      submitRanges();
+      if (pendingRanges.isEmpty()) {
+        try (StreamingColumnParser noRows =
+            new StreamingColumnParser(new ByteArrayInputStream(new byte[0]), template, delimiter, false)) {
+          chunk = new ParsedFile(noRows);
+        }
+      } else {
+        try {
+          chunk = pendingRanges.poll().get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while parsing " + dataFile, e);
+        } catch (ExecutionException e) {
+          throw ParallelColumnParser.rethrow(e, dataFile);
+        }
+        submitRanges();
+      }
+    }
+    rowsParsed += chunk.getNumRows();
+    return chunk;
+  }
+
+  /**
+   * Returns the total number of data rows parsed so far.
+   *
+   * @return The number of data rows parsed.
+   */
+  public long getRowsParsed() {
+    return rowsParsed;
+  }
+
+  /**
+   * Check if the end of the data has been reached.
+   *
+   * @return <code>true</code> if all data rows have been parsed; <code>false</code> otherwise.
+   */
+  public boolean isDone() {
+    return parser != null ? parser.isDone() : pendingRanges.isEmpty() && nextRange == rangeStarts.size();
+  }
+
+  /**
+   * Returns the number of data rows of the data file. The data rows of a data file parsed in
+   * parallel have been counted when it was split into ranges, and those of a data file whose rows
+   * have all been parsed are known; other data files are read once more to count them.
+   *
+   * @return The number of data rows.
+   * @throws IOException If unable to read from the data file.
+   * @throws RosettaDataException If a quoted field of the data is not terminated or is too long.
+   */
+  public long countDataRows() throws IOException, RosettaDataException {
+    if (dataRows < 0) {
+      dataRows = parser.isDone() ? rowsParsed : StreamingColumnParser.countDataRows(dataFile, template, delimiter);
+    }
+    return dataRows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (parser != null) {
+      parser.close();
+    } else {
+      for (ForkJoinTask<ParsedFile> pendingRange : pendingRanges) {
+        pendingRange.cancel(true);
+      }
+      pendingRanges.clear();
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * A growable, append-only buffer holding the values of a single column of a data file.
+ *
+ * Numeric columns are stored in primitive arrays, so the memory needed to hold a column is
+ * proportional to the decoded values and not to the text they were parsed from. The statistics of
+ * the values of numeric columns are accumulated as the values are appended (see
+ * {@link ColumnStatistics}).
+ */
+public abstract class ColumnBuffer {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  int size = 0;
+  ColumnStatistics statistics = new ColumnStatistics();
+
+  /**
+   * Create an empty column buffer for a given data type.
+   *
+   * @param dataType The data type of the values to be held in the buffer.
+   * @return A new, empty buffer.
+   * @throws IllegalArgumentException If the data type is not supported.
+   */
+  public static ColumnBuffer create(DataType dataType) {
+    switch (dataType) {
+      case INT:
+        return new IntColumnBuffer();
+      case LONG:
+        return new LongColumnBuffer();
+      case FLOAT:
+        return new FloatColumnBuffer();
+      case DOUBLE:
+        return new DoubleColumnBuffer();
+      case STRING:
+        return new StringColumnBuffer();
+      default:
+        throw new IllegalArgumentException("Column buffers not supported for data type " + dataType);
+    }
+  }
+
+  /**
+   * Returns the data type of the values held in this buffer.
+   *
+   * @return The data type.
+   */
+  public abstract DataType getDataType();
+
+  /**
+   * Parse a value and append it to the end of the buffer.
+   *
+   * @param value The string representation of the value.
+   * @throws NumberFormatException If the value cannot be parsed as the data type of the buffer.
+   */
+  public abstract void append(String value);
+
+  /**
+   * Parse a value from a range of characters and append it to the end of the buffer. Numeric
+   * buffers parse the value in place, without creating a String.
+   *
+   * @param chars The characters holding the value.
+   * @param start The index of the first character of the value.
+   * @param end The index after the last character of the value.
+   * @throws NumberFormatException If the value cannot be parsed as the data type of the buffer.
+   */
+  public void append(CharSequence chars, int start, int end) {
+    append(chars.subSequence(start, end).toString());
+  }
+
+  /**
+   * Append all values held by another buffer of the same type.
+   *
+   * @param other The buffer holding the values to append.
+   * @throws IllegalArgumentException If the other buffer does not hold values of the same type.
+   */
+  public abstract void appendAll(ColumnBuffer other);
+
+  /**
+   * Returns the contents of the buffer as a one dimensional netCDF-Java Array.
+   *
+   * @return The values held by the buffer.
+   */
+  public abstract Array toArray();
+
+  /**
+   * Set the missing value of the column. Values equal to the missing value are counted as missing
+   * by the statistics of the buffer. Must be set before any value is appended.
+   *
+   * @param missingValue The missing value, if any.
+   */
+  public void setMissingValue(Optional<Double> missingValue) {
+    statistics = new ColumnStatistics(missingValue);
+  }
+
+  /**
+   * Returns the statistics of the values held in the buffer.
+   *
+   * @return The statistics, or null for buffers of non numeric values.
+   */
+  public ColumnStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the number of values held in the buffer.
+   *
+   * @return The number of values.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove all values from the buffer, keeping the allocated storage for reuse.
+   */
+  public void clear() {
+    size = 0;
+    statistics.clear();
+  }
+
+  /**
+   * Compute the new capacity of a buffer which needs to hold at least one more value.
+   *
+   * @param capacity The current capacity.
+   * @return The new capacity.
+   */
+  static int grow(int capacity) {
+    if (capacity == Integer.MAX_VALUE) {
+      throw new OutOfMemoryError("Column buffer cannot hold more than " + Integer.MAX_VALUE + " values");
+    }
+    long newCapacity = Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    return (int) Math.min(newCapacity, Integer.MAX_VALUE);
+  }
+
+  ColumnBuffer checkType(ColumnBuffer other) {
+    if (other.getDataType() != getDataType()) {
+      throw new IllegalArgumentException(
+          "Cannot append " + other.getDataType() + " values to a " + getDataType() + " column buffer");
+    }
+    return other;
+  }
+
+  static int[] shape(int size) {
+    return new int[] {size};
+  }
+
+  /**
+   * Column buffer for INT values.
+   */
+  public static class IntColumnBuffer extends ColumnBuffer {
+
+    private int[] values = new int[0];
+
+    @Override
+    public DataType getDataType() {
+      return DataType.INT;
+    }
+
+    @Override
+    public void append(String value) {
+      // parse as a double first to match the behavior of Array.makeArray()
+      add((int) Double.parseDouble(value));
+    }
+
+    @Override
+    public void append(CharSequence chars, int start, int end) {
+      add((int) NumberParser.parseDouble(chars, start, end));
+    }
+
+    public void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length));
+      }
+      values[size++] = value;
+      statistics.add(value);
+    }
+
+    public int get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public void appendAll(ColumnBuffer other) {
+      IntColumnBuffer otherBuffer = (IntColumnBuffer) checkType(other);
+      if (size + otherBuffer.size > values.length) {
+        values = Arrays.copyOf(values, size + otherBuffer.size);
+      }
+      System.arraycopy(otherBuffer.values, 0, values, size, otherBuffer.size);
+      size += otherBuffer.size;
+      statistics.add(otherBuffer.statistics);
+    }
+
+    @Override
+    public Array toArray() {
+      int[] storage = size == values.length ? values : Arrays.copyOf(values, size);
+      return Array.factory(DataType.INT, shape(size), storage);
+    }
+  }
+
+  /**
+   * Column buffer for LONG values.
+   */
+  public static class LongColumnBuffer extends ColumnBuffer {
+
+    private long[] values = new long[0];
+
+    @Override
+    public DataType getDataType() {
+      return DataType.LONG;
+    }
+
+    @Override
+    public void append(String value) {
+      add(Long.parseLong(value.trim()));
+    }
+
+    @Override
+    public void append(CharSequence chars, int start, int end) {
+      add(NumberParser.parseLong(chars, start, end));
+    }
+
+    public void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length));
+      }
+      values[size++] = value;
+      statistics.add(value);
+    }
+
+    public long get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public void appendAll(ColumnBuffer other) {
+      LongColumnBuffer otherBuffer = (LongColumnBuffer) checkType(other);
+      if (size + otherBuffer.size > values.length) {
+        values = Arrays.copyOf(values, size + otherBuffer.size);
+      }
+      System.arraycopy(otherBuffer.values, 0, values, size, otherBuffer.size);
+      size += otherBuffer.size;
+      statistics.add(otherBuffer.statistics);
+    }
+
+    @Override
+    public Array toArray() {
+      long[] storage = size == values.length ? values : Arrays.copyOf(values, size);
+      return Array.factory(DataType.LONG, shape(size), storage);
+    }
+  }
+
+  /**
+   * Column buffer for FLOAT values.
+   */
+  public static class FloatColumnBuffer extends ColumnBuffer {
+
+    private float[] values = new float[0];
+
+    @Override
+    public DataType getDataType() {
+      return DataType.FLOAT;
+    }
+
+    @Override
+    public void append(String value) {
+      // parse as a double first to match the behavior of Array.makeArray()
+      add((float) Double.parseDouble(value));
+    }
+
+    @Override
+    public void append(CharSequence chars, int start, int end) {
+      add((float) NumberParser.parseDouble(chars, start, end));
+    }
+
+    public void add(float value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length));
+      }
+      values[size++] = value;
+      statistics.add(value);
+    }
+
+    public float get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public void appendAll(ColumnBuffer other) {
+      FloatColumnBuffer otherBuffer = (FloatColumnBuffer) checkType(other);
+      if (size + otherBuffer.size > values.length) {
+        values = Arrays.copyOf(values, size + otherBuffer.size);
+      }
+      System.arraycopy(otherBuffer.values, 0, values, size, otherBuffer.size);
+      size += otherBuffer.size;
+      statistics.add(otherBuffer.statistics);
+    }
+
+    @Override
+    public Array toArray() {
+      float[] storage = size == values.length ? values : Arrays.copyOf(values, size);
+      return Array.factory(DataType.FLOAT, shape(size), storage);
+    }
+  }
+
+  /**
+   * Column buffer for DOUBLE values.
+   */
+  public static class DoubleColumnBuffer extends ColumnBuffer {
+
+    private double[] values = new double[0];
+
+    @Override
+    public DataType getDataType() {
+      return DataType.DOUBLE;
+    }
+
+    @Override
+    public void append(String value) {
+      add(Double.parseDouble(value));
+    }
+
+    @Override
+    public void append(CharSequence chars, int start, int end) {
+      add(NumberParser.parseDouble(chars, start, end));
+    }
+
+    public void add(double value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length));
+      }
+      values[size++] = value;
+      statistics.add(value);
+    }
+
+    public double get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public void appendAll(ColumnBuffer other) {
+      DoubleColumnBuffer otherBuffer = (DoubleColumnBuffer) checkType(other);
+      if (size + otherBuffer.size > values.length) {
+        values = Arrays.copyOf(values, size + otherBuffer.size);
+      }
+      System.arraycopy(otherBuffer.values, 0, values, size, otherBuffer.size);
+      size += otherBuffer.size;
+      statistics.add(otherBuffer.statistics);
+    }
+
+    @Override
+    public Array toArray() {
+      double[] storage = size == values.length ? values : Arrays.copyOf(values, size);
+      return Array.factory(DataType.DOUBLE, shape(size), storage);
+    }
+  }
+
+  /**
+   * Column buffer for STRING values.
+   */
+  public static class StringColumnBuffer extends ColumnBuffer {
+
+    private List<String> values = new ArrayList<>();
+
+    @Override
+    public DataType getDataType() {
+      return DataType.STRING;
+    }
+
+    @Override
+    public void append(String value) {
+      values.add(value);
+      size++;
+    }
+
+    public String get(int index) {
+      return values.get(index);
+    }
+
+    @Override
+    public ColumnStatistics getStatistics() {
+      return null;
+    }
+
+    @Override
+    public void appendAll(ColumnBuffer other) {
+      StringColumnBuffer otherBuffer = (StringColumnBuffer) checkType(other);
+      values.addAll(otherBuffer.values);
+      size += otherBuffer.size;
+    }
+
+    /**
+     * Returns the values held in the buffer.
+     *
+     * @return The list of values.
+     */
+    public List<String> getValues() {
+      return values;
+    }
+
+    @Override
+    public void clear() {
+      super.clear();
+      values = new ArrayList<>();
+    }
+
+    @Override
+    public Array toArray() {
+      return Array.makeArray(DataType.STRING, values);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.util.Optional;
+import ucar.ma2.Array;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.MAMath;
+
+/**
+ * Running statistics (min, max, count, missing count and mean) of the values of a column,
+ * accumulated as the values are decoded so that no extra pass over the data is needed to compute
+ * the valid_min, valid_max attributes of a variable.
+ *
+ * NaN values and values equal to the missing value of the column are counted as missing, and are
+ * not included in the other statistics. The min and max values are the same as those computed by
+ * {@link MAMath#getMinMaxSkipMissingData} (or {@link MAMath#getMinMax} for columns without a
+ * missing value).
+ */
+public class ColumnStatistics {
+
+  private final double missingValue;
+  private double min = Double.MAX_VALUE;
+  private double max = -Double.MAX_VALUE;
+  private double sum = 0;
+  private long count = 0;
+  private long missingCount = 0;
+
+  /**
+   * Create statistics for a column without a missing value.
+   */
+  public ColumnStatistics() {
+    this(Double.NaN);
+  }
+
+  /**
+   * Create statistics for a column.
+   *
+   * @param missingValue The missing value of the column, or NaN if the column does not have one.
+   */
+  public ColumnStatistics(double missingValue) {
+    this.missingValue = missingValue;
+  }
+
+  /**
+   * Create statistics for a column.
+   *
+   * @param missingValue The missing value of the column, if any.
+   */
+  public ColumnStatistics(Optional<Double> missingValue) {
+    this(missingValue.orElse(Double.NaN));
+  }
+
+  /**
+   * Compute the statistics of an array, in a single pass over its values. Used for data which
+   * was not decoded by a {@link ColumnBuffer}.
+   *
+   * @param data The data.
+   * @param missingValue The missing value of the data, if any.
+   * @return The statistics of the data.
+   */
+  public static ColumnStatistics of(Array data, Optional<Double> missingValue) {
+    ColumnStatistics statistics = new ColumnStatistics(missingValue);
+    IndexIterator iterator = data.getIndexIterator();
+    while (iterator.hasNext()) {
+      statistics.add(iterator.getDoubleNext());
+    }
+    return statistics;
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param value The value.
+   */
+  public void add(double value) {
+    if (value == missingValue || Double.isNaN(value)) {
+      missingCount++;
+      return;
+    }
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+    sum += value;
+    count++;
+  }
+
+  /**
+   * Add the statistics of other values of the same column (e.g. the next slab of rows).
+   *
+   * @param other The statistics of the other values.
+   */
+  public void add(ColumnStatistics other) {
+    if (other.min < min) {
+      min = other.min;
+    }
+    if (other.max > max) {
+      max = other.max;
+    }
+    sum += other.sum;
+    count += other.count;
+    missingCount += other.missingCount;
+  }
+
+  /**
+   * Reset the statistics, e.g. when the values of a column are cleared.
+   */
+  public void clear() {
+    min = Double.MAX_VALUE;
+    max = -Double.MAX_VALUE;
+    sum = 0;
+    count = 0;
+    missingCount = 0;
+  }
+
+  /**
+   * Create a copy of these statistics.
+   *
+   * @return The copy.
+   */
+  public ColumnStatistics copy() {
+    ColumnStatistics copy = new ColumnStatistics(missingValue);
+    copy.add(this);
+    return copy;
+  }
+
+  /**
+   * Check if values equal to a missing value are counted as missing by these statistics.
+   *
+   * @param missingValue The missing value, if any.
+   * @return true if these statistics were accumulated with the same missing value.
+   */
+  public boolean hasMissingValue(Optional<Double> missingValue) {
+    double other = missingValue.orElse(Double.NaN);
+    return other == this.missingValue || (Double.isNaN(other) && Double.isNaN(this.missingValue));
+  }
+
+  /**
+   * Returns the smallest value, or Double.MAX_VALUE if there are no (non missing) values.
+   *
+   * @return The smallest value.
+   */
+  public double getMin() {
+    return min;
+  }
+
+  /**
+   * Returns the largest value, or -Double.MAX_VALUE if there are no (non missing) values.
+   *
+   * @return The largest value.
+   */
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the number of (non missing) values.
+   *
+   * @return The number of values.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the number of missing values.
+   *
+   * @return The number of missing values.
+   */
+  public long getMissingCount() {
+    return missingCount;
+  }
+
+  /**
+   * Returns the mean of the (non missing) values, or NaN if there are none.
+   *
+   * @return The mean value.
+   */
+  public double getMean() {
+    return count > 0 ? sum / count : Double.NaN;
+  }
+
+  /**
+   * Returns the min and max values.
+   *
+   * @return The min and max values.
+   */
+  public MAMath.MinMax getMinMax() {
+    return new MAMath.MinMax(min, max);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one or more conversions of data files to netCDF.
+ *
+ * The counters are updated by the threads doing the conversions and may be read at any time by
+ * other threads (e.g. to report the status of a conversion job).
+ */
+public class ConversionProgress {
+
+  private final AtomicLong rowsParsed = new AtomicLong();
+  private final AtomicLong totalRows = new AtomicLong();
+  private final AtomicInteger variablesWritten = new AtomicInteger();
+
+  /**
+   * Adds to the number of data rows parsed.
+   *
+   * @param rows The number of data rows parsed since the last update.
+   */
+  public void addRowsParsed(long rows) {
+    rowsParsed.addAndGet(rows);
+  }
+
+  /**
+   * Adds to the total number of data rows to be converted, once it is known.
+   *
+   * @param rows The number of data rows in a data file.
+   */
+  public void addTotalRows(long rows) {
+    totalRows.addAndGet(rows);
+  }
+
+  /**
+   * Adds to the number of netCDF variables whose data has been written completely.
+   *
+   * @param variables The number of variables written since the last update.
+   */
+  public void addVariablesWritten(int variables) {
+    variablesWritten.addAndGet(variables);
+  }
+
+  /**
+   * Returns the number of data rows parsed so far.
+   *
+   * @return The number of data rows parsed.
+   */
+  public long getRowsParsed() {
+    return rowsParsed.get();
+  }
+
+  /**
+   * Returns the total number of data rows to be converted, as far as is known so far.
+   *
+   * @return The total number of data rows.
+   */
+  public long getTotalRows() {
+    return totalRows.get();
+  }
+
+  /**
+   * Returns the number of netCDF variables whose data has been written completely.
+   *
+   * @return The number of variables written.
+   */
+  public int getVariablesWritten() {
+    return variablesWritten.get();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens data files for reading, decompressing them if needed.
+ *
+ * Compressed files are recognized by their leading magic bytes rather than by their file
+ * extension. gzip is always supported; xz and zstd are supported when Apache Commons Compress
+ * (and the codec it needs) is on the classpath. Compressed files are decompressed on a dedicated
+ * thread by a {@link PipelinedInputStream}, so that decompression and parsing run concurrently.
+ */
+public class DataFileInput {
+
+  private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+  private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+  private static final byte[] XZ_MAGIC = {(byte) 0xfd, '7', 'z', 'X', 'Z', 0};
+  private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+
+  private static final String XZ_INPUT_STREAM =
+      "org.apache.commons.compress.compressors.xz.XZCompressorInputStream";
+  private static final String ZSTD_INPUT_STREAM =
+      "org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream";
+
+  private DataFileInput() {}
+
+  /**
+   * Open a data file, decompressing it if it is compressed.
+   *
+   * @param dataFile The data file.
+   * @return A stream of the (uncompressed) contents of the data file.
+   * @throws IOException If unable to open the data file, or if it is compressed in a format that
+   *         is not supported.
+   */
+  public static InputStream open(Path dataFile) throws IOException {
+    byte[] magic = readMagic(dataFile);
+    InputStream is = Files.newInputStream(dataFile);
+    try {
+      if (startsWith(magic, GZIP_MAGIC)) {
+        return new PipelinedInputStream(new GZIPInputStream(is, GZIP_BUFFER_SIZE));
+      } else if (startsWith(magic, XZ_MAGIC)) {
+        return new PipelinedInputStream(openWithCommonsCompress(XZ_INPUT_STREAM, is, "xz"));
+      } else if (startsWith(magic, ZSTD_MAGIC)) {
+        return new PipelinedInputStream(openWithCommonsCompress(ZSTD_INPUT_STREAM, is, "zstd"));
+      }
+    } catch (IOException | RuntimeException e) {
+      is.close();
+      throw e;
+    }
+    return is;
+  }
+
+  /**
+   * Check if a data file is compressed in one of the formats recognized by {@link #open}.
+   *
+   * @param dataFile The data file.
+   * @return true if the data file is compressed.
+   * @throws IOException If unable to read the data file.
+   */
+  public static boolean isCompressed(Path dataFile) throws IOException {
+    byte[] magic = readMagic(dataFile);
+    return startsWith(magic, GZIP_MAGIC) || startsWith(magic, XZ_MAGIC) || startsWith(magic, ZSTD_MAGIC);
+  }
+
+  private static byte[] readMagic(Path dataFile) throws IOException {
+    byte[] magic = new byte[XZ_MAGIC.length];
+    int magicLength = 0;
+    try (InputStream is = Files.newInputStream(dataFile)) {
+      int bytesRead;
+      while (magicLength < magic.length && (bytesRead = is.read(magic, magicLength, magic.length - magicLength)) > 0) {
+        magicLength += bytesRead;
+      }
+    }
+    return magicLength == magic.length ? magic : Arrays.copyOf(magic, magicLength);
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix) {
+    if (bytes.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static InputStream openWithCommonsCompress(String className, InputStream is, String format)
+      throws IOException {
+    try {
+      return (InputStream) Class.forName(className).getConstructor(InputStream.class).newInstance(is);
+    } catch (ClassNotFoundException | NoClassDefFoundError | NoSuchMethodException | InstantiationException
+        | IllegalAccessException e) {
+      throw new IOException(format + " compressed files are not supported", e);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to decompress " + format + " data", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads the records of a delimited data file (RFC 4180 style).
+ *
+ * A record is usually a single line, and lines may end with \n, \r or \r\n (as with
+ * {@link java.io.BufferedReader#readLine()}). A byte order mark at the start of the data is
+ * dropped.
+ *
+ * Fields may only be quoted in comma delimited data (see {@link #isQuoted(String)}); with any
+ * other delimiter, double quotes are ordinary characters and a record is always a single line. In
+ * comma delimited data, a field starting with a double quote (at the start of a record or after a
+ * comma) is a quoted field: it ends at the next double quote not followed by another double quote,
+ * and may contain commas, escaped ("") double quotes and line breaks, in which case the record
+ * spans several lines. A quoted field which is not terminated, or which is longer than
+ * {@link #MAX_QUOTED_FIELD_LENGTH}, is reported with the line it starts on. The same rules are
+ * applied to raw bytes by {@link RecordSplitter}, e.g. to count records or to split a file at
+ * record boundaries without decoding it.
+ */
+public class DataRecordReader implements Closeable {
+
+  static final char QUOTE = '"';
+
+  /** The delimiter of the data files whose fields may be quoted. */
+  static final char QUOTED_DELIMITER = ',';
+
+  /** The maximum length of a quoted field, in characters (or bytes, when splitting raw data). */
+  static final int MAX_QUOTED_FIELD_LENGTH = 1 << 20;
+
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+  private static final byte[] UTF8_BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final Reader reader;
+  private final char[] buffer;
+  private final RecordSplitter splitter;
+  private final StringBuilder record = new StringBuilder();
+  private int position = 0;
+  private int limit = 0;
+  private boolean started = false;
+
+  /**
+   * Create a record reader for data whose fields are not quoted, i.e. reading one line at a time.
+   * The reader is closed when the record reader is closed.
+   *
+   * @param reader The reader providing the data.
+   */
+  public DataRecordReader(Reader reader) {
+    this(reader, false, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a record reader. The reader is closed when the record reader is closed.
+   *
+   * @param reader The reader providing the data.
+   * @param quoted true if the fields of the data may be quoted (see {@link #isQuoted(String)}).
+   * @param bufferSize The number of characters read from the reader at a time.
+   */
+  public DataRecordReader(Reader reader, boolean quoted, int bufferSize) {
+    this.reader = reader;
+    this.splitter = new RecordSplitter(quoted);
+    this.buffer = new char[bufferSize];
+  }
+
+  /**
+   * Check if the fields of data using a delimiter may be quoted. Only comma delimited data may
+   * have quoted fields.
+   *
+   * @param delimiter The delimiter, either as a symbol (e.g. ",") or by name (e.g. "Comma").
+   * @return true if the fields may be quoted.
+   */
+  public static boolean isQuoted(String delimiter) {
+    return delimiter != null
+        && (delimiter.equals(String.valueOf(QUOTED_DELIMITER)) || delimiter.equalsIgnoreCase("Comma"));
+  }
+
+  /**
+   * Check if a record is a comment.
+   *
+   * @param record The record.
+   * @param commentPrefixes The prefixes of comment records (may be null).
+   * @return true if the record starts with one of the comment prefixes.
+   */
+  public static boolean isComment(String record, List<String> commentPrefixes) {
+    if (commentPrefixes != null) {
+      for (String commentPrefix : commentPrefixes) {
+        if (!commentPrefix.isEmpty() && record.startsWith(commentPrefix)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the length of the UTF-8 byte order mark at the start of some data.
+   *
+   * @param bytes The first bytes of the data.
+   * @param length The number of bytes available.
+   * @return The length of the byte order mark, or 0 if the data does not start with one.
+   */
+  static int byteOrderMarkLength(byte[] bytes, int length) {
+    if (length < UTF8_BYTE_ORDER_MARK.length) {
+      return 0;
+    }
+    for (int i = 0; i < UTF8_BYTE_ORDER_MARK.length; i++) {
+      if (bytes[i] != UTF8_BYTE_ORDER_MARK[i]) {
+        return 0;
+      }
+    }
+    return UTF8_BYTE_ORDER_MARK.length;
+  }
+
+  /**
+   * Encode comment prefixes as UTF-8, to find comment records in raw bytes.
+   *
+   * @param commentPrefixes The prefixes of comment records (may be null).
+   * @return The encoded (non empty) prefixes.
+   */
+  static byte[][] encodeCommentPrefixes(List<String> commentPrefixes) {
+    if (commentPrefixes == null) {
+      return new byte[0][];
+    }
+    return commentPrefixes.stream().filter(prefix -> !prefix.isEmpty())
+        .map(prefix -> prefix.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @return The record, without its line terminator, or null at the end of the data.
+   * @throws IOException If unable to read from the reader.
+   * @throws RosettaDataException If a quoted field is not terminated or is too long.
+   */
+  public String readRecord() throws IOException, RosettaDataException {
+    record.setLength(0);
+    while (true) {
+      if (position == limit && !fill()) {
+        return splitter.endOfInput() ? record.toString() : null;
+      }
+      // characters are appended to the record in runs, up to the end of the record or a skipped \n
+      int start = position;
+      while (position < limit) {
+        int action = splitter.next(buffer[position++]);
+        if (action != RecordSplitter.APPEND) {
+          record.append(buffer, start, position - 1 - start);
+          if (action == RecordSplitter.END) {
+            return record.toString();
+          }
+          start = position;
+        }
+      }
+      record.append(buffer, start, position - start);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    int charsRead;
+    do {
+      charsRead = reader.read(buffer, 0, buffer.length);
+    } while (charsRead == 0);
+    if (charsRead < 0) {
+      return false;
+    }
+    position = 0;
+    limit = charsRead;
+    if (!started) {
+      started = true;
+      if (buffer[0] == BYTE_ORDER_MARK) {
+        position = 1;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * Finds record boundaries one character (or byte) at a time.
+   */
+  static final class RecordSplitter {
+
+    /** The character is part of the record. */
+    static final int APPEND = 0;
+    /** The character is the \n of a \r\n line terminator, and is not part of any record. */
+    static final int SKIP = 1;
+    /** The character terminates the record. */
+    static final int END = 2;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTED_QUOTE = 3;
+
+    private final boolean quoted;
+    private int state = FIELD_START;
+    private boolean afterCarriageReturn = false;
+    private boolean recordOpen = false;
+    // the current line of the data, and the line and length of the current quoted field
+    private long line = 1;
+    private long quoteStartLine = 0;
+    private int quotedLength = 0;
+    private boolean quotedCarriageReturn = false;
+
+    /**
+     * Create a splitter.
+     *
+     * @param quoted true if the fields of the data may be quoted (see {@link #isQuoted(String)}).
+     */
+    RecordSplitter(boolean quoted) {
+      this.quoted = quoted;
+    }
+
+    /**
+     * Process the next character of the data.
+     *
+     * @param c The character (or byte, for UTF-8 or other ASCII compatible encodings).
+     * @return {@link #APPEND}, {@link #SKIP} or {@link #END}.
+     * @throws RosettaDataException If a quoted field is longer than {@link #MAX_QUOTED_FIELD_LENGTH}.
+     */
+    int next(int c) throws RosettaDataException {
+      if (afterCarriageReturn) {
+        afterCarriageReturn = false;
+        if (c == '\n') {
+          return SKIP;
+        }
+      }
+      recordOpen = true;
+      if (state == QUOTED) {
+        if (c == QUOTE) {
+          state = QUOTED_QUOTE;
+        } else if (c == '\r' || (c == '\n' && !quotedCarriageReturn)) {
+          line++;
+        }
+        quotedCarriageReturn = c == '\r';
+        if (++quotedLength > MAX_QUOTED_FIELD_LENGTH) {
+          throw new RosettaDataException("The quoted field starting on line " + quoteStartLine
+              + " is longer than " + MAX_QUOTED_FIELD_LENGTH + " characters (is a closing quote missing?)");
+        }
+        return APPEND;
+      }
+      if (quoted && c == QUOTE && (state == FIELD_START || state == QUOTED_QUOTE)) {
+        // opening quote, or escaped quote in a quoted field
+        if (state == FIELD_START) {
+          quoteStartLine = line;
+          quotedLength = 0;
+        }
+        state = QUOTED;
+        quotedCarriageReturn = false;
+        return APPEND;
+      }
+      if (c == '\n' || c == '\r') {
+        afterCarriageReturn = c == '\r';
+        line++;
+        state = FIELD_START;
+        recordOpen = false;
+        return END;
+      }
+      state = c == QUOTED_DELIMITER ? FIELD_START : UNQUOTED;
+      return APPEND;
+    }
+
+    /**
+     * Signal the end of the data.
+     *
+     * @return true if the data ends with a record which is not terminated by a line break.
+     * @throws RosettaDataException If the data ends in a quoted field.
+     */
+    boolean endOfInput() throws RosettaDataException {
+      if (state == QUOTED) {
+        throw new RosettaDataException("The quoted field starting on line " + quoteStartLine + " is not terminated");
+      }
+      boolean lastRecordOpen = recordOpen;
+      state = FIELD_START;
+      afterCarriageReturn = false;
+      recordOpen = false;
+      return lastRecordOpen;
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import static java.lang.Math.toIntExact;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ucar.nc2.time.CalendarDateFormatter;
+
+/**
+ * Parses date/time strings into seconds since 1970-01-01T00:00:00UTC, following a date/time format
+ * of a template (e.g. yyyy-MM-dd HH:mm:ss).
+ *
+ * The format is compiled once. Formats made up only of fixed width numeric fields (yyyy, MM, dd,
+ * DDD, HH, mm, ss and S...) and literal text are parsed directly from the characters of each
+ * value, and the day is only computed again when the date fields differ from those of the previous
+ * value, which is rarely the case for data loggers. Any other format, and any value which does not
+ * match the fixed width layout, is parsed by a {@link CalendarDateFormatter}, so the results are
+ * the same as parsing every value with a CalendarDateFormatter.
+ *
+ * Parsers are immutable and can be shared between threads.
+ */
+public class DateTimeParser {
+
+  private static final int YEAR = 0;
+  private static final int MONTH = 1;
+  private static final int DAY = 2;
+  private static final int DAY_OF_YEAR = 3;
+  private static final int HOUR = 4;
+  private static final int MINUTE = 5;
+  private static final int SECOND = 6;
+  private static final int FRACTION = 7;
+
+  // pattern letters of the field types above, and the number of letters (and digits) each must have
+  // to be parsed as a fixed width field. Fractions of a second can have 1 to 9 digits.
+  private static final String FIELD_LETTERS = "yMdDHmsS";
+  private static final int[] FIELD_WIDTHS = {4, 2, 2, 3, 2, 2, 2, 0};
+  // missing fields default to 1970-01-01T00:00:00, as they do for the CalendarDateFormatter
+  private static final int[] DEFAULT_VALUES = {1970, 1, 1, -1, 0, 0, 0, 0};
+
+  private static final long SECONDS_PER_DAY = 86400L;
+  private static final int MIN_YEAR = 1583;
+
+  private static final int MAX_CACHED_PARSERS = 64;
+  private static final Map<String, DateTimeParser> parsers = new ConcurrentHashMap<>();
+
+  private final CalendarDateFormatter formatter;
+
+  // layout of the fixed width fields, or null if the format can not be parsed as fixed width
+  private final int[] fieldTypes;
+  private final int[] fieldOffsets;
+  private final int[] fieldWidths;
+  private final int[] literalOffsets;
+  private final char[] literals;
+  private final int dateWidth;
+  private final int timeWidth;
+
+  /**
+   * Holds the date of the previous value parsed, so that its day can be reused.
+   */
+  private static class ParseState {
+    private final int[] values = new int[FIELD_LETTERS.length()];
+    private String previousDate;
+    private String previousTime;
+    private long previousEpochDay;
+  }
+
+  /**
+   * Returns the parser for a date/time format, compiling it if it has not been used before.
+   *
+   * @param format The date/time format.
+   * @return The parser.
+   */
+  public static DateTimeParser forFormat(String format) {
+    return forFormat(format, "");
+  }
+
+  /**
+   * Returns the parser for date and time values held in separate columns, as if each date value
+   * were followed by the corresponding time value, compiling it if it has not been used before.
+   *
+   * @param dateFormat The format of the date values.
+   * @param timeFormat The format of the time values.
+   * @return The parser.
+   */
+  public static DateTimeParser forFormat(String dateFormat, String timeFormat) {
+    String key = dateFormat.length() + ":" + dateFormat + timeFormat;
+    DateTimeParser parser = parsers.get(key);
+    if (parser == null) {
+      parser = new DateTimeParser(dateFormat, timeFormat);
+      if (parsers.size() >= MAX_CACHED_PARSERS) {
+        parsers.clear();
+      }
+      parsers.put(key, parser);
+    }
+    return parser;
+  }
+
+  /**
+   * Compile a date/time format.
+   *
+   * @param dateFormat The format of the date values.
+   * @param timeFormat The format of the time values, or an empty string if the date values hold
+   *        the full date/time.
+   */
+  private DateTimeParser(String dateFormat, String timeFormat) {
+    this.formatter = new CalendarDateFormatter(dateFormat + timeFormat);
+
+    List<int[]> fields = new ArrayList<>();
+    StringBuilder literalChars = new StringBuilder();
+    List<Integer> literalOffsetList = new ArrayList<>();
+    int dateWidth = compile(dateFormat, 0, fields, literalChars, literalOffsetList);
+    int timeWidth = dateWidth < 0 ? -1 : compile(timeFormat, dateWidth, fields, literalChars, literalOffsetList);
+    if (timeWidth < 0 || !isSupported(fields)) {
+      fieldTypes = null;
+      fieldOffsets = null;
+      fieldWidths = null;
+      literalOffsets = null;
+      literals = null;
+      this.dateWidth = -1;
+      this.timeWidth = -1;
+      return;
+    }
+
+    fieldTypes = new int[fields.size()];
+    fieldOffsets = new int[fields.size()];
+    fieldWidths = new int[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      fieldTypes[i] = fields.get(i)[0];
+      fieldOffsets[i] = fields.get(i)[1];
+      fieldWidths[i] = fields.get(i)[2];
+    }
+    literals = literalChars.toString().toCharArray();
+    literalOffsets = new int[literalOffsetList.size()];
+    for (int i = 0; i < literalOffsets.length; i++) {
+      literalOffsets[i] = literalOffsetList.get(i);
+    }
+    this.dateWidth = dateWidth;
+    this.timeWidth = timeWidth - dateWidth;
+  }
+
+  /**
+   * Compile a format into fixed width fields and literal characters.
+   *
+   * @param format The format.
+   * @param offset The offset in the value of the start of the format.
+   * @param fields The fields (type, offset and width) are added to this list.
+   * @param literalChars The literal characters are added to this builder.
+   * @param literalOffsets The offsets of the literal characters are added to this list.
+   * @return The offset in the value of the end of the format, or -1 if the format can not be
+   *         parsed as fixed width fields.
+   */
+  private static int compile(String format, int offset, List<int[]> fields, StringBuilder literalChars,
+      List<Integer> literalOffsets) {
+    int i = 0;
+    while (i < format.length()) {
+      char c = format.charAt(i);
+      if (c == '\'') {
+        // quoted literal text, with '' standing for a single quote
+        int end = format.indexOf('\'', i + 1);
+        if (end < 0 || (end > i + 1 && end + 1 < format.length() && format.charAt(end + 1) == '\'')) {
+          // unterminated, or with an escaped quote inside the quoted text
+          return -1;
+        }
+        if (end == i + 1) {
+          literalChars.append('\'');
+          literalOffsets.add(offset++);
+        }
+        for (int j = i + 1; j < end; j++) {
+          literalChars.append(format.charAt(j));
+          literalOffsets.add(offset++);
+        }
+        i = end + 1;
+      } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+        int count = 1;
+        while (i + count < format.length() && format.charAt(i + count) == c) {
+          count++;
+        }
+        int type = FIELD_LETTERS.indexOf(c);
+        if (type < 0) {
+          return -1;
+        }
+        if (type == FRACTION ? count > 9 : count != FIELD_WIDTHS[type]) {
+          return -1;
+        }
+        fields.add(new int[] {type, offset, count});
+        offset += count;
+        i += count;
+      } else {
+        literalChars.append(c);
+        literalOffsets.add(offset++);
+        i++;
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Check that the fields of a format can be combined into a date/time without ambiguity.
+   *
+   * @param fields The fields (type, offset and width) of the format.
+   * @return true if each field appears at most once, and the day of the year is not combined with
+   *         the month or day of the month.
+   */
+  private static boolean isSupported(List<int[]> fields) {
+    boolean[] seen = new boolean[FIELD_LETTERS.length()];
+    for (int[] field : fields) {
+      if (seen[field[0]]) {
+        return false;
+      }
+      seen[field[0]] = true;
+    }
+    return !(seen[DAY_OF_YEAR] && (seen[MONTH] || seen[DAY]));
+  }
+
+  /**
+   * Parse a single date/time value.
+   *
+   * @param value The date/time value.
+   * @return The value in seconds since 1970-01-01T00:00:00UTC.
+   */
+  public long parseSeconds(String value) {
+    return parse(value, null, new ParseState());
+  }
+
+  /**
+   * Parse date/time values into a long array.
+   *
+   * @param dates The date/time values, or the date values if times is not null.
+   * @param times The time values, or null if dates hold the full date/time.
+   * @return The values in seconds since 1970-01-01T00:00:00UTC.
+   */
+  public long[] parseSeconds(List<String> dates, List<String> times) {
+    return parseSeconds(dates, times, null);
+  }
+
+  /**
+   * Parse date/time values into a long array, accumulating their statistics.
+   *
+   * @param dates The date/time values, or the date values if times is not null.
+   * @param times The time values, or null if dates hold the full date/time.
+   * @param statistics The statistics to which the values are added (may be null).
+   * @return The values in seconds since 1970-01-01T00:00:00UTC.
+   */
+  public long[] parseSeconds(List<String> dates, List<String> times, ColumnStatistics statistics) {
+    ParseState state = new ParseState();
+    long[] seconds = new long[dates.size()];
+    for (int i = 0; i < seconds.length; i++) {
+      seconds[i] = parse(dates.get(i), times == null ? null : times.get(i), state);
+      if (statistics != null) {
+        statistics.add(seconds[i]);
+      }
+    }
+    return seconds;
+  }
+
+  /**
+   * Parse date/time values into an int array.
+   *
+   * @param dates The date/time values, or the date values if times is not null.
+   * @param times The time values, or null if dates hold the full date/time.
+   * @return The values in seconds since 1970-01-01T00:00:00UTC.
+   * @throws ArithmeticException If a value does not fit in an int.
+   */
+  public int[] parseIntSeconds(List<String> dates, List<String> times) {
+    return parseIntSeconds(dates, times, null);
+  }
+
+  /**
+   * Parse date/time values into an int array, accumulating their statistics.
+   *
+   * @param dates The date/time values, or the date values if times is not null.
+   * @param times The time values, or null if dates hold the full date/time.
+   * @param statistics The statistics to which the values are added (may be null).
+   * @return The values in seconds since 1970-01-01T00:00:00UTC.
+   * @throws ArithmeticException If a value does not fit in an int.
+   */
+  public int[] parseIntSeconds(List<String> dates, List<String> times, ColumnStatistics statistics) {
+    ParseState state = new ParseState();
+    int[] seconds = new int[dates.size()];
+    for (int i = 0; i < seconds.length; i++) {
+      seconds[i] = toIntExact(parse(dates.get(i), times == null ? null : times.get(i), state));
+      if (statistics != null) {
+        statistics.add(seconds[i]);
+      }
+    }
+    return seconds;
+  }
+
+  /**
+   * Parse a date/time value, falling back to the CalendarDateFormatter if the value does not match
+   * the fixed width layout of the format.
+   *
+   * @param date The date/time value, or the date value if time is not null.
+   * @param time The time value, or null if date holds the full date/time.
+   * @param state The date of the previous value parsed.
+   * @return The value in seconds since 1970-01-01T00:00:00UTC.
+   */
+  private long parse(String date, String time, ParseState state) {
+    if (time == null) {
+      time = "";
+    }
+    long seconds = fieldTypes != null ? parseFixedWidth(date, time, state) : Long.MIN_VALUE;
+    if (seconds == Long.MIN_VALUE) {
+      String value = time.isEmpty() ? date : date + time;
+      seconds = formatter.parse(value).getMillis() / 1000L;
+    }
+    return seconds;
+  }
+
+  /**
+   * Parse a date/time value following the fixed width layout of the format.
+   *
+   * @param date The date/time value, or the date value.
+   * @param time The time value, or an empty string.
+   * @param state The date of the previous value parsed, updated with the date of this value.
+   * @return The value in seconds since 1970-01-01T00:00:00UTC, or Long.MIN_VALUE if the value does
+   *         not match the layout or is not a valid date/time.
+   */
+  private long parseFixedWidth(String date, String time, ParseState state) {
+    if (date.length() != dateWidth || time.length() != timeWidth) {
+      return Long.MIN_VALUE;
+    }
+    for (int i = 0; i < literals.length; i++) {
+      if (charAt(date, time, literalOffsets[i]) != literals[i]) {
+        return Long.MIN_VALUE;
+      }
+    }
+
+    int[] values = state.values;
+    System.arraycopy(DEFAULT_VALUES, 0, values, 0, values.length);
+    boolean sameDate = state.previousDate != null;
+    for (int i = 0; i < fieldTypes.length; i++) {
+      int value = 0;
+      int offset = fieldOffsets[i];
+      for (int j = offset; j < offset + fieldWidths[i]; j++) {
+        char c = charAt(date, time, j);
+        if (c < '0' || c > '9') {
+          return Long.MIN_VALUE;
+        }
+        value = value * 10 + (c - '0');
+      }
+      if (fieldTypes[i] == FRACTION) {
+        // keep milliseconds, dropping any finer digits
+        for (int j = fieldWidths[i]; j < 3; j++) {
+          value *= 10;
+        }
+        for (int j = 3; j < fieldWidths[i]; j++) {
+          value /= 10;
+        }
+      } else if (fieldTypes[i] <= DAY_OF_YEAR && sameDate) {
+        sameDate = regionMatches(date, time, state.previousDate, state.previousTime, offset, fieldWidths[i]);
+      }
+      values[fieldTypes[i]] = value;
+    }
+    // leave dates around the Julian/Gregorian changeover (and earlier) to the CalendarDateFormatter
+    if (values[YEAR] < MIN_YEAR || values[HOUR] > 23 || values[MINUTE] > 59 || values[SECOND] > 59) {
+      return Long.MIN_VALUE;
+    }
+
+    long epochDay;
+    if (sameDate) {
+      epochDay = state.previousEpochDay;
+    } else {
+      try {
+        if (values[DAY_OF_YEAR] >= 0) {
+          epochDay = LocalDate.ofYearDay(values[YEAR], values[DAY_OF_YEAR]).toEpochDay();
+        } else {
+          epochDay = LocalDate.of(values[YEAR], values[MONTH], values[DAY]).toEpochDay();
+        }
+      } catch (DateTimeException e) {
+        return Long.MIN_VALUE;
+      }
+      state.previousDate = date;
+      state.previousTime = time;
+      state.previousEpochDay = epochDay;
+    }
+
+    long secondOfDay = values[HOUR] * 3600L + values[MINUTE] * 60L + values[SECOND];
+    // go through milliseconds so that times before 1970 with fractional seconds are truncated the
+    // same way as those parsed by the CalendarDateFormatter
+    long millis = (epochDay * SECONDS_PER_DAY + secondOfDay) * 1000L + values[FRACTION];
+    return millis / 1000L;
+  }
+
+  /**
+   * Returns a character of a value held as separate date and time strings.
+   */
+  private static char charAt(String date, String time, int index) {
+    return index < date.length() ? date.charAt(index) : time.charAt(index - date.length());
+  }
+
+  /**
+   * Check if a region of two values held as separate date and time strings is the same.
+   */
+  private static boolean regionMatches(String date, String time, String otherDate, String otherTime, int offset,
+      int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (charAt(date, time, i) != charAt(otherDate, otherTime, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits lines of delimited data into fields.
+ *
+ * Rather than creating a String per field (as {@link String#split} does), a tokenizer records
+ * where each field starts and ends in the line, and only for the first fields of a line needed by
+ * the caller. Values are then parsed directly from the line (see {@link NumberParser}) or
+ * extracted with {@link #value}.
+ *
+ * The delimiters used by Rosetta are regular expressions (e.g. "\\s+" or "\\t"). Single
+ * characters and whitespace runs are handled by specialized tokenizers; any other expression is
+ * handled with a precompiled {@link Pattern}. Fields separated by a comma may be quoted, as with
+ * the records read by {@link DataRecordReader}.
+ */
+public abstract class LineTokenizer {
+
+  private static final String REGEX_META_CHARACTERS = ".$|()[{^?*+\\";
+
+  /**
+   * Get a tokenizer for a delimiter.
+   *
+   * @param delimiter The delimiter, as a regular expression.
+   * @return The tokenizer.
+   */
+  public static LineTokenizer forDelimiter(String delimiter) {
+    if (delimiter.equals("\\s+")) {
+      return new WhitespaceTokenizer();
+    }
+    if (delimiter.length() == 1 && REGEX_META_CHARACTERS.indexOf(delimiter.charAt(0)) < 0) {
+      return forChar(delimiter.charAt(0));
+    }
+    if (delimiter.length() == 2 && delimiter.charAt(0) == '\\') {
+      char escaped = delimiter.charAt(1);
+      switch (escaped) {
+        case 't':
+          return forChar('\t');
+        case 'f':
+          return forChar('\f');
+        default:
+          if (!Character.isLetterOrDigit(escaped)) {
+            return forChar(escaped);
+          }
+      }
+    }
+    return new RegexTokenizer(Pattern.compile(delimiter));
+  }
+
+  private static LineTokenizer forChar(char delimiter) {
+    return delimiter == DataRecordReader.QUOTED_DELIMITER ? quoted(delimiter) : new CharTokenizer(delimiter);
+  }
+
+  /**
+   * Get a tokenizer for delimited data with quoted fields (RFC 4180 style). Fields may be
+   * enclosed in double quotes, in which case they may contain the delimiter (and line breaks, for
+   * records read by {@link DataRecordReader}), and a double quote is escaped by doubling it.
+   *
+   * @param delimiter The delimiter character.
+   * @return The tokenizer.
+   */
+  public static LineTokenizer quoted(char delimiter) {
+    return new QuotedTokenizer(delimiter);
+  }
+
+  /**
+   * Find the first fields of a line.
+   *
+   * @param line The line.
+   * @param maxFields The maximum number of fields to find.
+   * @param starts Filled with the index of the first character of each field found.
+   * @param ends Filled with the index after the last character of each field found.
+   * @return The number of fields found (at most maxFields).
+   */
+  public abstract int tokenize(String line, int maxFields, int[] starts, int[] ends);
+
+  /**
+   * Get the value of a field found by {@link #tokenize}.
+   *
+   * @param line The line.
+   * @param start The start of the field.
+   * @param end The end of the field.
+   * @return The value of the field.
+   */
+  public String value(String line, int start, int end) {
+    return line.substring(start, end);
+  }
+
+  /**
+   * Fields separated by a single character.
+   */
+  private static class CharTokenizer extends LineTokenizer {
+
+    private final char delimiter;
+
+    private CharTokenizer(char delimiter) {
+      this.delimiter = delimiter;
+    }
+
+    @Override
+    public int tokenize(String line, int maxFields, int[] starts, int[] ends) {
+      int fields = 0;
+      int start = 0;
+      while (fields < maxFields) {
+        int end = line.indexOf(delimiter, start);
+        starts[fields] = start;
+        ends[fields] = end < 0 ? line.length() : end;
+        fields++;
+        if (end < 0) {
+          break;
+        }
+        start = end + 1;
+      }
+      return fields;
+    }
+  }
+
+  /**
+   * Fields separated by runs of whitespace (the "\\s+" regular expression). As with
+   * {@link String#split}, leading whitespace results in an empty first field.
+   */
+  private static class WhitespaceTokenizer extends LineTokenizer {
+
+    private static boolean isWhitespace(char c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    @Override
+    public int tokenize(String line, int maxFields, int[] starts, int[] ends) {
+      int length = line.length();
+      int fields = 0;
+      int i = 0;
+      while (fields < maxFields) {
+        int start = i;
+        while (i < length && !isWhitespace(line.charAt(i))) {
+          i++;
+        }
+        starts[fields] = start;
+        ends[fields] = i;
+        fields++;
+        if (i == length) {
+          break;
+        }
+        while (i < length && isWhitespace(line.charAt(i))) {
+          i++;
+        }
+      }
+      return fields;
+    }
+  }
+
+  /**
+   * Fields separated by matches of a regular expression.
+   */
+  private static class RegexTokenizer extends LineTokenizer {
+
+    private final Pattern pattern;
+
+    private RegexTokenizer(Pattern pattern) {
+      this.pattern = pattern;
+    }
+
+    @Override
+    public int tokenize(String line, int maxFields, int[] starts, int[] ends) {
+      Matcher matcher = pattern.matcher(line);
+      int fields = 0;
+      int start = 0;
+      while (fields < maxFields && matcher.find()) {
+        // as with String.split, a zero-width match at the beginning does not make an empty field
+        if (matcher.end() == 0) {
+          continue;
+        }
+        starts[fields] = start;
+        ends[fields] = matcher.start();
+        fields++;
+        start = matcher.end();
+      }
+      if (fields < maxFields) {
+        starts[fields] = start;
+        ends[fields] = line.length();
+        fields++;
+      }
+      return fields;
+    }
+  }
+
+  /**
+   * Fields separated by a single character, which may be enclosed in double quotes.
+   */
+  private static class QuotedTokenizer extends LineTokenizer {
+
+    private static final char QUOTE = '"';
+
+    private final char delimiter;
+
+    private QuotedTokenizer(char delimiter) {
+      this.delimiter = delimiter;
+    }
+
+    @Override
+    public int tokenize(String line, int maxFields, int[] starts, int[] ends) {
+      int length = line.length();
+      int fields = 0;
+      int i = 0;
+      while (fields < maxFields) {
+        if (i < length && line.charAt(i) == QUOTE) {
+          // quoted field: ends at the next quote not followed by another quote
+          int start = ++i;
+          while (i < length && !(line.charAt(i) == QUOTE && (i + 1 == length || line.charAt(i + 1) != QUOTE))) {
+            i += line.charAt(i) == QUOTE ? 2 : 1;
+          }
+          starts[fields] = start;
+          ends[fields] = i;
+          // skip the closing quote, and anything up to the next delimiter
+          int next = line.indexOf(delimiter, i);
+          i = next < 0 ? length : next;
+        } else {
+          int next = line.indexOf(delimiter, i);
+          starts[fields] = i;
+          ends[fields] = next < 0 ? length : next;
+          i = ends[fields];
+        }
+        fields++;
+        if (i >= length) {
+          break;
+        }
+        // skip the delimiter
+        i++;
+      }
+      return fields;
+    }
+
+    @Override
+    public String value(String line, int start, int end) {
+      String value = line.substring(start, end);
+      return value.indexOf(QUOTE) < 0 ? value : value.replace("\"\"", "\"");
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.util.List;
+import java.util.Optional;
+import ucar.ma2.Array;
+import ucar.ma2.MAMath;
+import ucar.nc2.Attribute;
+
+/**
+ * Accumulates the max/min values of a variable whose data is seen one slab at a time, such that
+ * the result is the same as computing the max/min over all of the data at once.
+ */
+public class MaxMinAccumulator {
+
+  private final Optional<Double> missingValue;
+  private double min = Double.MAX_VALUE;
+  private double max = -Double.MAX_VALUE;
+
+  /**
+   * Create an accumulator.
+   *
+   * @param missingValue The missing value of the variable, which is skipped when computing max/min.
+   */
+  public MaxMinAccumulator(Optional<Double> missingValue) {
+    this.missingValue = missingValue;
+  }
+
+  /**
+   * Update the max/min values with a slab of data.
+   *
+   * @param data The slab of data.
+   */
+  public void add(Array data) {
+    MAMath.MinMax maxMinVals;
+    if (missingValue.isPresent()) {
+      maxMinVals = MAMath.getMinMaxSkipMissingData(data, missingValue.get());
+    } else {
+      maxMinVals = MAMath.getMinMax(data);
+    }
+    if (maxMinVals.min < min) {
+      min = maxMinVals.min;
+    }
+    if (maxMinVals.max > max) {
+      max = maxMinVals.max;
+    }
+  }
+
+  /**
+   * Update the max/min values with a slab of data, using the statistics accumulated while the data
+   * were decoded, if any, instead of another pass over the data.
+   *
+   * @param data The slab of data.
+   * @param statistics The statistics of the data (may be null).
+   */
+  public void add(Array data, ColumnStatistics statistics) {
+    if (statistics != null && statistics.hasMissingValue(missingValue)) {
+      add(statistics);
+    } else {
+      add(data);
+    }
+  }
+
+  /**
+   * Update the max/min values with the statistics of a slab of data.
+   *
+   * @param statistics The statistics of the slab of data, which must skip the same missing value.
+   */
+  public void add(ColumnStatistics statistics) {
+    if (statistics.getMin() < min) {
+      min = statistics.getMin();
+    }
+    if (statistics.getMax() > max) {
+      max = statistics.getMax();
+    }
+  }
+
+  /**
+   * Update the max/min values with those of data seen before (e.g. the valid_min, valid_max
+   * attributes of a netCDF file to which data are appended).
+   *
+   * @param minMax The max/min values of the data.
+   */
+  public void add(MAMath.MinMax minMax) {
+    if (minMax.min < min) {
+      min = minMax.min;
+    }
+    if (minMax.max > max) {
+      max = minMax.max;
+    }
+  }
+
+  /**
+   * Returns the max/min values of all of the data seen so far.
+   *
+   * @return The max/min values.
+   */
+  public MAMath.MinMax getMinMax() {
+    return new MAMath.MinMax(min, max);
+  }
+
+  /**
+   * Create valid_min, valid_max attributes from the data seen so far.
+   *
+   * @return A list containing the valid_max and valid_min attributes
+   */
+  public List<Attribute> getMaxMinAttrs() {
+    return VariableAttributeUtils.getMaxMinAttrs(getMinMax());
+  }
+}
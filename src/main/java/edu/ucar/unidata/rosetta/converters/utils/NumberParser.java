@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+/**
+ * Parses numbers directly from a range of characters, without creating an intermediate String.
+ *
+ * Plain decimal values (an optional sign, up to 15 significant digits, an optional fraction and
+ * an optional exponent) are parsed directly. Anything else is handed to {@link Double#parseDouble}
+ * or {@link Long#parseLong}, so the results (and the exceptions thrown for invalid values) are
+ * the same as parsing the equivalent String.
+ */
+public class NumberParser {
+
+  // powers of ten exactly representable as doubles
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+      1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  // integers with at most this many digits are exactly representable as doubles
+  private static final int MAX_EXACT_DIGITS = 15;
+
+  private NumberParser() {}
+
+  /**
+   * Parse a double value, as {@link Double#parseDouble} would.
+   *
+   * @param chars The characters holding the value.
+   * @param start The index of the first character of the value.
+   * @param end The index after the last character of the value.
+   * @return The parsed value.
+   * @throws NumberFormatException If the characters do not represent a double value.
+   */
+  public static double parseDouble(CharSequence chars, int start, int end) {
+    // Double.parseDouble trims leading and trailing whitespace
+    int i = start;
+    while (i < end && chars.charAt(i) <= ' ') {
+      i++;
+    }
+    int last = end;
+    while (last > i && chars.charAt(last - 1) <= ' ') {
+      last--;
+    }
+
+    boolean negative = false;
+    if (i < last && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+      negative = chars.charAt(i) == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    int significantDigits = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean fraction = false;
+    for (; i < last; i++) {
+      char c = chars.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits++;
+        if (mantissa != 0 || c != '0') {
+          significantDigits++;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (fraction) {
+          exponent--;
+        }
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+    if (digits == 0 || significantDigits > MAX_EXACT_DIGITS) {
+      return fallbackParseDouble(chars, start, end);
+    }
+
+    if (i < last) {
+      char c = chars.charAt(i++);
+      if (c != 'e' && c != 'E') {
+        return fallbackParseDouble(chars, start, end);
+      }
+      boolean negativeExponent = false;
+      if (i < last && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+        negativeExponent = chars.charAt(i) == '-';
+        i++;
+      }
+      int exponentDigits = 0;
+      int exponentValue = 0;
+      for (; i < last && exponentDigits < 4; i++, exponentDigits++) {
+        c = chars.charAt(i);
+        if (c < '0' || c > '9') {
+          break;
+        }
+        exponentValue = exponentValue * 10 + (c - '0');
+      }
+      if (exponentDigits == 0 || i < last) {
+        return fallbackParseDouble(chars, start, end);
+      }
+      exponent += negativeExponent ? -exponentValue : exponentValue;
+    }
+
+    // a single correctly rounded operation on exactly representable values is correctly rounded
+    double value;
+    if (mantissa == 0) {
+      value = 0;
+    } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+      value = mantissa * POWERS_OF_TEN[exponent];
+    } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+      value = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      return fallbackParseDouble(chars, start, end);
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse a long value from its trimmed representation, as {@link Long#parseLong} would.
+   *
+   * @param chars The characters holding the value.
+   * @param start The index of the first character of the value.
+   * @param end The index after the last character of the value.
+   * @return The parsed value.
+   * @throws NumberFormatException If the characters do not represent a long value.
+   */
+  public static long parseLong(CharSequence chars, int start, int end) {
+    int i = start;
+    while (i < end && chars.charAt(i) <= ' ') {
+      i++;
+    }
+    int last = end;
+    while (last > i && chars.charAt(last - 1) <= ' ') {
+      last--;
+    }
+
+    boolean negative = false;
+    if (i < last && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+      negative = chars.charAt(i) == '-';
+      i++;
+    }
+    // 18 digits can not overflow a long
+    if (i == last || last - i > 18) {
+      return Long.parseLong(chars.subSequence(start, end).toString().trim());
+    }
+    long value = 0;
+    for (; i < last; i++) {
+      char c = chars.charAt(i);
+      if (c < '0' || c > '9') {
+        return Long.parseLong(chars.subSequence(start, end).toString().trim());
+      }
+      value = value * 10 + (c - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  private static double fallbackParseDouble(CharSequence chars, int start, int end) {
+    return Double.parseDouble(chars.subSequence(start, end).toString());
+  }
+}
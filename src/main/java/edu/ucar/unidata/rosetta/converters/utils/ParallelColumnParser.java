@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses large delimited data files using several threads.
+ *
+ * The data file is split into byte ranges aligned on record boundaries. Each range is memory mapped
+ * and parsed by its own {@link StreamingColumnParser} on a fork-join worker, and the resulting
+ * columns are concatenated in file order. The first range holds all of the header lines defined by
+ * the template, so the later ranges only hold data rows.
+ */
+public class ParallelColumnParser {
+
+  /** Data files smaller than this are not worth parsing in parallel. */
+  public static final long MIN_PARALLEL_FILE_SIZE = 64L << 20;
+
+  private static final long MIN_RANGE_SIZE = 4L << 20;
+  private static final long MAX_RANGE_SIZE = 1L << 30;
+  // ranges per thread, so that threads finishing early can pick up more work
+  private static final int RANGES_PER_THREAD = 4;
+
+  // threads parsing the ranges of large data files, shared by all conversions
+  private static volatile ForkJoinPool pool;
+
+  private ParallelColumnParser() {}
+
+  /**
+   * Returns the pool of threads parsing large data files, created on first use with the number of
+   * threads set by the rosetta.parseParallelism property. A dedicated pool is used rather than the
+   * common pool, so that parsing neither starves nor is starved by other users of the common pool.
+   *
+   * @return The pool of threads parsing large data files.
+   */
+  public static ForkJoinPool getPool() {
+    if (pool == null) {
+      synchronized (ParallelColumnParser.class) {
+        if (pool == null) {
+          pool = new ForkJoinPool(PropertyUtils.getParseParallelism());
+        }
+      }
+    }
+    return pool;
+  }
+
+  /**
+   * Check whether a data file is worth parsing in parallel: it must be large, uncompressed (and so
+   * splittable), on the default file system (and so memory mappable, unlike e.g. the data files of
+   * a batch read in place from the zip file), and there must be more than one thread to parse it
+   * with.
+   *
+   * @param dataFile The data file.
+   * @param pool The pool of threads which would parse the data file.
+   * @return true if the data file should be parsed in parallel.
+   * @throws IOException If unable to read the data file.
+   */
+  public static boolean isWorthParallelizing(Path dataFile, ForkJoinPool pool) throws IOException {
+    return isWorthParallelizing(dataFile, pool, MIN_PARALLEL_FILE_SIZE);
+  }
+
+  /**
+   * Check whether a data file is worth parsing in parallel, given the size of the smallest data
+   * files worth it.
+   *
+   * @param dataFile The data file.
+   * @param pool The pool of threads which would parse the data file.
+   * @param minFileSize The size, in bytes, of the smallest data files parsed in parallel.
+   * @return true if the data file should be parsed in parallel.
+   * @throws IOException If unable to read the data file.
+   */
+  static boolean isWorthParallelizing(Path dataFile, ForkJoinPool pool, long minFileSize) throws IOException {
+    return pool.getParallelism() > 1 && dataFile.getFileSystem() == FileSystems.getDefault()
+        && Files.size(dataFile) >= minFileSize && !DataFileInput.isCompressed(dataFile);
+  }
+
+  /**
+   * Parse a whole data file in parallel.
+   *
+   * @param dataFile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @param pool The pool of threads used to parse the data file.
+   * @return A parser holding all of the rows and header lines of the data file.
+   * @throws IOException If unable to read the data file.
+   * @throws RosettaDataException If unable to parse the data with the provided delimiter.
+   */
+  public static StreamingColumnParser parse(Path dataFile, Template template, String delimiter, ForkJoinPool pool)
+      throws IOException, RosettaDataException {
+    return parse(dataFile, template, delimiter, pool, getRangeSize(dataFile, pool));
+  }
+
+  /**
+   * Returns the size of the ranges in which a data file is split, so that each thread of the pool
+   * parses several ranges.
+   *
+   * @param dataFile The data file.
+   * @param pool The pool of threads parsing the data file.
+   * @return The approximate size, in bytes, of the ranges.
+   * @throws IOException If unable to read the size of the data file.
+   */
+  static long getRangeSize(Path dataFile, ForkJoinPool pool) throws IOException {
+    long rangeSize = Files.size(dataFile) / ((long) pool.getParallelism() * RANGES_PER_THREAD);
+    return Math.max(MIN_RANGE_SIZE, Math.min(MAX_RANGE_SIZE, rangeSize));
+  }
+
+  /**
+   * Parse a whole data file in parallel, splitting it in ranges of a given size.
+   *
+   * @param dataFile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @param pool The pool of threads used to parse the data file.
+   * @param rangeSize The approximate size, in bytes, of the ranges parsed by each task.
+   * @return A parser holding all of the rows and header lines of the data file.
+   * @throws IOException If unable to read the data file.
+   * @throws RosettaDataException If unable to parse the data with the provided delimiter.
+   */
+  public static StreamingColumnParser parse(Path dataFile, Template template, String delimiter, ForkJoinPool pool,
+      long rangeSize) throws IOException, RosettaDataException {
+    List<ForkJoinTask<StreamingColumnParser>> tasks = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+      List<Long> rangeStarts = splitIntoRanges(channel, template, delimiter, rangeSize, Long.MAX_VALUE).starts;
+      long size = channel.size();
+      for (int i = 0; i < rangeStarts.size(); i++) {
+        long start = rangeStarts.get(i);
+        long end = i + 1 < rangeStarts.size() ? rangeStarts.get(i + 1) : size;
+        boolean fromStart = i == 0;
+        MappedByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        tasks.add(pool.submit(() -> {
+          StreamingColumnParser parser =
+              new StreamingColumnParser(new ByteBufferInputStream(range), template, delimiter, fromStart);
+          parser.parse(Integer.MAX_VALUE);
+          return parser;
+        }));
+      }
+
+      StreamingColumnParser parser = tasks.get(0).get();
+      for (int i = 1; i < tasks.size(); i++) {
+        try (StreamingColumnParser rangeParser = tasks.get(i).get()) {
+          parser.appendRows(rangeParser);
+        }
+        // free the columns of the range as soon as they have been appended
+        tasks.set(i, null);
+      }
+      return parser;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing " + dataFile, e);
+    } catch (ExecutionException e) {
+      throw rethrow(e, dataFile);
+    } finally {
+      for (ForkJoinTask<StreamingColumnParser> task : tasks) {
+        if (task != null) {
+          task.cancel(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rethrow the failure of a task parsing a range of a data file.
+   *
+   * @param e The failure of the task.
+   * @param dataFile The data file.
+   * @return Nothing, the failure is always thrown; declared so that callers can throw the result.
+   * @throws IOException If the task was unable to read the data file.
+   * @throws RosettaDataException If the task was unable to parse the data.
+   */
+  static IOException rethrow(ExecutionException e, Path dataFile) throws IOException, RosettaDataException {
+    Throwable cause = e.getCause();
+    if (cause instanceof RosettaDataException) {
+      throw (RosettaDataException) cause;
+    } else if (cause instanceof IOException) {
+      throw (IOException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    throw new IOException("Unable to parse " + dataFile, cause);
+  }
+
+  /**
+   * Split a data file in ranges of whole records (see {@link DataRecordReader}). The first range
+   * holds at least all of the header lines defined by the template. The data rows of each range
+   * are counted along the way, the same way as {@link StreamingColumnParser#countDataRows}, so that
+   * the data file does not have to be read again to size the netCDF file.
+   *
+   * Since a quoted field may span lines, the data file is scanned from the start to find the
+   * record boundaries; this is much cheaper than parsing the records.
+   *
+   * @param channel The data file.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @param rangeSize The approximate size, in bytes, of the ranges.
+   * @param maxRangeRows The maximum number of data rows of a range.
+   * @return The ranges.
+   * @throws IOException If unable to read the data file.
+   * @throws RosettaDataException If a quoted field of the data is not terminated or is too long.
+   */
+  static Ranges splitIntoRanges(FileChannel channel, Template template, String delimiter, long rangeSize,
+      long maxRangeRows) throws IOException, RosettaDataException {
+    Set<Integer> headerLineNumbers = new HashSet<>();
+    long lastHeaderLineNumber = -1;
+    if (template.getHeaderLineNumbers() != null) {
+      for (int headerLineNumber : template.getHeaderLineNumbers()) {
+        headerLineNumbers.add(headerLineNumber);
+        lastHeaderLineNumber = Math.max(lastHeaderLineNumber, headerLineNumber);
+      }
+    }
+    byte[][] commentPrefixes = DataRecordReader.encodeCommentPrefixes(template.getCommentPrefixes());
+    // the first bytes of each record, to find comments
+    byte[] recordStart = new byte[Arrays.stream(commentPrefixes).mapToInt(prefix -> prefix.length).max().orElse(0)];
+    int recordStartLength = 0;
+
+    Ranges ranges = new Ranges();
+    ranges.starts.add(0L);
+    long nextRangeStart = rangeSize;
+    long records = 0;
+    long rangeRows = 0;
+    boolean recordEnded = false;
+    DataRecordReader.RecordSplitter splitter =
+        new DataRecordReader.RecordSplitter(DataRecordReader.isQuoted(delimiter));
+    ByteBuffer buffer = ByteBuffer.allocate(StreamingColumnParser.READ_BUFFER_SIZE);
+    byte[] bytes = buffer.array();
+    long position = 0;
+    int bytesRead;
+    while ((bytesRead = channel.read(buffer, position)) > 0) {
+      int i = position == 0 ? DataRecordReader.byteOrderMarkLength(bytes, bytesRead) : 0;
+      for (; i < bytesRead; i++) {
+        int action = splitter.next(bytes[i]);
+        if (action == DataRecordReader.RecordSplitter.END) {
+          if (StreamingColumnParser.isDataRow(records, headerLineNumbers, commentPrefixes, recordStart,
+              recordStartLength)) {
+            rangeRows++;
+          }
+          records++;
+          recordStartLength = 0;
+          recordEnded = true;
+        } else if (action == DataRecordReader.RecordSplitter.APPEND) {
+          if (recordEnded) {
+            // start of a record
+            recordEnded = false;
+            long recordOffset = position + i;
+            if ((recordOffset >= nextRangeStart || rangeRows >= maxRangeRows) && records > lastHeaderLineNumber) {
+              ranges.starts.add(recordOffset);
+              ranges.dataRows.add(rangeRows);
+              nextRangeStart = recordOffset + rangeSize;
+              rangeRows = 0;
+            }
+          }
+          if (recordStartLength < recordStart.length) {
+            recordStart[recordStartLength++] = bytes[i];
+          }
+        }
+      }
+      position += bytesRead;
+      buffer.clear();
+    }
+    if (splitter.endOfInput() && StreamingColumnParser.isDataRow(records, headerLineNumbers, commentPrefixes,
+        recordStart, recordStartLength)) {
+      rangeRows++;
+    }
+    ranges.dataRows.add(rangeRows);
+    return ranges;
+  }
+
+  /**
+   * The ranges of whole records in which a data file is split.
+   */
+  static class Ranges {
+
+    // offsets of the start of each range
+    final List<Long> starts = new ArrayList<>();
+    // number of data rows of each range
+    final List<Long> dataRows = new ArrayList<>();
+
+    /**
+     * Returns the number of data rows of the data file.
+     *
+     * @return The number of data rows of all of the ranges.
+     */
+    long getTotalDataRows() {
+      return dataRows.stream().mapToLong(Long::longValue).sum();
+    }
+  }
+
+  /**
+   * An input stream reading from a (memory mapped) byte buffer.
+   */
+  static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
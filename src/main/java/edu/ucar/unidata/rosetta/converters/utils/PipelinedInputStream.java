@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An input stream reading its source on a dedicated thread.
+ *
+ * The source (typically a decompressing stream) is read ahead into a bounded ring of large
+ * buffers, so that reading the source (e.g. inflating) and consuming its bytes (e.g. parsing)
+ * happen concurrently. At most {@value #RING_SIZE} buffers are in use at any time.
+ */
+public class PipelinedInputStream extends InputStream {
+
+  static final int BUFFER_SIZE = 1 << 20;
+  static final int RING_SIZE = 4;
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final InputStream source;
+  private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(RING_SIZE + 1);
+  private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(RING_SIZE);
+  private final Thread reader;
+
+  private Chunk current;
+  private int position;
+  private boolean closed = false;
+
+  /**
+   * A buffer filled by the reading thread, or the end of the source.
+   */
+  private static class Chunk {
+
+    private static final Chunk END = new Chunk(null, -1, null);
+
+    private final byte[] bytes;
+    private final int length;
+    private final IOException error;
+
+    private Chunk(byte[] bytes, int length, IOException error) {
+      this.bytes = bytes;
+      this.length = length;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Start reading a source ahead on a dedicated thread. The source is closed when this stream is
+   * closed.
+   *
+   * @param source The stream to read.
+   */
+  public PipelinedInputStream(InputStream source) {
+    this.source = source;
+    for (int i = 0; i < RING_SIZE; i++) {
+      free.add(new byte[BUFFER_SIZE]);
+    }
+    reader = new Thread(this::readSource, "rosetta-input-" + threadCount.incrementAndGet());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  private void readSource() {
+    // the terminal chunk is always queued, whatever ends the reading, so that the consumer never
+    // waits forever. There is always room for it, as at most RING_SIZE buffers are queued.
+    Chunk last = Chunk.END;
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        byte[] bytes = free.take();
+        // fill the whole buffer, so that the consumer does not wake up for small reads
+        int length = 0;
+        int bytesRead = 0;
+        while (length < bytes.length && (bytesRead = source.read(bytes, length, bytes.length - length)) >= 0) {
+          length += bytesRead;
+        }
+        if (length > 0) {
+          filled.put(new Chunk(bytes, length, null));
+        }
+        if (bytesRead < 0) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // the stream has been closed
+    } catch (IOException e) {
+      last = new Chunk(null, -1, e);
+    } catch (Throwable e) {
+      last = new Chunk(null, -1, new IOException("Unable to read the source", e));
+    } finally {
+      filled.offer(last);
+    }
+  }
+
+  /**
+   * Make the next chunk current, if the current one has been consumed.
+   *
+   * @return false if the end of the source has been reached.
+   */
+  private boolean nextChunk() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (current != null && current.error != null) {
+      throw current.error;
+    }
+    if (current != null && position < current.length) {
+      return true;
+    }
+    if (current == Chunk.END) {
+      return false;
+    }
+    if (current != null) {
+      free.add(current.bytes);
+    }
+    try {
+      current = filled.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for input");
+    }
+    position = 0;
+    if (current.error != null) {
+      throw current.error;
+    }
+    return current != Chunk.END;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextChunk()) {
+      return -1;
+    }
+    return current.bytes[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    int n = Math.min(length, current.length - position);
+    System.arraycopy(current.bytes, position, bytes, offset, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Returns the number of bytes left in the current buffer. If the current buffer has been
+   * consumed, this waits for the next one, so that 0 is only returned at the end of the source.
+   * Readers relying on {@link java.io.BufferedReader#ready()} to detect the end of their input (as
+   * they could with a {@link java.util.zip.GZIPInputStream}) then keep working.
+   */
+  @Override
+  public int available() throws IOException {
+    if (closed || !nextChunk()) {
+      return 0;
+    }
+    return current.length - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      reader.interrupt();
+      try {
+        reader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      source.close();
+    }
+  }
+}
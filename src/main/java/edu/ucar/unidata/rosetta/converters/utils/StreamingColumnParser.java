@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import edu.ucar.unidata.rosetta.converters.utils.ColumnBuffer.StringColumnBuffer;
+import edu.ucar.unidata.rosetta.domain.RosettaAttribute;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.domain.VariableInfo;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import edu.ucar.unidata.rosetta.util.VariableInfoUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ucar.ma2.DataType;
+
+/**
+ * Streaming parser for delimited data files.
+ *
+ * The data file is read a record (usually a line, see {@link DataRecordReader}) at a time. Header
+ * lines (as identified by the template) are kept aside and comment lines are skipped as they are
+ * encountered, and the values of the columns used by the template are appended directly to a
+ * typed {@link ColumnBuffer} per column. Rows can be consumed all at once or in slabs of a fixed
+ * number of rows.
+ */
+public class StreamingColumnParser implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  static final int READ_BUFFER_SIZE = 1 << 16;
+
+  private final DataRecordReader reader;
+  private final List<String> commentPrefixes;
+  private final Set<Integer> headerLineNumbers;
+  private final int lastHeaderLineNumber;
+  private final LineTokenizer tokenizer;
+  private final int[] columnsToRead;
+  private final int[] fieldStarts;
+  private final int[] fieldEnds;
+  private final ColumnBuffer[] buffers;
+  private final StringColumnBuffer[] textBuffers;
+  private final Map<Integer, ColumnBuffer> columns = new LinkedHashMap<>();
+  private final Map<Integer, StringColumnBuffer> textColumns = new LinkedHashMap<>();
+  private final Map<Integer, DataType> dataTypes = new LinkedHashMap<>();
+  private final List<String> header = new ArrayList<>();
+
+  private long lineNumber = 0;
+  private long rowsParsed = 0;
+  private boolean done = false;
+
+  /**
+   * Create a parser for a data file on disk. Compressed data files are decompressed on the fly
+   * (see {@link DataFileInput}).
+   *
+   * @param dataFile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @throws IOException If the data file cannot be opened.
+   */
+  public StreamingColumnParser(Path dataFile, Template template, String delimiter) throws IOException {
+    this(DataFileInput.open(dataFile), template, delimiter);
+  }
+
+  /**
+   * Create a parser for a stream of delimited data. The stream is closed when the parser is
+   * closed.
+   *
+   * @param dataStream The stream of data to parse.
+   * @param template The template describing the data.
+   * @param delimiter The delimiter used to separate columns.
+   */
+  public StreamingColumnParser(InputStream dataStream, Template template, String delimiter) {
+    this(dataStream, template, delimiter, true);
+  }
+
+  /**
+   * Create a parser for a stream of delimited data. The stream is closed when the parser is
+   * closed.
+   *
+   * @param dataStream The stream of data to parse.
+   * @param template The template describing the data.
+   * @param delimiter The delimiter used to separate columns.
+   * @param fromStart false if the stream starts after the header lines of the data (e.g. when
+   *        parsing part of a data file), in which case all lines are parsed as data rows.
+   */
+  public StreamingColumnParser(InputStream dataStream, Template template, String delimiter, boolean fromStart) {
+    this.reader = new DataRecordReader(new InputStreamReader(dataStream, StandardCharsets.UTF_8.newDecoder()),
+        DataRecordReader.isQuoted(delimiter), READ_BUFFER_SIZE);
+    this.commentPrefixes = template.getCommentPrefixes();
+
+    List<Integer> templateHeaderLines = template.getHeaderLineNumbers();
+    this.headerLineNumbers =
+        templateHeaderLines != null && fromStart ? new HashSet<>(templateHeaderLines) : new HashSet<>();
+    this.lastHeaderLineNumber = headerLineNumbers.stream().mapToInt(Integer::intValue).max().orElse(-1);
+
+    if (delimiter.equals("\\\\s+")) {
+      delimiter = "\\s+";
+    }
+    this.tokenizer = LineTokenizer.forDelimiter(delimiter);
+
+    Map<Integer, String> columnDataTypes = new LinkedHashMap<>();
+    Map<Integer, Optional<Double>> missingValues = new HashMap<>();
+    Set<Integer> textColumnIds = new HashSet<>();
+    for (VariableInfo variableInfo : template.getVariableInfoList()) {
+      // negative column ids are used for variables created from global attributes
+      if (VariableInfoUtils.isVarUsed(variableInfo) && variableInfo.getColumnId() >= 0) {
+        List<RosettaAttribute> rosettaControlMetadata = variableInfo.getRosettaControlMetadata();
+        if (rosettaControlMetadata != null) {
+          for (RosettaAttribute attr : rosettaControlMetadata) {
+            if (attr.getName().equals("type")) {
+              columnDataTypes.put(variableInfo.getColumnId(), attr.getValue());
+            }
+          }
+        }
+        missingValues.put(variableInfo.getColumnId(), findMissingValue(variableInfo));
+        // time coordinate values are assembled from their text representation
+        if (VariableInfoUtils.isTimeCoordVar(variableInfo)) {
+          textColumnIds.add(variableInfo.getColumnId());
+        }
+      }
+    }
+
+    int numColumns = columnDataTypes.size();
+    columnsToRead = new int[numColumns];
+    buffers = new ColumnBuffer[numColumns];
+    textBuffers = new StringColumnBuffer[numColumns];
+
+    int i = 0;
+    for (Map.Entry<Integer, String> columnDataType : columnDataTypes.entrySet()) {
+      int colNum = columnDataType.getKey();
+      DataType dataType = getColumnDataType(columnDataType.getValue());
+      columnsToRead[i] = colNum;
+      if (dataType != null) {
+        buffers[i] = ColumnBuffer.create(dataType);
+        buffers[i].setMissingValue(missingValues.get(colNum));
+        columns.put(colNum, buffers[i]);
+        dataTypes.put(colNum, dataType);
+        if (dataType == DataType.STRING) {
+          textBuffers[i] = (StringColumnBuffer) buffers[i];
+        }
+      } else {
+        logger.warn("datatype " + columnDataType.getValue() + " not converted yet");
+      }
+      if (textBuffers[i] == null && (dataType == null || textColumnIds.contains(colNum))) {
+        textBuffers[i] = new StringColumnBuffer();
+      }
+      if (textBuffers[i] != null) {
+        textColumns.put(colNum, textBuffers[i]);
+      }
+      i++;
+    }
+
+    // only the fields up to the last column used by the template are located in each line
+    int numFields = columnDataTypes.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+    fieldStarts = new int[numFields];
+    fieldEnds = new int[numFields];
+  }
+
+  private static Optional<Double> findMissingValue(VariableInfo variableInfo) {
+    try {
+      return VariableInfoUtils.findMissingValue(variableInfo);
+    } catch (NumberFormatException e) {
+      // the statistics of the column will not skip the missing value
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Get the netCDF-Java data type associated with the type name used in a template.
+   *
+   * @param type The type name used in the template (e.g. "Integer", "Float", "Text").
+   * @return The data type, or null if the type is not supported.
+   */
+  public static DataType getColumnDataType(String type) {
+    DataType dataType = null;
+    String lowerCaseType = type.toLowerCase();
+    if (lowerCaseType.equals("string") || lowerCaseType.equals("text")) {
+      dataType = DataType.STRING;
+    } else if (lowerCaseType.equals("integer")) {
+      dataType = DataType.INT;
+    } else if (lowerCaseType.equals("long")) {
+      dataType = DataType.LONG;
+    } else if (lowerCaseType.equals("float")) {
+      dataType = DataType.FLOAT;
+    } else if (lowerCaseType.equals("double")) {
+      dataType = DataType.DOUBLE;
+    }
+    return dataType;
+  }
+
+  /**
+   * Count the number of data rows in a data file without parsing them. Records are found the
+   * same way they are read by the parser (see {@link DataRecordReader}), and the header lines and
+   * comment lines defined by the template are not included in the count.
+   *
+   * @param dataFile The data file.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @return The number of data rows.
+   * @throws IOException If unable to read from the data file.
+   * @throws RosettaDataException If a quoted field of the data is not terminated or is too long.
+   */
+  public static long countDataRows(Path dataFile, Template template, String delimiter)
+      throws IOException, RosettaDataException {
+    Set<Integer> headerLineNumbers =
+        template.getHeaderLineNumbers() != null ? new HashSet<>(template.getHeaderLineNumbers()) : new HashSet<>();
+    byte[][] commentPrefixes = DataRecordReader.encodeCommentPrefixes(template.getCommentPrefixes());
+    // the first bytes of each record, to find comments
+    byte[] recordStart = new byte[Arrays.stream(commentPrefixes).mapToInt(prefix -> prefix.length).max().orElse(0)];
+    int recordStartLength = 0;
+
+    long records = 0;
+    long dataRows = 0;
+    DataRecordReader.RecordSplitter splitter =
+        new DataRecordReader.RecordSplitter(DataRecordReader.isQuoted(delimiter));
+    try (InputStream is = DataFileInput.open(dataFile)) {
+      byte[] buffer = new byte[READ_BUFFER_SIZE];
+      int bytesRead;
+      boolean started = false;
+      while ((bytesRead = is.read(buffer)) > 0) {
+        int i = started ? 0 : DataRecordReader.byteOrderMarkLength(buffer, bytesRead);
+        started = true;
+        for (; i < bytesRead; i++) {
+          int action = splitter.next(buffer[i]);
+          if (action == DataRecordReader.RecordSplitter.APPEND) {
+            if (recordStartLength < recordStart.length) {
+              recordStart[recordStartLength++] = buffer[i];
+            }
+          } else if (action == DataRecordReader.RecordSplitter.END) {
+            if (isDataRow(records, headerLineNumbers, commentPrefixes, recordStart, recordStartLength)) {
+              dataRows++;
+            }
+            records++;
+            recordStartLength = 0;
+          }
+        }
+      }
+    }
+    if (splitter.endOfInput() && isDataRow(records, headerLineNumbers, commentPrefixes, recordStart,
+        recordStartLength)) {
+      dataRows++;
+    }
+    return dataRows;
+  }
+
+  static boolean isDataRow(long record, Set<Integer> headerLineNumbers, byte[][] commentPrefixes,
+      byte[] recordStart, int recordStartLength) {
+    if (record <= Integer.MAX_VALUE && headerLineNumbers.contains((int) record)) {
+      return false;
+    }
+    for (byte[] commentPrefix : commentPrefixes) {
+      if (commentPrefix.length <= recordStartLength) {
+        int i = 0;
+        while (i < commentPrefix.length && commentPrefix[i] == recordStart[i]) {
+          i++;
+        }
+        if (i == commentPrefix.length) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse up to maxRows data rows, appending the values to the column buffers.
+   *
+   * @param maxRows The maximum number of data rows to parse.
+   * @return The number of data rows parsed (0 once the end of the data has been reached).
+   * @throws IOException If unable to read from the data file.
+   * @throws RosettaDataException If unable to parse the data with the provided delimiter.
+   */
+  public int parse(int maxRows) throws IOException, RosettaDataException {
+    int rows = 0;
+    String line;
+    while (rows < maxRows && !done) {
+      line = reader.readRecord();
+      if (line == null) {
+        done = true;
+      } else if (lineNumber <= lastHeaderLineNumber && headerLineNumbers.contains((int) lineNumber)) {
+        header.add(line);
+        lineNumber++;
+      } else if (DataRecordReader.isComment(line, commentPrefixes)) {
+        lineNumber++;
+      } else {
+        parseLine(line);
+        lineNumber++;
+        rows++;
+      }
+    }
+    rowsParsed += rows;
+    return rows;
+  }
+
+  private void parseLine(String line) throws RosettaDataException {
+    int numFields = tokenizer.tokenize(line, fieldStarts.length, fieldStarts, fieldEnds);
+    int i = 0;
+    try {
+      for (; i < columnsToRead.length; i++) {
+        int column = columnsToRead[i];
+        if (column >= numFields) {
+          throw new RosettaDataException("Unable to parse data file with provided delimiter: line " + (lineNumber + 1)
+              + " has " + numFields + " columns, expected at least " + (column + 1));
+        }
+        // numeric values are parsed in place; only text values are extracted from the line
+        if (buffers[i] != null && buffers[i] != textBuffers[i]) {
+          buffers[i].append(line, fieldStarts[column], fieldEnds[column]);
+        }
+        if (textBuffers[i] != null) {
+          textBuffers[i].append(tokenizer.value(line, fieldStarts[column], fieldEnds[column]));
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new RosettaDataException("Unable to parse value in column " + columnsToRead[i] + " on line "
+          + (lineNumber + 1) + " as " + buffers[i].getDataType() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Append the rows held by another parser of the same template, e.g. one that parsed a later part
+   * of the same data file.
+   *
+   * @param other The parser holding the rows to append.
+   */
+  public void appendRows(StreamingColumnParser other) {
+    for (Map.Entry<Integer, ColumnBuffer> column : columns.entrySet()) {
+      column.getValue().appendAll(other.columns.get(column.getKey()));
+    }
+    for (Map.Entry<Integer, StringColumnBuffer> textColumn : textColumns.entrySet()) {
+      // string columns are already appended with the typed columns
+      if (textColumn.getValue() != columns.get(textColumn.getKey())) {
+        textColumn.getValue().appendAll(other.textColumns.get(textColumn.getKey()));
+      }
+    }
+    rowsParsed += other.rowsParsed;
+  }
+
+  /**
+   * Returns the header lines encountered so far, in the order they appear in the data file.
+   *
+   * @return The header lines.
+   */
+  public List<String> getHeader() {
+    return header;
+  }
+
+  /**
+   * Returns the typed column buffers, keyed by column id.
+   *
+   * @return The column buffers.
+   */
+  public Map<Integer, ColumnBuffer> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the text values of the columns which need to be kept as strings (string typed
+   * columns, time coordinate columns, and columns of unsupported type), keyed by column id.
+   *
+   * @return The text column buffers.
+   */
+  public Map<Integer, StringColumnBuffer> getTextColumns() {
+    return textColumns;
+  }
+
+  /**
+   * Returns the data types of the columns, keyed by column id.
+   *
+   * @return The column data types.
+   */
+  public Map<Integer, DataType> getDataTypes() {
+    return dataTypes;
+  }
+
+  /**
+   * Returns the total number of data rows parsed so far.
+   *
+   * @return The number of data rows parsed.
+   */
+  public long getRowsParsed() {
+    return rowsParsed;
+  }
+
+  /**
+   * Check if the end of the data has been reached.
+   *
+   * @return <code>true</code> if all data rows have been parsed; <code>false</code> otherwise.
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Clear all column buffers. Used between slabs when parsing in chunks.
+   */
+  public void clearColumns() {
+    for (ColumnBuffer buffer : columns.values()) {
+      buffer.clear();
+    }
+    for (StringColumnBuffer textBuffer : textColumns.values()) {
+      textBuffer.clear();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
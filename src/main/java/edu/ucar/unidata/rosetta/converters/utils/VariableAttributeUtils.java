@@ -32,7 +32,6 @@ public class VariableAttributeUtils {
    */
   public static List<Attribute> getMaxMinAttrs(Array data, Optional<Double> missingValue) {
     MAMath.MinMax maxMinVals;
-    List<Attribute> attrs = new ArrayList<>();
 
     if (missingValue.isPresent()) {
       Double actualMissingValue = missingValue.get();
@@ -41,6 +40,29 @@ public class VariableAttributeUtils {
       maxMinVals = MAMath.getMinMax(data);
     }
 
+    return getMaxMinAttrs(maxMinVals);
+  }
+
+  /**
+   * Create valid_min, valid_max attributes from the statistics accumulated while the data was
+   * decoded
+   *
+   * @param statistics the statistics of the data
+   * @return A list containing the valid_max and valid_min attributes
+   */
+  public static List<Attribute> getMaxMinAttrs(ColumnStatistics statistics) {
+    return getMaxMinAttrs(statistics.getMinMax());
+  }
+
+  /**
+   * Create valid_min, valid_max attributes from already computed max/min values
+   *
+   * @param maxMinVals the max/min values
+   * @return A list containing the valid_max and valid_min attributes
+   */
+  public static List<Attribute> getMaxMinAttrs(MAMath.MinMax maxMinVals) {
+    List<Attribute> attrs = new ArrayList<>();
+
     attrs.add(new Attribute("valid_max", maxMinVals.max));
     attrs.add(new Attribute("valid_min", maxMinVals.min));
 
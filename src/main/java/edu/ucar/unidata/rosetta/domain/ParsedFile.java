@@ -6,19 +6,19 @@
 package edu.ucar.unidata.rosetta.domain;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnBuffer;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnBuffer.StringColumnBuffer;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnStatistics;
+import edu.ucar.unidata.rosetta.converters.utils.ParallelColumnParser;
+import edu.ucar.unidata.rosetta.converters.utils.StreamingColumnParser;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
-import edu.ucar.unidata.rosetta.util.VariableInfoUtils;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
-import ucar.nc2.jni.netcdf.Nc4Iosp;
 
 /**
  * An object to hold parsed data.
@@ -31,6 +31,8 @@ public class ParsedFile {
   private Map<Integer, List<String>> stringData;
   private Map<Integer, Array> arrayData;
   private Map<Integer, DataType> dataTypes;
+  private Map<Integer, ColumnStatistics> statistics;
+  private int numRows;
 
   /**
    * Returns the headers of a data file.
@@ -43,7 +45,8 @@ public class ParsedFile {
 
 
   /**
-   * Returns the parsed data of a data file as a list of Strings.
+   * Returns the parsed data of the columns kept as text (string columns, time coordinate columns
+   * and columns of an unsupported type) as a list of Strings.
    *
    * @return The parsed data (Strings).
    */
@@ -62,93 +65,105 @@ public class ParsedFile {
   }
 
   /**
+   * Returns the data types of the parsed columns.
    *
-   * @param datafile
-   * @param template
-   * @param delimiter
-   * @throws IOException
-   * @throws RosettaDataException If unable to parse file with provided delimiter.
+   * @return The data types, keyed by column id.
    */
-  public ParsedFile(Path datafile, Template template, String delimiter) throws IOException, RosettaDataException {
-
-    List<Integer> headerLineNumbers = template.getHeaderLineNumbers();
-    headerLineNumbers.sort(Collections.reverseOrder());
+  public Map<Integer, DataType> getDataTypes() {
+    return dataTypes;
+  }
 
-    List<String> dataLines = Collections.emptyList();
-    dataLines = Files.readAllLines(datafile);
+  /**
+   * Returns the statistics (min, max, ...) of the numeric columns, accumulated while the data was
+   * parsed.
+   *
+   * @return The statistics, keyed by column id.
+   */
+  public Map<Integer, ColumnStatistics> getStatistics() {
+    return statistics;
+  }
 
-    header = new ArrayList<String>();
-    for (int headerLine : headerLineNumbers) {
-      header.add(dataLines.get(headerLine));
-      dataLines.remove(headerLine);
-    }
+  /**
+   * Returns the number of data rows held.
+   *
+   * @return The number of rows.
+   */
+  public int getNumRows() {
+    return numRows;
+  }
 
-    List<VariableInfo> variableInfoList = template.getVariableInfoList();
-    HashMap<Integer, String> columnDataTypes = new HashMap<>();
-    for (VariableInfo variableInfo : variableInfoList) {
-      int colId = variableInfo.getColumnId();
-      String name = variableInfo.getName();
-      if (VariableInfoUtils.isVarUsed(variableInfo)) {
-        List<RosettaAttribute> rosettaControlMetadata = variableInfo.getRosettaControlMetadata();
-        if (rosettaControlMetadata != null) {
-          for (RosettaAttribute attr : rosettaControlMetadata) {
-            if (attr.getName().equals("type")) {
-              columnDataTypes.put(colId, attr.getValue());
-            }
-          }
-        }
+  /**
+   * Parse a data file. The file is streamed through a {@link StreamingColumnParser}, so numeric
+   * columns are decoded directly into primitive storage and only the columns which need their text
+   * representation (string columns and time coordinate columns) are kept as Strings. Large
+   * uncompressed files are split in ranges which are parsed in parallel by a
+   * {@link ParallelColumnParser}.
+   *
+   * @param datafile The data file to parse.
+   * @param template The template describing the data file.
+   * @param delimiter The delimiter used to separate columns.
+   * @throws IOException If unable to read the data file.
+   * @throws RosettaDataException If unable to parse file with provided delimiter.
+   */
+  public ParsedFile(Path datafile, Template template, String delimiter) throws IOException, RosettaDataException {
+    ForkJoinPool pool = ParallelColumnParser.getPool();
+    if (ParallelColumnParser.isWorthParallelizing(datafile, pool)) {
+      try (StreamingColumnParser parser = ParallelColumnParser.parse(datafile, template, delimiter, pool)) {
+        numRows = Math.toIntExact(parser.getRowsParsed());
+        init(parser);
       }
+      return;
     }
+    try (StreamingColumnParser parser = new StreamingColumnParser(datafile, template, delimiter)) {
+      numRows = parser.parse(Integer.MAX_VALUE);
+      init(parser);
+    }
+  }
 
-    Set<Integer> columnsToRead = columnDataTypes.keySet();
+  /**
+   * Create a ParsedFile from a parser, consuming all of its remaining rows.
+   *
+   * @param parser The parser from which to read the data.
+   * @throws IOException If unable to read the data.
+   * @throws RosettaDataException If unable to parse data with provided delimiter.
+   */
+  public ParsedFile(StreamingColumnParser parser) throws IOException, RosettaDataException {
+    this(parser, Integer.MAX_VALUE);
+  }
 
-    // init stringData
-    stringData = new HashMap<Integer, List<String>>();
-    for (Integer colNum : columnsToRead) {
-      stringData.put(colNum, new ArrayList<String>());
-    }
+  /**
+   * Create a ParsedFile holding a slab of at most maxRows rows read from a parser. Rows held by
+   * the parser from a previous slab are discarded first.
+   *
+   * @param parser The parser from which to read the data.
+   * @param maxRows The maximum number of rows to read.
+   * @throws IOException If unable to read the data.
+   * @throws RosettaDataException If unable to parse data with provided delimiter.
+   */
+  public ParsedFile(StreamingColumnParser parser, int maxRows) throws IOException, RosettaDataException {
+    parser.clearColumns();
+    numRows = parser.parse(maxRows);
+    init(parser);
+  }
 
-    try {
-      if (delimiter.equals("\\\\s+")) {
-        delimiter = "\\s+";
-      }
-      for (String line : dataLines) {
-        String[] splitLine = line.split(delimiter);
-        for (int colNum : columnsToRead) {
-          stringData.get(colNum).add(splitLine[colNum]);
-        }
-      }
-    } catch (ArrayIndexOutOfBoundsException e) {
-      throw new RosettaDataException("Unable to parse data file with provided delimiter: " + e);
-    }
+  private void init(StreamingColumnParser parser) {
+    header = parser.getHeader();
+    dataTypes = parser.getDataTypes();
 
+    stringData = new HashMap<>();
+    for (Map.Entry<Integer, StringColumnBuffer> textColumn : parser.getTextColumns().entrySet()) {
+      stringData.put(textColumn.getKey(), textColumn.getValue().getValues());
+    }
 
-    // convert string data to netCDF-Java Array
+    // convert column buffers to netCDF-Java Array
     arrayData = new HashMap<>();
-    dataTypes = new HashMap<>();
-
-    for (int colNum : columnsToRead) {
-      List<String> strData = stringData.get(colNum);
-      String type = columnDataTypes.get(colNum);
-      Array arr = null;
-      DataType dataType = null;
-
-      if (type.toLowerCase().equals("string") || type.toLowerCase().equals("text")) {
-        dataType = DataType.STRING;
-      } else if (type.toLowerCase().equals("integer")) {
-        dataType = DataType.INT;
-      } else if (type.toLowerCase().equals("float")) {
-        dataType = DataType.FLOAT;
-      } else if (type.toLowerCase().equals("double")) {
-        dataType = DataType.DOUBLE;
-      } else if (type.toLowerCase().equals("BOOLEAN")) {
-        dataType = DataType.BOOLEAN;
-      }
-
-      if (dataType != null) {
-        arrayData.put(colNum, Array.makeArray(dataType, strData));
-      } else {
-        System.out.println("datatype " + type + "not converted yet");
+    statistics = new HashMap<>();
+    for (Map.Entry<Integer, ColumnBuffer> column : parser.getColumns().entrySet()) {
+      arrayData.put(column.getKey(), column.getValue().toArray());
+      // copied, as the statistics of the parser columns are reset with the next slab
+      ColumnStatistics columnStatistics = column.getValue().getStatistics();
+      if (columnStatistics != null) {
+        statistics.put(column.getKey(), columnStatistics.copy());
       }
     }
   }
@@ -37,6 +37,15 @@ public class RosettaAttribute {
     this.type = type;
   }
 
+  /**
+   * Create a copy of this attribute.
+   *
+   * @return The copy.
+   */
+  public RosettaAttribute copy() {
+    return new RosettaAttribute(name, value, type);
+  }
+
   /**
    * Override equals() for RosettaAttribute.
    */
@@ -52,6 +52,16 @@ public class RosettaGlobalAttribute extends RosettaAttribute {
     this.group = DEFAULT_GROUP;
   }
 
+  /**
+   * Create a copy of this attribute.
+   *
+   * @return The copy.
+   */
+  @Override
+  public RosettaGlobalAttribute copy() {
+    return new RosettaGlobalAttribute(getName(), getValue(), getType(), getGroup());
+  }
+
   /**
    * Override equals() for RosettaGlobalAttribute.
    */
@@ -17,19 +17,78 @@ import java.util.function.Predicate;
  */
 public class Template {
 
+  private Boolean append;
   private String cfType;
+  private Boolean collection;
+  private List<String> commentPrefixes;
   private String community;
   private String creationDate;
+  private Integer deflateLevel;
   private String delimiter;
   private String format; // required
   private List<RosettaGlobalAttribute> globalMetadata;
   private List<Integer> headerLineNumbers;
+  private String netcdfVersion;
   private String platform;
   private String rosettaVersion;
   private String serverId;
+  private Boolean shuffle;
   private String templateVersion;
   private List<VariableInfo> variableInfoList;
 
+  /**
+   * Create a deep copy of this template: the variables and attributes of the copy are copies of
+   * those of this template.
+   *
+   * @return The copy.
+   */
+  public Template copy() {
+    Template copy = overlay();
+    if (globalMetadata != null) {
+      copy.globalMetadata.replaceAll(attr -> attr != null ? attr.copy() : null);
+    }
+    if (variableInfoList != null) {
+      copy.variableInfoList.replaceAll(variableInfo -> variableInfo != null ? variableInfo.copy() : null);
+    }
+    return copy;
+  }
+
+  /**
+   * Create a template layered on this template, to be changed with {@link #update(Template)}. The
+   * lists of the overlay are copies of the lists of this template, but the variables and attributes
+   * within are shared with this template. As update() replaces a variable by an updated copy
+   * instead of modifying it, this template is left unchanged by updates of the overlay, and the
+   * variables which are not updated are not copied.
+   *
+   * @return The overlay.
+   */
+  public Template overlay() {
+    Template overlay = new Template();
+    overlay.append = append;
+    overlay.cfType = cfType;
+    overlay.collection = collection;
+    overlay.commentPrefixes = copyList(commentPrefixes);
+    overlay.community = community;
+    overlay.creationDate = creationDate;
+    overlay.deflateLevel = deflateLevel;
+    overlay.delimiter = delimiter;
+    overlay.format = format;
+    overlay.globalMetadata = copyList(globalMetadata);
+    overlay.headerLineNumbers = copyList(headerLineNumbers);
+    overlay.netcdfVersion = netcdfVersion;
+    overlay.platform = platform;
+    overlay.rosettaVersion = rosettaVersion;
+    overlay.serverId = serverId;
+    overlay.shuffle = shuffle;
+    overlay.templateVersion = templateVersion;
+    overlay.variableInfoList = copyList(variableInfoList);
+    return overlay;
+  }
+
+  private static <T> List<T> copyList(List<T> list) {
+    return list != null ? new ArrayList<>(list) : null;
+  }
+
   /**
    * Override equals() for Template.
    */
@@ -44,11 +103,17 @@ public class Template {
 
     Template t = (Template) obj;
 
-    return Objects.equals(cfType, t.getCfType()) && Objects.equals(community, t.getCommunity())
-        && Objects.equals(creationDate, t.getCreationDate()) && Objects.equals(delimiter, t.getDelimiter())
+    return Objects.equals(append, t.getAppend()) && Objects.equals(cfType, t.getCfType())
+        && Objects.equals(collection, t.getCollection())
+        && Objects.equals(commentPrefixes, t.getCommentPrefixes())
+        && Objects.equals(community, t.getCommunity())
+        && Objects.equals(creationDate, t.getCreationDate()) && Objects.equals(deflateLevel, t.getDeflateLevel())
+        && Objects.equals(delimiter, t.getDelimiter())
         && Objects.equals(format, t.getFormat()) && Objects.equals(globalMetadata, t.getGlobalMetadata())
-        && Objects.equals(headerLineNumbers, t.getHeaderLineNumbers()) && Objects.equals(platform, t.getPlatform())
+        && Objects.equals(headerLineNumbers, t.getHeaderLineNumbers())
+        && Objects.equals(netcdfVersion, t.getNetcdfVersion()) && Objects.equals(platform, t.getPlatform())
         && Objects.equals(rosettaVersion, t.getRosettaVersion()) && Objects.equals(serverId, t.getServerId())
+        && Objects.equals(shuffle, t.getShuffle())
         && Objects.equals(templateVersion, t.getTemplateVersion())
         && Objects.equals(variableInfoList, t.getVariableInfoList());
   }
@@ -58,8 +123,19 @@ public class Template {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(cfType, community, creationDate, delimiter, format, globalMetadata, headerLineNumbers, platform,
-        rosettaVersion, serverId, templateVersion, variableInfoList);
+    return Objects.hash(append, cfType, collection, commentPrefixes, community, creationDate, deflateLevel, delimiter,
+        format, globalMetadata, headerLineNumbers, netcdfVersion, platform, rosettaVersion, serverId, shuffle,
+        templateVersion, variableInfoList);
+  }
+
+  /**
+   * Returns whether the data files of a batch converted with the template are appended, in the
+   * order of their names, to a single netCDF file (e.g. the consecutive data files of a station).
+   *
+   * @return The append setting, or null to convert each data file to its own netCDF file.
+   */
+  public Boolean getAppend() {
+    return append;
   }
 
   /**
@@ -71,6 +147,26 @@ public class Template {
     return cfType;
   }
 
+  /**
+   * Returns whether the data files of a batch converted with the template are merged into a single
+   * DSG collection file (e.g. one timeSeries file holding all of the stations).
+   *
+   * @return The collection setting, or null to convert each data file to its own netCDF file.
+   */
+  public Boolean getCollection() {
+    return collection;
+  }
+
+  /**
+   * Returns the prefixes of the comment lines of the data file. Comment lines which are not header
+   * lines are skipped when parsing the data.
+   *
+   * @return The comment prefixes.
+   */
+  public List<String> getCommentPrefixes() {
+    return commentPrefixes;
+  }
+
   /**
    * Returns the community.
    *
@@ -90,6 +186,16 @@ public class Template {
     return creationDate;
   }
 
+  /**
+   * Returns the deflate level (0 to 9) of the variables of a netCDF-4 file converted with the
+   * template.
+   *
+   * @return The deflate level, or null for the default level.
+   */
+  public Integer getDeflateLevel() {
+    return deflateLevel;
+  }
+
   /**
    * Returns the data file delimiter.
    *
@@ -126,6 +232,15 @@ public class Template {
     return headerLineNumbers;
   }
 
+  /**
+   * Returns the version of the netCDF files converted with the template ("netcdf3" or "netcdf4").
+   *
+   * @return The netCDF version, or null for netCDF-3.
+   */
+  public String getNetcdfVersion() {
+    return netcdfVersion;
+  }
+
   /**
    * Returns the platform.
    *
@@ -153,6 +268,16 @@ public class Template {
     return serverId;
   }
 
+  /**
+   * Returns whether the shuffle filter is applied to the variables of a netCDF-4 file converted with
+   * the template.
+   *
+   * @return The shuffle setting, or null for the default setting.
+   */
+  public Boolean getShuffle() {
+    return shuffle;
+  }
+
   /**
    * Returns the template version.
    *
@@ -171,6 +296,16 @@ public class Template {
     return variableInfoList;
   }
 
+  /**
+   * Sets whether the data files of a batch converted with the template are appended to a single
+   * netCDF file.
+   *
+   * @param append The append setting.
+   */
+  public void setAppend(Boolean append) {
+    this.append = append;
+  }
+
   /**
    * Sets the CF type.
    *
@@ -180,6 +315,25 @@ public class Template {
     this.cfType = cfType;
   }
 
+  /**
+   * Sets whether the data files of a batch converted with the template are merged into a single DSG
+   * collection file.
+   *
+   * @param collection The collection setting.
+   */
+  public void setCollection(Boolean collection) {
+    this.collection = collection;
+  }
+
+  /**
+   * Sets the prefixes of the comment lines of the data file.
+   *
+   * @param commentPrefixes The comment prefixes.
+   */
+  public void setCommentPrefixes(List<String> commentPrefixes) {
+    this.commentPrefixes = commentPrefixes;
+  }
+
   /**
    * Sets the community.
    *
@@ -199,6 +353,15 @@ public class Template {
     this.creationDate = creationDate;
   }
 
+  /**
+   * Sets the deflate level (0 to 9) of the variables of a netCDF-4 file converted with the template.
+   *
+   * @param deflateLevel The deflate level.
+   */
+  public void setDeflateLevel(Integer deflateLevel) {
+    this.deflateLevel = deflateLevel;
+  }
+
   /**
    * Sets the data file delimiter.
    *
@@ -235,6 +398,15 @@ public class Template {
     this.headerLineNumbers = headerLineNumbers;
   }
 
+  /**
+   * Sets the version of the netCDF files converted with the template ("netcdf3" or "netcdf4").
+   *
+   * @param netcdfVersion The netCDF version.
+   */
+  public void setNetcdfVersion(String netcdfVersion) {
+    this.netcdfVersion = netcdfVersion;
+  }
+
   /**
    * Sets the platform.
    *
@@ -262,6 +434,16 @@ public class Template {
     this.serverId = serverId;
   }
 
+  /**
+   * Sets whether the shuffle filter is applied to the variables of a netCDF-4 file converted with
+   * the template.
+   *
+   * @param shuffle The shuffle setting.
+   */
+  public void setShuffle(Boolean shuffle) {
+    this.shuffle = shuffle;
+  }
+
   /**
    * Sets the template version.
    *
@@ -304,6 +486,21 @@ public class Template {
       this.headerLineNumbers = headerLineNumbersUpdate;
     }
 
+    List<String> commentPrefixesUpdate = updatedTemplate.getCommentPrefixes();
+    if (commentPrefixesUpdate != null) {
+      this.commentPrefixes = commentPrefixesUpdate;
+    }
+
+    if (updatedTemplate.getNetcdfVersion() != null) {
+      this.netcdfVersion = updatedTemplate.getNetcdfVersion();
+    }
+    if (updatedTemplate.getDeflateLevel() != null) {
+      this.deflateLevel = updatedTemplate.getDeflateLevel();
+    }
+    if (updatedTemplate.getShuffle() != null) {
+      this.shuffle = updatedTemplate.getShuffle();
+    }
+
     List<RosettaGlobalAttribute> globalMetadataUpdates = updatedTemplate.getGlobalMetadata();
     if (globalMetadataUpdates != null) {
       // A little more complex. We need to go through each new piece of global metadata,
@@ -342,8 +539,11 @@ public class Template {
           if (variableInfoUpdate.getColumnId() == -9) {
             variableInfoList.remove(updateIndex);
           } else {
-            oldVarInfo.updateVariableInfo(variableInfoUpdate);
-            variableInfoList.set(updateIndex, oldVarInfo);
+            // the variable may be shared with another template (see overlay()), so it is replaced
+            // by an updated copy rather than modified
+            VariableInfo updatedVarInfo = oldVarInfo.copy();
+            updatedVarInfo.updateVariableInfo(variableInfoUpdate);
+            variableInfoList.set(updateIndex, updatedVarInfo);
           }
         } else {
           // This is a new addition - go ahead and add it to the list.
@@ -7,6 +7,7 @@ package edu.ucar.unidata.rosetta.domain;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -22,6 +23,32 @@ public class VariableInfo {
   private List<RosettaAttribute> rosettaControlMetadata;
   private List<RosettaAttribute> variableMetadata;
 
+  /**
+   * Create a deep copy of this VariableInfo object: the attributes of the copy are copies of the
+   * attributes of this object.
+   *
+   * @return The copy.
+   */
+  public VariableInfo copy() {
+    VariableInfo copy = new VariableInfo();
+    copy.columnId = columnId;
+    copy.name = name;
+    copy.rosettaControlMetadata = copyAttributes(rosettaControlMetadata);
+    copy.variableMetadata = copyAttributes(variableMetadata);
+    return copy;
+  }
+
+  private static List<RosettaAttribute> copyAttributes(List<RosettaAttribute> attributes) {
+    if (attributes == null) {
+      return null;
+    }
+    List<RosettaAttribute> copy = new ArrayList<>(attributes.size());
+    for (RosettaAttribute attribute : attributes) {
+      copy.add(attribute != null ? attribute.copy() : null);
+    }
+    return copy;
+  }
+
   /**
    * Override equals for VariableInfo.
    */
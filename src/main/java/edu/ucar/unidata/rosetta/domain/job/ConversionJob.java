@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.domain.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.Date;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A conversion submitted to run in the background, along with its status and progress.
+ */
+public class ConversionJob {
+
+  private String id;
+  private JobType jobType;
+  private Status status;
+  private String source;
+  private String resultFile;
+  private String message;
+  private long rowsParsed;
+  private long totalRows;
+  private int variablesWritten;
+  private Date dateSubmitted;
+  private Date dateModified;
+
+  public ConversionJob() {}
+
+  public ConversionJob(String id, JobType jobType, String source) {
+    setId(id);
+    setJobType(jobType);
+    setSource(source);
+    setStatus(Status.QUEUED);
+    Date now = new Date();
+    setDateSubmitted(now);
+    setDateModified(now);
+  }
+
+  /**
+   * Returns the unique id of the job.
+   *
+   * @return The job id.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the unique id of the job.
+   *
+   * @param id The job id.
+   */
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the kind of conversion done by the job.
+   *
+   * @return The job type.
+   */
+  public JobType getJobType() {
+    return jobType;
+  }
+
+  /**
+   * Sets the kind of conversion done by the job.
+   *
+   * @param jobType The job type.
+   */
+  public void setJobType(JobType jobType) {
+    this.jobType = jobType;
+  }
+
+  /**
+   * Returns the status of the job.
+   *
+   * @return The job status.
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the status of the job.
+   *
+   * @param status The job status.
+   */
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  /**
+   * Returns what the job converts: the wizard data id for a wizard conversion, or the path to the
+   * uploaded zip file for a batch conversion.
+   *
+   * @return The source of the job.
+   */
+  @JsonIgnore
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Sets what the job converts.
+   *
+   * @param source The source of the job.
+   */
+  public void setSource(String source) {
+    this.source = source;
+  }
+
+  /**
+   * Returns the path to the file created by the job (null until the job is complete).
+   *
+   * @return The path to the result file.
+   */
+  @JsonIgnore
+  public String getResultFile() {
+    return resultFile;
+  }
+
+  /**
+   * Sets the path to the file created by the job.
+   *
+   * @param resultFile The path to the result file.
+   */
+  public void setResultFile(String resultFile) {
+    this.resultFile = resultFile;
+  }
+
+  /**
+   * Returns the reason the job failed (null unless the job failed).
+   *
+   * @return The failure message.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets the reason the job failed.
+   *
+   * @param message The failure message.
+   */
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Returns the number of data rows parsed so far.
+   *
+   * @return The number of data rows parsed.
+   */
+  public long getRowsParsed() {
+    return rowsParsed;
+  }
+
+  /**
+   * Sets the number of data rows parsed so far.
+   *
+   * @param rowsParsed The number of data rows parsed.
+   */
+  public void setRowsParsed(long rowsParsed) {
+    this.rowsParsed = rowsParsed;
+  }
+
+  /**
+   * Returns the total number of data rows to convert, as far as is known so far.
+   *
+   * @return The total number of data rows.
+   */
+  public long getTotalRows() {
+    return totalRows;
+  }
+
+  /**
+   * Sets the total number of data rows to convert.
+   *
+   * @param totalRows The total number of data rows.
+   */
+  public void setTotalRows(long totalRows) {
+    this.totalRows = totalRows;
+  }
+
+  /**
+   * Returns the number of netCDF variables written so far.
+   *
+   * @return The number of variables written.
+   */
+  public int getVariablesWritten() {
+    return variablesWritten;
+  }
+
+  /**
+   * Sets the number of netCDF variables written so far.
+   *
+   * @param variablesWritten The number of variables written.
+   */
+  public void setVariablesWritten(int variablesWritten) {
+    this.variablesWritten = variablesWritten;
+  }
+
+  /**
+   * Returns the date the job was submitted.
+   *
+   * @return The submission date.
+   */
+  public Date getDateSubmitted() {
+    return dateSubmitted;
+  }
+
+  /**
+   * Sets the date the job was submitted.
+   *
+   * @param dateSubmitted The submission date.
+   */
+  public void setDateSubmitted(Date dateSubmitted) {
+    this.dateSubmitted = dateSubmitted;
+  }
+
+  /**
+   * Returns the date the job was last modified.
+   *
+   * @return The modification date.
+   */
+  public Date getDateModified() {
+    return dateModified;
+  }
+
+  /**
+   * Sets the date the job was last modified.
+   *
+   * @param dateModified The modification date.
+   */
+  public void setDateModified(Date dateModified) {
+    this.dateModified = dateModified;
+  }
+
+  /**
+   * Check if the job has finished, successfully or not.
+   *
+   * @return <code>true</code> if the job is complete or failed; <code>false</code> otherwise.
+   */
+  @JsonIgnore
+  public boolean isFinished() {
+    return status == Status.COMPLETE || status == Status.FAILED;
+  }
+
+  /**
+   * String representation of this object.
+   *
+   * @return The string representation.
+   */
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this);
+  }
+
+  public enum JobType {
+    WIZARD, BATCH
+  }
+
+  public enum Status {
+    QUEUED, RUNNING, COMPLETE, FAILED
+  }
+}
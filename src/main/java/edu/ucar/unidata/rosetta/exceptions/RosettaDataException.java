@@ -17,4 +17,8 @@ public class RosettaDataException extends Exception {
   public RosettaDataException(String message) {
     super(message);
   }
+
+  public RosettaDataException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -184,12 +184,53 @@ public class EmbeddedDerbyDbInitManager implements DbInitManager {
 
       // Add default admin user to users table.
       addDefaultAdminUser(props);
+
+      // Table containing conversion jobs submitted to run in the background.
+      createConversionJobsTable(props);
     } else { // Update existing properties table.
       populatePropertiesTable(props);
+      // Databases created by earlier versions do not have the conversion jobs table.
+      if (!tableExists("CONVERSIONJOBS", props)) {
+        createConversionJobsTable(props);
+      }
       logger.info("Nothing to do here... Database already exists.");
     }
   }
 
+  /**
+   * Creates the table holding the conversion jobs submitted to run in the background.
+   *
+   * @param props RosettaProperties from which the database username and password are glean.
+   * @throws NonTransientDataAccessResourceException If unable to create instance of the database driver.
+   * @throws SQLException If an SQL exceptions occurs during create table transaction.
+   */
+  private void createConversionJobsTable(Properties props)
+      throws NonTransientDataAccessResourceException, SQLException {
+    String createConversionJobsTable = "CREATE TABLE conversionJobs " + "(" + "id VARCHAR(255) primary key not null, "
+        + "jobType VARCHAR(10) not null, " + "status VARCHAR(10) not null, " + "source VARCHAR(1024) not null, "
+        + "resultFile VARCHAR(1024), " + "message VARCHAR(1024), " + "rowsParsed BIGINT, " + "totalRows BIGINT, "
+        + "variablesWritten INTEGER, " + "dateSubmitted TIMESTAMP not null, " + "dateModified TIMESTAMP not null"
+        + ")";
+    createTable(createConversionJobsTable, props);
+  }
+
+  /**
+   * Checks if a table exists in the derby database.
+   *
+   * @param tableName The name of the table (upper case, as stored by derby).
+   * @param props RosettaProperties from which the database username and password are glean.
+   * @return true if the table exists; otherwise false.
+   * @throws NonTransientDataAccessResourceException If unable to create instance of the database driver.
+   * @throws SQLException If an SQL exceptions occurs while reading the database metadata.
+   */
+  private boolean tableExists(String tableName, Properties props)
+      throws NonTransientDataAccessResourceException, SQLException {
+    try (Connection connection = createDatabaseConnection(props);
+        ResultSet rs = connection.getMetaData().getTables(null, null, tableName, new String[] {"TABLE"})) {
+      return rs.next();
+    }
+  }
+
   /**
    * Creates a table in the derby database.
    *
@@ -45,6 +45,26 @@ public class JdbcPropertiesDao extends JdbcDaoSupport implements PropertiesDao {
     return properties.get(0).getPropertyValue();
   }
 
+  /**
+   * Looks up and retrieves the persisted value of a property.
+   *
+   * @param propertyKey The key of the property.
+   * @return The persisted value of the property.
+   * @throws DataRetrievalFailureException If unable to lookup the property.
+   */
+  @Override
+  public String lookupPropertyValue(String propertyKey) throws DataRetrievalFailureException {
+    String sql = "SELECT * FROM properties WHERE propertyKey = ?";
+    List<RosettaProperties> properties =
+        getJdbcTemplate().query(sql, new JdbcPropertiesDao.DataMapper(), propertyKey);
+    if (properties.isEmpty()) {
+      String message = "Unable to find persisted Rosetta property " + propertyKey;
+      logger.error(message);
+      throw new DataRetrievalFailureException(message);
+    }
+    return properties.get(0).getPropertyValue();
+  }
+
   /**
    * This DataMapper only used by JdbcPropertiesDao.
    */
@@ -21,4 +21,13 @@ public interface PropertiesDao {
    * @throws DataRetrievalFailureException If unable to lookup user files directory.
    */
   public String lookupUserFilesDirectory() throws DataRetrievalFailureException;
+
+  /**
+   * Looks up and retrieves the persisted value of a property.
+   *
+   * @param propertyKey The key of the property.
+   * @return The persisted value of the property.
+   * @throws DataRetrievalFailureException If unable to lookup the property.
+   */
+  public String lookupPropertyValue(String propertyKey) throws DataRetrievalFailureException;
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.repository.job;
+
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import java.util.List;
+import org.springframework.dao.DataRetrievalFailureException;
+
+/**
+ * The data access object for persisted conversion jobs.
+ */
+public interface ConversionJobDao {
+
+  /**
+   * Looks up and returns the persisted conversion job using the given ID.
+   *
+   * @param id The ID of the conversion job.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to find a persisted conversion job corresponding to ID.
+   */
+  public ConversionJob lookupConversionJobById(String id) throws DataRetrievalFailureException;
+
+  /**
+   * Looks up and returns the persisted conversion jobs of a source, most recently submitted first.
+   *
+   * @param source The source of the conversion jobs (wizard data id or uploaded zip file).
+   * @return The conversion jobs (empty if none).
+   */
+  public List<ConversionJob> lookupConversionJobsBySource(String source);
+
+  /**
+   * Looks up and returns the persisted conversion jobs which have not finished, in the order they
+   * were submitted.
+   *
+   * @return The queued and running conversion jobs (empty if none).
+   */
+  public List<ConversionJob> lookupUnfinishedConversionJobs();
+
+  /**
+   * Persists a newly submitted conversion job.
+   *
+   * @param conversionJob The conversion job to persist.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  public void persistConversionJob(ConversionJob conversionJob) throws DataRetrievalFailureException;
+
+  /**
+   * Updates the status, progress and result of a persisted conversion job.
+   *
+   * @param conversionJob The conversion job containing the data to update.
+   * @throws DataRetrievalFailureException If unable to update the persisted conversion job.
+   */
+  public void updatePersistedConversionJob(ConversionJob conversionJob) throws DataRetrievalFailureException;
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.repository.job;
+
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+
+/**
+ * Implementation of the conversion job DAO.
+ */
+public class JdbcConversionJobDao extends JdbcDaoSupport implements ConversionJobDao {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // size of the message column of the conversionJobs table
+  private static final int MAX_MESSAGE_LENGTH = 1024;
+
+  /**
+   * Looks up and returns the persisted conversion job using the given ID.
+   *
+   * @param id The ID of the conversion job.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to find a persisted conversion job corresponding to ID.
+   */
+  @Override
+  public ConversionJob lookupConversionJobById(String id) throws DataRetrievalFailureException {
+    String sql = "SELECT * FROM conversionJobs WHERE id = ?";
+    List<ConversionJob> conversionJobs = getJdbcTemplate().query(sql, new ConversionJobMapper(), id);
+    if (conversionJobs.isEmpty()) {
+      String message = "Unable to find persisted conversion job corresponding to id " + id;
+      logger.error(message);
+      throw new DataRetrievalFailureException(message);
+    }
+    return conversionJobs.get(0);
+  }
+
+  /**
+   * Looks up and returns the persisted conversion jobs of a source, most recently submitted first.
+   *
+   * @param source The source of the conversion jobs (wizard data id or uploaded zip file).
+   * @return The conversion jobs (empty if none).
+   */
+  @Override
+  public List<ConversionJob> lookupConversionJobsBySource(String source) {
+    String sql = "SELECT * FROM conversionJobs WHERE source = ? ORDER BY dateSubmitted DESC";
+    return getJdbcTemplate().query(sql, new ConversionJobMapper(), source);
+  }
+
+  /**
+   * Looks up and returns the persisted conversion jobs which have not finished, in the order they
+   * were submitted.
+   *
+   * @return The queued and running conversion jobs (empty if none).
+   */
+  @Override
+  public List<ConversionJob> lookupUnfinishedConversionJobs() {
+    String sql = "SELECT * FROM conversionJobs WHERE status = ? OR status = ? ORDER BY dateSubmitted";
+    return getJdbcTemplate().query(sql, new ConversionJobMapper(), ConversionJob.Status.QUEUED.toString(),
+        ConversionJob.Status.RUNNING.toString());
+  }
+
+  /**
+   * Persists a newly submitted conversion job.
+   *
+   * @param conversionJob The conversion job to persist.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  @Override
+  public void persistConversionJob(ConversionJob conversionJob) throws DataRetrievalFailureException {
+    String sql = "INSERT INTO conversionJobs (id, jobType, status, source, resultFile, message, rowsParsed, "
+        + "totalRows, variablesWritten, dateSubmitted, dateModified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    int rowsAffected = getJdbcTemplate().update(sql, new Object[] {
+        // order matters here
+        conversionJob.getId(), conversionJob.getJobType().toString(), conversionJob.getStatus().toString(),
+        conversionJob.getSource(), conversionJob.getResultFile(),
+        StringUtils.abbreviate(conversionJob.getMessage(), MAX_MESSAGE_LENGTH), conversionJob.getRowsParsed(),
+        conversionJob.getTotalRows(), conversionJob.getVariablesWritten(),
+        new Timestamp(conversionJob.getDateSubmitted().getTime()),
+        new Timestamp(conversionJob.getDateModified().getTime())});
+    if (rowsAffected <= 0) {
+      String message = "Unable to persist conversion job corresponding to id " + conversionJob.getId();
+      logger.error(message);
+      throw new DataRetrievalFailureException(message);
+    } else {
+      logger.info("Conversion job corresponding to id " + conversionJob.getId() + " persisted.");
+    }
+  }
+
+  /**
+   * Updates the status, progress and result of a persisted conversion job.
+   *
+   * @param conversionJob The conversion job containing the data to update.
+   * @throws DataRetrievalFailureException If unable to update the persisted conversion job.
+   */
+  @Override
+  public void updatePersistedConversionJob(ConversionJob conversionJob) throws DataRetrievalFailureException {
+    conversionJob.setDateModified(new Date());
+    String sql = "UPDATE conversionJobs SET " + "status = ?, " + "resultFile = ?, " + "message = ?, "
+        + "rowsParsed = ?, " + "totalRows = ?, " + "variablesWritten = ?, " + "dateModified = ? " + "WHERE id = ?";
+    int rowsAffected = getJdbcTemplate().update(sql, new Object[] {
+        // order matters here
+        conversionJob.getStatus().toString(), conversionJob.getResultFile(),
+        StringUtils.abbreviate(conversionJob.getMessage(), MAX_MESSAGE_LENGTH), conversionJob.getRowsParsed(),
+        conversionJob.getTotalRows(), conversionJob.getVariablesWritten(),
+        new Timestamp(conversionJob.getDateModified().getTime()), conversionJob.getId()});
+    if (rowsAffected <= 0) {
+      String message = "Unable to update persisted conversion job corresponding to id " + conversionJob.getId();
+      logger.error(message);
+      throw new DataRetrievalFailureException(message);
+    } else {
+      logger.info("Updated persisted conversion job corresponding to id " + conversionJob.getId() + " to "
+          + conversionJob.getStatus());
+    }
+  }
+
+  /**
+   * Data mapper class for conversion jobs.
+   */
+  private static class ConversionJobMapper implements RowMapper<ConversionJob> {
+
+    /**
+     * Maps each row of data in the ResultSet to the ConversionJob object.
+     *
+     * @param rs The ResultSet to be mapped.
+     * @param rowNum The number of the current row.
+     * @return The populated ConversionJob object.
+     * @throws SQLException If an SQLException is encountered getting column values.
+     */
+    public ConversionJob mapRow(ResultSet rs, int rowNum) throws SQLException {
+      ConversionJob conversionJob = new ConversionJob();
+      conversionJob.setId(rs.getString("id"));
+      conversionJob.setJobType(ConversionJob.JobType.valueOf(rs.getString("jobType")));
+      conversionJob.setStatus(ConversionJob.Status.valueOf(rs.getString("status")));
+      conversionJob.setSource(rs.getString("source"));
+      conversionJob.setResultFile(rs.getString("resultFile"));
+      conversionJob.setMessage(rs.getString("message"));
+      conversionJob.setRowsParsed(rs.getLong("rowsParsed"));
+      conversionJob.setTotalRows(rs.getLong("totalRows"));
+      conversionJob.setVariablesWritten(rs.getInt("variablesWritten"));
+      conversionJob.setDateSubmitted(rs.getTimestamp("dateSubmitted"));
+      conversionJob.setDateModified(rs.getTimestamp("dateModified"));
+      return conversionJob;
+    }
+  }
+}
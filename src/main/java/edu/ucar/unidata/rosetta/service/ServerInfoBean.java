@@ -17,12 +17,22 @@ public class ServerInfoBean implements ServletContextAware {
 
   public ServerInfoBean() {}
 
+  /**
+   * Returns the version of Rosetta.
+   *
+   * @return The version, or null if the bean has not been initialized yet.
+   */
   public static String getVersion() {
-    return serverInfo.getVersion();
+    return serverInfo != null ? serverInfo.getVersion() : null;
   }
 
+  /**
+   * Returns the build date of Rosetta.
+   *
+   * @return The build date, or null if the bean has not been initialized yet.
+   */
   public static String getBuildDate() {
-    return serverInfo.getBuildDate();
+    return serverInfo != null ? serverInfo.getBuildDate() : null;
   }
 
   public void init() {
@@ -6,6 +6,9 @@
 package edu.ucar.unidata.rosetta.service.batch;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.batch.BatchProcessZip;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
 import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
@@ -18,13 +21,35 @@ import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
 public interface BatchFileManager {
 
   /**
-   * processes the uploaded data file and converts all data files within to netCDF.
+   * processes the uploaded data file and converts all data files within to netCDF. The zip file of
+   * converted files is written to the output stream as the conversions finish.
    *
    * @param batchZipFile The batchZipFile object representing the uploaded zip file to process.
+   * @param outputStream The stream to which the zip file containing all converted files is written.
+   * @throws IOException If unable to access template file or write to the output stream.
+   * @throws RosettaDataException If unable to parse data file with given delimiter.
+   */
+  public void batchProcess(BatchProcessZip batchZipFile, OutputStream outputStream)
+      throws IOException, RosettaDataException;
+
+  /**
+   * Saves the uploaded zip file to disk so that it can be processed later.
+   *
+   * @param batchZipFile The batchZipFile object representing the uploaded zip file.
+   * @return The path to the saved zip file.
+   * @throws IOException If unable to save the zip file.
+   */
+  public Path saveBatchZipFile(BatchProcessZip batchZipFile) throws IOException;
+
+  /**
+   * processes a saved zip file and converts all data files within to netCDF.
+   *
+   * @param batchZipFile The path to the zip file saved by saveBatchZipFile.
+   * @param progress Updated with the progress of the conversions.
    * @return The path to the zip file containing all converted files.
    * @throws IOException If unable to access template file.
    * @throws RosettaDataException If unable to parse data file with given delimiter.
    */
-  public String batchProcess(BatchProcessZip batchZipFile) throws IOException, RosettaDataException;
+  public String batchProcess(Path batchZipFile, ConversionProgress progress) throws IOException, RosettaDataException;
 
 }
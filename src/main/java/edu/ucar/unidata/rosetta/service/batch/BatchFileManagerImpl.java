@@ -5,34 +5,51 @@
 
 package edu.ucar.unidata.rosetta.service.batch;
 
+import edu.ucar.unidata.rosetta.converters.custom.dsg.CollectionFeature;
 import edu.ucar.unidata.rosetta.converters.custom.dsg.NetcdfFileManager;
+import edu.ucar.unidata.rosetta.converters.custom.dsg.NetcdfOutputOptions;
 import edu.ucar.unidata.rosetta.converters.known.etuff.TagUniversalFileFormat;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.domain.batch.BatchProcessZip;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
 import edu.ucar.unidata.rosetta.service.ResourceManager;
+import edu.ucar.unidata.rosetta.service.cache.ConversionCacheManager;
 import edu.ucar.unidata.rosetta.util.PathUtils;
 import edu.ucar.unidata.rosetta.util.PropertyUtils;
 import edu.ucar.unidata.rosetta.util.TemplateFactory;
-import edu.ucar.unidata.rosetta.util.TemplateUtils;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 import javax.annotation.Resource;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,117 +60,388 @@ public class BatchFileManagerImpl implements BatchFileManager {
 
   private static final Logger logger = LogManager.getLogger();
 
+  // signature at the start of HDF5 files, and so of netCDF-4 files
+  private static final byte[] HDF5_SIGNATURE = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+
+  @Resource(name = "conversionCacheManager")
+  private ConversionCacheManager conversionCacheManager;
+
   @Resource(name = "resourceManager")
   private ResourceManager resourceManager;
 
-  private static ArrayList<String> unzipAndInventory(File inputZipFile, File uncompressed_dir) {
-    // http://www.avajava.com/tutorials/lessons/how-do-i-unzip-the-contents-of-a-zip-file.html
-    // No need to reinvent the wheel. However, there isn't any license on this, or any way
-    // to really give attribution here.
-    ArrayList<String> inventory = new ArrayList<>();
-    try {
-      ZipFile zipFile = new ZipFile(inputZipFile);
-      Enumeration<?> enu = zipFile.entries();
-      while (enu.hasMoreElements()) {
-        ZipEntry zipEntry = (ZipEntry) enu.nextElement();
-        String name = zipEntry.getName();
-
-        Path filePath = Paths.get(uncompressed_dir.toString(), name);
-        File file = filePath.toFile();
-        if (name.endsWith("/")) {
-          file.mkdirs();
-          continue;
-        }
+  private ExecutorService conversionExecutor;
 
-        File parent = file.getParentFile();
-        if (parent != null) {
-          parent.mkdirs();
-        }
-
-        InputStream is = zipFile.getInputStream(zipEntry);
-        FileOutputStream fos = new FileOutputStream(file);
-        byte[] bytes = new byte[1024];
-        int length;
-        while ((length = is.read(bytes)) >= 0) {
-          fos.write(bytes, 0, length);
-        }
-        is.close();
-        fos.close();
-        inventory.add(file.getAbsolutePath());
+  /**
+   * Lists the files in an archive opened as a zip file system.
+   *
+   * @param zipFileSystem The zip file system.
+   * @return The paths of the files within the zip file system.
+   * @throws IOException If unable to read the zip file.
+   */
+  private static List<Path> inventory(FileSystem zipFileSystem) throws IOException {
+    List<Path> inventory = new ArrayList<>();
+    for (Path root : zipFileSystem.getRootDirectories()) {
+      try (Stream<Path> paths = Files.walk(root)) {
+        paths.filter(Files::isRegularFile).forEach(inventory::add);
       }
-      zipFile.close();
-    } catch (IOException e) {
-      e.printStackTrace();
     }
     return inventory;
   }
 
-  private ArrayList<String> cleanupInventory(ArrayList<String> inventory) {
+  /**
+   * Returns the path on disk to which a file in a zip file system is extracted.
+   *
+   * @param zipPath The path of the file within the zip file system.
+   * @param toDirectory The directory into which files are extracted.
+   * @return The path of the extracted file.
+   * @throws IOException If the file would be extracted outside of toDirectory.
+   */
+  private static Path getExtractedPath(Path zipPath, Path toDirectory) throws IOException {
+    Path extractedPath = toDirectory.resolve(zipPath.getRoot().relativize(zipPath).toString()).normalize();
+    if (!extractedPath.startsWith(toDirectory)) {
+      throw new IOException("Zip entry " + zipPath + " would be extracted outside of " + toDirectory);
+    }
+    return extractedPath;
+  }
+
+  /**
+   * Extracts a file from a zip file system.
+   *
+   * @param zipPath The path of the file within the zip file system.
+   * @param toDirectory The directory into which files are extracted.
+   * @return The path of the extracted file.
+   * @throws IOException If unable to extract the file.
+   */
+  private static Path extract(Path zipPath, Path toDirectory) throws IOException {
+    Path extractedPath = getExtractedPath(zipPath, toDirectory);
+    Files.createDirectories(extractedPath.getParent());
+    Files.copy(zipPath, extractedPath, StandardCopyOption.REPLACE_EXISTING);
+    return extractedPath;
+  }
+
+  private List<Path> cleanupInventory(List<Path> inventory) {
     // first pass based on typical .gitignore for OS generated files
-    Stream<String> cleanInventory = inventory.stream()
-        // .map(inventoryFile -> inventoryFile.toUpperCase())
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, ".Spotlight-V100"))
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, ".Trashes"))
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, "ehthumbs.db"))
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, "Thumbs.db"))
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, "/__MACOSX/"))
-        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile, ".DS_STORE"));
-
-    return cleanInventory.collect(java.util.stream.Collectors.toCollection(ArrayList::new));
+    Stream<Path> cleanInventory = inventory.stream()
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), ".Spotlight-V100"))
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), ".Trashes"))
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), "ehthumbs.db"))
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), "Thumbs.db"))
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), "/__MACOSX/"))
+        .filter(inventoryFile -> !StringUtils.containsIgnoreCase(inventoryFile.toString(), ".DS_STORE"));
+
+    return cleanInventory.collect(java.util.stream.Collectors.toList());
   }
 
-  private void addAllToZip(String zipFileName, String root, List<String> filesToAdd) throws IOException {
-    addAllToZip(zipFileName, root, filesToAdd.toArray(new String[0]));
+  /**
+   * Adds a converted file to the zip stream as soon as it is ready. netCDF-4 (HDF5) files are
+   * already compressed, so they are stored as is rather than deflated a second time.
+   *
+   * @param zipOut The zip stream.
+   * @param root The directory of the entry within the zip file.
+   * @param file The file to add.
+   * @throws IOException If unable to read the file or write to the zip stream.
+   */
+  private static void addToZip(ZipOutputStream zipOut, String root, Path file) throws IOException {
+    ZipEntry entry = new ZipEntry(root + "/" + file.getFileName());
+    if (isHdf5File(file)) {
+      // stored entries must declare their size and checksum before the data is written
+      CRC32 crc = new CRC32();
+      try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+        IOUtils.consume(in);
+      }
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(Files.size(file));
+      entry.setCompressedSize(entry.getSize());
+      entry.setCrc(crc.getValue());
+    }
+    zipOut.putNextEntry(entry);
+    Files.copy(file, zipOut);
+    zipOut.closeEntry();
   }
 
-  private void addAllToZip(String zipFileName, String root, String[] filesToAdd) throws IOException {
-    FileInputStream inStream;
-    byte[] buffer = new byte[1024];
-    int bytesRead;
+  /**
+   * Adds the error entry returned in place of a data file which could not be converted.
+   *
+   * @param zipOut The zip stream.
+   * @param root The directory of the entry within the zip file.
+   * @param dataFile The data file which could not be converted.
+   * @param error The reason the data file could not be converted.
+   * @throws IOException If unable to write to the zip stream.
+   */
+  private static void addErrorToZip(ZipOutputStream zipOut, String root, String dataFile, Throwable error)
+      throws IOException {
+    String dataFileName = FilenameUtils.getName(dataFile);
+    zipOut.putNextEntry(new ZipEntry(root + "/" + dataFileName + ".error.txt"));
+    zipOut.write(("Unable to convert " + dataFileName + ": " + error).getBytes(StandardCharsets.UTF_8));
+    zipOut.closeEntry();
+  }
 
-    // Create input and output streams
-    try {
+  /**
+   * Checks for the HDF5 signature used by netCDF-4 files.
+   *
+   * @param file The file to check.
+   * @return true if the file starts with the HDF5 signature.
+   * @throws IOException If unable to read the file.
+   */
+  private static boolean isHdf5File(Path file) throws IOException {
+    byte[] signature = new byte[HDF5_SIGNATURE.length];
+    try (InputStream in = Files.newInputStream(file)) {
+      int offset = 0;
+      int bytesRead;
+      while (offset < signature.length && (bytesRead = in.read(signature, offset, signature.length - offset)) > 0) {
+        offset += bytesRead;
+      }
+    }
+    return Arrays.equals(signature, HDF5_SIGNATURE);
+  }
 
-      ZipOutputStream outStream = new ZipOutputStream(new FileOutputStream(zipFileName));
+  /**
+   * Returns the pool of threads used to convert the data files of a batch. The pool is shared by all
+   * batch requests, so the total number of concurrent conversions is bounded by the
+   * rosetta.batchParallelism property.
+   *
+   * @return The executor service used for batch conversions.
+   */
+  private synchronized ExecutorService getConversionExecutor() {
+    if (conversionExecutor == null) {
+      int parallelism = PropertyUtils.getBatchParallelism();
+      logger.info("Converting up to " + parallelism + " batch files concurrently.");
+      AtomicInteger threadNumber = new AtomicInteger();
+      conversionExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+        Thread thread = new Thread(runnable, "rosetta-batch-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return conversionExecutor;
+  }
 
-      for (String inputFile : filesToAdd) {
-        inStream = new FileInputStream(inputFile);
-        String filenameInZip = FilenameUtils.getName(inputFile);
-        if (!root.equals(""))
-          filenameInZip = root + "/" + filenameInZip;
+  /**
+   * Stops the pool of threads used to convert batch files. Called when the application shuts down.
+   */
+  public synchronized void shutdown() {
+    if (conversionExecutor != null) {
+      conversionExecutor.shutdownNow();
+      conversionExecutor = null;
+    }
+  }
 
-        // Add a zip entry to the output stream
-        outStream.putNextEntry(new ZipEntry(filenameInZip));
+  /**
+   * Makes the template of a single data file of a batch: an overlay of the main template of the
+   * batch (see {@link Template#overlay()}), updated with the template and metadata files specific
+   * to the data file, if any.
+   *
+   * @param extractedPath The path to which the data file would be extracted. Its template and
+   *        metadata files are looked for next to it.
+   * @param baseTemplate The main template of the batch (not modified).
+   * @return The template of the data file.
+   * @throws IOException If unable to read the template files.
+   */
+  private Template makeFileTemplate(Path extractedPath, Template baseTemplate) throws IOException {
+    // layer the template of the data file on the base template, sharing the unchanged variables
+    Template template = baseTemplate.overlay();
+
+    // look for a template file specific to the data file
+    Path potentialTemplateFile = PathUtils.replaceExtension(extractedPath, ".template");
+    if (Files.exists(potentialTemplateFile)) {
+      Template fileTemplate = TemplateFactory.makeTemplateFromJsonFile(potentialTemplateFile);
+      template.update(fileTemplate);
+    }
 
-        while ((bytesRead = inStream.read(buffer)) > 0) {
-          outStream.write(buffer, 0, bytesRead);
-        }
+    // look for a metadata file specific to the data file
+    Path potentialMetadataFile = PathUtils.replaceExtension(extractedPath, ".metadata");
+    if (Files.exists(potentialMetadataFile)) {
+      Template fileTemplate = TemplateFactory.makeTemplateFromMetadataFile(potentialMetadataFile);
+      template.update(fileTemplate);
+    }
+    return template;
+  }
 
-        // Close zip entry and file streams
-        outStream.closeEntry();
-        inStream.close();
+  /**
+   * Finds the converter of a CF type.
+   *
+   * @param cfType The CF type of the main template of the batch.
+   * @return The converter.
+   * @throws RosettaDataException If no converter handles the CF type.
+   */
+  private static NetcdfFileManager findConverter(String cfType) throws RosettaDataException {
+    for (NetcdfFileManager potentialDsgWriter : NetcdfFileManager.getConverters()) {
+      if (potentialDsgWriter.isMine(cfType)) {
+        return potentialDsgWriter;
       }
-      outStream.close();
+    }
+    throw new RosettaDataException("No converter found for cfType " + cfType);
+  }
+
+  /**
+   * Gets the delimiter symbol of a template.
+   *
+   * @param template The template.
+   * @return The delimiter symbol.
+   */
+  private String getDelimiter(Template template) {
+    String delimiter;
+    try {
+      delimiter = resourceManager.getDelimiterSymbol(template.getDelimiter());
+
+
+      //// Try using the delimiter (standard) passed from the db.
+      // if (delimiterMap.containsKey(template.getDelimiter())) {
+      // delimiter = delimiterMap.get(template.getDelimiter());
+      // } else {
+      // delimiter = template.getDelimiter();
+      // }
+    } catch (DataRetrievalFailureException e) {
+      // Delimiter is not standard. Try parsing using the delimiter provided by the user.
+      delimiter = template.getDelimiter();
+    }
+    return delimiter;
+  }
+
+  /**
+   * Converts a single data file of a batch using a custom template. The data file is read in place
+   * from the zip file; only its side files (template and metadata) have been extracted. A data file
+   * already converted with the same template is reused from the conversion cache.
+   *
+   * @param dataFile The data file to convert, within the zip file system.
+   * @param extractedPath The path to which the data file would be extracted. Its template and
+   *        metadata files are looked for next to it, and the netCDF file is written next to it.
+   * @param baseTemplate The main template of the batch (not modified).
+   * @param progress Updated with the progress of the conversion.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to access the data or template files.
+   * @throws RosettaDataException If unable to parse data file with given delimiter.
+   */
+  private String convertCustomFile(Path dataFile, Path extractedPath, Template baseTemplate,
+      ConversionProgress progress) throws IOException, RosettaDataException {
+    Template template = makeFileTemplate(extractedPath, baseTemplate);
+
+    // now find the proper converter
+    NetcdfFileManager dsgWriter = findConverter(baseTemplate.getCfType());
+
+    // Get the delimiter symbol.
+    String delimiter = getDelimiter(template);
 
-    } catch (FileNotFoundException e) {
-      e.printStackTrace();
+    Files.createDirectories(extractedPath.getParent());
+    Path netcdfFile = PathUtils.replaceExtension(extractedPath, ".nc");
+    return conversionCacheManager.convert(dataFile, template, netcdfFile, () -> dsgWriter.createNetcdfFile(dataFile,
+        netcdfFile, template, delimiter, NetcdfFileManager.DEFAULT_CHUNK_SIZE, progress));
+  }
+
+  /**
+   * Converts all of the data files of a batch into a single DSG collection file using a custom
+   * template, with one feature (e.g. station) per data file, named after the data file. The data
+   * files are read in place from the zip file.
+   *
+   * @param dataFiles The data files to convert, within the zip file system.
+   * @param toDirectory The directory to which the side files (template and metadata) of the data
+   *        files have been extracted.
+   * @param baseTemplate The main template of the batch (not modified).
+   * @param netcdfFile The location of the collection file.
+   * @param progress Updated with the progress of the conversion.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to access the data or template files.
+   * @throws RosettaDataException If unable to parse the data files, or if the CF type of the
+   *         template does not support collections.
+   */
+  private String convertCustomCollection(List<Path> dataFiles, Path toDirectory, Template baseTemplate,
+      Path netcdfFile, ConversionProgress progress) throws IOException, RosettaDataException {
+    NetcdfFileManager dsgWriter = findConverter(baseTemplate.getCfType());
+
+    List<CollectionFeature> features = new ArrayList<>();
+    for (Path dataFile : dataFiles) {
+      Path extractedPath = getExtractedPath(dataFile, toDirectory);
+      String featureId = FilenameUtils.getBaseName(dataFile.getFileName().toString());
+      features.add(new CollectionFeature(featureId, dataFile, makeFileTemplate(extractedPath, baseTemplate)));
+    }
+
+    Files.createDirectories(netcdfFile.getParent());
+    return dsgWriter.createNetcdfCollection(features, netcdfFile, getDelimiter(baseTemplate),
+        NetcdfFileManager.DEFAULT_CHUNK_SIZE, progress, NetcdfOutputOptions.fromTemplate(baseTemplate));
+  }
+
+  /**
+   * Appends all of the data files of a batch, in the order of their names, to a single netCDF file
+   * using a custom template (e.g. the consecutive data files of a station). The first data file
+   * creates the netCDF file as an appendable file, recording the fingerprint of its template; the
+   * rows of each following data file are appended to it if it was converted with the same template.
+   * The data files are read in place from the zip file. The netCDF file is written in place, so the
+   * conversion cache is not used.
+   *
+   * @param dataFiles The data files to convert, within the zip file system.
+   * @param toDirectory The directory to which the side files (template and metadata) of the data
+   *        files have been extracted.
+   * @param baseTemplate The main template of the batch (not modified).
+   * @param netcdfFile The location of the netCDF file.
+   * @param progress Updated with the progress of the conversion.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to access the data or template files.
+   * @throws RosettaDataException If unable to parse the data files, or if a data file has a
+   *         template of its own, different from the one the netCDF file was created with.
+   */
+  private String appendCustomFiles(List<Path> dataFiles, Path toDirectory, Template baseTemplate, Path netcdfFile,
+      ConversionProgress progress) throws IOException, RosettaDataException {
+    NetcdfFileManager dsgWriter = findConverter(baseTemplate.getCfType());
+
+    List<Path> sortedDataFiles = new ArrayList<>(dataFiles);
+    sortedDataFiles.sort(Comparator.comparing(Path::toString));
+
+    Files.createDirectories(netcdfFile.getParent());
+    // a netCDF file left by an earlier run of the same batch is not appended to twice
+    Files.deleteIfExists(netcdfFile);
+    for (Path dataFile : sortedDataFiles) {
+      Template template = makeFileTemplate(getExtractedPath(dataFile, toDirectory), baseTemplate);
+      dsgWriter.appendToNetcdfFile(dataFile, netcdfFile, template, getDelimiter(template),
+          NetcdfFileManager.DEFAULT_CHUNK_SIZE, progress);
     }
+    return netcdfFile.toString();
   }
 
   /**
-   * processes the uploaded data file and converts all data files within to netCDF.
+   * Converts a single eTUFF data file of a batch.
+   *
+   * @param inventoryFile The eTUFF file to convert.
+   * @param filePath The directory holding the files of the batch.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to write the netCDF file.
+   * @throws InvalidRangeException If unable to write the data to the netCDF file.
+   */
+  private String convertTuffFile(String inventoryFile, String filePath) throws IOException, InvalidRangeException {
+    TagUniversalFileFormat tuff = new TagUniversalFileFormat();
+    tuff.parse(inventoryFile);
+    String fullFileNameExt = FilenameUtils.getExtension(inventoryFile);
+    String ncfile = inventoryFile.replace(fullFileNameExt, "nc");
+    ncfile = FilenameUtils.concat(filePath, ncfile);
+    return tuff.convert(ncfile);
+  }
+
+  /**
+   * processes the uploaded data file and converts all data files within to netCDF. The zip file of
+   * converted files is written to the output stream as the conversions finish.
    *
    * @param batchZipFile The batchZipFile object representing the uploaded zip file to process.
-   * @return The path to the zip file containing all converted files.
-   * @throws IOException If unable to access template file.
+   * @param outputStream The stream to which the zip file containing all converted files is written.
+   * @throws IOException If unable to access template file or write to the output stream.
    * @throws RosettaDataException If unable to parse data file with given delimiter.
    */
-  public String batchProcess(BatchProcessZip batchZipFile) throws IOException, RosettaDataException {
+  public void batchProcess(BatchProcessZip batchZipFile, OutputStream outputStream)
+      throws IOException, RosettaDataException {
+    batchProcess(saveBatchZipFile(batchZipFile), new ConversionProgress(), outputStream);
+  }
+
+  /**
+   * Saves the uploaded zip file to disk, in a directory of the user files directory named after the
+   * unique id of the upload.
+   *
+   * @param batchZipFile The batchZipFile object representing the uploaded zip file.
+   * @return The path to the saved zip file.
+   * @throws IOException If unable to save the zip file.
+   */
+  public Path saveBatchZipFile(BatchProcessZip batchZipFile) throws IOException {
     String uniqueId = batchZipFile.getId();
     String userFilesDir = PropertyUtils.getUserFilesDir();
 
     String filePath = FilenameUtils.concat(userFilesDir, uniqueId);
-    List<String> convertedFiles = new ArrayList<>();
 
     // make directory in which the uploaded zip file will be saved
     File localFileDir = new File(filePath);
@@ -162,120 +450,140 @@ public class BatchFileManagerImpl implements BatchFileManager {
     }
 
     // actually save the uploaded zip file to disk
+    // the multipart temp file is moved into place (or written, if it was kept in memory), so the
+    // upload is never read into a byte array.
     File uploadedFile = new File(FilenameUtils.concat(filePath, batchZipFile.getBatchZipName()));
-    try (FileOutputStream outputStream = new FileOutputStream(uploadedFile)) {
-      outputStream.write(batchZipFile.getBatchZipFile().getFileItem().get());
-      outputStream.flush();
-    }
-
-    // extract zip file to a special __extracted__ directory
-    String extractToDir = FilenameUtils.concat(filePath, "__extracted__");
-    File toDirectory = new File(extractToDir);
-    if (!localFileDir.exists()) {
-      localFileDir.mkdirs();
-    }
+    batchZipFile.getBatchZipFile().transferTo(uploadedFile);
+    return uploadedFile.toPath();
+  }
 
-    ArrayList<String> inventory = new ArrayList<>();
-    if (uploadedFile.getName().endsWith(".zip")) {
-      inventory = unzipAndInventory(uploadedFile, toDirectory);
+  /**
+   * processes a zip file saved by {@link #saveBatchZipFile(BatchProcessZip)} and converts all data
+   * files within to netCDF.
+   *
+   * @param batchZipFile The path to the saved zip file.
+   * @param progress Updated with the progress of the conversions.
+   * @return The path to the zip file containing all converted files.
+   * @throws IOException If unable to access template file.
+   * @throws RosettaDataException If unable to parse data file with given delimiter.
+   */
+  public String batchProcess(Path batchZipFile, ConversionProgress progress) throws IOException, RosettaDataException {
+    Path zipFile = batchZipFile.resolveSibling("converted_files.zip");
+    try (OutputStream outputStream = Files.newOutputStream(zipFile)) {
+      batchProcess(batchZipFile, progress, outputStream);
     }
+    return zipFile.toString();
+  }
 
-    // clean up inventory - some auto-generated OS files can really play havoc
-    // if they are not accounted for. For example: "__MACOSX/"
-
-    inventory = cleanupInventory(inventory);
-
-    String mainTemplateFile = "";
-    for (String inventoryFile : inventory) {
-      if (inventoryFile.endsWith(File.separator + "rosetta.template")) {
-        mainTemplateFile = inventoryFile;
-      }
+  /**
+   * processes a saved zip file, converts all data files within to netCDF, and writes a zip file of
+   * the converted files to the output stream. Each converted file is added to the zip file as soon
+   * as its conversion finishes, so the zip file is streamed while later files are still converting.
+   *
+   * @param batchZipFile The path to the saved zip file.
+   * @param progress Updated with the progress of the conversions.
+   * @param outputStream The stream to which the zip file containing all converted files is written.
+   * @throws IOException If unable to access template file or write to the output stream.
+   * @throws RosettaDataException If unable to parse data file with given delimiter.
+   */
+  private void batchProcess(Path batchZipFile, ConversionProgress progress, OutputStream outputStream)
+      throws IOException, RosettaDataException {
+    String filePath = batchZipFile.getParent().toString();
+    if (!batchZipFile.getFileName().toString().endsWith(".zip")) {
+      throw new IOException("Batch file " + batchZipFile.getFileName() + " is not a zip file");
     }
 
-    // load maimn template
-    Template baseTemplate = TemplateFactory.makeTemplateFromJsonFile(Paths.get(mainTemplateFile));
-    String format = baseTemplate.getFormat();
-
-    // todo log errors and return that in the zip file, if errors occur
-
-    // process data files based on convertTo type
-    if (format.equalsIgnoreCase("custom")) {
-      for (String file : inventory) {
-        if (!file.endsWith("template") && !file.endsWith("metadata")) {
-          // found a data file.
-          Path dataFile = Paths.get(file);
-
-          // make a copy of the base template so that we can make modifications
-          Template template = TemplateUtils.copy(baseTemplate);
-
-          // look for a template file specific to the data file
-          Path potentialTemplateFile = PathUtils.replaceExtension(dataFile, ".template");
-          if (Files.exists(potentialTemplateFile)) {
-            Template fileTemplate = TemplateFactory.makeTemplateFromJsonFile(potentialTemplateFile);
-            template.update(fileTemplate);
-          }
-
-          // look for a metadata file specific to the data file
-          Path potentialMetadataFile = PathUtils.replaceExtension(dataFile, ".metadata");
-          if (Files.exists(potentialMetadataFile)) {
-            Template fileTemplate = TemplateFactory.makeTemplateFromMetadataFile(potentialMetadataFile);
-            template.update(fileTemplate);
+    // data files are read in place from the zip file. Only the files which are needed on disk (the
+    // template and metadata files, and eTUFF data files) are extracted to a special __extracted__
+    // directory, which is also where the converted files are written.
+    Path toDirectory = Paths.get(filePath, "__extracted__");
+    try (FileSystem zipFileSystem = FileSystems.newFileSystem(batchZipFile, (ClassLoader) null)) {
+
+      // clean up inventory - some auto-generated OS files can really play havoc
+      // if they are not accounted for. For example: "__MACOSX/"
+      List<Path> inventory = cleanupInventory(inventory(zipFileSystem));
+
+      Path mainTemplateFile = null;
+      List<Path> dataFiles = new ArrayList<>();
+      for (Path inventoryFile : inventory) {
+        String fileName = inventoryFile.getFileName().toString();
+        if (fileName.endsWith("template") || fileName.endsWith("metadata")) {
+          Path extractedFile = extract(inventoryFile, toDirectory);
+          if (fileName.equals("rosetta.template")) {
+            mainTemplateFile = extractedFile;
           }
+        } else {
+          dataFiles.add(inventoryFile);
+        }
+      }
+      if (mainTemplateFile == null) {
+        throw new IOException("No rosetta.template found in " + batchZipFile.getFileName());
+      }
 
-          // now find the proper converter
-          NetcdfFileManager dsgWriter = null;
-          for (NetcdfFileManager potentialDsgWriter : NetcdfFileManager.getConverters()) {
-            if (potentialDsgWriter.isMine(baseTemplate.getCfType())) {
-              dsgWriter = potentialDsgWriter;
-              break;
+      // load main template
+      Template baseTemplate = TemplateFactory.makeTemplateFromJsonFile(mainTemplateFile);
+      String format = baseTemplate.getFormat();
+
+      // process data files based on convertTo type. The data files are independent of each other,
+      // so they are converted concurrently by the pool of conversion threads.
+      CompletionService<String> completionService = new ExecutorCompletionService<>(getConversionExecutor());
+      Map<Future<String>, String> conversions = new HashMap<>();
+      try {
+        boolean collection = format.equalsIgnoreCase("custom") && Boolean.TRUE.equals(baseTemplate.getCollection());
+        boolean append = format.equalsIgnoreCase("custom") && Boolean.TRUE.equals(baseTemplate.getAppend());
+        String batchName = batchZipFile.getFileName().toString();
+        Path batchNetcdfFile = PathUtils.replaceExtension(toDirectory.resolve(batchName), ".nc");
+        if (collection) {
+          // all of the data files are merged into a single collection file, named after the batch
+          conversions.put(completionService
+              .submit(() -> convertCustomCollection(dataFiles, toDirectory, baseTemplate, batchNetcdfFile, progress)),
+              batchName);
+        } else if (append) {
+          // all of the data files are appended to a single file, named after the batch
+          conversions.put(
+              completionService
+                  .submit(() -> appendCustomFiles(dataFiles, toDirectory, baseTemplate, batchNetcdfFile, progress)),
+              batchName);
+        } else {
+          for (Path dataFile : dataFiles) {
+            if (format.equalsIgnoreCase("custom")) {
+              Path extractedPath = getExtractedPath(dataFile, toDirectory);
+              conversions.put(
+                  completionService.submit(() -> convertCustomFile(dataFile, extractedPath, baseTemplate, progress)),
+                  dataFile.toString());
+            } else if (format.equalsIgnoreCase("eTuff")) {
+              // the eTUFF parser reads from a file on disk
+              String extractedFile = extract(dataFile, toDirectory).toString();
+              conversions.put(completionService.submit(() -> convertTuffFile(extractedFile, filePath)), extractedFile);
             }
           }
+        }
 
-          // Get the delimiter symbol.
-          String delimiter;
-          try {
-            delimiter = resourceManager.getDelimiterSymbol(template.getDelimiter());
-
-
-            //// Try using the delimiter (standard) passed from the db.
-            // if (delimiterMap.containsKey(template.getDelimiter())) {
-            // delimiter = delimiterMap.get(template.getDelimiter());
-            // } else {
-            // delimiter = template.getDelimiter();
-            // }
-          } catch (DataRetrievalFailureException e) {
-            // Delimiter is not standard. Try parsing using the delimiter provided by the user.
-            delimiter = template.getDelimiter();
+        // add the converted files to the zip stream in the order in which they finish. A data file
+        // that fails to convert does not stop the batch; an error entry is added in its place.
+        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
+          for (int i = 0; i < conversions.size(); i++) {
+            Future<String> conversion = completionService.take();
+            try {
+              addToZip(zipOut, "converted_files", Paths.get(conversion.get()));
+            } catch (ExecutionException e) {
+              String dataFile = conversions.get(conversion);
+              logger.error("Unable to convert " + dataFile, e.getCause());
+              addErrorToZip(zipOut, "converted_files", dataFile, e.getCause());
+            }
+            zipOut.flush();
           }
-
-          String netcdfFile = dsgWriter.createNetcdfFile(dataFile, template, delimiter);
-          convertedFiles.add(netcdfFile);
         }
-      }
-    } else if (format.equalsIgnoreCase("eTuff")) {
-      for (String inventoryFile : inventory) {
-        if (!inventoryFile.endsWith("template") && !inventoryFile.endsWith("metadata")) {
-          TagUniversalFileFormat tuff = new TagUniversalFileFormat();
-          tuff.parse(inventoryFile);
-          String fullFileNameExt = FilenameUtils.getExtension(inventoryFile);
-          String ncfile = inventoryFile.replace(fullFileNameExt, "nc");
-          ncfile = FilenameUtils.concat(filePath, ncfile);
-          try {
-            String convertedFile = tuff.convert(ncfile);
-            convertedFiles.add(convertedFile);
-          } catch (InvalidRangeException e) {
-            e.printStackTrace();
-          }
-
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while converting batch files", e);
+      } finally {
+        // stop any conversions left running (e.g. if the client has gone away) before the zip file
+        // they read from is closed
+        for (Future<String> conversion : conversions.keySet()) {
+          conversion.cancel(true);
         }
       }
     }
-
-    // return zip file containing one or more converted files in body of the response
-    String zipFileName = FilenameUtils.concat(filePath, "converted_files.zip");
-    addAllToZip(zipFileName, "converted_files", convertedFiles);
-
-
-    return zipFileName;
   }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.cache;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Service for reusing the netCDF files converted from the same data file with the same template.
+ * Converted files are cached under a key computed from the content of the data file, the content
+ * of the template and the version of the converters, so a file uploaded again (e.g. in another
+ * batch) is not converted again.
+ */
+public interface ConversionCacheManager {
+
+  /**
+   * A conversion of a data file into a netCDF file.
+   */
+  @FunctionalInterface
+  interface Conversion {
+
+    /**
+     * Run the conversion.
+     *
+     * @return The path to the converted netCDF file.
+     * @throws IOException If unable to read the data file or write the netCDF file.
+     * @throws RosettaDataException If unable to parse the data file.
+     */
+    String convert() throws IOException, RosettaDataException;
+  }
+
+  /**
+   * Converts a data file, or reuses the file converted from the same data file with the same
+   * template if it is in the cache. The key of the cache is computed before the conversion runs,
+   * as the template is modified by the conversion.
+   *
+   * @param dataFile The data file to convert.
+   * @param template The template used to convert the data file.
+   * @param netcdfFile The location of the converted netCDF file.
+   * @param conversion The conversion of the data file to netcdfFile, run if the file is not cached.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to read the data file or write the netCDF file.
+   * @throws RosettaDataException If unable to parse the data file.
+   */
+  public String convert(Path dataFile, Template template, Path netcdfFile, Conversion conversion)
+      throws IOException, RosettaDataException;
+
+  /**
+   * Returns the number of conversions for which a cached file was reused.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHits();
+
+  /**
+   * Returns the number of conversions which had to run, because no file was cached for them.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMisses();
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.cache;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import edu.ucar.unidata.rosetta.service.ServerInfoBean;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import edu.ucar.unidata.rosetta.util.TemplateUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implements conversion cache manager functionality.
+ *
+ * Cached files are kept in the conversionCache directory of ROSETTA_HOME, named after their key
+ * (the SHA-256 digest of the data file, the template and the version of the converters, see
+ * {@link #CONVERTER_VERSION}). Cached files are copied to and from the converted files rather than
+ * hard linked to them, so that a converted file written in place later on (e.g. appended to)
+ * cannot change the cached file. The size of the cache is bounded by the
+ * rosetta.conversionCacheSize property: the least recently used files are evicted when it is
+ * exceeded.
+ *
+ * Errors of the cache are logged and never fail a conversion; the data file is converted instead.
+ */
+public class ConversionCacheManagerImpl implements ConversionCacheManager {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  /**
+   * The version of the output of the converters, part of the cache keys. Bump it whenever a change
+   * of the converters changes the netCDF files they write, so that files converted before are not
+   * reused. The version and build date of Rosetta are part of the keys as well, but neither
+   * changes between development builds.
+   */
+  static final int CONVERTER_VERSION = 1;
+
+  static final String CACHE_DIR_NAME = "conversionCache";
+  private static final String CACHED_FILE_EXT = ".nc";
+  private static final String TEMP_FILE_EXT = ".tmp";
+
+  private Path cacheDir;
+  private long maxBytes;
+  private String converterVersion;
+  private volatile boolean initialized = false;
+
+  // sizes of the cached files, keyed by cache key, in least recently used order
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Create a cache configured from the application properties when it is first used.
+   */
+  public ConversionCacheManagerImpl() {}
+
+  /**
+   * Create a cache in a given directory.
+   *
+   * @param cacheDir The directory of the cached files, created if needed.
+   * @param maxBytes The maximum size of the cached files, in bytes (0 disables the cache).
+   * @param converterVersion The version of the converters, part of the cache keys along with
+   *        {@link #CONVERTER_VERSION}.
+   */
+  public ConversionCacheManagerImpl(Path cacheDir, long maxBytes, String converterVersion) {
+    this.cacheDir = cacheDir;
+    this.maxBytes = maxBytes;
+    this.converterVersion = converterVersion;
+  }
+
+  /**
+   * Converts a data file, or reuses the file converted from the same data file with the same
+   * template if it is in the cache. The key of the cache is computed before the conversion runs,
+   * as the template is modified by the conversion.
+   *
+   * @param dataFile The data file to convert.
+   * @param template The template used to convert the data file.
+   * @param netcdfFile The location of the converted netCDF file.
+   * @param conversion The conversion of the data file to netcdfFile, run if the file is not cached.
+   * @return The path to the converted netCDF file.
+   * @throws IOException If unable to read the data file or write the netCDF file.
+   * @throws RosettaDataException If unable to parse the data file.
+   */
+  @Override
+  public String convert(Path dataFile, Template template, Path netcdfFile, Conversion conversion)
+      throws IOException, RosettaDataException {
+    if (!isEnabled()) {
+      return conversion.convert();
+    }
+    String key = computeKey(dataFile, template);
+    Path cachedFile = cacheDir.resolve(key + CACHED_FILE_EXT);
+    if (lookup(key)) {
+      try {
+        Files.copy(cachedFile, netcdfFile, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(cachedFile, FileTime.fromMillis(System.currentTimeMillis()));
+        hits.incrementAndGet();
+        logger.info("Reusing cached conversion of " + dataFile + " (" + key + ")");
+        return netcdfFile.toString();
+      } catch (IOException e) {
+        // e.g. evicted since it was looked up
+        logger.warn("Unable to reuse cached conversion of " + dataFile + ", converting it.", e);
+        remove(key);
+      }
+    }
+
+    misses.incrementAndGet();
+    String convertedFile = conversion.convert();
+    store(key, Paths.get(convertedFile));
+    return convertedFile;
+  }
+
+  /**
+   * Returns the number of conversions for which a cached file was reused.
+   *
+   * @return The number of cache hits.
+   */
+  @Override
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of conversions which had to run, because no file was cached for them.
+   *
+   * @return The number of cache misses.
+   */
+  @Override
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Check if the cache is enabled, setting it up the first time.
+   *
+   * @return true if converted files are cached.
+   */
+  private boolean isEnabled() {
+    if (!initialized) {
+      init();
+    }
+    return maxBytes > 0;
+  }
+
+  /**
+   * Set up the cache: read its configuration if needed, and index the files cached by earlier runs
+   * of the application, from the least to the most recently used.
+   */
+  private synchronized void init() {
+    if (initialized) {
+      return;
+    }
+    if (cacheDir == null) {
+      cacheDir = Paths.get(PropertyUtils.getRosettaHome(), CACHE_DIR_NAME);
+      maxBytes = PropertyUtils.getConversionCacheSize();
+      // both are null if the server info has not been read yet
+      converterVersion = ServerInfoBean.getVersion() + " built on " + ServerInfoBean.getBuildDate();
+    }
+    if (maxBytes > 0) {
+      try {
+        Files.createDirectories(cacheDir);
+        List<Path> cachedFiles;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+          cachedFiles = files.collect(Collectors.toList());
+        }
+        List<Path> validFiles = new ArrayList<>();
+        for (Path file : cachedFiles) {
+          if (file.getFileName().toString().endsWith(CACHED_FILE_EXT)) {
+            validFiles.add(file);
+          } else if (file.getFileName().toString().endsWith(TEMP_FILE_EXT)) {
+            // left over by a conversion interrupted while its file was being cached
+            Files.deleteIfExists(file);
+          }
+        }
+        validFiles.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+        for (Path file : validFiles) {
+          String name = file.getFileName().toString();
+          register(name.substring(0, name.length() - CACHED_FILE_EXT.length()), Files.size(file));
+        }
+        logger.info("Conversion cache " + cacheDir + " holds " + entries.size() + " files (" + totalBytes + " bytes)");
+      } catch (IOException e) {
+        logger.error("Unable to set up the conversion cache " + cacheDir + ", disabling it.", e);
+        maxBytes = 0;
+      }
+    }
+    initialized = true;
+  }
+
+  /**
+   * Compute the cache key of the conversion of a data file with a template.
+   *
+   * @param dataFile The data file.
+   * @param template The template.
+   * @return The key, as a hex string.
+   * @throws IOException If unable to read the data file.
+   */
+  private String computeKey(Path dataFile, Template template) throws IOException {
+    MessageDigest digest = DigestUtils.getSha256Digest();
+    try (InputStream in = Files.newInputStream(dataFile)) {
+      DigestUtils.updateDigest(digest, in);
+    }
+    DigestUtils.updateDigest(digest, TemplateUtils.fingerprint(template));
+    DigestUtils.updateDigest(digest, CONVERTER_VERSION + "/" + converterVersion);
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * Add a converted file to the cache. The file is moved in place once complete, so a partially
+   * cached file is never reused.
+   *
+   * @param key The cache key of the conversion.
+   * @param netcdfFile The converted file.
+   */
+  private void store(String key, Path netcdfFile) {
+    Path tempFile = null;
+    try {
+      tempFile = Files.createTempFile(cacheDir, key, TEMP_FILE_EXT);
+      Files.copy(netcdfFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      long size = Files.size(tempFile);
+      Files.move(tempFile, cacheDir.resolve(key + CACHED_FILE_EXT), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      synchronized (this) {
+        register(key, size);
+        evict();
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to cache the conversion to " + netcdfFile, e);
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException ex) {
+          logger.warn("Unable to delete " + tempFile, ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Look up a cache key, marking it as the most recently used.
+   *
+   * @param key The cache key.
+   * @return true if a file is cached for the key.
+   */
+  private synchronized boolean lookup(String key) {
+    return entries.get(key) != null;
+  }
+
+  /**
+   * Record a cached file.
+   *
+   * @param key The cache key of the file.
+   * @param size The size of the file.
+   */
+  private synchronized void register(String key, long size) {
+    Long previousSize = entries.put(key, size);
+    totalBytes += size - (previousSize != null ? previousSize : 0);
+  }
+
+  /**
+   * Remove a cached file which can no longer be used.
+   *
+   * @param key The cache key of the file.
+   */
+  private synchronized void remove(String key) {
+    Long size = entries.remove(key);
+    if (size != null) {
+      totalBytes -= size;
+    }
+  }
+
+  /**
+   * Delete the least recently used files until the size of the cache is within its bound.
+   */
+  private synchronized void evict() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      Path cachedFile = cacheDir.resolve(eldest.getKey() + CACHED_FILE_EXT);
+      try {
+        Files.deleteIfExists(cachedFile);
+      } catch (IOException e) {
+        logger.warn("Unable to evict " + cachedFile, e);
+      }
+      totalBytes -= eldest.getValue();
+      iterator.remove();
+    }
+  }
+}
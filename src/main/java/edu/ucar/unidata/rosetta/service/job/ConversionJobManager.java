@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.job;
+
+import edu.ucar.unidata.rosetta.domain.batch.BatchProcessZip;
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import java.io.IOException;
+import org.springframework.dao.DataRetrievalFailureException;
+
+/**
+ * Service for running conversions in the background. A submitted conversion returns immediately
+ * with a job whose status and progress can be polled until the converted file is ready.
+ */
+public interface ConversionJobManager {
+
+  /**
+   * Submits the conversion of the data collected by the wizard. If a conversion of the same wizard
+   * data is already queued or running, that job is returned instead of submitting a new one.
+   *
+   * @param id The unique ID corresponding to the wizard data.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  public ConversionJob submitWizardConversion(String id) throws DataRetrievalFailureException;
+
+  /**
+   * Saves an uploaded zip file to disk and submits the conversion of the data files within.
+   *
+   * @param batchZipFile The batchZipFile object representing the uploaded zip file to process.
+   * @return The conversion job.
+   * @throws IOException If unable to save the uploaded zip file.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  public ConversionJob submitBatchConversion(BatchProcessZip batchZipFile)
+      throws IOException, DataRetrievalFailureException;
+
+  /**
+   * Looks up a conversion job, including the progress of the conversion if it is running.
+   *
+   * @param id The ID of the conversion job.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to find a conversion job corresponding to ID.
+   */
+  public ConversionJob lookupConversionJob(String id) throws DataRetrievalFailureException;
+}
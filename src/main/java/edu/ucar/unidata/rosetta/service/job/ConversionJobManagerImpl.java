@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.job;
+
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
+import edu.ucar.unidata.rosetta.domain.batch.BatchProcessZip;
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import edu.ucar.unidata.rosetta.repository.job.ConversionJobDao;
+import edu.ucar.unidata.rosetta.service.batch.BatchFileManager;
+import edu.ucar.unidata.rosetta.service.wizard.WizardManager;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Resource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataRetrievalFailureException;
+
+/**
+ * Implements conversion job manager functionality.
+ *
+ * Jobs are persisted before they are queued, and their status is persisted as they run, so jobs
+ * left unfinished when the application stops are run again the next time the pool of job threads
+ * is started.
+ */
+public class ConversionJobManagerImpl implements ConversionJobManager {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  private ConversionJobDao conversionJobDao;
+
+  @Resource(name = "batchFileManager")
+  private BatchFileManager batchFileManager;
+
+  @Resource(name = "wizardManager")
+  private WizardManager wizardManager;
+
+  private ExecutorService jobExecutor;
+  private volatile boolean shuttingDown = false;
+
+  // progress of the jobs running in this instance, keyed by job id
+  private final Map<String, ConversionProgress> runningJobs = new ConcurrentHashMap<>();
+
+  /**
+   * Submits the conversion of the data collected by the wizard. If a conversion of the same wizard
+   * data is already queued or running, that job is returned instead of submitting a new one.
+   *
+   * @param id The unique ID corresponding to the wizard data.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  @Override
+  public ConversionJob submitWizardConversion(String id) throws DataRetrievalFailureException {
+    // start the job threads first, so that unfinished jobs are picked up before looking for one
+    getJobExecutor();
+    List<ConversionJob> conversionJobs = conversionJobDao.lookupConversionJobsBySource(id);
+    if (!conversionJobs.isEmpty() && !conversionJobs.get(0).isFinished()) {
+      return lookupConversionJob(conversionJobs.get(0).getId());
+    }
+    return submit(new ConversionJob(UUID.randomUUID().toString(), ConversionJob.JobType.WIZARD, id));
+  }
+
+  /**
+   * Saves an uploaded zip file to disk and submits the conversion of the data files within.
+   *
+   * @param batchZipFile The batchZipFile object representing the uploaded zip file to process.
+   * @return The conversion job.
+   * @throws IOException If unable to save the uploaded zip file.
+   * @throws DataRetrievalFailureException If unable to persist the conversion job.
+   */
+  @Override
+  public ConversionJob submitBatchConversion(BatchProcessZip batchZipFile)
+      throws IOException, DataRetrievalFailureException {
+    String savedZipFile = batchFileManager.saveBatchZipFile(batchZipFile).toString();
+    return submit(new ConversionJob(UUID.randomUUID().toString(), ConversionJob.JobType.BATCH, savedZipFile));
+  }
+
+  /**
+   * Looks up a conversion job, including the progress of the conversion if it is running.
+   *
+   * @param id The ID of the conversion job.
+   * @return The conversion job.
+   * @throws DataRetrievalFailureException If unable to find a conversion job corresponding to ID.
+   */
+  @Override
+  public ConversionJob lookupConversionJob(String id) throws DataRetrievalFailureException {
+    ConversionJob conversionJob = conversionJobDao.lookupConversionJobById(id);
+    ConversionProgress progress = runningJobs.get(id);
+    if (progress != null && !conversionJob.isFinished()) {
+      setProgress(conversionJob, progress);
+    }
+    return conversionJob;
+  }
+
+  /**
+   * Persists and queues a new conversion job.
+   *
+   * @param conversionJob The conversion job.
+   * @return The conversion job.
+   */
+  private ConversionJob submit(ConversionJob conversionJob) {
+    // get the executor before persisting the job, so it is not also picked up as an unfinished job
+    ExecutorService executor = getJobExecutor();
+    conversionJobDao.persistConversionJob(conversionJob);
+    executor.execute(() -> runConversionJob(conversionJob));
+    logger.info("Queued conversion job " + conversionJob.getId());
+    return conversionJob;
+  }
+
+  /**
+   * Runs a conversion job, persisting its status before and after the conversion.
+   *
+   * @param conversionJob The conversion job to run.
+   */
+  private void runConversionJob(ConversionJob conversionJob) {
+    String id = conversionJob.getId();
+    ConversionProgress progress = new ConversionProgress();
+    runningJobs.put(id, progress);
+    try {
+      conversionJob.setStatus(ConversionJob.Status.RUNNING);
+      conversionJobDao.updatePersistedConversionJob(conversionJob);
+
+      String resultFile;
+      if (conversionJob.getJobType() == ConversionJob.JobType.WIZARD) {
+        resultFile = wizardManager.convertToNetcdf(conversionJob.getSource(), progress);
+      } else {
+        resultFile = batchFileManager.batchProcess(Paths.get(conversionJob.getSource()), progress);
+      }
+
+      if (resultFile == null) {
+        conversionJob.setStatus(ConversionJob.Status.FAILED);
+        conversionJob.setMessage("No converter found for the data file.");
+      } else {
+        conversionJob.setStatus(ConversionJob.Status.COMPLETE);
+        conversionJob.setResultFile(resultFile);
+      }
+    } catch (Exception e) {
+      if (shuttingDown) {
+        // leave the job as it was persisted, so that it is run again after a restart
+        logger.info("Conversion job " + id + " interrupted by shutdown.");
+        runningJobs.remove(id);
+        return;
+      }
+      logger.error("Conversion job " + id + " failed.", e);
+      conversionJob.setStatus(ConversionJob.Status.FAILED);
+      conversionJob.setMessage(e.getMessage() != null ? e.getMessage() : e.toString());
+    }
+
+    setProgress(conversionJob, progress);
+    try {
+      conversionJobDao.updatePersistedConversionJob(conversionJob);
+    } catch (DataRetrievalFailureException e) {
+      logger.error("Unable to persist the result of conversion job " + id, e);
+    } finally {
+      runningJobs.remove(id);
+    }
+  }
+
+  /**
+   * Copies the progress of a running conversion to its job.
+   *
+   * @param conversionJob The conversion job.
+   * @param progress The progress of the conversion.
+   */
+  private void setProgress(ConversionJob conversionJob, ConversionProgress progress) {
+    conversionJob.setRowsParsed(progress.getRowsParsed());
+    conversionJob.setTotalRows(progress.getTotalRows());
+    conversionJob.setVariablesWritten(progress.getVariablesWritten());
+  }
+
+  /**
+   * Returns the pool of threads used to run conversion jobs. The number of threads is set by the
+   * rosetta.conversionJobThreads property. When the pool is started, the persisted jobs which have
+   * not finished (e.g. because the application was stopped) are queued again.
+   *
+   * @return The executor service used for conversion jobs.
+   */
+  private synchronized ExecutorService getJobExecutor() {
+    if (jobExecutor == null) {
+      int threads = PropertyUtils.getConversionJobThreads();
+      logger.info("Running up to " + threads + " conversion jobs concurrently.");
+      AtomicInteger threadNumber = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "rosetta-job-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+
+      List<ConversionJob> unfinishedJobs;
+      try {
+        unfinishedJobs = conversionJobDao.lookupUnfinishedConversionJobs();
+      } catch (DataAccessException e) {
+        // the pool is started again by the next call, so that the unfinished jobs are not skipped
+        executor.shutdown();
+        throw e;
+      }
+      for (ConversionJob conversionJob : unfinishedJobs) {
+        logger.info("Queuing unfinished conversion job " + conversionJob.getId() + " again.");
+        executor.execute(() -> runConversionJob(conversionJob));
+      }
+      jobExecutor = executor;
+    }
+    return jobExecutor;
+  }
+
+  /**
+   * Starts the pool of threads used to run conversion jobs when the application starts, so that
+   * the jobs left unfinished by a restart are run (and can be polled) without waiting for a new job
+   * to be submitted. If the database is not available yet (the first time the application runs, it
+   * is created after the services), the pool is started by the first submitted job instead.
+   */
+  public void start() {
+    try {
+      getJobExecutor();
+    } catch (DataAccessException e) {
+      logger.warn("Unable to look up unfinished conversion jobs, starting the job threads with the first job.", e);
+    }
+  }
+
+  /**
+   * Stops the pool of threads used to run conversion jobs. Called when the application shuts down;
+   * jobs which have not finished are run again after a restart.
+   */
+  public synchronized void shutdown() {
+    if (jobExecutor != null) {
+      shuttingDown = true;
+      jobExecutor.shutdownNow();
+      jobExecutor = null;
+    }
+  }
+
+  /**
+   * Sets the data access object (DAO) for the ConversionJob object.
+   *
+   * @param conversionJobDao The service DAO representing a ConversionJob object.
+   */
+  public void setConversionJobDao(ConversionJobDao conversionJobDao) {
+    this.conversionJobDao = conversionJobDao;
+  }
+}
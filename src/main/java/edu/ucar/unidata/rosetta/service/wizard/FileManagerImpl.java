@@ -5,15 +5,16 @@
 
 package edu.ucar.unidata.rosetta.service.wizard;
 
+import edu.ucar.unidata.rosetta.converters.utils.DataFileInput;
+import edu.ucar.unidata.rosetta.converters.utils.DataRecordReader;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
 import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
 import edu.ucar.unidata.rosetta.util.IoUtils;
 import edu.ucar.unidata.rosetta.util.JsonUtils;
 import edu.ucar.unidata.rosetta.util.XlsToCsvUtil;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -90,9 +91,12 @@ public class FileManagerImpl implements FileManager {
   }
 
   /**
-   * A simple method that reads each line of a file, appends a new line character & adds to a
-   * List. The list is then turned into a JSON string. This method is used to format the file
-   * data for display in the client-side wizard.
+   * A simple method that reads each record (usually a line, see {@link DataRecordReader}) of a
+   * file & adds it to a List. The list is then turned into a JSON string. This method is used to
+   * format the file data for display in the client-side wizard. The delimiter of the file has not
+   * been chosen yet, so quoted fields are not looked for and each record is a line. The header
+   * line numbers chosen in the wizard match the records read when the file is converted as long as
+   * no (comma delimited) record spanning several lines comes before the header lines.
    *
    * @param filePath The path to the file on disk.
    * @return A JSON String of the file data parsed by line.
@@ -103,13 +107,14 @@ public class FileManagerImpl implements FileManager {
     String jsonFileData;
 
     List<String> fileContents = new ArrayList<>();
-    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(filePath))) {
+    try (DataRecordReader recordReader = new DataRecordReader(
+        new InputStreamReader(DataFileInput.open(Paths.get(filePath)), StandardCharsets.UTF_8))) {
       String currentLine;
-      while ((currentLine = bufferedReader.readLine()) != null) {
+      while ((currentLine = recordReader.readRecord()) != null) {
         fileContents.add(StringEscapeUtils.escapeHtml4(currentLine));
       }
       jsonFileData = JsonUtils.mapObjectToJson(fileContents);
-    } catch (IOException e) {
+    } catch (IOException | RosettaDataException e) {
       throw new RosettaFileException("Unable to parse file by line: " + e);
     }
     return jsonFileData;
@@ -142,9 +147,11 @@ public class FileManagerImpl implements FileManager {
     logger.info("Writing uploaded file " + fileName + " to disk");
     File uploadedFile = new File(FilenameUtils.concat(filePathUploadDir, fileName));
 
-    try (FileOutputStream outputStream = new FileOutputStream(uploadedFile)) {
-      outputStream.write(file.getFileItem().get());
-    } catch (IOException e) {
+    try {
+      // moves the multipart temp file into place (or writes it, if it was kept in memory) rather
+      // than reading the whole upload into a byte array.
+      file.transferTo(uploadedFile);
+    } catch (IOException | IllegalStateException e) {
       throw new RosettaFileException("Unable write uploaded file to disk: " + e);
     }
 
@@ -19,15 +19,14 @@ import edu.ucar.unidata.rosetta.repository.wizard.GlobalMetadataDao;
 import edu.ucar.unidata.rosetta.repository.wizard.VariableDao;
 import edu.ucar.unidata.rosetta.service.ResourceManager;
 import edu.ucar.unidata.rosetta.service.ServerInfoBean;
-import edu.ucar.unidata.rosetta.util.JsonUtils;
+import edu.ucar.unidata.rosetta.util.JsonCodec;
 import edu.ucar.unidata.rosetta.util.PropertyUtils;
 import edu.ucar.unidata.rosetta.util.TransactionLogUtils;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -317,14 +316,9 @@ public class TemplateManagerImpl implements TemplateManager {
       }
     }
 
-    // Convert Template object to JSON string.
-    String jsonString = JsonUtils.mapObjectToJson(template);
-
     // Write the template file.
     String templateFilePath = FilenameUtils.concat(userFilesDirPath, "rosetta.template");
-    try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(new File(templateFilePath)))) {
-      bufferedWriter.write(jsonString);
-    }
+    JsonCodec.writeTemplate(template, Paths.get(templateFilePath));
 
     // Update the transaction log.
     TransactionLogUtils.writeToLog(id, template.toString());
@@ -5,6 +5,7 @@
 
 package edu.ucar.unidata.rosetta.service.wizard;
 
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.wizard.WizardData;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
 import edu.ucar.unidata.rosetta.exceptions.RosettaFileException;
@@ -28,6 +29,18 @@ public interface WizardManager {
    */
   String convertToNetcdf(String id) throws RosettaFileException, RosettaDataException;
 
+  /**
+   * Processes all of the provided data and creates a netCDF file, reporting the progress of the
+   * conversion as it goes.
+   *
+   * @param id The unique ID corresponding to this transaction.
+   * @param progress Updated with the progress of the conversion.
+   * @return The location of the created netCDF file.
+   * @throws RosettaFileException If unable to create the template file.
+   * @throws RosettaDataException If unable to parse data file with delimiter.
+   */
+  String convertToNetcdf(String id, ConversionProgress progress) throws RosettaFileException, RosettaDataException;
+
   /**
    * Determines whether the custom file attributes step needs to be visited in the wizard.
    *
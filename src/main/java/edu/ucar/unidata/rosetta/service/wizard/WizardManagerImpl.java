@@ -7,6 +7,7 @@ package edu.ucar.unidata.rosetta.service.wizard;
 
 import edu.ucar.unidata.rosetta.converters.custom.dsg.NetcdfFileManager;
 import edu.ucar.unidata.rosetta.converters.known.etuff.TagUniversalFileFormat;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.GlobalMetadata;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.domain.Variable;
@@ -23,6 +24,8 @@ import edu.ucar.unidata.rosetta.repository.wizard.UploadedFileDao;
 import edu.ucar.unidata.rosetta.repository.wizard.VariableDao;
 import edu.ucar.unidata.rosetta.repository.wizard.WizardDataDao;
 import edu.ucar.unidata.rosetta.service.ResourceManager;
+import edu.ucar.unidata.rosetta.service.cache.ConversionCacheManager;
+import edu.ucar.unidata.rosetta.util.PathUtils;
 import edu.ucar.unidata.rosetta.util.JsonUtils;
 import edu.ucar.unidata.rosetta.util.PropertyUtils;
 import edu.ucar.unidata.rosetta.util.TemplateFactory;
@@ -31,6 +34,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -58,6 +62,9 @@ public class WizardManagerImpl implements WizardManager {
   private VariableDao variableDao;
   private WizardDataDao wizardDataDao;
 
+  @Resource(name = "conversionCacheManager")
+  private ConversionCacheManager conversionCacheManager;
+
   @Resource(name = "fileManager")
   private FileManager fileManager;
 
@@ -97,6 +104,21 @@ public class WizardManagerImpl implements WizardManager {
    * @throws RosettaDataException If unable to parse data file with delimiter.
    */
   public String convertToNetcdf(String id) throws RosettaFileException, RosettaDataException {
+    return convertToNetcdf(id, new ConversionProgress());
+  }
+
+  /**
+   * Processes all of the provided data and creates a netCDF file, reporting the progress of the
+   * conversion as it goes.
+   *
+   * @param id The unique ID corresponding to this transaction.
+   * @param progress Updated with the progress of the conversion.
+   * @return The location of the created netCDF file.
+   * @throws RosettaFileException If unable to create the template file.
+   * @throws RosettaDataException If unable to parse data file with delimiter.
+   */
+  public String convertToNetcdf(String id, ConversionProgress progress)
+      throws RosettaFileException, RosettaDataException {
     String netcdfFile = null;
 
     Template template = templateManager.createTemplate(id);
@@ -141,7 +163,14 @@ public class WizardManagerImpl implements WizardManager {
           // Delimiter is not standard. Try parsing using the delimiter provided by the user.
           delimiter = template.getDelimiter();
         }
-        netcdfFile = dsgWriter.createNetcdfFile(Paths.get(dataFilePath), template, delimiter);
+        // the same data file converted with the same template is reused from the cache
+        NetcdfFileManager converter = dsgWriter;
+        String delimiterSymbol = delimiter;
+        Path dataFile = Paths.get(dataFilePath);
+        Path ncFile = PathUtils.replaceExtension(dataFile, ".nc");
+        netcdfFile = conversionCacheManager.convert(dataFile, template, ncFile,
+            () -> converter.createNetcdfFile(dataFile, ncFile, template, delimiterSymbol,
+                NetcdfFileManager.DEFAULT_CHUNK_SIZE, progress));
       }
 
       // If eTUFF.
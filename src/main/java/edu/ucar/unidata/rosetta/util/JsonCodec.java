@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import edu.ucar.unidata.rosetta.domain.Template;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Shared JSON readers and writers of templates and of the data exchanged with the wizard.
+ *
+ * Creating an ObjectMapper is costly (and so is its first use of a type, as the serializers and
+ * deserializers of the type are built and cached by the mapper), so a single mapper is created
+ * and the readers and writers derived from it are shared. The (de)serializers of the variables and
+ * attributes of templates are built once, with those of the templates. ObjectReader and
+ * ObjectWriter instances are immutable and thread safe. The mapper itself is not exposed, so that
+ * it cannot be reconfigured once in use.
+ */
+public class JsonCodec {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final ObjectReader templateReader = mapper.readerFor(Template.class);
+  private static final ObjectWriter templateWriter = mapper.writerFor(Template.class);
+  private static final ObjectReader treeReader = mapper.readerFor(JsonNode.class);
+  private static final ObjectWriter writer = mapper.writer();
+
+  private JsonCodec() {}
+
+  /**
+   * Read a template from a JSON template file. The file is parsed as a stream of tokens, without
+   * reading it into memory first; its encoding (UTF-8 unless marked otherwise) is detected by the
+   * parser.
+   *
+   * @param jsonFile the json template file
+   * @return the template
+   * @throws IOException if unable to read or parse the file
+   */
+  public static Template readTemplate(Path jsonFile) throws IOException {
+    try (InputStream in = Files.newInputStream(jsonFile);
+        JsonParser parser = mapper.getFactory().createParser(in)) {
+      return templateReader.readValue(parser);
+    }
+  }
+
+  /**
+   * Read a template from JSON.
+   *
+   * @param json the JSON representation of the template
+   * @return the template
+   * @throws IOException if unable to parse the JSON
+   */
+  public static Template readTemplate(byte[] json) throws IOException {
+    return templateReader.readValue(json);
+  }
+
+  /**
+   * Write a template to a JSON template file, encoded in UTF-8.
+   *
+   * @param template the template
+   * @param jsonFile the json template file, replaced if it exists
+   * @throws IOException if unable to write the file
+   */
+  public static void writeTemplate(Template template, Path jsonFile) throws IOException {
+    try (OutputStream out = Files.newOutputStream(jsonFile)) {
+      templateWriter.writeValue(out, template);
+    }
+  }
+
+  /**
+   * Write a template as JSON.
+   *
+   * @param template the template
+   * @return the JSON representation of the template, encoded in UTF-8
+   * @throws IOException if unable to serialize the template
+   */
+  public static byte[] writeTemplateAsBytes(Template template) throws IOException {
+    return templateWriter.writeValueAsBytes(template);
+  }
+
+  /**
+   * Parse JSON data (e.g. sent by the wizard) into a tree.
+   *
+   * @param json the JSON data
+   * @return the root node of the tree
+   * @throws IOException if unable to parse the JSON
+   */
+  public static JsonNode readTree(String json) throws IOException {
+    return treeReader.readValue(json);
+  }
+
+  /**
+   * Write an object (e.g. data sent to the wizard) as JSON.
+   *
+   * @param value the object
+   * @return the JSON representation of the object
+   * @throws IOException if unable to serialize the object
+   */
+  public static String writeValueAsString(Object value) throws IOException {
+    return writer.writeValueAsString(value);
+  }
+}
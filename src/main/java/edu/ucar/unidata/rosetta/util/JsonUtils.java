@@ -5,9 +5,7 @@
 
 package edu.ucar.unidata.rosetta.util;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucar.unidata.rosetta.domain.GlobalMetadata;
 import edu.ucar.unidata.rosetta.domain.RosettaAttribute;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
@@ -314,6 +312,20 @@ public class JsonUtils {
               headerLineNumbers.add(headerLineNumberIterator.next().asInt());
             }
             template.setHeaderLineNumbers(headerLineNumbers);
+          } else if (key.equals("commentPrefixes") && !value.isNull()) {
+            List<String> commentPrefixes = new ArrayList<>();
+            for (Iterator<JsonNode> commentPrefixIterator = value.elements(); commentPrefixIterator.hasNext();) {
+              commentPrefixes.add(commentPrefixIterator.next().asText());
+            }
+            template.setCommentPrefixes(commentPrefixes);
+          } else if (key.equals("deflateLevel") && !value.isNull()) {
+            template.setDeflateLevel(value.asInt());
+          } else if (key.equals("shuffle") && !value.isNull()) {
+            template.setShuffle(value.asBoolean());
+          } else if (key.equals("collection") && !value.isNull()) {
+            template.setCollection(value.asBoolean());
+          } else if (key.equals("append") && !value.isNull()) {
+            template.setAppend(value.asBoolean());
           } else if (key.equals("variableInfoList") && !value.isNull()) {
             List<VariableInfo> variableInfo = convertVariableInfoDataFromJson(value);
             if (!variableInfo.isEmpty()) {
@@ -347,9 +359,8 @@ public class JsonUtils {
   public static String mapObjectToJson(Object obj) {
     String jsonString = null;
     try {
-      ObjectMapper mapper = new ObjectMapper();
-      jsonString = mapper.writeValueAsString(obj);
-    } catch (JsonProcessingException e) {
+      jsonString = JsonCodec.writeValueAsString(obj);
+    } catch (IOException e) {
       logger.error(e);
     }
     return jsonString;
@@ -363,9 +374,8 @@ public class JsonUtils {
    */
   private static JsonNode mapStringToJson(String jsonString) {
     JsonNode actualObj = null;
-    ObjectMapper mapper = new ObjectMapper();
     try {
-      actualObj = mapper.readTree(jsonString);
+      actualObj = JsonCodec.readTree(jsonString);
     } catch (IOException e) {
       logger.error(e);
     }
@@ -14,6 +14,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataRetrievalFailureException;
 
 /**
  * Utils class with methods for accessing rosetta properties.
@@ -22,6 +23,14 @@ public class PropertyUtils {
 
   private static final Logger logger = LogManager.getLogger();
 
+  private static final String BATCH_PARALLELISM = "rosetta.batchParallelism";
+  private static final String CONVERSION_JOB_THREADS = "rosetta.conversionJobThreads";
+  private static final int DEFAULT_CONVERSION_JOB_THREADS = 2;
+  private static final String CONVERSION_CACHE_SIZE = "rosetta.conversionCacheSize";
+  private static final long DEFAULT_CONVERSION_CACHE_SIZE = 1024;
+  private static final String PARSE_PARALLELISM = "rosetta.parseParallelism";
+  private static final String ROSETTA_HOME = "rosetta.home";
+
   private static PropertiesDao propertiesDao;
 
   /**
@@ -51,6 +60,92 @@ public class PropertyUtils {
     return propertiesDao.lookupUserFilesDirectory();
   }
 
+  /**
+   * Retrieves the maximum number of data files converted concurrently during batch processing. If
+   * the property is not set, or is less than one, the number of available processors is used.
+   *
+   * @return The maximum number of concurrent batch conversions.
+   */
+  public static int getBatchParallelism() {
+    int parallelism = 0;
+    try {
+      parallelism = Integer.parseInt(propertiesDao.lookupPropertyValue(BATCH_PARALLELISM).trim());
+    } catch (DataRetrievalFailureException | NumberFormatException e) {
+      logger.warn("Unable to read " + BATCH_PARALLELISM + ", using the number of available processors.");
+    }
+    if (parallelism < 1) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    return parallelism;
+  }
+
+  /**
+   * Retrieves the number of threads parsing the ranges of large data files. If the property is not
+   * set, or is less than one, or if the properties are not available (e.g. when converting outside
+   * of the web application), the number of available processors is used.
+   *
+   * @return The number of threads parsing large data files.
+   */
+  public static int getParseParallelism() {
+    int parallelism = 0;
+    if (propertiesDao != null) {
+      try {
+        parallelism = Integer.parseInt(propertiesDao.lookupPropertyValue(PARSE_PARALLELISM).trim());
+      } catch (DataRetrievalFailureException | NumberFormatException e) {
+        logger.warn("Unable to read " + PARSE_PARALLELISM + ", using the number of available processors.");
+      }
+    }
+    if (parallelism < 1) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    return parallelism;
+  }
+
+  /**
+   * Retrieves the maximum number of conversion jobs run at the same time in the background. If the
+   * property is not set, or is less than one, two jobs are run at a time.
+   *
+   * @return The maximum number of concurrent conversion jobs.
+   */
+  public static int getConversionJobThreads() {
+    int threads = 0;
+    try {
+      threads = Integer.parseInt(propertiesDao.lookupPropertyValue(CONVERSION_JOB_THREADS).trim());
+    } catch (DataRetrievalFailureException | NumberFormatException e) {
+      logger.warn("Unable to read " + CONVERSION_JOB_THREADS + ", using " + DEFAULT_CONVERSION_JOB_THREADS + ".");
+    }
+    if (threads < 1) {
+      threads = DEFAULT_CONVERSION_JOB_THREADS;
+    }
+    return threads;
+  }
+
+  /**
+   * Retrieves the maximum size of the cache of converted files, set in megabytes. If the property
+   * is not set, a size of {@value #DEFAULT_CONVERSION_CACHE_SIZE} megabytes is used. A size of zero
+   * (or less) disables the cache.
+   *
+   * @return The maximum size of the conversion cache, in bytes.
+   */
+  public static long getConversionCacheSize() {
+    long size = DEFAULT_CONVERSION_CACHE_SIZE;
+    try {
+      size = Long.parseLong(propertiesDao.lookupPropertyValue(CONVERSION_CACHE_SIZE).trim());
+    } catch (DataRetrievalFailureException | NumberFormatException e) {
+      logger.warn("Unable to read " + CONVERSION_CACHE_SIZE + ", using " + DEFAULT_CONVERSION_CACHE_SIZE + ".");
+    }
+    return Math.max(size, 0) * 1024 * 1024;
+  }
+
+  /**
+   * Retrieves the name of the ROSETTA_HOME directory.
+   *
+   * @return The name of the ROSETTA_HOME directory.
+   */
+  public static String getRosettaHome() {
+    return propertiesDao.lookupPropertyValue(ROSETTA_HOME);
+  }
+
   /**
    * Attempts to get the client IP address from the request.
    *
@@ -5,8 +5,6 @@
 
 package edu.ucar.unidata.rosetta.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -76,14 +74,7 @@ public class TemplateFactory {
    * @return a template object based on the json file
    */
   public static Template makeTemplateFromJsonFile(Path jsonFile) throws IOException {
-    ObjectMapper templateMapper = new ObjectMapper();
-
-    Template template;
-    try (FileReader templateFileReader = new FileReader(jsonFile.toFile())) {
-      template = templateMapper.readValue(templateFileReader, Template.class);
-    }
-
-    return template;
+    return JsonCodec.readTemplate(jsonFile);
   }
 
 }
@@ -5,7 +5,6 @@
 
 package edu.ucar.unidata.rosetta.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -13,6 +12,7 @@ import java.util.Map;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.domain.VariableInfo;
+import org.apache.commons.codec.digest.DigestUtils;
 import ucar.nc2.Attribute;
 
 public class TemplateUtils {
@@ -81,16 +81,34 @@ public class TemplateUtils {
   /**
    * Copy a template object
    *
-   * Make a copy of a Template object. This is done by serializing the object to json, and then
-   * returning a new object based on the serialized version.
+   * Make a deep copy of a Template object, see {@link Template#copy()}.
    *
    * @param in template to copy
    * @return copy of the input template
    */
-  public static Template copy(Template in) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    String json = mapper.writeValueAsString(in);
-    return mapper.readValue(json, Template.class);
+  public static Template copy(Template in) {
+    return in.copy();
+  }
+
+  /**
+   * Compute the fingerprint of a template
+   *
+   * The fingerprint is the SHA-256 digest of the template serialized to json, so templates with
+   * the same content have the same fingerprint. The provenance of the template (its creation date,
+   * server id and rosetta version), which is set anew each time the wizard writes a template but
+   * does not change the conversion, is left out. The fingerprint is recorded in netCDF files to
+   * which data may be appended later, to check that the new data are converted with the same
+   * template, and is part of the keys of the conversion cache.
+   *
+   * @param template template to fingerprint
+   * @return the fingerprint, as a hex string
+   */
+  public static String fingerprint(Template template) throws IOException {
+    Template canonical = template.overlay();
+    canonical.setCreationDate(null);
+    canonical.setRosettaVersion(null);
+    canonical.setServerId(null);
+    return DigestUtils.sha256Hex(JsonCodec.writeTemplateAsBytes(canonical));
   }
 
 }
@@ -73,6 +73,9 @@ function gridForVariableSpecification(grid, fileData, columns, rows, LineNumberF
                 } else if (delimiter === '\"') {
                     // Double quotes are handled differently in the slick grid,
                     dataItems = fileData[i].split(/&quot;/);
+                } else if (delimiter.length === 1 && ",\t;:".indexOf(delimiter) >= 0) {
+                    // Fields may be quoted.
+                    dataItems = splitQuoted(fileData[i], delimiter);
                 } else {
                     // Everything else.
                     dataItems = fileData[i].split(delimiter);
@@ -220,6 +223,46 @@ function gridForVariableSpecification(grid, fileData, columns, rows, LineNumberF
     });
 }
 
+/**
+ * Splits a line of (HTML escaped) file data using a delimiter which may enclose quoted fields. A
+ * quoted field starts with a double quote and ends at the next double quote not followed by
+ * another double quote, and may contain the delimiter; a double quote is escaped by doubling it.
+ * The fields are found the same way as when the file is converted (see LineTokenizer.java).
+ *
+ * @param line  The HTML escaped line.
+ * @param delimiter  The delimiter character.
+ * @returns {Array}  The HTML escaped fields.
+ */
+function splitQuoted(line, delimiter) {
+    var text = $("<textarea/>").html(line).text();
+    var fields = [];
+    var i = 0;
+    while (true) {
+        var field = "";
+        var next;
+        if (text.charAt(i) === '"') {
+            i++;
+            while (i < text.length && !(text.charAt(i) === '"' && text.charAt(i + 1) !== '"')) {
+                field += text.charAt(i);
+                i += text.charAt(i) === '"' ? 2 : 1;
+            }
+            // skip the closing quote, and anything up to the next delimiter
+            next = text.indexOf(delimiter, i);
+        } else {
+            next = text.indexOf(delimiter, i);
+            field = text.substring(i, next < 0 ? text.length : next);
+        }
+        fields.push($("<div/>").text(field).html().replace(/"/g, "&quot;"));
+        i = next < 0 ? text.length : next;
+        if (i >= text.length) {
+            break;
+        }
+        // skip the delimiter
+        i++;
+    }
+    return fields;
+}
+
 /**
  * EVENT FUNCTIONS
  */
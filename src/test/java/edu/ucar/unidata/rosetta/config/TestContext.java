@@ -7,6 +7,7 @@ package edu.ucar.unidata.rosetta.config;
 import edu.ucar.unidata.rosetta.init.resources.ResourceLoader;
 import edu.ucar.unidata.rosetta.service.ResourceManager;
 import edu.ucar.unidata.rosetta.service.batch.BatchFileManager;
+import edu.ucar.unidata.rosetta.service.job.ConversionJobManager;
 import edu.ucar.unidata.rosetta.service.wizard.*;
 import java.util.Properties;
 import org.mockito.Mockito;
@@ -24,6 +25,11 @@ public class TestContext {
     return Mockito.mock(BatchFileManager.class);
   }
 
+  @Bean
+  public ConversionJobManager conversionJobManager() {
+    return Mockito.mock(ConversionJobManager.class);
+  }
+
   @Bean
   public WizardManager wizardManager() {
     return Mockito.mock(WizardManager.class);
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.controller.job;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import edu.ucar.unidata.rosetta.config.WebAppContext;
+import edu.ucar.unidata.rosetta.domain.job.ConversionJob;
+import edu.ucar.unidata.rosetta.service.job.ConversionJobManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = {WebAppContext.class})
+public class ConversionJobControllerTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext context;
+
+  @Autowired
+  private ConversionJobManager conversionJobManager;
+
+  @Before
+  public void setUp() {
+    mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    Mockito.reset(conversionJobManager);
+  }
+
+  @Test
+  public void getRunningConversionJobTest() throws Exception {
+    ConversionJob conversionJob = new ConversionJob("job1", ConversionJob.JobType.WIZARD, "wizard1");
+    conversionJob.setStatus(ConversionJob.Status.RUNNING);
+    conversionJob.setRowsParsed(1000);
+    Mockito.when(conversionJobManager.lookupConversionJob("job1")).thenReturn(conversionJob);
+
+    mockMvc.perform(get("/jobs/job1")).andExpect(status().isOk())
+        .andExpect(content().string(containsString("\"status\":\"RUNNING\"")))
+        .andExpect(content().string(containsString("\"rowsParsed\":1000")));
+    // the result can not be downloaded until the job is complete
+    mockMvc.perform(get("/jobs/job1/download")).andExpect(status().isConflict());
+  }
+
+  @Test
+  public void getUnknownConversionJobTest() throws Exception {
+    Mockito.when(conversionJobManager.lookupConversionJob("nope"))
+        .thenThrow(new DataRetrievalFailureException("no such job"));
+
+    mockMvc.perform(get("/jobs/nope")).andExpect(status().isNotFound());
+    mockMvc.perform(get("/jobs/nope/download")).andExpect(status().isNotFound());
+  }
+}
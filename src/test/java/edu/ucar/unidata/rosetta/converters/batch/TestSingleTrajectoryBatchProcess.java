@@ -28,10 +28,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import edu.ucar.unidata.rosetta.util.test.category.NeedsLocalServer;
 import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
 import static org.junit.Assert.assertEquals;
@@ -97,17 +100,24 @@ public class TestSingleTrajectoryBatchProcess {
       StatusLine statusLine = response.getStatusLine();
       assert statusLine.getStatusCode() == 200;
 
-      HttpEntity responseEntity = response.getEntity();
-      long contentLength = responseEntity.getContentLength();
-
-      Header[] clHeader = response.getHeaders("Content-Length");
-      assert clHeader.length == 1;
-      assertEquals(Long.valueOf(clHeader[0].getValue()), Long.valueOf(contentLength));
-
       Header[] ctHeader = response.getHeaders("Content-Type");
       assert ctHeader.length == 1;
       assertEquals("application/zip", ctHeader[0].getValue());
 
+      // the zip file is streamed as the files are converted, so check its entries rather than a
+      // Content-Length header
+      List<String> convertedFiles = new ArrayList<>();
+      try (ZipInputStream zipIn = new ZipInputStream(response.getEntity().getContent())) {
+        ZipEntry entry;
+        while ((entry = zipIn.getNextEntry()) != null) {
+          convertedFiles.add(entry.getName());
+        }
+      }
+      assertEquals(2, convertedFiles.size());
+      for (String convertedFile : convertedFiles) {
+        assert convertedFile.startsWith("converted_files/") && convertedFile.endsWith(".nc");
+      }
+
     } catch (ClientProtocolException e) {
       e.printStackTrace();
     } catch (IOException e) {
@@ -10,12 +10,20 @@ import org.junit.Assert;
 import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import edu.ucar.unidata.rosetta.util.PathUtils;
 import edu.ucar.unidata.rosetta.util.TemplateFactory;
 import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
 import ucar.ma2.Array;
@@ -70,6 +78,78 @@ public class SingleProfileTest {
     ncf.close();
   }
 
+  @Test
+  public void convertCtdInChunks() throws IOException, RosettaDataException {
+    Path datafile = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "JD206_2149_AML_CTD.csv");
+    Path templatefile = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "rosetta.template");
+
+    // convert all at once, and keep the data and attributes to compare against
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    ctdNetcdfFile = new SingleProfile().createNetcdfFile(datafile, template, ",");
+    Map<String, Array> expectedData = new HashMap<>();
+    Map<String, List<Attribute>> expectedAttrs = new HashMap<>();
+    try (NetcdfFile ncf = NetcdfFile.open(ctdNetcdfFile)) {
+      for (Variable var : ncf.getVariables()) {
+        expectedData.put(var.getFullName(), var.read());
+        expectedAttrs.put(var.getFullName(), var.getAttributes());
+      }
+    }
+    new File(ctdNetcdfFile).delete();
+
+    // convert in chunks which do not divide the number of rows evenly
+    template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    ctdNetcdfFile = new SingleProfile().createNetcdfFile(datafile, template, ",", 1000);
+
+    try (NetcdfFile ncf = NetcdfFile.open(ctdNetcdfFile)) {
+      Assert.assertEquals(expectedData.size(), ncf.getVariables().size());
+      for (Variable var : ncf.getVariables()) {
+        String name = var.getFullName();
+        Array expected = expectedData.get(name);
+        Array actual = var.read();
+        Assert.assertEquals(name, expected.getSize(), actual.getSize());
+        for (int i = 0; i < expected.getSize(); i++) {
+          Assert.assertEquals(name, expected.getObject(i), actual.getObject(i));
+        }
+        for (Attribute expectedAttr : expectedAttrs.get(name)) {
+          Assert.assertEquals(name, expectedAttr, var.findAttribute(expectedAttr.getShortName()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void convertCtdFromZip() throws IOException, RosettaDataException {
+    Path datafile = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "JD206_2149_AML_CTD.csv");
+    Path templatefile = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "rosetta.template");
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+
+    // zip up the data file
+    Path zipFile = Files.createTempFile("rosetta-ctd", ".zip");
+    Files.delete(zipFile);
+    Map<String, String> env = new HashMap<>();
+    env.put("create", "true");
+    try (FileSystem zipfs = FileSystems.newFileSystem(URI.create("jar:" + zipFile.toUri()), env)) {
+      Files.copy(datafile, zipfs.getPath("/JD206_2149_AML_CTD.csv"));
+    }
+
+    // convert the data file in place, without extracting it
+    Path netcdfFile = PathUtils.replaceExtension(zipFile, ".nc");
+    ConversionProgress progress = new ConversionProgress();
+    try (FileSystem zipfs = FileSystems.newFileSystem(zipFile, (ClassLoader) null)) {
+      ctdNetcdfFile = new SingleProfile().createNetcdfFile(zipfs.getPath("/JD206_2149_AML_CTD.csv"), netcdfFile,
+          template, ",", 1000, progress);
+    } finally {
+      Files.delete(zipFile);
+    }
+
+    Assert.assertEquals(netcdfFile.toString(), ctdNetcdfFile);
+    Assert.assertTrue(progress.getTotalRows() > 1000);
+    Assert.assertEquals(progress.getTotalRows(), progress.getRowsParsed());
+    try (NetcdfFile ncf = NetcdfFile.open(ctdNetcdfFile)) {
+      Assert.assertNotNull(ncf.findVariable("latitude"));
+    }
+  }
+
   @After
   public void cleanup() {
     File ncf = new File(ctdNetcdfFile);
@@ -10,9 +10,16 @@ import org.junit.Assert;
 import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
 import edu.ucar.unidata.rosetta.domain.RosettaGlobalAttribute;
 import edu.ucar.unidata.rosetta.domain.Template;
 import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
@@ -21,15 +28,30 @@ import edu.ucar.unidata.rosetta.util.TemplateFactory;
 import edu.ucar.unidata.rosetta.util.XlsToCsvUtil;
 import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
 import ucar.ma2.Array;
+import ucar.ma2.ArrayChar;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
+import ucar.nc2.jni.netcdf.Nc4Iosp;
 
 public class SingleTimeSeriesTest {
 
+  private final Path stationDir =
+      Paths.get(TestUtils.getTestDataDirStr(), "singleStationTimeSeries", "StationSoilTemp");
+  private final Path stationTemplateFile = stationDir.resolve("rosetta.template");
+
   private String tsNetcdfFile;
   private Path tsCsvFile;
 
+  /**
+   * Convert the station workbook to the csv data file of the tests (tsCsvFile), which is deleted
+   * after each test.
+   */
+  private void convertStationWorkbook() throws RosettaFileException {
+    tsCsvFile = stationDir.resolve("ilu01_07_10_small.csv");
+    Assert.assertTrue(XlsToCsvUtil.convert(stationDir.resolve("ilu01_07_10_small.xls").toString(), null));
+  }
+
   @Test
   public void convertStationXls() throws IOException, RosettaDataException, RosettaFileException {
     Path xlsfile =
@@ -81,6 +103,236 @@ public class SingleTimeSeriesTest {
     ncf.close();
   }
 
+  @Test
+  public void reuseWritePlan() throws IOException, RosettaDataException, RosettaFileException {
+    convertStationWorkbook();
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+
+    // a template with the same content (e.g. the template of the next file of a batch) reuses the
+    // write plan of the first conversion, and the variables written with it are the same
+    Path firstFile = tsCsvFile.resolveSibling("first.nc");
+    dsgWriter.createNetcdfFile(tsCsvFile, firstFile, TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile),
+        ",", NetcdfFileManager.DEFAULT_CHUNK_SIZE, new ConversionProgress());
+    Assert.assertEquals(0, dsgWriter.getWritePlanHits());
+    tsNetcdfFile = dsgWriter.createNetcdfFile(tsCsvFile, TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile),
+        ",");
+    Assert.assertEquals(1, dsgWriter.getWritePlanHits());
+    try (NetcdfFile first = NetcdfFile.open(firstFile.toString());
+        NetcdfFile second = NetcdfFile.open(tsNetcdfFile)) {
+      Assert.assertEquals(first.getVariables().size(), second.getVariables().size());
+      for (Variable var : first.getVariables()) {
+        Array expected = var.read();
+        Array actual = second.findVariable(var.getFullName()).read();
+        Assert.assertEquals(var.getFullName(), expected.toString(), actual.toString());
+      }
+    } finally {
+      Files.delete(firstFile);
+    }
+
+    // another template gets its own plan
+    Template otherTemplate = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    for (RosettaGlobalAttribute rga : otherTemplate.getGlobalMetadata()) {
+      if (rga.getName().equals("geospatial_lat_start")) {
+        rga.setValue("70.5");
+      }
+    }
+    tsNetcdfFile = dsgWriter.createNetcdfFile(tsCsvFile, otherTemplate, ",");
+    Assert.assertEquals(1, dsgWriter.getWritePlanHits());
+    NetcdfFile ncf = NetcdfFile.open(tsNetcdfFile);
+    Assert.assertEquals(70.5, ncf.findVariable("latitude").read().getDouble(0), 0.0001);
+    ncf.close();
+  }
+
+  @Test
+  public void convertStationXlsToNetcdf4() throws IOException, RosettaDataException, RosettaFileException {
+    convertStationWorkbook();
+
+    Template template = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    template.setNetcdfVersion(NetcdfOutputOptions.NETCDF4);
+    template.setDeflateLevel(1);
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+    tsNetcdfFile = dsgWriter.createNetcdfFile(tsCsvFile, template, ",");
+
+    // netCDF-3 is written instead of netCDF-4 if the netCDF C library is not loaded
+    NetcdfFile ncf = NetcdfFile.open(tsNetcdfFile);
+    String expectedFileType = Nc4Iosp.isClibraryPresent() ? "NetCDF-4" : "NetCDF";
+    Assert.assertEquals(expectedFileType, ncf.getFileTypeId());
+
+    Variable lat = ncf.findVariable("latitude");
+    Number expected = ncf.findGlobalAttributeIgnoreCase("geospatial_lat_start").getNumericValue();
+    Assert.assertEquals(expected.doubleValue(), lat.read().getDouble(0), 0.0001);
+    ncf.close();
+  }
+
+  @Test
+  public void convertStationsToCollection() throws IOException, RosettaDataException, RosettaFileException {
+    convertStationWorkbook();
+
+    // two stations with the same data, at different latitudes
+    Template template = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    Template otherTemplate = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    for (RosettaGlobalAttribute rga : otherTemplate.getGlobalMetadata()) {
+      if (rga.getName().equals("geospatial_lat_start")) {
+        rga.setValue("70.5");
+      }
+    }
+    List<CollectionFeature> features = Arrays.asList(new CollectionFeature("station1", tsCsvFile, template),
+        new CollectionFeature("station2", tsCsvFile, otherTemplate));
+
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+    tsNetcdfFile = dsgWriter.createNetcdfCollection(features, tsCsvFile.resolveSibling("stations.nc"), ",", 7,
+        new ConversionProgress(), new NetcdfOutputOptions());
+
+    NetcdfFile ncf = NetcdfFile.open(tsNetcdfFile);
+    Assert.assertEquals(2, ncf.findDimension("station").getLength());
+
+    Variable rowSize = ncf.findVariable("row_size");
+    Assert.assertEquals("time", rowSize.findAttribute("sample_dimension").getStringValue());
+    Array rowSizes = rowSize.read();
+    Assert.assertTrue(rowSizes.getInt(0) > 0);
+    Assert.assertEquals(rowSizes.getInt(0), rowSizes.getInt(1));
+    Assert.assertEquals(2 * rowSizes.getInt(0), ncf.findDimension("time").getLength());
+
+    ArrayChar ids = (ArrayChar) ncf.findVariable("timeseries").read();
+    Assert.assertEquals("station1", ids.getString(0));
+    Assert.assertEquals("station2", ids.getString(1));
+
+    // latitude of each station, from the global metadata of its template
+    Array lat = ncf.findVariable("latitude").read();
+    Assert.assertEquals(69.239, lat.getDouble(0), 0.0001);
+    Assert.assertEquals(70.5, lat.getDouble(1), 0.0001);
+    Assert.assertNull(ncf.findGlobalAttribute("geospatial_lat_start"));
+
+    // both stations have the same times
+    Array time = ncf.findVariable("time").read();
+    Assert.assertEquals(time.getLong(0), time.getLong(rowSizes.getInt(0)));
+    ncf.close();
+  }
+
+  /**
+   * Write the rows of the station csv data file to another data file, with the times moved later.
+   *
+   * @param laterCsvFile the data file to write
+   * @param seconds the number of seconds by which the times are moved
+   */
+  private void writeLaterStationRows(Path laterCsvFile, long seconds) throws IOException {
+    List<String> lines = Files.readAllLines(tsCsvFile, StandardCharsets.UTF_8);
+    int numHeaderLines = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile).getHeaderLineNumbers().size();
+    List<String> laterLines = new ArrayList<>(lines.subList(0, numHeaderLines));
+    for (String line : lines.subList(numHeaderLines, lines.size())) {
+      if (!line.trim().isEmpty()) {
+        // the time, in seconds since 1970-01-01, is the second column
+        String[] columns = line.split(",", -1);
+        columns[1] = String.valueOf((long) Double.parseDouble(columns[1].trim()) + seconds);
+        line = String.join(",", columns);
+      }
+      laterLines.add(line);
+    }
+    Files.write(laterCsvFile, laterLines, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void appendStationRows() throws IOException, RosettaDataException, RosettaFileException {
+    convertStationWorkbook();
+    Path netcdfFile = tsCsvFile.resolveSibling("appended.nc");
+    Files.deleteIfExists(netcdfFile);
+
+    // the first data file creates the netCDF file, with an unlimited time dimension
+    Template template = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+    tsNetcdfFile = dsgWriter.appendToNetcdfFile(tsCsvFile, netcdfFile, template, ",", 5, new ConversionProgress());
+    NetcdfFile ncf = NetcdfFile.open(tsNetcdfFile);
+    Assert.assertTrue(ncf.findDimension("time").isUnlimited());
+    int numRows = ncf.findDimension("time").getLength();
+    String timeCoverageStart = ncf.findGlobalAttribute("time_coverage_start").getStringValue();
+    String timeCoverageEnd = ncf.findGlobalAttribute("time_coverage_end").getStringValue();
+    double validMax = ncf.findVariable("time").findAttribute("valid_max").getNumericValue().doubleValue();
+    ncf.close();
+
+    // the next data file, a year later, is written at the end of the time dimension
+    long year = 365 * 24 * 3600;
+    Path laterCsvFile = tsCsvFile.resolveSibling("ilu01_07_10_small_later.csv");
+    try {
+      writeLaterStationRows(laterCsvFile, year);
+      template = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+      dsgWriter.appendToNetcdfFile(laterCsvFile, netcdfFile, template, ",", 5, new ConversionProgress());
+    } finally {
+      Files.deleteIfExists(laterCsvFile);
+    }
+    ncf = NetcdfFile.open(tsNetcdfFile);
+    Assert.assertEquals(2 * numRows, ncf.findDimension("time").getLength());
+    Array time = ncf.findVariable("time").read();
+    Assert.assertEquals(time.getLong(0) + year, time.getLong(numRows));
+    Assert.assertEquals(validMax + year,
+        ncf.findVariable("time").findAttribute("valid_max").getNumericValue().doubleValue(), 0);
+    Assert.assertEquals(timeCoverageStart, ncf.findGlobalAttribute("time_coverage_start").getStringValue());
+    String laterTimeCoverageEnd = ncf.findGlobalAttribute("time_coverage_end").getStringValue();
+    Assert.assertTrue(laterTimeCoverageEnd.compareTo(timeCoverageEnd) > 0);
+    // the time coverage attributes are fixed width, so the header did not grow
+    Assert.assertEquals(timeCoverageEnd.length(), laterTimeCoverageEnd.length());
+    ncf.close();
+
+    // data converted with another template are not appended
+    Template otherTemplate = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    otherTemplate.setDelimiter(";");
+    try {
+      dsgWriter.appendToNetcdfFile(tsCsvFile, netcdfFile, otherTemplate, ",", 5, new ConversionProgress());
+      Assert.fail("appended data converted with another template");
+    } catch (RosettaDataException expected) {
+      // the template fingerprint does not match
+    }
+  }
+
+  @Test
+  public void failedAppend() throws IOException, RosettaDataException, RosettaFileException {
+    convertStationWorkbook();
+    Path netcdfFile = tsCsvFile.resolveSibling("appended.nc");
+    Files.deleteIfExists(netcdfFile);
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+    tsNetcdfFile = dsgWriter.appendToNetcdfFile(tsCsvFile, netcdfFile,
+        TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile), ",", 5, new ConversionProgress());
+    byte[] original = Files.readAllBytes(netcdfFile);
+
+    // the last row of the next data file cannot be parsed, once the first chunks have been written
+    Path laterCsvFile = tsCsvFile.resolveSibling("ilu01_07_10_small_later.csv");
+    try {
+      writeLaterStationRows(laterCsvFile, 365 * 24 * 3600);
+      Files.write(laterCsvFile, "\nnot a data row\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+      try {
+        dsgWriter.appendToNetcdfFile(laterCsvFile, netcdfFile,
+            TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile), ",", 5, new ConversionProgress());
+        Assert.fail("appended a data file with a row which cannot be parsed");
+      } catch (RosettaDataException expected) {
+        // the netCDF file is left as it was, and the copy the rows were appended to is deleted
+        Assert.assertArrayEquals(original, Files.readAllBytes(netcdfFile));
+        try (Stream<Path> files = Files.list(netcdfFile.getParent())) {
+          Assert.assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+      }
+    } finally {
+      Files.deleteIfExists(laterCsvFile);
+    }
+  }
+
+  @Test
+  public void discardPartialFile() throws IOException, RosettaFileException {
+    convertStationWorkbook();
+    // the last row cannot be parsed, so the conversion fails once the netCDF file has been created
+    Files.write(tsCsvFile, "\nnot a data row\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    Path netcdfFile = tsCsvFile.resolveSibling("ilu01_07_10_small.nc");
+    tsNetcdfFile = netcdfFile.toString();
+
+    Template template = TemplateFactory.makeTemplateFromJsonFile(stationTemplateFile);
+    NetcdfFileManager dsgWriter = new SingleTimeSeries();
+    try {
+      dsgWriter.createNetcdfFile(tsCsvFile, template, ",", 5);
+      Assert.fail("converted a data file with a row which cannot be parsed");
+    } catch (RosettaDataException expected) {
+      // the truncated netCDF file is not left behind
+      Assert.assertFalse(Files.exists(netcdfFile));
+    }
+  }
+
   @After
   public void cleanup() {
     File ncf = new File(tsNetcdfFile);
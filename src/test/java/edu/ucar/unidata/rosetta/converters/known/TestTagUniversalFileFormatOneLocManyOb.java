@@ -15,6 +15,7 @@ import edu.ucar.unidata.rosetta.converters.known.etuff.TagUniversalFileFormat;
 import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
 import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.nc2.Dimension;
 import ucar.nc2.Variable;
 import ucar.nc2.dataset.CoordinateAxis;
@@ -86,6 +87,19 @@ public class TestTagUniversalFileFormatOneLocManyOb {
     }
   }
 
+  @Test
+  public void testTimeMaxMin() throws IOException {
+    // the max/min attributes of the time and freshness variables are computed before the file is
+    // created, so the conversion should not leave a temporary file behind
+    assertTrue(!new File(etuffFileNc.replace(".nc", ".temp")).exists());
+    for (String varName : new String[] {"time", "location_freshness"}) {
+      Variable var = ncd.findVariable(varName);
+      MAMath.MinMax minMax = MAMath.getMinMax(var.read());
+      assertEquals(minMax.min, var.findAttribute("valid_min").getNumericValue().doubleValue(), 0.001);
+      assertEquals(minMax.max, var.findAttribute("valid_max").getNumericValue().doubleValue(), 0.001);
+    }
+  }
+
   @Test
   public void testNoMatchup() throws IOException {
     // for this date and ob:
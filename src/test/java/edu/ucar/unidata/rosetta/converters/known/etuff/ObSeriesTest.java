@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.known.etuff;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class ObSeriesTest {
+
+  private static ObSeries makeObSeries(TagUniversalFileFormat.DuplicateTimes duplicateTimes) {
+    ObSeries obs = new ObSeries("meter", duplicateTimes);
+    long[] times = {30, 10, 20, 10, 40, 5, 20, 35, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    for (int i = 0; i < times.length; i++) {
+      obs.add(times[i], i);
+    }
+    return obs;
+  }
+
+  @Test
+  public void sortAndKeepLast() {
+    ObSeries obs = makeObSeries(TagUniversalFileFormat.DuplicateTimes.KEEP_LAST);
+    assertEquals(14, obs.size());
+    assertArrayEquals(new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 20, 30, 35, 40}, obs.getTimes());
+    assertArrayEquals(new float[] {8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 6, 0, 7, 4}, obs.getValues(), 0f);
+  }
+
+  @Test
+  public void sortAndKeepFirst() {
+    ObSeries obs = makeObSeries(TagUniversalFileFormat.DuplicateTimes.KEEP_FIRST);
+    assertArrayEquals(new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 20, 30, 35, 40}, obs.getTimes());
+    assertArrayEquals(new float[] {8, 9, 10, 11, 5, 13, 14, 15, 16, 1, 2, 0, 7, 4}, obs.getValues(), 0f);
+    assertEquals("meter", obs.getUnit());
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.known.etuff;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class TimeMatchupTest {
+
+  private static final long[] TIMES = {5, 10, 14, 20, 31};
+  private static final ObSeries OBS = new ObSeries(new long[] {8, 12, 20, 30}, new float[] {1, 2, 3, 4}, "m");
+
+  @Test
+  public void matchupNearest() {
+    TimeMatchup timeMatchup = new TimeMatchup(TIMES, TimeMatchup.Method.NEAREST, Long.MAX_VALUE);
+    // ties go to the later ob
+    assertArrayEquals(new float[] {1, 2, 2, 3, 4}, timeMatchup.matchup("x", OBS, null), 0f);
+  }
+
+  @Test
+  public void matchupFloor() {
+    TimeMatchup timeMatchup = new TimeMatchup(TIMES, TimeMatchup.Method.FLOOR, Long.MAX_VALUE);
+    float[] freshness = new float[TIMES.length];
+    assertArrayEquals(new float[] {Float.NaN, 1, 2, 3, 4}, timeMatchup.matchup("x", OBS, freshness), 0f);
+    assertArrayEquals(new float[] {Float.NaN, 2, 2, 0, 1}, freshness, 0f);
+  }
+
+  @Test
+  public void matchupWithinTolerance() {
+    TimeMatchup timeMatchup = new TimeMatchup(TIMES, TimeMatchup.Method.NEAREST, 1);
+    Map<String, float[]> matched =
+        timeMatchup.matchupAll(Arrays.asList("a"), Collections.singletonMap("a", OBS), false);
+    assertArrayEquals(new float[] {Float.NaN, Float.NaN, Float.NaN, 3, 4}, matched.get("a"), 0f);
+  }
+
+  @Test
+  public void matchupAllWithFreshness() {
+    TimeMatchup timeMatchup = new TimeMatchup(TIMES, TimeMatchup.Method.FLOOR, Long.MAX_VALUE);
+    Map<String, ObSeries> data = new HashMap<>();
+    data.put("a", OBS);
+    data.put("b", OBS);
+    float[] freshness = new float[TIMES.length];
+    Map<String, float[]> matched =
+        timeMatchup.matchupAll(Arrays.asList("a", "b"), data, true, "a", freshness, null);
+    assertArrayEquals(new float[] {Float.NaN, 1, 2, 3, 4}, matched.get("a"), 0f);
+    assertArrayEquals(matched.get("a"), matched.get("b"), 0f);
+    assertArrayEquals(new float[] {Float.NaN, 2, 2, 0, 1}, freshness, 0f);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnBuffer.FloatColumnBuffer;
+import edu.ucar.unidata.rosetta.domain.RosettaAttribute;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.domain.VariableInfo;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+
+public class DataRecordReaderTest {
+
+  private static final String DATA = "\uFEFFstation: \"Boulder, CO\"\r\n" + "# units: m, \"degC\r\n"
+      + "id,name,value\n" + "1,\"a, \"\"quoted\"\" name\",1.5\n" + "2,\"two\r\nlines\",2.5\r" + "3,plain,3.5";
+
+  private static List<String> readRecords(String data, boolean quoted, int bufferSize)
+      throws IOException, RosettaDataException {
+    List<String> records = new ArrayList<>();
+    try (DataRecordReader reader = new DataRecordReader(new StringReader(data), quoted, bufferSize)) {
+      String record;
+      while ((record = reader.readRecord()) != null) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private static Template makeTemplate() {
+    Template template = new Template();
+    template.setHeaderLineNumbers(Arrays.asList(0, 2));
+    template.setCommentPrefixes(Collections.singletonList("#"));
+    List<VariableInfo> variableInfoList = new ArrayList<>();
+    String[] types = {"Integer", "Text", "Float"};
+    for (int column = 0; column < types.length; column++) {
+      VariableInfo variableInfo = new VariableInfo();
+      variableInfo.setColumnId(column);
+      variableInfo.setName("var" + column);
+      variableInfo.setRosettaControlMetadata(
+          Collections.singletonList(new RosettaAttribute("type", types[column], "STRING")));
+      variableInfoList.add(variableInfo);
+    }
+    template.setVariableInfoList(variableInfoList);
+    return template;
+  }
+
+  @Test
+  public void readQuotedRecords() throws IOException, RosettaDataException {
+    List<String> expected = Arrays.asList("station: \"Boulder, CO\"", "# units: m, \"degC", "id,name,value",
+        "1,\"a, \"\"quoted\"\" name\",1.5", "2,\"two\r\nlines\",2.5", "3,plain,3.5");
+    // records are found the same way whatever the size of the read buffer
+    for (int bufferSize : new int[] {1, 2, 7, 1024}) {
+      Assert.assertEquals(expected, readRecords(DATA, true, bufferSize));
+    }
+  }
+
+  @Test
+  public void readLinesLikeBufferedReader() throws IOException, RosettaDataException {
+    Assert.assertEquals(Arrays.asList("a", "", "b", "c"), readRecords("a\n\nb\r\nc\r", true, 16));
+    Assert.assertEquals(Arrays.asList("a \"b", "c"), readRecords("a \"b\nc\n", true, 16));
+    Assert.assertEquals(Collections.emptyList(), readRecords("", true, 16));
+  }
+
+  @Test
+  public void readUnquotedRecords() throws IOException, RosettaDataException {
+    // quotes are ordinary characters unless the data is comma delimited
+    Assert.assertFalse(DataRecordReader.isQuoted("\\s+"));
+    Assert.assertFalse(DataRecordReader.isQuoted("\t"));
+    Assert.assertTrue(DataRecordReader.isQuoted(","));
+    Assert.assertTrue(DataRecordReader.isQuoted("Comma"));
+    Assert.assertEquals(Arrays.asList("1 \"2 3", "4 5\" 6", "7\t\"8"),
+        readRecords("1 \"2 3\n4 5\" 6\r\n7\t\"8", false, 4));
+  }
+
+  @Test
+  public void unterminatedQuote() throws IOException {
+    String data = "id,name\n1,plain\n2,\"not closed\n3,c\n";
+    try {
+      readRecords(data, true, 16);
+      Assert.fail("unterminated quoted field not reported");
+    } catch (RosettaDataException e) {
+      Assert.assertEquals("The quoted field starting on line 3 is not terminated", e.getMessage());
+    }
+
+    Path dataFile = Files.createTempFile("rosetta-unterminated", ".csv");
+    try {
+      Files.write(dataFile, data.getBytes(StandardCharsets.UTF_8));
+      StreamingColumnParser.countDataRows(dataFile, makeTemplate(), ",");
+      Assert.fail("unterminated quoted field not reported");
+    } catch (RosettaDataException e) {
+      Assert.assertEquals("The quoted field starting on line 3 is not terminated", e.getMessage());
+    } finally {
+      Files.delete(dataFile);
+    }
+
+    // a quoted field running past the limit is reported before the end of the data
+    StringBuilder longField = new StringBuilder("1,a\r\n2,\"");
+    for (int i = 0; i <= DataRecordReader.MAX_QUOTED_FIELD_LENGTH; i++) {
+      longField.append(i % 64 == 0 ? '\n' : 'x');
+    }
+    try {
+      readRecords(longField.toString(), true, 1024);
+      Assert.fail("overlong quoted field not reported");
+    } catch (RosettaDataException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("The quoted field starting on line 2 is longer"));
+    }
+  }
+
+  @Test
+  public void parseQuotedRecords() throws IOException, RosettaDataException {
+    Template template = makeTemplate();
+    byte[] data = DATA.getBytes(StandardCharsets.UTF_8);
+    try (StreamingColumnParser parser =
+        new StreamingColumnParser(new ByteArrayInputStream(data), template, ",")) {
+      Assert.assertEquals(3, parser.parse(Integer.MAX_VALUE));
+      Assert.assertEquals(Arrays.asList("station: \"Boulder, CO\"", "id,name,value"), parser.getHeader());
+      Assert.assertEquals(Arrays.asList("a, \"quoted\" name", "two\r\nlines", "plain"),
+          parser.getTextColumns().get(1).getValues());
+      Assert.assertEquals(2.5f, ((FloatColumnBuffer) parser.getColumns().get(2)).get(1), 0f);
+    }
+
+    Path dataFile = Files.createTempFile("rosetta-quoted", ".csv");
+    try {
+      Files.write(dataFile, data);
+      Assert.assertEquals(3, StreamingColumnParser.countDataRows(dataFile, template, ","));
+      // ranges of the data file start at record boundaries, not inside quoted fields
+      try (StreamingColumnParser parser =
+          ParallelColumnParser.parse(dataFile, template, ",", ForkJoinPool.commonPool(), 1)) {
+        Assert.assertEquals(3, parser.getRowsParsed());
+        Assert.assertEquals(Arrays.asList("a, \"quoted\" name", "two\r\nlines", "plain"),
+            parser.getTextColumns().get(1).getValues());
+      }
+    } finally {
+      Files.delete(dataFile);
+    }
+  }
+}
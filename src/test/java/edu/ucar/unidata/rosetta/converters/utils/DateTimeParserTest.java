@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import ucar.nc2.time.CalendarDateFormatter;
+
+public class DateTimeParserTest {
+
+  private static long expectedSeconds(String format, String value) {
+    return new CalendarDateFormatter(format).parse(value).getMillis() / 1000L;
+  }
+
+  @Test
+  public void parseFixedWidthFormats() {
+    String[][] formatsAndValues = {{"yyyy-MM-dd HH:mm:ss", "2019-07-25 22:08:36"},
+        {"yyyyMMddHHmmss", "19690720201804"}, {"yyyy/MM/dd HH:mm:ss.SSS", "1969/12/31 23:59:58.500"},
+        {"yyyy-MM-dd'T'HH:mm:ss.SS", "1969-12-31T23:59:58.50"}, {"yyyy-DDD", "2016-366"},
+        {"HH:mm:ss", "12:34:56"}, {"yyyy", "2005"}};
+    for (String[] formatAndValue : formatsAndValues) {
+      String format = formatAndValue[0];
+      String value = formatAndValue[1];
+      Assert.assertEquals(format, expectedSeconds(format, value), DateTimeParser.forFormat(format).parseSeconds(value));
+    }
+  }
+
+  @Test
+  public void parseRowsSharingDates() {
+    List<String> values = Arrays.asList("2019-07-25 23:59:59", "2019-07-25 23:59:59", "2019-07-26 00:00:00",
+        "2019-08-26 00:00:01", "2020-08-26 00:00:02");
+    long[] seconds = DateTimeParser.forFormat("yyyy-MM-dd HH:mm:ss").parseSeconds(values, null);
+    int[] intSeconds = DateTimeParser.forFormat("yyyy-MM-dd HH:mm:ss").parseIntSeconds(values, null);
+    for (int i = 0; i < values.size(); i++) {
+      long expected = expectedSeconds("yyyy-MM-dd HH:mm:ss", values.get(i));
+      Assert.assertEquals(expected, seconds[i]);
+      Assert.assertEquals(expected, intSeconds[i]);
+    }
+  }
+
+  @Test
+  public void parseSeparateDateAndTime() {
+    List<String> dates = Arrays.asList("07/25/2019", "07/25/2019", "07/26/2019");
+    List<String> times = Arrays.asList("22:08:36", "23:59:59", "00:00:00");
+    long[] seconds = DateTimeParser.forFormat("MM/dd/yyyy", "HH:mm:ss").parseSeconds(dates, times);
+    for (int i = 0; i < dates.size(); i++) {
+      Assert.assertEquals(expectedSeconds("MM/dd/yyyyHH:mm:ss", dates.get(i) + times.get(i)), seconds[i]);
+    }
+  }
+
+  @Test
+  public void parseValuesNotMatchingTheFixedWidthLayout() {
+    // single digit fields and two digit years are left to the CalendarDateFormatter
+    Assert.assertEquals(expectedSeconds("yyyy-MM-dd", "2019-7-5"),
+        DateTimeParser.forFormat("yyyy-MM-dd").parseSeconds("2019-7-5"));
+    Assert.assertEquals(expectedSeconds("yy:MM:dd:HH:mm:ss", "87:10:21:02:00:00"),
+        DateTimeParser.forFormat("yy:MM:dd:HH:mm:ss").parseSeconds("87:10:21:02:00:00"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseInvalidDate() {
+    DateTimeParser.forFormat("yyyy-MM-dd").parseSeconds("2019-02-30");
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineTokenizerTest {
+
+  private static String[] tokenize(LineTokenizer tokenizer, String line, int maxFields) {
+    int[] starts = new int[maxFields];
+    int[] ends = new int[maxFields];
+    int numFields = tokenizer.tokenize(line, maxFields, starts, ends);
+    String[] fields = new String[numFields];
+    for (int i = 0; i < numFields; i++) {
+      fields[i] = tokenizer.value(line, starts[i], ends[i]);
+    }
+    return fields;
+  }
+
+  @Test
+  public void tokenizeLikeSplit() {
+    String[][] delimitersAndLines = {{",", "1,2.5,,abc,-3"}, {"\\t", "1\t2\t\tx y\t5"}, {"\\s+", "  1 2\t\t3  x 5"},
+        {";", "a;b;c;d;e"}, {"\\'", "a'b'c'd'e"}, {"\\\"", "a\"b\"c\"d\"e"}, {", *", "1, 2,3,  4,5"}};
+    for (String[] delimiterAndLine : delimitersAndLines) {
+      String delimiter = delimiterAndLine[0];
+      String line = delimiterAndLine[1];
+      String[] expected = line.split(delimiter);
+      Assert.assertArrayEquals(delimiter, expected,
+          tokenize(LineTokenizer.forDelimiter(delimiter), line, expected.length));
+      // only the requested number of fields are found
+      Assert.assertEquals(delimiter, 3, tokenize(LineTokenizer.forDelimiter(delimiter), line, 3).length);
+    }
+  }
+
+  @Test
+  public void tokenizeShortLines() {
+    Assert.assertArrayEquals(new String[] {""}, tokenize(LineTokenizer.forDelimiter(","), "", 4));
+    Assert.assertArrayEquals(new String[] {"a", "b"}, tokenize(LineTokenizer.forDelimiter("\\s+"), "a b", 4));
+  }
+
+  @Test
+  public void tokenizeQuoted() {
+    String line = "1,\"a, \"\"quoted\"\" value\",,\"2.5\"";
+    Assert.assertArrayEquals(new String[] {"1", "a, \"quoted\" value", "", "2.5"},
+        tokenize(LineTokenizer.quoted(','), line, 6));
+  }
+
+  @Test
+  public void parseNumbersLikeParseDouble() {
+    String line = "0,-0,1.,.5,-12.345,1e10,1.5E-7, 42 ,123456789012345,1234567890123456789,3.4028235e38,"
+        + "0.1e-22,1e23,NaN,-Infinity,1d,0x1p3";
+    LineTokenizer tokenizer = LineTokenizer.forDelimiter(",");
+    int[] starts = new int[32];
+    int[] ends = new int[32];
+    int numFields = tokenizer.tokenize(line, 32, starts, ends);
+    for (int i = 0; i < numFields; i++) {
+      String value = line.substring(starts[i], ends[i]);
+      Assert.assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+          Double.doubleToLongBits(NumberParser.parseDouble(line, starts[i], ends[i])));
+    }
+    Assert.assertEquals(-42L, NumberParser.parseLong(" -42 ", 0, 5));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseInvalidNumber() {
+    NumberParser.parseDouble("1.2.3", 0, 5);
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PipelinedInputStreamTest {
+
+  @Test(timeout = 10000)
+  public void failingSource() throws IOException {
+    IllegalStateException failure = new IllegalStateException("corrupt input");
+    InputStream source = new InputStream() {
+      @Override
+      public int read() {
+        throw failure;
+      }
+    };
+    try (InputStream in = new PipelinedInputStream(source)) {
+      // the failure is reported to the consumer, rather than leaving it waiting for input, and
+      // reported again if the consumer keeps reading
+      for (int i = 0; i < 2; i++) {
+        try {
+          in.read();
+          Assert.fail("the failure of the source is not reported");
+        } catch (IOException e) {
+          Assert.assertSame(failure, e.getCause());
+        }
+      }
+    }
+  }
+}
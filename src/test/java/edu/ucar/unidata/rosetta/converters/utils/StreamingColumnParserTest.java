@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.converters.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+import edu.ucar.unidata.rosetta.converters.utils.ColumnBuffer.FloatColumnBuffer;
+import edu.ucar.unidata.rosetta.domain.ParsedFile;
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.exceptions.RosettaDataException;
+import edu.ucar.unidata.rosetta.util.TemplateFactory;
+import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+public class StreamingColumnParserTest {
+
+  private static final int CTD_HEADER_LINES = 23;
+  private static final int CTD_DATA_ROWS = 4189;
+
+  private final Path datafile =
+      Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "JD206_2149_AML_CTD.csv");
+  private final Path templatefile = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD", "rosetta.template");
+
+  @Test
+  public void parseAll() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    try (StreamingColumnParser parser = new StreamingColumnParser(datafile, template, ",")) {
+      int rows = parser.parse(Integer.MAX_VALUE);
+      Assert.assertTrue(parser.isDone());
+      Assert.assertEquals(CTD_DATA_ROWS, rows);
+      Assert.assertEquals(CTD_HEADER_LINES, parser.getHeader().size());
+
+      // date and time are kept as text, conductivity, pressure and battery voltage as floats
+      Assert.assertEquals(DataType.STRING, parser.getDataTypes().get(0));
+      Assert.assertEquals(DataType.FLOAT, parser.getDataTypes().get(3));
+      Assert.assertTrue(parser.getTextColumns().containsKey(1));
+      Assert.assertFalse(parser.getTextColumns().containsKey(3));
+
+      FloatColumnBuffer pressure = (FloatColumnBuffer) parser.getColumns().get(3);
+      Assert.assertEquals(CTD_DATA_ROWS, pressure.size());
+      Assert.assertEquals(-0.01f, pressure.get(0), 0f);
+      Assert.assertEquals(0.22f, pressure.get(1), 0f);
+      Assert.assertEquals("22:08:36.90", parser.getTextColumns().get(1).get(0));
+    }
+  }
+
+  @Test
+  public void parseInSlabs() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    ParsedFile parsedFile = new ParsedFile(datafile, template, ",");
+    Array expected = parsedFile.getArrayData().get(3);
+
+    int slabSize = 1000;
+    int total = 0;
+    try (StreamingColumnParser parser = new StreamingColumnParser(datafile, template, ",")) {
+      int rows;
+      while ((rows = parser.parse(slabSize)) > 0) {
+        Array slab = parser.getColumns().get(3).toArray();
+        Assert.assertEquals(rows, slab.getSize());
+        for (int i = 0; i < rows; i++) {
+          Assert.assertEquals(expected.getFloat(total + i), slab.getFloat(i), 0f);
+        }
+        total += rows;
+        parser.clearColumns();
+      }
+      Assert.assertEquals(CTD_DATA_ROWS, parser.getRowsParsed());
+    }
+    Assert.assertEquals(CTD_DATA_ROWS, total);
+  }
+
+  @Test
+  public void parseGzipped() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    Path gzipFile = Files.createTempFile("rosetta-ctd", ".csv.gz");
+    try {
+      try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+        Files.copy(datafile, os);
+      }
+      Assert.assertEquals(CTD_DATA_ROWS, StreamingColumnParser.countDataRows(gzipFile, template, ","));
+
+      Array expected = new ParsedFile(datafile, template, ",").getArrayData().get(3);
+      Array actual = new ParsedFile(gzipFile, template, ",").getArrayData().get(3);
+      Assert.assertEquals(CTD_DATA_ROWS, actual.getSize());
+      for (int i = 0; i < CTD_DATA_ROWS; i++) {
+        Assert.assertEquals(expected.getFloat(i), actual.getFloat(i), 0f);
+      }
+    } finally {
+      Files.delete(gzipFile);
+    }
+  }
+
+  @Test
+  public void parseInParallel() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (StreamingColumnParser expected = new StreamingColumnParser(datafile, template, ",");
+        StreamingColumnParser actual = ParallelColumnParser.parse(datafile, template, ",", pool, 4096)) {
+      expected.parse(Integer.MAX_VALUE);
+      Assert.assertEquals(CTD_DATA_ROWS, actual.getRowsParsed());
+      Assert.assertEquals(expected.getHeader(), actual.getHeader());
+      Assert.assertEquals(expected.getTextColumns().get(1).getValues(), actual.getTextColumns().get(1).getValues());
+      for (int column : expected.getColumns().keySet()) {
+        Array expectedValues = expected.getColumns().get(column).toArray();
+        Array actualValues = actual.getColumns().get(column).toArray();
+        Assert.assertEquals(CTD_DATA_ROWS, actualValues.getSize());
+        for (int i = 0; i < CTD_DATA_ROWS; i++) {
+          Assert.assertEquals(expectedValues.getObject(i), actualValues.getObject(i));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void parseInParallelChunks() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    Array expected = new ParsedFile(datafile, template, ",").getArrayData().get(3);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    int chunkSize = 1000;
+    int total = 0;
+    try (ChunkedColumnParser parser = new ChunkedColumnParser(datafile, template, ",", chunkSize, pool)) {
+      ParsedFile chunk = parser.next();
+      Assert.assertEquals(CTD_HEADER_LINES, chunk.getHeader().size());
+      while (chunk.getNumRows() > 0) {
+        Assert.assertTrue(chunk.getNumRows() <= chunkSize);
+        Array values = chunk.getArrayData().get(3);
+        for (int i = 0; i < chunk.getNumRows(); i++) {
+          Assert.assertEquals(expected.getFloat(total + i), values.getFloat(i), 0f);
+        }
+        total += chunk.getNumRows();
+        chunk = parser.next();
+      }
+      Assert.assertTrue(parser.isDone());
+      Assert.assertEquals(CTD_DATA_ROWS, parser.getRowsParsed());
+    } finally {
+      pool.shutdown();
+    }
+    Assert.assertEquals(CTD_DATA_ROWS, total);
+  }
+
+  @Test
+  public void parseZippedInPlace() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    Path zipFile = Files.createTempFile("rosetta-ctd", ".zip");
+    Files.delete(zipFile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (FileSystem zipFileSystem =
+        FileSystems.newFileSystem(URI.create("jar:" + zipFile.toUri()), Collections.singletonMap("create", "true"))) {
+      Path zippedDatafile = zipFileSystem.getPath("JD206_2149_AML_CTD.csv");
+      Files.copy(datafile, zippedDatafile);
+
+      // with the size threshold lowered, the data file would be parsed in parallel if it was not
+      // read in place from a zip file, which cannot be memory mapped
+      Assert.assertSame(pool, ChunkedColumnParser.selectPool(datafile, pool, 1));
+      Assert.assertNull(ChunkedColumnParser.selectPool(zippedDatafile, pool, 1));
+      Assert.assertFalse(ParallelColumnParser.isWorthParallelizing(zippedDatafile, pool, 1));
+
+      int total = 0;
+      try (ChunkedColumnParser parser = new ChunkedColumnParser(zippedDatafile, template, ",", 1000,
+          ChunkedColumnParser.selectPool(zippedDatafile, pool, 1))) {
+        ParsedFile chunk;
+        while ((chunk = parser.next()).getNumRows() > 0) {
+          total += chunk.getNumRows();
+        }
+        Assert.assertEquals(CTD_DATA_ROWS, parser.countDataRows());
+      }
+      Assert.assertEquals(CTD_DATA_ROWS, total);
+    } finally {
+      pool.shutdown();
+      Files.deleteIfExists(zipFile);
+    }
+  }
+
+  @Test
+  public void countDataRowsOfRanges() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    // the data rows are counted when the data file is split into ranges, before any is parsed
+    try (ChunkedColumnParser parser = new ChunkedColumnParser(datafile, template, ",", 1000, pool)) {
+      Assert.assertFalse(parser.isDone());
+      Assert.assertEquals(CTD_DATA_ROWS, parser.countDataRows());
+      Assert.assertEquals(0, parser.getRowsParsed());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void accumulateStatistics() throws IOException, RosettaDataException {
+    Template template = TemplateFactory.makeTemplateFromJsonFile(templatefile);
+    try (StreamingColumnParser parser = new StreamingColumnParser(datafile, template, ",")) {
+      parser.parse(Integer.MAX_VALUE);
+      FloatColumnBuffer pressure = (FloatColumnBuffer) parser.getColumns().get(3);
+      ColumnStatistics expected = new ColumnStatistics();
+      for (int i = 0; i < pressure.size(); i++) {
+        expected.add(pressure.get(i));
+      }
+      ColumnStatistics statistics = pressure.getStatistics();
+      Assert.assertEquals(CTD_DATA_ROWS, statistics.getCount() + statistics.getMissingCount());
+      Assert.assertEquals(expected.getMin(), statistics.getMin(), 0);
+      Assert.assertEquals(expected.getMax(), statistics.getMax(), 0);
+
+      // the statistics of slabs, or of ranges parsed in parallel, add up to those of the whole column
+      ColumnStatistics slabs = new ColumnStatistics();
+      try (StreamingColumnParser slabParser = new StreamingColumnParser(datafile, template, ",")) {
+        while (new ParsedFile(slabParser, 1000).getNumRows() > 0) {
+          slabs.add(slabParser.getColumns().get(3).getStatistics());
+        }
+      }
+      Assert.assertEquals(statistics.getCount(), slabs.getCount());
+      Assert.assertEquals(statistics.getMin(), slabs.getMin(), 0);
+      Assert.assertEquals(statistics.getMax(), slabs.getMax(), 0);
+
+      try (StreamingColumnParser parallel = ParallelColumnParser.parse(datafile, template, ",",
+          ForkJoinPool.commonPool(), 4096)) {
+        ColumnStatistics parallelStatistics = parallel.getColumns().get(3).getStatistics();
+        Assert.assertEquals(statistics.getCount(), parallelStatistics.getCount());
+        Assert.assertEquals(statistics.getMin(), parallelStatistics.getMin(), 0);
+        Assert.assertEquals(statistics.getMax(), parallelStatistics.getMax(), 0);
+      }
+    }
+
+    // NaN and missing values are counted apart
+    ColumnStatistics statistics = new ColumnStatistics(-999.0);
+    for (double value : new double[] {2, -999, Double.NaN, -1, 5}) {
+      statistics.add(value);
+    }
+    Assert.assertEquals(-1, statistics.getMin(), 0);
+    Assert.assertEquals(5, statistics.getMax(), 0);
+    Assert.assertEquals(3, statistics.getCount());
+    Assert.assertEquals(2, statistics.getMissingCount());
+    Assert.assertEquals(2, statistics.getMean(), 0);
+  }
+}
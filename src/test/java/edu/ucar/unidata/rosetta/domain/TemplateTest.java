@@ -358,4 +358,50 @@ public class TemplateTest {
     Assert.assertNotEquals(bogusTemplate, modifiedTemplate);
 
   }
+
+  @Test
+  public void testCopyIsDeep() {
+    Template copy = bogusTemplate.copy();
+    Assert.assertEquals(bogusTemplate, copy);
+
+    // modifying the variables and attributes of the copy leaves the template unchanged
+    VariableInfo copiedVar = copy.getVariableInfoList().get(0);
+    Assert.assertNotSame(bogusTemplate.getVariableInfoList().get(0), copiedVar);
+    copiedVar.getVariableMetadata().get(0).setValue("degC");
+    copiedVar.getRosettaControlMetadata().clear();
+    copy.getGlobalMetadata().get(0).setValue("changed");
+    Assert.assertEquals("K", bogusTemplate.getVariableInfoList().get(0).getVariableMetadata().get(0).getValue());
+    Assert.assertEquals(3, bogusTemplate.getVariableInfoList().get(0).getRosettaControlMetadata().size());
+    Assert.assertEquals("yo", bogusTemplate.getGlobalMetadata().get(0).getValue());
+    Assert.assertEquals(newGroupName, copy.getGlobalMetadata().get(2).getGroup());
+  }
+
+  @Test
+  public void testOverlayUpdate() throws IOException {
+    Template original = bogusTemplate.copy();
+    Template overlay = bogusTemplate.overlay();
+    overlay.update(bogusTemplate2);
+
+    // same result as updating a copy
+    Template modifiedTemplate = TemplateUtils.copy(bogusTemplate);
+    modifiedTemplate.update(bogusTemplate2);
+    Assert.assertEquals(modifiedTemplate, overlay);
+
+    // the template under the overlay is unchanged
+    Assert.assertEquals(original, bogusTemplate);
+
+    // update a single variable: the variables which are not updated are shared with the overlay
+    VariableInfo unitsUpdate = new VariableInfo();
+    unitsUpdate.setName("variable0");
+    unitsUpdate.setVariableMetadata(new ArrayList<>(Arrays.asList(new RosettaAttribute("units", "degC", attrString))));
+    Template update = new Template();
+    update.setVariableInfoList(new ArrayList<>(Arrays.asList(unitsUpdate)));
+    overlay = bogusTemplate.overlay();
+    overlay.update(update);
+    Assert.assertTrue(overlay.getVariableInfoList().get(0).getVariableMetadata().contains(unitsUpdate
+        .getVariableMetadata().get(0)));
+    Assert.assertEquals(original, bogusTemplate);
+    Assert.assertSame(bogusTemplate.getVariableInfoList().get(1), overlay.getVariableInfoList().get(1));
+    Assert.assertSame(bogusTemplate.getVariableInfoList().get(2), overlay.getVariableInfoList().get(2));
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.batch;
+
+import edu.ucar.unidata.rosetta.converters.utils.ConversionProgress;
+import edu.ucar.unidata.rosetta.repository.PropertiesDao;
+import edu.ucar.unidata.rosetta.service.ResourceManager;
+import edu.ucar.unidata.rosetta.service.cache.ConversionCacheManagerImpl;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import edu.ucar.unidata.rosetta.util.test.util.TestUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+
+public class BatchFileManagerImplTest {
+
+  private static final int CTD_HEADER_LINES = 23;
+
+  private final Path ctdDir = Paths.get(TestUtils.getTestDataDirStr(), "singleProfile", "CTD");
+
+  private Path workDir;
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = Files.createTempDirectory("rosetta-batch");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    new PropertyUtils().setPropertiesDao(null);
+    FileUtils.deleteDirectory(workDir.toFile());
+  }
+
+  /**
+   * Make a batch zip file holding the CTD template and, for each entry of dataRows, a data file
+   * with the header lines of the CTD data file followed by that many of its data rows.
+   */
+  private Path makeBatchZipFile(Map<String, Integer> dataRows, List<String> ctdLines) throws IOException {
+    Path batchZipFile = workDir.resolve("batch.zip");
+    URI uri = URI.create("jar:" + batchZipFile.toUri());
+    try (FileSystem zipfs = FileSystems.newFileSystem(uri, Collections.singletonMap("create", "true"))) {
+      Files.copy(ctdDir.resolve("rosetta.template"), zipfs.getPath("/rosetta.template"));
+      for (Map.Entry<String, Integer> dataFile : dataRows.entrySet()) {
+        Files.write(zipfs.getPath("/" + dataFile.getKey()),
+            ctdLines.subList(0, CTD_HEADER_LINES + dataFile.getValue()), StandardCharsets.UTF_8);
+      }
+      // a data file with a pressure which is not a number
+      List<String> brokenLines = new ArrayList<>(ctdLines.subList(0, CTD_HEADER_LINES + 1));
+      brokenLines.add("2015-07-25,22:08:37.14,17.274,not a number,02.997,007.65");
+      Files.write(zipfs.getPath("/broken.csv"), brokenLines, StandardCharsets.UTF_8);
+    }
+    return batchZipFile;
+  }
+
+  @Test
+  public void convertConcurrently() throws Exception {
+    PropertiesDao propertiesDao = Mockito.mock(PropertiesDao.class);
+    Mockito.when(propertiesDao.lookupPropertyValue(Mockito.anyString())).thenReturn("1");
+    Mockito.when(propertiesDao.lookupPropertyValue("rosetta.batchParallelism")).thenReturn("3");
+    new PropertyUtils().setPropertiesDao(propertiesDao);
+
+    List<String> ctdLines = Files.readAllLines(ctdDir.resolve("JD206_2149_AML_CTD.csv"), StandardCharsets.UTF_8);
+    Map<String, Integer> dataRows = new HashMap<>();
+    for (int i = 0; i < 6; i++) {
+      dataRows.put("ctd" + i + ".csv", 100 + 10 * i);
+    }
+    Path batchZipFile = makeBatchZipFile(dataRows, ctdLines);
+
+    BatchFileManagerImpl batchFileManager = new BatchFileManagerImpl();
+    ResourceManager resourceManager = Mockito.mock(ResourceManager.class);
+    Mockito.when(resourceManager.getDelimiterSymbol("Comma")).thenReturn(",");
+    ReflectionTestUtils.setField(batchFileManager, "resourceManager", resourceManager);
+    ReflectionTestUtils.setField(batchFileManager, "conversionCacheManager",
+        new ConversionCacheManagerImpl(workDir.resolve("conversionCache"), 0, "test"));
+    String convertedZipFile;
+    try {
+      convertedZipFile = batchFileManager.batchProcess(batchZipFile, new ConversionProgress());
+    } finally {
+      batchFileManager.shutdown();
+    }
+
+    Set<String> expectedEntries = new HashSet<>();
+    dataRows.keySet().forEach(dataFile -> expectedEntries.add("converted_files/" + dataFile.replace(".csv", ".nc")));
+    expectedEntries.add("converted_files/broken.csv.error.txt");
+    Set<String> entries = new HashSet<>();
+    try (ZipFile zipFile = new ZipFile(convertedZipFile)) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        entries.add(entry.getName());
+        Path extracted = workDir.resolve(Paths.get(entry.getName()).getFileName());
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          Files.copy(in, extracted);
+        }
+        if (entry.getName().endsWith(".error.txt")) {
+          // the failure of a data file is reported in its place, without stopping the others
+          String error = new String(Files.readAllBytes(extracted), StandardCharsets.UTF_8);
+          Assert.assertTrue(error, error.startsWith("Unable to convert broken.csv"));
+          continue;
+        }
+        // each converted file holds the pressures of its own data file
+        int numRows = dataRows.get(extracted.getFileName().toString().replace(".nc", ".csv"));
+        try (NetcdfFile ncf = NetcdfFile.open(extracted.toString())) {
+          Array pressure = ncf.findVariable("pressure").read();
+          Assert.assertEquals(numRows, pressure.getSize());
+          for (int row = 0; row < numRows; row++) {
+            String[] columns = ctdLines.get(CTD_HEADER_LINES + row).split(",");
+            Assert.assertEquals(Float.parseFloat(columns[3].trim()), pressure.getFloat(row), 0f);
+          }
+        }
+      }
+    }
+    Assert.assertEquals(expectedEntries, entries);
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2012-2020 University Corporation for Atmospheric Research/Unidata.
+ * See LICENSE for license information.
+ */
+
+package edu.ucar.unidata.rosetta.service.cache;
+
+import edu.ucar.unidata.rosetta.domain.Template;
+import edu.ucar.unidata.rosetta.domain.wizard.WizardData;
+import edu.ucar.unidata.rosetta.repository.PropertiesDao;
+import edu.ucar.unidata.rosetta.repository.wizard.GlobalMetadataDao;
+import edu.ucar.unidata.rosetta.repository.wizard.VariableDao;
+import edu.ucar.unidata.rosetta.service.ServerInfoBean;
+import edu.ucar.unidata.rosetta.service.wizard.MetadataManager;
+import edu.ucar.unidata.rosetta.service.wizard.TemplateManagerImpl;
+import edu.ucar.unidata.rosetta.service.wizard.WizardManager;
+import edu.ucar.unidata.rosetta.util.PropertyUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletContext;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ConversionCacheManagerImplTest {
+
+  private Path workDir;
+  private Path cacheDir;
+  private final AtomicInteger conversions = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = Files.createTempDirectory("rosetta-cache");
+    cacheDir = workDir.resolve("conversionCache");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(workDir.toFile());
+  }
+
+  private static Template makeTemplate(String cfType) {
+    Template template = new Template();
+    template.setCfType(cfType);
+    template.setFormat("custom");
+    template.setDelimiter(",");
+    return template;
+  }
+
+  private Path write(String name, String content) throws IOException {
+    Path file = workDir.resolve(name);
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  // "converts" a data file by copying it, so the content of the converted file can be checked
+  private String convert(ConversionCacheManager cache, Path dataFile, Template template, String netcdfName)
+      throws Exception {
+    Path netcdfFile = workDir.resolve(netcdfName);
+    return cache.convert(dataFile, template, netcdfFile, () -> {
+      conversions.incrementAndGet();
+      Files.copy(dataFile, netcdfFile);
+      return netcdfFile.toString();
+    });
+  }
+
+  @Test
+  public void reuseConvertedFile() throws Exception {
+    ConversionCacheManager cache = new ConversionCacheManagerImpl(cacheDir, 1024 * 1024, "1.0");
+    Path dataFile = write("data.csv", "time,value\n1,2.5\n");
+
+    convert(cache, dataFile, makeTemplate("timeSeries"), "first.nc");
+    Assert.assertEquals(1, conversions.get());
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+
+    // same content and template, different files
+    Path copy = write("copy.csv", "time,value\n1,2.5\n");
+    String second = convert(cache, copy, makeTemplate("timeSeries"), "second.nc");
+    Assert.assertEquals(1, conversions.get());
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(workDir.resolve("second.nc").toString(), second);
+    Assert.assertArrayEquals(Files.readAllBytes(dataFile), Files.readAllBytes(Paths.get(second)));
+
+    // a different template or converter version is a different conversion
+    convert(cache, dataFile, makeTemplate("trajectory"), "third.nc");
+    Assert.assertEquals(2, conversions.get());
+    ConversionCacheManager upgraded = new ConversionCacheManagerImpl(cacheDir, 1024 * 1024, "1.1");
+    convert(upgraded, dataFile, makeTemplate("timeSeries"), "fourth.nc");
+    Assert.assertEquals(3, conversions.get());
+
+    // files cached by an earlier instance are reused
+    ConversionCacheManager restarted = new ConversionCacheManagerImpl(cacheDir, 1024 * 1024, "1.0");
+    convert(restarted, dataFile, makeTemplate("timeSeries"), "fifth.nc");
+    Assert.assertEquals(3, conversions.get());
+    Assert.assertEquals(1, restarted.getHits());
+  }
+
+  @Test
+  public void copyCachedFile() throws Exception {
+    ConversionCacheManager cache = new ConversionCacheManagerImpl(cacheDir, 1024 * 1024, "1.0");
+    Path dataFile = write("data.csv", "time,value\n1,2.5\n");
+    convert(cache, dataFile, makeTemplate("timeSeries"), "first.nc");
+    String second = convert(cache, dataFile, makeTemplate("timeSeries"), "second.nc");
+    Assert.assertEquals(1, cache.getHits());
+
+    // writing to a reused file (e.g. appending to it) leaves the cached file unchanged
+    Files.write(Paths.get(second), "2,3.5\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    String third = convert(cache, dataFile, makeTemplate("timeSeries"), "third.nc");
+    Assert.assertEquals(2, cache.getHits());
+    Assert.assertArrayEquals(Files.readAllBytes(dataFile), Files.readAllBytes(Paths.get(third)));
+  }
+
+  /**
+   * Create a template the way the wizard does, for a transaction with no variables or global
+   * metadata.
+   */
+  private Template createWizardTemplate(String id) throws Exception {
+    Files.createDirectories(workDir.resolve(id));
+    Files.write(workDir.resolve(id).resolve("transaction.log"), new byte[0]);
+
+    WizardData wizardData = new WizardData();
+    wizardData.setDataFileType("Custom_File_Type");
+    wizardData.setCommunity("Atmospheric Sciences");
+    wizardData.setPlatform("Single_Station");
+    wizardData.setCfType("timeSeries");
+    wizardData.setDelimiter("Comma");
+    wizardData.setHeaderLineNumbers("0");
+    WizardManager wizardManager = Mockito.mock(WizardManager.class);
+    Mockito.when(wizardManager.lookupPersistedWizardDataById(id)).thenReturn(wizardData);
+
+    TemplateManagerImpl templateManager = new TemplateManagerImpl();
+    templateManager.setVariableDao(Mockito.mock(VariableDao.class));
+    templateManager.setGlobalMetadataDao(Mockito.mock(GlobalMetadataDao.class));
+    ReflectionTestUtils.setField(templateManager, "wizardManager", wizardManager);
+    ReflectionTestUtils.setField(templateManager, "metadataManager", Mockito.mock(MetadataManager.class));
+    return templateManager.createTemplate(id);
+  }
+
+  @Test
+  public void reuseConversionOfWizardRun() throws Exception {
+    PropertiesDao propertiesDao = Mockito.mock(PropertiesDao.class);
+    Mockito.when(propertiesDao.lookupUserFilesDirectory()).thenReturn(workDir.toString());
+    new PropertyUtils().setPropertiesDao(propertiesDao);
+    ServletContext servletContext = Mockito.mock(ServletContext.class);
+    Mockito.when(servletContext.getResourceAsStream("/META-INF/MANIFEST.MF"))
+        .thenReturn(new ByteArrayInputStream("Implementation-Version: 1.0\n".getBytes(StandardCharsets.UTF_8)));
+    ServerInfoBean serverInfoBean = new ServerInfoBean();
+    serverInfoBean.setServletContext(servletContext);
+    serverInfoBean.init();
+    try {
+      ConversionCacheManager cache = new ConversionCacheManagerImpl(cacheDir, 1024 * 1024, "1.0");
+      Path dataFile = write("data.csv", "time,value\n1,2.5\n");
+
+      Template first = createWizardTemplate("run1");
+      convert(cache, dataFile, first, "first.nc");
+      // the wizard is run again on the same data file, so the template has a new creation date
+      Thread.sleep(10);
+      Template second = createWizardTemplate("run2");
+      Assert.assertNotEquals(first.getCreationDate(), second.getCreationDate());
+      convert(cache, dataFile, second, "second.nc");
+      Assert.assertEquals(1, conversions.get());
+      Assert.assertEquals(1, cache.getHits());
+    } finally {
+      new PropertyUtils().setPropertiesDao(null);
+    }
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    // room for two of the files
+    ConversionCacheManager cache = new ConversionCacheManagerImpl(cacheDir, 25, "1.0");
+    Path a = write("a.csv", "aaaaaaaaaa");
+    Path b = write("b.csv", "bbbbbbbbbb");
+    Path c = write("c.csv", "cccccccccc");
+    Template template = makeTemplate("timeSeries");
+
+    convert(cache, a, template, "a1.nc");
+    convert(cache, b, template, "b1.nc");
+    // use a again, so that b is the least recently used
+    convert(cache, a, template, "a2.nc");
+    convert(cache, c, template, "c1.nc");
+    Assert.assertEquals(3, conversions.get());
+    Assert.assertEquals(2, FileUtils.listFiles(cacheDir.toFile(), null, false).size());
+
+    convert(cache, a, template, "a3.nc");
+    convert(cache, c, template, "c2.nc");
+    Assert.assertEquals(3, conversions.get());
+    convert(cache, b, template, "b2.nc");
+    Assert.assertEquals(4, conversions.get());
+    Assert.assertEquals(3, cache.getHits());
+    Assert.assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  public void disabledCache() throws Exception {
+    ConversionCacheManager cache = new ConversionCacheManagerImpl(cacheDir, 0, "1.0");
+    Path dataFile = write("data.csv", "time,value\n1,2.5\n");
+    convert(cache, dataFile, makeTemplate("timeSeries"), "first.nc");
+    convert(cache, dataFile, makeTemplate("timeSeries"), "second.nc");
+    Assert.assertEquals(2, conversions.get());
+    Assert.assertFalse(Files.exists(cacheDir));
+  }
+}